@@ -0,0 +1,128 @@
+package com.owenjg.regexsynthesiser.benchmark;
+
+import com.owenjg.regexsynthesiser.dfa.DFA;
+import com.owenjg.regexsynthesiser.dfa.DFABuilder;
+
+import java.util.*;
+
+/**
+ * Generates reproducible inputs for the benchmarks.
+ * Every generator takes a seed so that repeated runs measure the same work.
+ */
+final class BenchmarkInputs {
+
+    private BenchmarkInputs() {
+    }
+
+    /**
+     * Generates random lowercase words.
+     * Short alphabets and lengths keep plenty of shared prefixes, as in real example sets.
+     *
+     * @param count The number of words to generate
+     * @param maxLength The maximum word length
+     * @param seed The random seed
+     * @return The generated words, possibly with duplicates
+     */
+    static List<String> randomWords(int count, int maxLength, long seed) {
+        Random random = new Random(seed);
+        List<String> words = new ArrayList<>(count);
+        StringBuilder word = new StringBuilder(maxLength);
+        for (int i = 0; i < count; i++) {
+            word.setLength(0);
+            int length = 1 + random.nextInt(maxLength);
+            for (int j = 0; j < length; j++) {
+                word.append((char) ('a' + random.nextInt(8)));
+            }
+            words.add(word.toString());
+        }
+        return words;
+    }
+
+    /**
+     * Generates a random DFA in which every state has a transition on every symbol.
+     * Roughly a third of the states are accepting.
+     *
+     * @param stateCount The number of states
+     * @param alphabetSize The number of symbols, starting from 'a'
+     * @param seed The random seed
+     * @return A random complete DFA with start state 0
+     */
+    static DFA randomDFA(int stateCount, int alphabetSize, long seed) {
+        Random random = new Random(seed);
+        DFA dfa = new DFA(0);
+        for (int state = 0; state < stateCount; state++) {
+            if (random.nextInt(3) == 0) {
+                dfa.addAcceptingState(state);
+            }
+            for (int symbol = 0; symbol < alphabetSize; symbol++) {
+                dfa.addTransition(state, (char) ('a' + symbol), random.nextInt(stateCount));
+            }
+        }
+        return dfa;
+    }
+
+    /**
+     * Generates a chain DFA accepting a single word of the given length.
+     * Chains are the worst case for refinement rounds, since every round only
+     * splits off one more state.
+     *
+     * @param length The number of transitions in the chain
+     * @return A DFA accepting exactly one word
+     */
+    static DFA chainDFA(int length) {
+        DFA dfa = new DFA(0);
+        for (int state = 0; state < length; state++) {
+            dfa.addTransition(state, (char) ('a' + state % 26), state + 1);
+        }
+        dfa.addAcceptingState(length);
+        return dfa;
+    }
+
+    /**
+     * Generates the prefix tree acceptor of random words, adding words until the tree
+     * has the given number of states. Long words over a wide alphabet share prefixes
+     * but few suffixes, so minimisation has many leaves and branches to merge, as it
+     * does for the trees the synthesiser builds from large example sets.
+     *
+     * @param stateCount The number of states in the tree
+     * @param seed The random seed
+     * @return The prefix tree acceptor, with one state for each distinct prefix
+     */
+    static DFA trieDFA(int stateCount, long seed) {
+        Random random = new Random(seed);
+        Set<String> prefixes = new HashSet<>();
+        prefixes.add("");
+        List<String> words = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        while (prefixes.size() < stateCount) {
+            word.setLength(0);
+            int length = 4 + random.nextInt(12);
+            for (int j = 0; j < length && prefixes.size() < stateCount; j++) {
+                word.append((char) ('a' + random.nextInt(16)));
+                prefixes.add(word.toString());
+            }
+            words.add(word.toString());
+        }
+        return new DFABuilder().buildDFAFromExamples(words, Collections.emptyList());
+    }
+
+    /**
+     * Builds the DFA for one of the benchmark shapes.
+     *
+     * @param shape One of "random", "chain" or "trie"
+     * @param size The number of states
+     * @return The generated DFA
+     */
+    static DFA dfaOfShape(String shape, int size) {
+        switch (shape) {
+            case "random":
+                return randomDFA(size, 4, size);
+            case "chain":
+                return chainDFA(size);
+            case "trie":
+                return trieDFA(size, size);
+            default:
+                throw new IllegalArgumentException("Unknown DFA shape: " + shape);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.owenjg.regexsynthesiser.benchmark;
+
+import com.owenjg.regexsynthesiser.dfa.DFA;
+import com.owenjg.regexsynthesiser.dfa.DFABuilder;
+import com.owenjg.regexsynthesiser.dfa.DFATrimmer;
+import com.owenjg.regexsynthesiser.minimisation.DFAMinimiser;
+import com.owenjg.regexsynthesiser.simplification.AlgebraicConverter;
+import com.owenjg.regexsynthesiser.simplification.ConversionEngine;
+import com.owenjg.regexsynthesiser.simplification.EliminationOrder;
+import com.owenjg.regexsynthesiser.simplification.StateEliminationAlgorithm;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the DFA to regular expression engines on the same minimised DFAs.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConversionEngineBenchmark {
+
+    @Param({"random:8", "random:16", "chain:1000", "trie:1000", "trie:10000"})
+    public String input;
+
+    @Param({"STATE_ELIMINATION", "ALGEBRAIC"})
+    public ConversionEngine engine;
+
+    private DFA dfa;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String[] parts = input.split(":");
+        int size = Integer.parseInt(parts[1]);
+        DFA built;
+        if (parts[0].equals("trie")) {
+            built = new DFABuilder().buildDFAFromExamples(
+                    BenchmarkInputs.randomWords(size, 8, 3), Collections.emptyList());
+        } else {
+            built = BenchmarkInputs.dfaOfShape(parts[0], size);
+        }
+        dfa = new DFAMinimiser().minimiseDFA(new DFATrimmer().trimDFA(built));
+    }
+
+    @Benchmark
+    public String convert() {
+        if (engine == ConversionEngine.ALGEBRAIC) {
+            return new AlgebraicConverter().convert(dfa);
+        }
+        return new StateEliminationAlgorithm(EliminationOrder.DYNAMIC).eliminateStates(dfa);
+    }
+}
@@ -0,0 +1,47 @@
+package com.owenjg.regexsynthesiser.benchmark;
+
+import com.owenjg.regexsynthesiser.dfa.DFA;
+import com.owenjg.regexsynthesiser.dfa.SymbolicDFA;
+import com.owenjg.regexsynthesiser.minimisation.DFAMinimiser;
+import com.owenjg.regexsynthesiser.minimisation.SymbolicDFAMinimiser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures minimisation of random DFAs, long chains and prefix trees of examples,
+ * for both the character and the symbolic representation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MinimisationBenchmark {
+
+    @Param({"random", "chain", "trie"})
+    public String shape;
+
+    @Param({"100", "1000"})
+    public int stateCount;
+
+    private DFA dfa;
+    private SymbolicDFA symbolicDFA;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dfa = BenchmarkInputs.dfaOfShape(shape, stateCount);
+        symbolicDFA = SymbolicDFA.fromDFA(dfa);
+    }
+
+    @Benchmark
+    public DFA minimise() {
+        return new DFAMinimiser().minimiseDFA(dfa);
+    }
+
+    @Benchmark
+    public SymbolicDFA minimiseSymbolic() {
+        return new SymbolicDFAMinimiser().minimiseDFA(symbolicDFA);
+    }
+}
@@ -0,0 +1,49 @@
+package com.owenjg.regexsynthesiser.benchmark;
+
+import com.owenjg.regexsynthesiser.dfa.DFA;
+import com.owenjg.regexsynthesiser.dfa.DFABuilder;
+import com.owenjg.regexsynthesiser.simplification.EliminationOrder;
+import com.owenjg.regexsynthesiser.simplification.StateEliminationAlgorithm;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures converting DFAs to regular expressions by state elimination.
+ * Random DFAs are kept small, since the size of their regular expressions grows
+ * exponentially with the number of states.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StateEliminationBenchmark {
+
+    @Param({"random:8", "random:16", "chain:100", "chain:1000", "trie:1000"})
+    public String input;
+
+    @Param({"STATIC", "DYNAMIC"})
+    public EliminationOrder order;
+
+    private DFA dfa;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String[] parts = input.split(":");
+        int size = Integer.parseInt(parts[1]);
+        if (parts[0].equals("trie")) {
+            dfa = new DFABuilder().buildDFAFromExamples(
+                    BenchmarkInputs.randomWords(size, 8, 3), Collections.emptyList());
+        } else {
+            dfa = BenchmarkInputs.dfaOfShape(parts[0], size);
+        }
+    }
+
+    @Benchmark
+    public String eliminateStates() {
+        return new StateEliminationAlgorithm(order).eliminateStates(dfa);
+    }
+}
@@ -0,0 +1,52 @@
+package com.owenjg.regexsynthesiser.benchmark;
+
+import com.owenjg.regexsynthesiser.dfa.DFA;
+import com.owenjg.regexsynthesiser.dfa.DFABuilder;
+import com.owenjg.regexsynthesiser.minimisation.IncrementalDFAMinimiser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building the prefix tree acceptor from example sets of increasing size,
+ * both from scratch and through the incremental minimiser.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrieBuildBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int wordCount;
+
+    private List<String> positiveExamples;
+    private List<String> negativeExamples;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        positiveExamples = BenchmarkInputs.randomWords(wordCount, 12, 1);
+        negativeExamples = BenchmarkInputs.randomWords(wordCount / 10, 12, 2);
+    }
+
+    @Benchmark
+    public DFA buildPrefixTree() {
+        return new DFABuilder().buildDFAFromExamples(positiveExamples, Collections.emptyList());
+    }
+
+    @Benchmark
+    public DFA buildPrefixTreeWithNegatives() {
+        return new DFABuilder().buildDFAFromExamples(positiveExamples, negativeExamples);
+    }
+
+    @Benchmark
+    public DFA buildIncrementallyMinimised() {
+        IncrementalDFAMinimiser minimiser = new IncrementalDFAMinimiser();
+        minimiser.updateExamples(positiveExamples, negativeExamples);
+        return minimiser.toDFA();
+    }
+}
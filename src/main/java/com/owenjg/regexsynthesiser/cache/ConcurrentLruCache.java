@@ -0,0 +1,131 @@
+package com.owenjg.regexsynthesiser.cache;
+
+/**
+ * A bounded cache for many threads, split into independently locked stripes so that
+ * lookups of different keys rarely contend. Each stripe is an {@link LruCache} holding
+ * an equal share of the capacity, so eviction is least recently used within a stripe
+ * rather than over the whole cache, which is close enough for a memo table.
+ *
+ * @param <K> The key type
+ * @param <V> The value type
+ */
+public class ConcurrentLruCache<K, V> {
+    // The most stripes a cache is split into
+    private static final int MAX_STRIPES = 16;
+
+    private final int capacity;
+    private final LruCache<K, V>[] stripes;
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param capacity The largest number of entries kept
+     * @throws IllegalArgumentException If the capacity is not positive
+     */
+    public ConcurrentLruCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Cache capacity must be positive");
+        }
+        this.capacity = capacity;
+
+        // A power of two, so a stripe can be picked by masking the hash
+        int stripeCount = Integer.highestOneBit(Math.min(capacity, MAX_STRIPES));
+        // A generic array can only be created raw, and it only ever holds LruCache<K, V>
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        LruCache<K, V>[] created = new LruCache[stripeCount];
+        this.stripes = created;
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new LruCache<>(capacity / stripeCount + (i < capacity % stripeCount ? 1 : 0));
+        }
+    }
+
+    /**
+     * Looks up a value, marking it as the most recently used in its stripe.
+     *
+     * @param key The key to look up
+     * @return The cached value, or null if there is none
+     */
+    public V get(K key) {
+        return stripeFor(key).get(key);
+    }
+
+    /**
+     * Stores a value, evicting the least recently used entry of its stripe if that is full.
+     *
+     * @param key The key
+     * @param value The value, which must not be null
+     */
+    public void put(K key, V value) {
+        stripeFor(key).put(key, value);
+    }
+
+    /**
+     * Removes every entry. The hit and miss counts are kept.
+     */
+    public void clear() {
+        for (LruCache<K, V> stripe : stripes) {
+            stripe.clear();
+        }
+    }
+
+    /**
+     * Gets the number of entries currently cached.
+     *
+     * @return The number of entries, which may be out of date by the time it is returned
+     */
+    public int size() {
+        int size = 0;
+        for (LruCache<K, V> stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    /**
+     * Gets the largest number of entries the cache keeps.
+     *
+     * @return The capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Gets the number of lookups that found a value.
+     *
+     * @return The hit count
+     */
+    public long getHitCount() {
+        long hits = 0;
+        for (LruCache<K, V> stripe : stripes) {
+            hits += stripe.getHitCount();
+        }
+        return hits;
+    }
+
+    /**
+     * Gets the number of lookups that found nothing.
+     *
+     * @return The miss count
+     */
+    public long getMissCount() {
+        long misses = 0;
+        for (LruCache<K, V> stripe : stripes) {
+            misses += stripe.getMissCount();
+        }
+        return misses;
+    }
+
+    /**
+     * Picks the stripe holding a key.
+     *
+     * @param key The key
+     * @return Its stripe
+     */
+    private LruCache<K, V> stripeFor(K key) {
+        // Mix the high bits in, since many hash codes differ only there
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        return stripes[hash & (stripes.length - 1)];
+    }
+}
@@ -0,0 +1,108 @@
+package com.owenjg.regexsynthesiser.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A map of bounded size that evicts the least recently used entry once it is full.
+ * Reading an entry counts as using it. All methods are synchronised, so a cache can be
+ * shared by several synthesis threads.
+ *
+ * @param <K> The key type
+ * @param <V> The value type
+ */
+public class LruCache<K, V> {
+    private final int capacity;
+    private final Map<K, V> entries;
+    private long hitCount;
+    private long missCount;
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param capacity The largest number of entries kept
+     * @throws IllegalArgumentException If the capacity is not positive
+     */
+    public LruCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Cache capacity must be positive");
+        }
+        this.capacity = capacity;
+        // An access-ordered map keeps the least recently used entry first
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > LruCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Looks up a value, marking it as the most recently used.
+     *
+     * @param key The key to look up
+     * @return The cached value, or null if there is none
+     */
+    public synchronized V get(K key) {
+        V value = entries.get(key);
+        if (value == null) {
+            missCount++;
+        } else {
+            hitCount++;
+        }
+        return value;
+    }
+
+    /**
+     * Stores a value, evicting the least recently used entry if the cache is full.
+     *
+     * @param key The key
+     * @param value The value, which must not be null
+     */
+    public synchronized void put(K key, V value) {
+        entries.put(key, value);
+    }
+
+    /**
+     * Removes every entry. The hit and miss counts are kept.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Gets the number of entries currently cached.
+     *
+     * @return The number of entries
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the largest number of entries the cache keeps.
+     *
+     * @return The capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Gets the number of lookups that found a value.
+     *
+     * @return The hit count
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Gets the number of lookups that found nothing.
+     *
+     * @return The miss count
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+}
@@ -13,9 +13,11 @@ import java.awt.Toolkit;
 
 import java.awt.datatransfer.Clipboard;
 import java.awt.datatransfer.StringSelection;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 import java.util.List;
 
 /**
@@ -39,6 +41,8 @@ public class DisplayRegexController {
     private String elapsedTime;
     private String analyserRegex;
     private String dfaRegex;
+    private String analyserBacktracking;
+    private String dfaBacktracking;
     private Examples currentExamples;
 
     /**
@@ -72,6 +76,8 @@ public class DisplayRegexController {
             dfaRegexLabel.setText(generatedRegex);
             this.analyserRegex = generatedRegex;
             this.dfaRegex = generatedRegex;
+            this.analyserBacktracking = null;
+            this.dfaBacktracking = null;
         }
 
         this.elapsedTime = elapsedTime;
@@ -105,6 +111,22 @@ public class DisplayRegexController {
         String ratioMetrics = "Length ratio (PA:DFA): " + formattedLengthRatio +
                 "\nComplexity ratio (PA:DFA): " + formattedComplexityRatio;
 
+        // Add the estimated match costs when both expressions could be analysed
+        double analyserCost = RegexComparator.getMatchCost(analyserRegex);
+        double dfaCost = RegexComparator.getMatchCost(dfaRegex);
+        if (!Double.isNaN(analyserCost) && !Double.isNaN(dfaCost)) {
+            ratioMetrics += String.format("\nMatch cost (PA:DFA): %.2f:%.2f steps/char (ratio %.2f:1)",
+                    analyserCost, dfaCost, RegexComparator.getMatchCostRatio(analyserRegex, dfaRegex));
+        }
+
+        // Add the worst-case backtracking verdicts when the synthesiser reported them
+        if (analyserBacktracking != null) {
+            ratioMetrics += "\nBacktracking (PA): " + analyserBacktracking;
+        }
+        if (dfaBacktracking != null) {
+            ratioMetrics += "\nBacktracking (DFA): " + dfaBacktracking;
+        }
+
         // Update the status text
         ratioLabel.setText(ratioMetrics);
     }
@@ -128,7 +150,7 @@ public class DisplayRegexController {
             File selectedFile = fc.showSaveDialog(stage);
 
             if (selectedFile != null) {
-                try (FileWriter fw = new FileWriter(selectedFile)) {
+                try (Writer fw = new BufferedWriter(new FileWriter(selectedFile))) {
                     writeToFile(fw);
                 } catch (IOException e) {
                     updateStatusLabel("ERROR: Exporting the file");
@@ -145,10 +167,12 @@ public class DisplayRegexController {
     /**
      * Writes the examples and regex results to the specified file.
      *
-     * @param fw The FileWriter for the output file
+     * Each piece is written separately so a long regex is not copied into a larger string first.
+     *
+     * @param fw The Writer for the output file, closed by the caller
      * @throws IOException If there is an error writing to the file
      */
-    private void writeToFile(FileWriter fw) throws IOException {
+    private void writeToFile(Writer fw) throws IOException {
         List<String> positives = currentExamples.getPositiveExamples();
         List<String> negatives = currentExamples.getNegativeExamples();
 
@@ -169,10 +193,12 @@ public class DisplayRegexController {
         }
 
         fw.write("\n::\n");
-        fw.write("Pattern Analyser Regex: " + analyserRegex);
-        fw.write("\nDFA-based Regex: " + dfaRegex);
-        fw.write("\n\n" + ratioLabel.getText());
-        fw.close();
+        fw.write("Pattern Analyser Regex: ");
+        fw.write(String.valueOf(analyserRegex));
+        fw.write("\nDFA-based Regex: ");
+        fw.write(String.valueOf(dfaRegex));
+        fw.write("\n\n");
+        fw.write(ratioLabel.getText());
     }
 
     /**
@@ -275,6 +301,8 @@ public class DisplayRegexController {
         // Initialise default values
         analyserRegex = "Not available";
         dfaRegex = "Not available";
+        analyserBacktracking = null;
+        dfaBacktracking = null;
 
         if (combinedRegex != null) {
             String[] parts = combinedRegex.split("\n");
@@ -284,6 +312,10 @@ public class DisplayRegexController {
                     analyserRegex = part.substring("Pattern Analyser:".length()).trim();
                 } else if (part.startsWith("DFA-based:")) {
                     dfaRegex = part.substring("DFA-based:".length()).trim();
+                } else if (part.startsWith("Backtracking (PA):")) {
+                    analyserBacktracking = part.substring("Backtracking (PA):".length()).trim();
+                } else if (part.startsWith("Backtracking (DFA):")) {
+                    dfaBacktracking = part.substring("Backtracking (DFA):".length()).trim();
                 }
             }
         }
@@ -0,0 +1,33 @@
+package com.owenjg.regexsynthesiser.dfa;
+
+import java.util.Set;
+
+/**
+ * The state structure shared by the automaton representations.
+ * Algorithms that only need to know which states exist, where processing
+ * starts and which states accept can work on any implementation.
+ */
+public interface Automaton {
+
+    /**
+     * Gets the starting state of the automaton.
+     *
+     * @return The start state
+     */
+    int getStartState();
+
+    /**
+     * Checks if a state is an accepting state.
+     *
+     * @param state The state to check
+     * @return true if the state is accepting, false otherwise
+     */
+    boolean isAcceptingState(int state);
+
+    /**
+     * Gets the complete set of all states in the automaton.
+     *
+     * @return A set containing all states
+     */
+    Set<Integer> getStates();
+}
@@ -0,0 +1,121 @@
+package com.owenjg.regexsynthesiser.dfa;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * The canonical form of a DFA, used to recognise automata that accept the same language.
+ *
+ * The DFA is trimmed and its states are renumbered in breadth-first order from the start
+ * state, following the transitions of each state in ascending symbol order. Minimal DFAs
+ * for the same language differ only in how their states are numbered, so they all have
+ * the same canonical form however the examples were ordered or repeated. The form is
+ * also encoded as bytes, from which a 128-bit {@link DFAFingerprint} can be taken.
+ */
+public final class CanonicalDFA {
+    private final DFA dfa;
+    private final byte[] encoding;
+
+    /**
+     * Computes the canonical form of a DFA. Only minimal DFAs are guaranteed to share a
+     * canonical form with every other DFA for the same language.
+     *
+     * @param dfa The DFA, usually already minimised
+     */
+    public CanonicalDFA(DFA dfa) {
+        DFA trimmed = new DFATrimmer().trimDFA(dfa);
+
+        // Breadth-first search visiting each state's transitions in symbol order
+        Map<Integer, Integer> canonicalIds = new HashMap<>();
+        List<Integer> order = new ArrayList<>();
+        canonicalIds.put(trimmed.getStartState(), 0);
+        order.add(trimmed.getStartState());
+        for (int i = 0; i < order.size(); i++) {
+            for (int target : sortedTransitions(trimmed, order.get(i)).values()) {
+                if (!canonicalIds.containsKey(target)) {
+                    canonicalIds.put(target, order.size());
+                    order.add(target);
+                }
+            }
+        }
+
+        this.dfa = new DFA(0);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(order.size());
+            for (int i = 0; i < order.size(); i++) {
+                int state = order.get(i);
+                boolean accepting = trimmed.isAcceptingState(state);
+                if (accepting) {
+                    this.dfa.addAcceptingState(i);
+                }
+
+                SortedMap<Character, Integer> transitions = sortedTransitions(trimmed, state);
+                out.writeBoolean(accepting);
+                out.writeInt(transitions.size());
+                for (Map.Entry<Character, Integer> transition : transitions.entrySet()) {
+                    int target = canonicalIds.get(transition.getValue());
+                    this.dfa.addTransition(i, transition.getKey(), target);
+                    out.writeChar(transition.getKey());
+                    out.writeInt(target);
+                }
+            }
+        } catch (IOException e) {
+            // Writing to memory cannot fail
+            throw new UncheckedIOException(e);
+        }
+        this.encoding = bytes.toByteArray();
+    }
+
+    /**
+     * Gets the canonically numbered DFA.
+     *
+     * @return The DFA, whose start state is 0
+     */
+    public DFA getDFA() {
+        return dfa;
+    }
+
+    /**
+     * Computes a fingerprint of the canonical form together with a tag. The tag
+     * distinguishes results that depend on more than the language, such as the
+     * conversion engine that produced a cached expression.
+     *
+     * @param tag Any text to mix into the fingerprint
+     * @return The 128-bit fingerprint
+     */
+    public DFAFingerprint getFingerprint(String tag) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support MD5
+            throw new IllegalStateException(e);
+        }
+
+        byte[] tagBytes = tag.getBytes(StandardCharsets.UTF_8);
+        digest.update(new byte[]{
+                (byte) (tagBytes.length >>> 24), (byte) (tagBytes.length >>> 16),
+                (byte) (tagBytes.length >>> 8), (byte) tagBytes.length});
+        digest.update(tagBytes);
+        digest.update(encoding);
+        return new DFAFingerprint(digest.digest());
+    }
+
+    /**
+     * Gets the transitions of a state ordered by symbol.
+     *
+     * @param dfa The DFA
+     * @param state The state
+     * @return The transitions, keyed by symbol in ascending order
+     */
+    private static SortedMap<Character, Integer> sortedTransitions(DFA dfa, int state) {
+        return new TreeMap<>(dfa.getTransitions().getOrDefault(state, Collections.emptyMap()));
+    }
+}
@@ -0,0 +1,518 @@
+package com.owenjg.regexsynthesiser.dfa;
+
+import java.util.*;
+
+/**
+ * An immutable set of characters stored as a sorted list of disjoint, non-adjacent ranges.
+ * Its size depends only on the number of ranges, not on how many characters they cover,
+ * so wide classes such as whole Unicode blocks cost no more than a single character.
+ *
+ * Sets form a small algebra: union, intersection, difference and complement all work
+ * by merging the two range lists in one pass. Each set has a single canonical rendering
+ * as a regular expression, the shortest of its possible forms.
+ */
+public final class CharRangeSet {
+    /**
+     * The empty set.
+     */
+    public static final CharRangeSet EMPTY = new CharRangeSet(new int[0]);
+
+    /**
+     * Every character.
+     */
+    public static final CharRangeSet ALL = new CharRangeSet(new int[]{Character.MIN_VALUE, Character.MAX_VALUE});
+
+    /**
+     * The digits matched by \d.
+     */
+    public static final CharRangeSet DIGITS = new CharRangeSet(new int[]{'0', '9'});
+
+    /**
+     * The word characters matched by \w: ASCII letters, digits and the underscore.
+     */
+    public static final CharRangeSet WORD_CHARACTERS = new CharRangeSet(new int[]{'0', '9', 'A', 'Z', '_', '_', 'a', 'z'});
+
+    /**
+     * The whitespace characters matched by \s: tab, line feed, vertical tab, form feed,
+     * carriage return and space.
+     */
+    public static final CharRangeSet WHITESPACE = new CharRangeSet(new int[]{'\t', '\r', ' ', ' '});
+
+    /**
+     * Characters that must be escaped to be matched literally outside a character class.
+     */
+    private static final String LITERAL_METACHARACTERS = ".[{()*+?^$|\\";
+
+    /**
+     * Characters that must be escaped inside a character class.
+     */
+    private static final String CLASS_METACHARACTERS = "\\]-[^&";
+
+    /**
+     * Range bounds as pairs of inclusive start and end characters, in ascending order.
+     */
+    private final int[] bounds;
+
+    // The rendering, computed the first time it is needed
+    private String regex;
+
+    /**
+     * Creates a set from already canonical bounds.
+     *
+     * @param bounds Sorted, disjoint and non-adjacent range bounds
+     */
+    private CharRangeSet(int[] bounds) {
+        this.bounds = bounds;
+    }
+
+    /**
+     * Creates a set containing a single character.
+     *
+     * @param c The character
+     * @return A set containing only the character
+     */
+    public static CharRangeSet of(char c) {
+        return new CharRangeSet(new int[]{c, c});
+    }
+
+    /**
+     * Creates a set containing an inclusive range of characters.
+     *
+     * @param first The first character of the range
+     * @param last The last character of the range
+     * @return A set containing every character from first to last
+     */
+    public static CharRangeSet range(char first, char last) {
+        if (first > last) {
+            return EMPTY;
+        }
+        return new CharRangeSet(new int[]{first, last});
+    }
+
+    /**
+     * Creates a set from a collection of individual characters.
+     *
+     * @param chars The characters to include
+     * @return A set containing exactly the given characters
+     */
+    public static CharRangeSet of(Collection<Character> chars) {
+        int[] sorted = new int[chars.size()];
+        int i = 0;
+        for (char c : chars) {
+            sorted[i++] = c;
+        }
+        Arrays.sort(sorted);
+
+        int[] bounds = new int[sorted.length * 2];
+        int count = 0;
+        for (int c : sorted) {
+            if (count > 0 && c <= bounds[count - 1] + 1) {
+                bounds[count - 1] = Math.max(bounds[count - 1], c);
+            } else {
+                bounds[count++] = c;
+                bounds[count++] = c;
+            }
+        }
+        return new CharRangeSet(Arrays.copyOf(bounds, count));
+    }
+
+    /**
+     * Creates a set from every character of a sequence, without boxing them.
+     *
+     * @param chars The characters to include, in any order and possibly repeated
+     * @return A set containing exactly the characters of the sequence
+     */
+    public static CharRangeSet of(CharSequence chars) {
+        char[] sorted = new char[chars.length()];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = chars.charAt(i);
+        }
+        Arrays.sort(sorted);
+
+        int[] bounds = new int[sorted.length * 2];
+        int count = 0;
+        for (char c : sorted) {
+            if (count > 0 && c <= bounds[count - 1] + 1) {
+                bounds[count - 1] = Math.max(bounds[count - 1], c);
+            } else {
+                bounds[count++] = c;
+                bounds[count++] = c;
+            }
+        }
+        return count == 0 ? EMPTY : new CharRangeSet(Arrays.copyOf(bounds, count));
+    }
+
+    /**
+     * Computes the union of this set and another.
+     *
+     * @param other The other set
+     * @return A set containing the characters of both sets
+     */
+    public CharRangeSet union(CharRangeSet other) {
+        if (other.isEmpty()) return this;
+        if (isEmpty()) return other;
+
+        int[] merged = new int[bounds.length + other.bounds.length];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < bounds.length || j < other.bounds.length) {
+            // Take the range that starts first
+            int start;
+            int end;
+            if (j >= other.bounds.length || (i < bounds.length && bounds[i] <= other.bounds[j])) {
+                start = bounds[i];
+                end = bounds[i + 1];
+                i += 2;
+            } else {
+                start = other.bounds[j];
+                end = other.bounds[j + 1];
+                j += 2;
+            }
+
+            if (count > 0 && start <= merged[count - 1] + 1) {
+                merged[count - 1] = Math.max(merged[count - 1], end);
+            } else {
+                merged[count++] = start;
+                merged[count++] = end;
+            }
+        }
+        return new CharRangeSet(Arrays.copyOf(merged, count));
+    }
+
+    /**
+     * Computes the intersection of this set and another.
+     *
+     * @param other The other set
+     * @return A set containing the characters present in both sets
+     */
+    public CharRangeSet intersect(CharRangeSet other) {
+        int[] result = new int[bounds.length + other.bounds.length];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < bounds.length && j < other.bounds.length) {
+            int start = Math.max(bounds[i], other.bounds[j]);
+            int end = Math.min(bounds[i + 1], other.bounds[j + 1]);
+            if (start <= end) {
+                result[count++] = start;
+                result[count++] = end;
+            }
+
+            // Advance whichever range finishes first
+            if (bounds[i + 1] < other.bounds[j + 1]) {
+                i += 2;
+            } else {
+                j += 2;
+            }
+        }
+        return count == 0 ? EMPTY : new CharRangeSet(Arrays.copyOf(result, count));
+    }
+
+    /**
+     * Computes the characters of this set that are not in another.
+     *
+     * @param other The set of characters to remove
+     * @return A set containing the characters of this set missing from the other
+     */
+    public CharRangeSet minus(CharRangeSet other) {
+        if (isEmpty() || other.isEmpty()) return this;
+
+        int[] result = new int[bounds.length + other.bounds.length];
+        int count = 0;
+        int j = 0;
+        for (int i = 0; i < bounds.length; i += 2) {
+            int start = bounds[i];
+            int end = bounds[i + 1];
+
+            // Skip removed ranges that finish before this range starts
+            while (j < other.bounds.length && other.bounds[j + 1] < start) {
+                j += 2;
+            }
+
+            int k = j;
+            while (k < other.bounds.length && other.bounds[k] <= end) {
+                if (other.bounds[k] > start) {
+                    result[count++] = start;
+                    result[count++] = other.bounds[k] - 1;
+                }
+                start = Math.max(start, other.bounds[k + 1] + 1);
+                k += 2;
+            }
+
+            if (start <= end) {
+                result[count++] = start;
+                result[count++] = end;
+            }
+        }
+        return count == 0 ? EMPTY : new CharRangeSet(Arrays.copyOf(result, count));
+    }
+
+    /**
+     * Computes the characters that are not in this set.
+     *
+     * @return A set containing every character missing from this one
+     */
+    public CharRangeSet complement() {
+        // The gaps between the ranges, plus any before the first and after the last
+        int[] result = new int[bounds.length + 2];
+        int count = 0;
+        int next = Character.MIN_VALUE;
+        for (int i = 0; i < bounds.length; i += 2) {
+            if (bounds[i] > next) {
+                result[count++] = next;
+                result[count++] = bounds[i] - 1;
+            }
+            next = bounds[i + 1] + 1;
+        }
+        if (next <= Character.MAX_VALUE) {
+            result[count++] = next;
+            result[count++] = Character.MAX_VALUE;
+        }
+        return count == 0 ? EMPTY : new CharRangeSet(Arrays.copyOf(result, count));
+    }
+
+    /**
+     * Checks whether the set contains a character, using a binary search over the ranges.
+     *
+     * @param c The character to look for
+     * @return true if the character is in the set
+     */
+    public boolean contains(char c) {
+        int low = 0;
+        int high = bounds.length / 2 - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (c < bounds[mid * 2]) {
+                high = mid - 1;
+            } else if (c > bounds[mid * 2 + 1]) {
+                low = mid + 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether every character of this set is also in another.
+     *
+     * @param other The potential superset
+     * @return true if this set is a subset of the other
+     */
+    public boolean isSubsetOf(CharRangeSet other) {
+        return minus(other).isEmpty();
+    }
+
+    /**
+     * Checks whether the set is empty.
+     *
+     * @return true if the set contains no characters
+     */
+    public boolean isEmpty() {
+        return bounds.length == 0;
+    }
+
+    /**
+     * Counts the characters in the set.
+     *
+     * @return The number of characters covered by all ranges
+     */
+    public int size() {
+        int size = 0;
+        for (int i = 0; i < bounds.length; i += 2) {
+            size += bounds[i + 1] - bounds[i] + 1;
+        }
+        return size;
+    }
+
+    /**
+     * Gets the number of disjoint ranges in the set.
+     *
+     * @return The number of ranges
+     */
+    public int getRangeCount() {
+        return bounds.length / 2;
+    }
+
+    /**
+     * Gets the first character of one of the ranges.
+     *
+     * @param index The index of the range
+     * @return The first character of the range
+     */
+    public char getRangeStart(int index) {
+        return (char) bounds[index * 2];
+    }
+
+    /**
+     * Gets the last character of one of the ranges.
+     *
+     * @param index The index of the range
+     * @return The last character of the range
+     */
+    public char getRangeEnd(int index) {
+        return (char) bounds[index * 2 + 1];
+    }
+
+    /**
+     * Renders the set as a regular expression matching exactly one of its characters.
+     * A single character is rendered as an escaped literal, and the sets of \d, \w and
+     * \s and their complements as those shorthands. Anything else becomes a class with
+     * runs of three or more characters written as ranges, using a shorthand for any of
+     * those sets it contains, for example [\w.-] or [a-f\d]. A negated class of the
+     * complement, such as [^\n], is used instead when it is strictly shorter. The empty
+     * set, which has no class of its own, becomes [^\s\S], a class that never matches.
+     *
+     * @return The shortest regular expression for the set
+     */
+    public String toRegex() {
+        if (regex == null) {
+            regex = render();
+        }
+        return regex;
+    }
+
+    /**
+     * Works out the canonical rendering of the set.
+     *
+     * @return The shortest regular expression for the set
+     */
+    private String render() {
+        if (isEmpty()) {
+            // [] is not a valid class, so negate the class of every character instead
+            return "[^\\s\\S]";
+        }
+        if (size() == 1) {
+            return escapeLiteral((char) bounds[0]);
+        }
+        if (equals(DIGITS)) return "\\d";
+        if (equals(WORD_CHARACTERS)) return "\\w";
+        if (equals(WHITESPACE)) return "\\s";
+        if (equals(ALL)) return "[\\s\\S]";
+
+        CharRangeSet complement = complement();
+        if (complement.equals(DIGITS)) return "\\D";
+        if (complement.equals(WORD_CHARACTERS)) return "\\W";
+        if (complement.equals(WHITESPACE)) return "\\S";
+
+        String positive = renderClass("[", this);
+        if (complement.getRangeCount() >= getRangeCount()) {
+            // A negated class is never shorter when the complement has at least as many ranges
+            return positive;
+        }
+        String negated = renderClass("[^", complement);
+        return negated.length() < positive.length() ? negated : positive;
+    }
+
+    /**
+     * Renders a class listing the characters of a set.
+     *
+     * @param opening The opening bracket, with ^ for a negated class
+     * @param set The characters to list
+     * @return The class
+     */
+    private static String renderClass(String opening, CharRangeSet set) {
+        StringBuilder regex = new StringBuilder(opening);
+        CharRangeSet rest = set;
+        if (WORD_CHARACTERS.isSubsetOf(set)) {
+            regex.append("\\w");
+            rest = rest.minus(WORD_CHARACTERS);
+        } else if (DIGITS.isSubsetOf(set)) {
+            regex.append("\\d");
+            rest = rest.minus(DIGITS);
+        }
+        if (WHITESPACE.isSubsetOf(set)) {
+            regex.append("\\s");
+            rest = rest.minus(WHITESPACE);
+        }
+
+        int[] restBounds = rest.bounds;
+        for (int i = 0; i < restBounds.length; i += 2) {
+            appendClassChar(regex, (char) restBounds[i]);
+            if (restBounds[i + 1] - restBounds[i] >= 2) {
+                regex.append('-');
+            }
+            if (restBounds[i + 1] > restBounds[i]) {
+                appendClassChar(regex, (char) restBounds[i + 1]);
+            }
+        }
+        return regex.append(']').toString();
+    }
+
+    /**
+     * Escapes a character so it is matched literally outside a character class.
+     * Control characters and others that would be invisible are written as escapes.
+     *
+     * @param c The character to escape
+     * @return The character, preceded by a backslash if it is a metacharacter
+     */
+    public static String escapeLiteral(char c) {
+        if (LITERAL_METACHARACTERS.indexOf(c) >= 0) {
+            return "\\" + c;
+        }
+        return isVisible(c) ? String.valueOf(c) : escapeInvisible(c);
+    }
+
+    /**
+     * Appends a character to a character class, escaping it if necessary.
+     *
+     * @param regex The class being built
+     * @param c The character to append
+     */
+    private static void appendClassChar(StringBuilder regex, char c) {
+        if (CLASS_METACHARACTERS.indexOf(c) >= 0) {
+            regex.append('\\');
+        } else if (!isVisible(c)) {
+            regex.append(escapeInvisible(c));
+            return;
+        }
+        regex.append(c);
+    }
+
+    /**
+     * Checks whether a character can be written into an expression as itself.
+     *
+     * @param c The character
+     * @return false for control characters, lone surrogates, unassigned characters and
+     *         whitespace other than the space
+     */
+    private static boolean isVisible(char c) {
+        return c == ' ' || (!Character.isISOControl(c) && !Character.isSurrogate(c)
+                && Character.isDefined(c) && !Character.isWhitespace(c) && !Character.isSpaceChar(c));
+    }
+
+    /**
+     * Writes an invisible character as an escape sequence.
+     *
+     * @param c The character
+     * @return The escape, such as \t, \x7F or \u2028
+     */
+    private static String escapeInvisible(char c) {
+        switch (c) {
+            case '\t': return "\\t";
+            case '\n': return "\\n";
+            case '\r': return "\\r";
+            case '\f': return "\\f";
+            default:
+                return c < 0x100 ? String.format("\\x%02X", (int) c) : String.format("\\u%04X", (int) c);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return Arrays.equals(bounds, ((CharRangeSet) o).bounds);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(bounds);
+    }
+
+    @Override
+    public String toString() {
+        return isEmpty() ? "[]" : toRegex();
+    }
+}
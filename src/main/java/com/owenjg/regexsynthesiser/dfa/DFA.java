@@ -7,7 +7,7 @@ import java.util.*;
  * This class provides the core data structure and operations for working with DFAs
  * in the context of regular expression synthesis.
  */
-public class DFA {
+public class DFA implements Automaton {
     /**
      * Constant representing an invalid or non-existent state in the DFA.
      */
@@ -86,6 +86,7 @@ public class DFA {
      * @param state The state to check
      * @return true if the state is accepting, false otherwise
      */
+    @Override
     public boolean isAcceptingState(int state) {
         return acceptingStates.contains(state);
     }
@@ -95,6 +96,7 @@ public class DFA {
      *
      * @return The start state
      */
+    @Override
     public int getStartState() {
         return startState;
     }
@@ -146,6 +148,7 @@ public class DFA {
      *
      * @return A set containing all states in the DFA
      */
+    @Override
     public Set<Integer> getStates() {
         Set<Integer> states = new HashSet<>();
         states.add(startState);
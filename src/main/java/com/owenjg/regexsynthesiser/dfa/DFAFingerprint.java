@@ -0,0 +1,49 @@
+package com.owenjg.regexsynthesiser.dfa;
+
+/**
+ * A 128-bit fingerprint of a {@link CanonicalDFA}. Equal DFAs always have equal
+ * fingerprints, and different ones collide with negligible probability, so the
+ * fingerprint can stand in for the whole automaton as a cache key.
+ */
+public final class DFAFingerprint {
+    private final long high;
+    private final long low;
+
+    /**
+     * Creates a fingerprint from a 16-byte digest.
+     *
+     * @param digest The digest bytes
+     * @throws IllegalArgumentException If the digest is not 16 bytes long
+     */
+    DFAFingerprint(byte[] digest) {
+        if (digest.length != 16) {
+            throw new IllegalArgumentException("A fingerprint needs a 128-bit digest");
+        }
+        long h = 0;
+        long l = 0;
+        for (int i = 0; i < 8; i++) {
+            h = (h << 8) | (digest[i] & 0xff);
+            l = (l << 8) | (digest[i + 8] & 0xff);
+        }
+        this.high = h;
+        this.low = l;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        DFAFingerprint that = (DFAFingerprint) o;
+        return high == that.high && low == that.low;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(high ^ low);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%016x%016x", high, low);
+    }
+}
@@ -0,0 +1,213 @@
+package com.owenjg.regexsynthesiser.dfa;
+
+import java.util.*;
+
+/**
+ * Removes the states of an automaton that can never contribute to an accepted string.
+ * A state is kept only if it is reachable from the start state and can itself
+ * reach an accepting state, so sink states and dead branches are discarded
+ * before the DFA is minimised or converted to a regular expression.
+ */
+public class DFATrimmer {
+
+    /**
+     * Trims a DFA down to its useful states.
+     * The surviving states are renumbered densely in breadth-first order from the
+     * start state, which always becomes state 0. The start state is kept even when
+     * it cannot reach an accepting state, so the result is always a valid DFA.
+     *
+     * @param dfa The DFA to trim
+     * @return A new DFA containing only reachable states that can reach an accepting state
+     */
+    public DFA trimDFA(DFA dfa) {
+        Map<Integer, Collection<Integer>> successors = new HashMap<>();
+        for (Map.Entry<Integer, Map<Character, Integer>> entry : dfa.getTransitions().entrySet()) {
+            successors.put(entry.getKey(), entry.getValue().values());
+        }
+        Map<Integer, Integer> newIds = renumberLiveStates(dfa, successors);
+
+        DFA trimmed = new DFA(0);
+        for (Map.Entry<Integer, Integer> state : newIds.entrySet()) {
+            if (dfa.isAcceptingState(state.getKey())) {
+                trimmed.addAcceptingState(state.getValue());
+            }
+        }
+
+        for (Map.Entry<Integer, Map<Character, Integer>> entry : dfa.getTransitions().entrySet()) {
+            Integer from = newIds.get(entry.getKey());
+            if (from == null) {
+                continue;
+            }
+
+            for (Map.Entry<Character, Integer> transition : entry.getValue().entrySet()) {
+                Integer to = newIds.get(transition.getValue());
+                if (to != null) {
+                    trimmed.addTransition(from, transition.getKey(), to);
+                }
+            }
+        }
+
+        return trimmed;
+    }
+
+    /**
+     * Trims a symbolic DFA down to its useful states, renumbering them in the same way
+     * as {@link #trimDFA(DFA)}.
+     *
+     * @param dfa The symbolic DFA to trim
+     * @return A new symbolic DFA containing only reachable states that can reach an accepting state
+     */
+    public SymbolicDFA trimDFA(SymbolicDFA dfa) {
+        Map<Integer, Collection<Integer>> successors = new HashMap<>();
+        for (Map.Entry<Integer, Map<Integer, CharRangeSet>> entry : dfa.getTransitions().entrySet()) {
+            successors.put(entry.getKey(), entry.getValue().keySet());
+        }
+        Map<Integer, Integer> newIds = renumberLiveStates(dfa, successors);
+
+        SymbolicDFA trimmed = new SymbolicDFA(0);
+        for (Map.Entry<Integer, Integer> state : newIds.entrySet()) {
+            if (dfa.isAcceptingState(state.getKey())) {
+                trimmed.addAcceptingState(state.getValue());
+            }
+        }
+
+        for (Map.Entry<Integer, Map<Integer, CharRangeSet>> entry : dfa.getTransitions().entrySet()) {
+            Integer from = newIds.get(entry.getKey());
+            if (from == null) {
+                continue;
+            }
+
+            for (Map.Entry<Integer, CharRangeSet> edge : entry.getValue().entrySet()) {
+                Integer to = newIds.get(edge.getKey());
+                if (to != null) {
+                    trimmed.addTransition(from, edge.getValue(), to);
+                }
+            }
+        }
+
+        return trimmed;
+    }
+
+    /**
+     * Finds the live states of an automaton and assigns them new, dense IDs.
+     * A forward search from the start state and a backward search from the accepting
+     * states are run over int worklists; states found by both are live.
+     *
+     * @param automaton The automaton being trimmed
+     * @param successors The target states of each state's transitions
+     * @return New IDs for the live states (and the start state), keyed by original ID
+     */
+    private Map<Integer, Integer> renumberLiveStates(Automaton automaton, Map<Integer, Collection<Integer>> successors) {
+        // Index the states densely so the searches can work on int arrays
+        int[] stateIds = automaton.getStates().stream().mapToInt(Integer::intValue).sorted().toArray();
+        Map<Integer, Integer> stateIndex = new HashMap<>();
+        for (int i = 0; i < stateIds.length; i++) {
+            stateIndex.put(stateIds[i], i);
+        }
+
+        int stateCount = stateIds.length;
+        int[][] forward = buildAdjacency(successors, stateIndex, stateCount, false);
+        int[][] backward = buildAdjacency(successors, stateIndex, stateCount, true);
+
+        // Forward search from the start state records the breadth-first visiting order
+        int startIndex = stateIndex.get(automaton.getStartState());
+        int[] visitOrder = new int[stateCount];
+        boolean[] reachable = new boolean[stateCount];
+        int visited = breadthFirstSearch(forward, new int[]{startIndex}, reachable, visitOrder);
+
+        // Backward search from every accepting state
+        int[] acceptingIndices = new int[stateCount];
+        int acceptingCount = 0;
+        for (int i = 0; i < stateCount; i++) {
+            if (automaton.isAcceptingState(stateIds[i])) {
+                acceptingIndices[acceptingCount++] = i;
+            }
+        }
+        boolean[] productive = new boolean[stateCount];
+        breadthFirstSearch(backward, Arrays.copyOf(acceptingIndices, acceptingCount), productive, new int[stateCount]);
+
+        // Renumber the live states in the order they were reached from the start
+        Map<Integer, Integer> newIds = new HashMap<>();
+        for (int i = 0; i < visited; i++) {
+            int state = visitOrder[i];
+            if (state == startIndex || productive[state]) {
+                newIds.put(stateIds[state], newIds.size());
+            }
+        }
+
+        return newIds;
+    }
+
+    /**
+     * Builds a compact adjacency list for an automaton's transition graph.
+     * Parallel transitions are kept, since the searches only care whether a
+     * neighbour exists.
+     *
+     * @param successors The target states of each state's transitions
+     * @param stateIndex Mapping from state IDs to dense indices
+     * @param stateCount The number of states in the automaton
+     * @param reversed true to index incoming transitions instead of outgoing ones
+     * @return For each state index, the indices of its neighbours
+     */
+    private int[][] buildAdjacency(Map<Integer, Collection<Integer>> successors, Map<Integer, Integer> stateIndex,
+                                   int stateCount, boolean reversed) {
+        int[] degree = new int[stateCount];
+        for (Map.Entry<Integer, Collection<Integer>> entry : successors.entrySet()) {
+            int from = stateIndex.get(entry.getKey());
+            for (int to : entry.getValue()) {
+                degree[reversed ? stateIndex.get(to) : from]++;
+            }
+        }
+
+        int[][] adjacency = new int[stateCount][];
+        for (int i = 0; i < stateCount; i++) {
+            adjacency[i] = new int[degree[i]];
+        }
+
+        int[] filled = new int[stateCount];
+        for (Map.Entry<Integer, Collection<Integer>> entry : successors.entrySet()) {
+            int from = stateIndex.get(entry.getKey());
+            for (int toState : entry.getValue()) {
+                int to = stateIndex.get(toState);
+                if (reversed) {
+                    adjacency[to][filled[to]++] = from;
+                } else {
+                    adjacency[from][filled[from]++] = to;
+                }
+            }
+        }
+
+        return adjacency;
+    }
+
+    /**
+     * Runs a breadth-first search over an adjacency list using an int worklist.
+     *
+     * @param adjacency The graph to search
+     * @param sources The state indices the search starts from
+     * @param seen Marks every state index reached by the search
+     * @param order Receives the state indices in the order they were reached
+     * @return The number of states reached
+     */
+    private int breadthFirstSearch(int[][] adjacency, int[] sources, boolean[] seen, int[] order) {
+        int tail = 0;
+        for (int source : sources) {
+            if (!seen[source]) {
+                seen[source] = true;
+                order[tail++] = source;
+            }
+        }
+
+        // The order array doubles as the worklist, since each state is queued at most once
+        for (int head = 0; head < tail; head++) {
+            for (int next : adjacency[order[head]]) {
+                if (!seen[next]) {
+                    seen[next] = true;
+                    order[tail++] = next;
+                }
+            }
+        }
+
+        return tail;
+    }
+}
@@ -0,0 +1,131 @@
+package com.owenjg.regexsynthesiser.dfa;
+
+import java.util.*;
+
+/**
+ * A reference-counted prefix tree of positive and negative examples.
+ * Each node counts how many stored examples pass through it, so examples can be
+ * removed again and branches that no longer carry any example are pruned.
+ *
+ * The trie defines the language the DFA pipeline learns: a word belongs to it
+ * when it has been added as a positive example and never as a negative one.
+ */
+public class ExampleTrie {
+
+    /**
+     * A node of the prefix tree.
+     */
+    private static class Node {
+        final Map<Character, Node> children = new HashMap<>();
+        int references;
+        int positiveCount;
+        int negativeCount;
+
+        /**
+         * Checks whether the word ending at this node belongs to the language.
+         *
+         * @return true if the word is a positive example and not a negative one
+         */
+        boolean isMember() {
+            return positiveCount > 0 && negativeCount == 0;
+        }
+    }
+
+    private final Node root = new Node();
+
+    /**
+     * Adds one occurrence of an example.
+     *
+     * @param word The example string
+     * @param positive true for a positive example, false for a negative one
+     * @return true if the word's membership of the language changed
+     */
+    public boolean add(String word, boolean positive) {
+        Node node = root;
+        node.references++;
+        for (int i = 0; i < word.length(); i++) {
+            node = node.children.computeIfAbsent(word.charAt(i), k -> new Node());
+            node.references++;
+        }
+
+        boolean wasMember = node.isMember();
+        if (positive) {
+            node.positiveCount++;
+        } else {
+            node.negativeCount++;
+        }
+        return wasMember != node.isMember();
+    }
+
+    /**
+     * Removes one occurrence of an example, pruning nodes that no longer lead to any example.
+     *
+     * @param word The example string
+     * @param positive true for a positive example, false for a negative one
+     * @return true if the word's membership of the language changed
+     * @throws IllegalArgumentException If the example has not been added
+     */
+    public boolean remove(String word, boolean positive) {
+        Node end = find(word);
+        if (end == null || (positive ? end.positiveCount : end.negativeCount) == 0) {
+            throw new IllegalArgumentException("Example has not been added: " + word);
+        }
+
+        boolean wasMember = end.isMember();
+        if (positive) {
+            end.positiveCount--;
+        } else {
+            end.negativeCount--;
+        }
+        boolean isMember = end.isMember();
+
+        // Release the path, detaching the first node that no longer carries an example
+        Node node = root;
+        node.references--;
+        for (int i = 0; i < word.length(); i++) {
+            Node child = node.children.get(word.charAt(i));
+            child.references--;
+            if (child.references == 0) {
+                node.children.remove(word.charAt(i));
+                break;
+            }
+            node = child;
+        }
+
+        return wasMember != isMember;
+    }
+
+    /**
+     * Checks whether a word belongs to the language described by the examples.
+     *
+     * @param word The word to check
+     * @return true if the word is a positive example and not a negative one
+     */
+    public boolean contains(String word) {
+        Node node = find(word);
+        return node != null && node.isMember();
+    }
+
+    /**
+     * Gets the number of examples currently stored, counting duplicates.
+     *
+     * @return The number of stored examples
+     */
+    public int size() {
+        return root.references;
+    }
+
+    /**
+     * Follows a word from the root of the trie.
+     *
+     * @param word The word to follow
+     * @return The node the word ends at, or null if the word leaves the trie
+     */
+    private Node find(String word) {
+        Node node = root;
+        for (int i = 0; i < word.length() && node != null; i++) {
+            node = node.children.get(word.charAt(i));
+        }
+        return node;
+    }
+}
@@ -0,0 +1,111 @@
+package com.owenjg.regexsynthesiser.dfa;
+
+import java.util.Arrays;
+
+/**
+ * Finds the strongly connected components of a graph with Tarjan's algorithm.
+ * The search runs over int arrays with an explicit stack, so it handles graphs with
+ * hundreds of thousands of nodes without recursion or boxing.
+ *
+ * Components are numbered in the order Tarjan's algorithm completes them, which is a
+ * reverse topological order of the condensation: every edge between two different
+ * components goes from a higher component number to a lower one.
+ */
+public final class StronglyConnectedComponents {
+    private final int[] component;
+    private final int componentCount;
+
+    /**
+     * Computes the components of a graph.
+     *
+     * @param successors For each node, the nodes it has edges to
+     */
+    public StronglyConnectedComponents(int[][] successors) {
+        int nodeCount = successors.length;
+        component = new int[nodeCount];
+        Arrays.fill(component, -1);
+
+        int[] index = new int[nodeCount];
+        int[] lowLink = new int[nodeCount];
+        Arrays.fill(index, -1);
+        boolean[] onStack = new boolean[nodeCount];
+        int[] stack = new int[nodeCount];
+        int stackSize = 0;
+
+        // Explicit call stack of nodes and the position of the next edge to follow
+        int[] callNode = new int[nodeCount];
+        int[] callEdge = new int[nodeCount];
+        int nextIndex = 0;
+        int count = 0;
+
+        for (int root = 0; root < nodeCount; root++) {
+            if (index[root] >= 0) {
+                continue;
+            }
+
+            int depth = 0;
+            callNode[0] = root;
+            callEdge[0] = 0;
+            index[root] = lowLink[root] = nextIndex++;
+            stack[stackSize++] = root;
+            onStack[root] = true;
+
+            while (depth >= 0) {
+                int node = callNode[depth];
+                if (callEdge[depth] < successors[node].length) {
+                    int next = successors[node][callEdge[depth]++];
+                    if (index[next] < 0) {
+                        // Descend into an unvisited node
+                        index[next] = lowLink[next] = nextIndex++;
+                        stack[stackSize++] = next;
+                        onStack[next] = true;
+                        depth++;
+                        callNode[depth] = next;
+                        callEdge[depth] = 0;
+                    } else if (onStack[next]) {
+                        lowLink[node] = Math.min(lowLink[node], index[next]);
+                    }
+                    continue;
+                }
+
+                // All edges followed: close the component if this node is its root
+                if (lowLink[node] == index[node]) {
+                    int member;
+                    do {
+                        member = stack[--stackSize];
+                        onStack[member] = false;
+                        component[member] = count;
+                    } while (member != node);
+                    count++;
+                }
+
+                depth--;
+                if (depth >= 0) {
+                    int parent = callNode[depth];
+                    lowLink[parent] = Math.min(lowLink[parent], lowLink[node]);
+                }
+            }
+        }
+
+        componentCount = count;
+    }
+
+    /**
+     * Gets the component containing a node.
+     *
+     * @param node The node
+     * @return The component number, from 0 to {@link #getComponentCount()} - 1
+     */
+    public int getComponent(int node) {
+        return component[node];
+    }
+
+    /**
+     * Gets the number of components.
+     *
+     * @return The number of strongly connected components
+     */
+    public int getComponentCount() {
+        return componentCount;
+    }
+}
@@ -0,0 +1,194 @@
+package com.owenjg.regexsynthesiser.dfa;
+
+import java.util.*;
+
+/**
+ * A Deterministic Finite Automaton whose transitions are labelled with character ranges.
+ * Each state maps every target state to a single {@link CharRangeSet} guard, so a state
+ * has at most one edge per neighbour however many characters lead there. Memory and
+ * traversal costs therefore depend on the number of ranges rather than on the width
+ * of the alphabet.
+ */
+public class SymbolicDFA implements Automaton {
+
+    /**
+     * The initial state of the DFA where processing begins.
+     */
+    private int startState;
+
+    /**
+     * Set of states that represent successful pattern matching.
+     */
+    private final Set<Integer> acceptingStates;
+
+    /**
+     * Maps states to their outgoing edges, with target states as keys and
+     * the guard of the edge as values. Guards leaving one state are disjoint.
+     */
+    private final Map<Integer, Map<Integer, CharRangeSet>> transitions;
+
+    /**
+     * Constructs a new symbolic DFA with the specified start state.
+     *
+     * @param startState The initial state of the DFA
+     */
+    public SymbolicDFA(int startState) {
+        this.startState = startState;
+        this.acceptingStates = new HashSet<>();
+        this.transitions = new HashMap<>();
+    }
+
+    /**
+     * Builds a symbolic DFA equivalent to a character DFA by collecting the
+     * characters that lead from each state to the same target into one guard.
+     *
+     * @param dfa The character DFA to convert
+     * @return A symbolic DFA with the same states and language
+     */
+    public static SymbolicDFA fromDFA(DFA dfa) {
+        SymbolicDFA symbolic = new SymbolicDFA(dfa.getStartState());
+
+        for (int state : dfa.getStates()) {
+            if (dfa.isAcceptingState(state)) {
+                symbolic.addAcceptingState(state);
+            }
+        }
+
+        for (Map.Entry<Integer, Map<Character, Integer>> stateEntry : dfa.getTransitions().entrySet()) {
+            Map<Integer, List<Character>> charsByTarget = new HashMap<>();
+            for (Map.Entry<Character, Integer> transition : stateEntry.getValue().entrySet()) {
+                charsByTarget.computeIfAbsent(transition.getValue(), k -> new ArrayList<>())
+                        .add(transition.getKey());
+            }
+
+            for (Map.Entry<Integer, List<Character>> target : charsByTarget.entrySet()) {
+                symbolic.addTransition(stateEntry.getKey(), CharRangeSet.of(target.getValue()), target.getKey());
+            }
+        }
+
+        return symbolic;
+    }
+
+    /**
+     * Adds a transition taken on any character of a guard. If the states are already
+     * connected, the guard is merged into the existing edge.
+     *
+     * @param fromState The source state
+     * @param guard The characters triggering the transition
+     * @param toState The destination state
+     * @throws IllegalArgumentException If the guard overlaps an edge to a different state
+     */
+    public void addTransition(int fromState, CharRangeSet guard, int toState) {
+        if (guard.isEmpty()) {
+            return;
+        }
+
+        Map<Integer, CharRangeSet> edges = transitions.computeIfAbsent(fromState, k -> new HashMap<>());
+        for (Map.Entry<Integer, CharRangeSet> edge : edges.entrySet()) {
+            if (edge.getKey() != toState && !edge.getValue().intersect(guard).isEmpty()) {
+                throw new IllegalArgumentException("Transition from state " + fromState +
+                        " on " + guard + " would make the automaton non-deterministic");
+            }
+        }
+        edges.merge(toState, guard, CharRangeSet::union);
+    }
+
+    /**
+     * Retrieves the next state based on the current state and input symbol.
+     *
+     * @param state The current state
+     * @param symbol The input character
+     * @return The next state, or INVALID_STATE if no transition exists
+     */
+    public int getTransition(int state, char symbol) {
+        for (Map.Entry<Integer, CharRangeSet> edge : getTransitions(state).entrySet()) {
+            if (edge.getValue().contains(symbol)) {
+                return edge.getKey();
+            }
+        }
+        return DFA.INVALID_STATE;
+    }
+
+    /**
+     * Gets the outgoing edges of a state.
+     *
+     * @param state The source state
+     * @return A map from target states to the guards leading to them
+     */
+    public Map<Integer, CharRangeSet> getTransitions(int state) {
+        return transitions.getOrDefault(state, Collections.emptyMap());
+    }
+
+    /**
+     * Gets all transitions in the DFA.
+     *
+     * @return A map from source states to their outgoing edges
+     */
+    public Map<Integer, Map<Integer, CharRangeSet>> getTransitions() {
+        return transitions;
+    }
+
+    /**
+     * Designates a state as accepting (a final state).
+     *
+     * @param state The state to mark as accepting
+     */
+    public void addAcceptingState(int state) {
+        acceptingStates.add(state);
+    }
+
+    @Override
+    public boolean isAcceptingState(int state) {
+        return acceptingStates.contains(state);
+    }
+
+    @Override
+    public int getStartState() {
+        return startState;
+    }
+
+    /**
+     * Sets the starting state of the DFA.
+     *
+     * @param state The new start state
+     */
+    public void setStartState(int state) {
+        this.startState = state;
+    }
+
+    @Override
+    public Set<Integer> getStates() {
+        Set<Integer> states = new HashSet<>();
+        states.add(startState);
+        states.addAll(acceptingStates);
+        states.addAll(transitions.keySet());
+        for (Map<Integer, CharRangeSet> edges : transitions.values()) {
+            states.addAll(edges.keySet());
+        }
+        return states;
+    }
+
+    /**
+     * Calculates the total number of states in the DFA.
+     *
+     * @return The total number of states
+     */
+    public int getNumStates() {
+        return getStates().size();
+    }
+
+    /**
+     * Gets every character that labels at least one transition.
+     *
+     * @return The union of all guards
+     */
+    public CharRangeSet getAlphabet() {
+        CharRangeSet alphabet = CharRangeSet.EMPTY;
+        for (Map<Integer, CharRangeSet> edges : transitions.values()) {
+            for (CharRangeSet guard : edges.values()) {
+                alphabet = alphabet.union(guard);
+            }
+        }
+        return alphabet;
+    }
+}
@@ -24,26 +24,10 @@ public class DFAMinimiser {
             return copyDFA(dfa);
         }
 
+        // All states may share one partition when every state is accepting, which is
+        // common once the sink state has been trimmed; refinement still splits it
         Map<Integer, Set<Integer>> partitions = initialisePartitions(dfa);
 
-        // Special case - all states are accepting or all are non-accepting
-        if (partitions.size() <= 1) {
-            // Create a partition with just the start state to handle this case
-            partitions.clear();
-            Set<Integer> allStates = new HashSet<>();
-            allStates.add(dfa.getStartState());
-            partitions.put(0, allStates);
-
-            // Add other states to a different partition if any
-            Set<Integer> otherStates = new HashSet<>(dfa.getStates());
-            otherStates.remove(dfa.getStartState());
-            if (!otherStates.isEmpty()) {
-                partitions.put(1, otherStates);
-            }
-
-            return buildMinimisedDFA(dfa, partitions);
-        }
-
         boolean changed = true;
 
         while (changed) {
@@ -0,0 +1,380 @@
+package com.owenjg.regexsynthesiser.minimisation;
+
+import com.owenjg.regexsynthesiser.dfa.DFA;
+import com.owenjg.regexsynthesiser.dfa.ExampleTrie;
+
+import java.util.*;
+
+/**
+ * Maintains the minimal DFA of an example set while examples are added or removed.
+ *
+ * The DFA pipeline learns the finite language of positive examples that are not also
+ * negative examples. Instead of rebuilding the prefix tree and minimising it again after
+ * every edit, this class keeps a reference-counted {@link ExampleTrie} of the examples
+ * and an acyclic minimal automaton that is updated in place using the algorithm of
+ * Carrasco and Forcada: the path of the edited word is cloned, changed, and then merged
+ * back into a register of unique states. A single edit therefore costs time proportional
+ * to the length of the example rather than to the size of the example set.
+ */
+public class IncrementalDFAMinimiser {
+
+    /**
+     * A state of the minimal automaton.
+     */
+    private static class State {
+        boolean accepting;
+        final Map<Character, State> transitions = new TreeMap<>();
+        int inDegree;
+        boolean released;
+    }
+
+    /**
+     * The register key of a state: its acceptance and the identities of its targets.
+     * Two registered states never share a signature, so states with equal signatures
+     * recognise the same language.
+     */
+    private static class StateSignature {
+        final boolean accepting;
+        final Map<Character, State> transitions;
+
+        /**
+         * Captures the signature of a state.
+         *
+         * @param state The state to describe
+         */
+        StateSignature(State state) {
+            this.accepting = state.accepting;
+            this.transitions = new HashMap<>(state.transitions);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            StateSignature that = (StateSignature) o;
+            return accepting == that.accepting && transitions.equals(that.transitions);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(accepting, transitions);
+        }
+    }
+
+    private final ExampleTrie examples = new ExampleTrie();
+    private final Map<StateSignature, State> register = new HashMap<>();
+    private final Map<String, Integer> positiveCounts = new HashMap<>();
+    private final Map<String, Integer> negativeCounts = new HashMap<>();
+    private State start;
+    private int stateCount;
+
+    /**
+     * Creates a minimiser for the empty example set.
+     */
+    public IncrementalDFAMinimiser() {
+        start = newState();
+        register.put(new StateSignature(start), start);
+    }
+
+    /**
+     * Adds a positive example.
+     *
+     * @param example The string that should be accepted
+     */
+    public void addPositiveExample(String example) {
+        positiveCounts.merge(example, 1, Integer::sum);
+        if (examples.add(example, true)) {
+            updateMembership(example, true);
+        }
+    }
+
+    /**
+     * Removes one occurrence of a positive example.
+     *
+     * @param example The positive example to remove
+     * @throws IllegalArgumentException If the example has not been added
+     */
+    public void removePositiveExample(String example) {
+        if (examples.remove(example, true)) {
+            updateMembership(example, false);
+        }
+        positiveCounts.computeIfPresent(example, (k, v) -> v == 1 ? null : v - 1);
+    }
+
+    /**
+     * Adds a negative example.
+     *
+     * @param example The string that should be rejected
+     */
+    public void addNegativeExample(String example) {
+        negativeCounts.merge(example, 1, Integer::sum);
+        if (examples.add(example, false)) {
+            updateMembership(example, false);
+        }
+    }
+
+    /**
+     * Removes one occurrence of a negative example.
+     *
+     * @param example The negative example to remove
+     * @throws IllegalArgumentException If the example has not been added
+     */
+    public void removeNegativeExample(String example) {
+        if (examples.remove(example, false)) {
+            updateMembership(example, true);
+        }
+        negativeCounts.computeIfPresent(example, (k, v) -> v == 1 ? null : v - 1);
+    }
+
+    /**
+     * Brings the stored example set in line with the given lists, applying only the differences.
+     * Duplicated examples are counted, so repeated entries are added and removed one at a time.
+     *
+     * @param positiveExamples The complete list of positive examples
+     * @param negativeExamples The complete list of negative examples (may be null)
+     */
+    public void updateExamples(List<String> positiveExamples, List<String> negativeExamples) {
+        applyDifference(positiveCounts, positiveExamples, true);
+        applyDifference(negativeCounts, negativeExamples == null ? Collections.emptyList() : negativeExamples, false);
+    }
+
+    /**
+     * Checks whether a word is accepted by the current minimal automaton.
+     *
+     * @param word The word to check
+     * @return true if the word is a positive example that is not also negative
+     */
+    public boolean accepts(String word) {
+        State state = start;
+        for (int i = 0; i < word.length() && state != null; i++) {
+            state = state.transitions.get(word.charAt(i));
+        }
+        return state != null && state.accepting;
+    }
+
+    /**
+     * Gets the number of states in the current minimal automaton.
+     *
+     * @return The number of live states
+     */
+    public int getNumStates() {
+        return stateCount;
+    }
+
+    /**
+     * Exports the current minimal automaton as a DFA.
+     * States are numbered in breadth-first order from the start state, which is state 0.
+     * The result has no sink state, so it is already trimmed.
+     *
+     * @return A minimal DFA recognising the current language
+     */
+    public DFA toDFA() {
+        DFA dfa = new DFA(0);
+        Map<State, Integer> ids = new IdentityHashMap<>();
+        ArrayDeque<State> queue = new ArrayDeque<>();
+        ids.put(start, 0);
+        queue.add(start);
+
+        while (!queue.isEmpty()) {
+            State state = queue.poll();
+            int id = ids.get(state);
+            if (state.accepting) {
+                dfa.addAcceptingState(id);
+            }
+
+            for (Map.Entry<Character, State> transition : state.transitions.entrySet()) {
+                State target = transition.getValue();
+                Integer targetId = ids.get(target);
+                if (targetId == null) {
+                    targetId = ids.size();
+                    ids.put(target, targetId);
+                    queue.add(target);
+                }
+                dfa.addTransition(id, transition.getKey(), targetId);
+            }
+        }
+
+        return dfa;
+    }
+
+    /**
+     * Adds or removes single occurrences until the stored counts match the given list.
+     *
+     * @param currentCounts The stored occurrence counts of one kind of example
+     * @param targetExamples The list the counts should match
+     * @param positive true if the examples are positive, false if negative
+     */
+    private void applyDifference(Map<String, Integer> currentCounts, List<String> targetExamples, boolean positive) {
+        Map<String, Integer> targetCounts = new HashMap<>();
+        for (String example : targetExamples) {
+            targetCounts.merge(example, 1, Integer::sum);
+        }
+
+        // Removals first, so a word moved between lists never passes through an invalid state
+        for (Map.Entry<String, Integer> entry : new ArrayList<>(currentCounts.entrySet())) {
+            int surplus = entry.getValue() - targetCounts.getOrDefault(entry.getKey(), 0);
+            for (int i = 0; i < surplus; i++) {
+                if (positive) {
+                    removePositiveExample(entry.getKey());
+                } else {
+                    removeNegativeExample(entry.getKey());
+                }
+            }
+        }
+
+        for (Map.Entry<String, Integer> entry : targetCounts.entrySet()) {
+            int missing = entry.getValue() - currentCounts.getOrDefault(entry.getKey(), 0);
+            for (int i = 0; i < missing; i++) {
+                if (positive) {
+                    addPositiveExample(entry.getKey());
+                } else {
+                    addNegativeExample(entry.getKey());
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a word to, or removes it from, the language of the minimal automaton.
+     * The path spelling the word is cloned so that other words sharing its states are
+     * unaffected, the clone is edited, the old path is released, and the cloned states
+     * are then merged with equivalent registered states from the end of the word back.
+     *
+     * @param word The word whose membership changes
+     * @param member true to add the word, false to remove it
+     */
+    private void updateMembership(String word, boolean member) {
+        List<State> path = new ArrayList<>(word.length() + 1);
+        State oldStart = start;
+        State current = cloneState(start);
+        path.add(current);
+
+        // Clone the longest prefix of the word already present
+        int position = 0;
+        for (; position < word.length(); position++) {
+            State next = current.transitions.get(word.charAt(position));
+            if (next == null) {
+                break;
+            }
+            State copy = cloneState(next);
+            redirect(current, word.charAt(position), copy);
+            current = copy;
+            path.add(current);
+        }
+
+        // Spell out the rest of a new word with fresh states
+        if (member) {
+            for (; position < word.length(); position++) {
+                State fresh = newState();
+                redirect(current, word.charAt(position), fresh);
+                current = fresh;
+                path.add(current);
+            }
+        }
+
+        current.accepting = member;
+        start = path.get(0);
+        release(oldStart);
+
+        // Merge the cloned path back into the register, starting from its end
+        for (int i = path.size() - 1; i >= 0; i--) {
+            State state = path.get(i);
+            State parent = i > 0 ? path.get(i - 1) : null;
+            char symbol = i > 0 ? word.charAt(i - 1) : 0;
+
+            if (parent != null && !state.accepting && state.transitions.isEmpty()) {
+                // The state no longer leads to an accepted word
+                parent.transitions.remove(symbol);
+                state.inDegree--;
+                release(state);
+                continue;
+            }
+
+            StateSignature signature = new StateSignature(state);
+            State equivalent = register.get(signature);
+            if (equivalent == null) {
+                register.put(signature, state);
+            } else {
+                if (parent != null) {
+                    redirect(parent, symbol, equivalent);
+                } else {
+                    start = equivalent;
+                }
+                release(state);
+            }
+        }
+    }
+
+    /**
+     * Creates a new, unregistered state.
+     *
+     * @return The new state
+     */
+    private State newState() {
+        stateCount++;
+        return new State();
+    }
+
+    /**
+     * Creates an unregistered copy of a state with the same acceptance and targets.
+     *
+     * @param original The state to copy
+     * @return The copy
+     */
+    private State cloneState(State original) {
+        State copy = newState();
+        copy.accepting = original.accepting;
+        copy.transitions.putAll(original.transitions);
+        for (State target : original.transitions.values()) {
+            target.inDegree++;
+        }
+        return copy;
+    }
+
+    /**
+     * Points a transition at a new target, keeping in-degrees up to date.
+     *
+     * @param from The state owning the transition
+     * @param symbol The symbol of the transition
+     * @param target The new target state
+     */
+    private void redirect(State from, char symbol, State target) {
+        State previous = from.transitions.put(symbol, target);
+        if (previous != null) {
+            previous.inDegree--;
+        }
+        target.inDegree++;
+    }
+
+    /**
+     * Deletes a state if nothing refers to it any more, cascading to targets that
+     * become unreferenced in turn.
+     *
+     * @param state The state to release
+     */
+    private void release(State state) {
+        ArrayDeque<State> pending = new ArrayDeque<>();
+        pending.push(state);
+
+        while (!pending.isEmpty()) {
+            State candidate = pending.pop();
+            if (candidate.released || candidate.inDegree > 0 || candidate == start) {
+                continue;
+            }
+            candidate.released = true;
+
+            // Only the registered representative may be removed from the register
+            StateSignature signature = new StateSignature(candidate);
+            if (register.get(signature) == candidate) {
+                register.remove(signature);
+            }
+            stateCount--;
+
+            for (State target : candidate.transitions.values()) {
+                target.inDegree--;
+                pending.push(target);
+            }
+            candidate.transitions.clear();
+        }
+    }
+}
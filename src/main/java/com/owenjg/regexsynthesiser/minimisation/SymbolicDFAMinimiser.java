@@ -0,0 +1,178 @@
+package com.owenjg.regexsynthesiser.minimisation;
+
+import com.owenjg.regexsynthesiser.dfa.CharRangeSet;
+import com.owenjg.regexsynthesiser.dfa.DFATrimmer;
+import com.owenjg.regexsynthesiser.dfa.SymbolicDFA;
+
+import java.util.*;
+
+/**
+ * Minimises DFAs whose transitions are labelled with character ranges.
+ *
+ * The guards of the automaton are first refined into minterms: the coarsest set of
+ * disjoint ranges such that every guard is a union of them. All characters of one
+ * minterm behave identically in every state, so partition refinement only has to look
+ * at one transition per minterm instead of one per character, and the cost of
+ * minimisation is independent of how wide the guards are.
+ */
+public class SymbolicDFAMinimiser {
+    private final DFATrimmer dfaTrimmer = new DFATrimmer();
+
+    /**
+     * Minimises a symbolic DFA by combining equivalent states.
+     * Dead and unreachable states are removed first, then states are refined by
+     * acceptance and by the blocks reached on each minterm until no block splits.
+     *
+     * @param dfa The symbolic DFA to minimise
+     * @return A minimal symbolic DFA recognising the same language, with states
+     *         numbered in breadth-first order from the start state 0
+     */
+    public SymbolicDFA minimiseDFA(SymbolicDFA dfa) {
+        SymbolicDFA trimmed = dfaTrimmer.trimDFA(dfa);
+        int stateCount = trimmed.getNumStates();
+
+        List<CharRangeSet> minterms = computeMinterms(trimmed);
+        int[][] targets = buildTargetTable(trimmed, stateCount, minterms);
+
+        // Start from the accepting / non-accepting split
+        int[] block = new int[stateCount];
+        for (int state = 0; state < stateCount; state++) {
+            block[state] = trimmed.isAcceptingState(state) ? 1 : 0;
+        }
+        int blockCount = -1;
+
+        while (true) {
+            Map<List<Integer>, Integer> signatures = new HashMap<>();
+            int[] refined = new int[stateCount];
+
+            for (int state = 0; state < stateCount; state++) {
+                List<Integer> signature = new ArrayList<>(minterms.size() + 1);
+                signature.add(block[state]);
+                for (int target : targets[state]) {
+                    signature.add(target < 0 ? -1 : block[target]);
+                }
+                refined[state] = signatures.computeIfAbsent(signature, k -> signatures.size());
+            }
+
+            block = refined;
+            // Refinement only ever splits blocks, so a stable count means a stable partition
+            if (signatures.size() == blockCount) {
+                break;
+            }
+            blockCount = signatures.size();
+        }
+
+        return buildMinimisedDFA(trimmed, block, targets, minterms);
+    }
+
+    /**
+     * Splits the alphabet of an automaton into minterms.
+     * Each distinct guard is used to cut every current minterm into the part inside
+     * the guard and the part outside it, dropping empty parts.
+     *
+     * @param dfa The automaton whose guards are refined
+     * @return Disjoint, non-empty ranges whose union is the alphabet of the automaton
+     */
+    private List<CharRangeSet> computeMinterms(SymbolicDFA dfa) {
+        Set<CharRangeSet> guards = new LinkedHashSet<>();
+        for (Map<Integer, CharRangeSet> edges : dfa.getTransitions().values()) {
+            guards.addAll(edges.values());
+        }
+
+        List<CharRangeSet> minterms = new ArrayList<>();
+        CharRangeSet alphabet = dfa.getAlphabet();
+        if (!alphabet.isEmpty()) {
+            minterms.add(alphabet);
+        }
+
+        for (CharRangeSet guard : guards) {
+            List<CharRangeSet> refined = new ArrayList<>(minterms.size() + 1);
+            for (CharRangeSet minterm : minterms) {
+                CharRangeSet inside = minterm.intersect(guard);
+                CharRangeSet outside = minterm.minus(guard);
+                if (!inside.isEmpty()) {
+                    refined.add(inside);
+                }
+                if (!outside.isEmpty()) {
+                    refined.add(outside);
+                }
+            }
+            minterms = refined;
+        }
+
+        return minterms;
+    }
+
+    /**
+     * Tabulates the target of every state on every minterm.
+     * A minterm lies entirely inside or entirely outside each guard, so testing one
+     * of its characters is enough to find the edge that covers it.
+     *
+     * @param dfa The trimmed automaton, with states numbered from 0
+     * @param stateCount The number of states
+     * @param minterms The minterms of the automaton
+     * @return For each state and minterm, the target state, or -1 if there is no transition
+     */
+    private int[][] buildTargetTable(SymbolicDFA dfa, int stateCount, List<CharRangeSet> minterms) {
+        int[][] targets = new int[stateCount][minterms.size()];
+        for (int state = 0; state < stateCount; state++) {
+            for (int m = 0; m < minterms.size(); m++) {
+                targets[state][m] = dfa.getTransition(state, minterms.get(m).getRangeStart(0));
+            }
+        }
+        return targets;
+    }
+
+    /**
+     * Constructs the minimal DFA from the final partition.
+     * Blocks are numbered in breadth-first order from the block of the start state,
+     * and the minterms leading to the same block are merged back into one guard.
+     *
+     * @param dfa The trimmed automaton
+     * @param block The block of each state
+     * @param targets The target table of the automaton
+     * @param minterms The minterms of the automaton
+     * @return The minimised symbolic DFA
+     */
+    private SymbolicDFA buildMinimisedDFA(SymbolicDFA dfa, int[] block, int[][] targets,
+                                          List<CharRangeSet> minterms) {
+        // Pick one representative state per block
+        Map<Integer, Integer> representatives = new HashMap<>();
+        for (int state = 0; state < block.length; state++) {
+            representatives.putIfAbsent(block[state], state);
+        }
+
+        SymbolicDFA minimised = new SymbolicDFA(0);
+        Map<Integer, Integer> blockIds = new HashMap<>();
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        int startBlock = block[dfa.getStartState()];
+        blockIds.put(startBlock, 0);
+        queue.add(startBlock);
+
+        while (!queue.isEmpty()) {
+            int current = queue.poll();
+            int representative = representatives.get(current);
+            int from = blockIds.get(current);
+            if (dfa.isAcceptingState(representative)) {
+                minimised.addAcceptingState(from);
+            }
+
+            for (int m = 0; m < minterms.size(); m++) {
+                int target = targets[representative][m];
+                if (target < 0) {
+                    continue;
+                }
+
+                Integer to = blockIds.get(block[target]);
+                if (to == null) {
+                    to = blockIds.size();
+                    blockIds.put(block[target], to);
+                    queue.add(block[target]);
+                }
+                minimised.addTransition(from, minterms.get(m), to);
+            }
+        }
+
+        return minimised;
+    }
+}
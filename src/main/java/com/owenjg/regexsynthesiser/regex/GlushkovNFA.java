@@ -0,0 +1,410 @@
+package com.owenjg.regexsynthesiser.regex;
+
+import com.owenjg.regexsynthesiser.dfa.CharRangeSet;
+import com.owenjg.regexsynthesiser.dfa.SymbolicDFA;
+
+import java.util.*;
+
+/**
+ * The position automaton of a regular expression, as constructed by Glushkov.
+ *
+ * Every occurrence of a character or class in the expression is a position, numbered
+ * from 1 in the order they are written, and state 0 is the initial state. A transition
+ * into a position always reads a character of that position's class, so the automaton
+ * has no empty transitions and is described entirely by which positions can follow each
+ * other. This is the automaton a backtracking matcher effectively explores: each way of
+ * matching a string corresponds to one path through it.
+ *
+ * Nested repetitions such as (a*)* can add the same transition twice, once for each
+ * loop. The automaton keeps a single transition, but records that it was added again,
+ * since a backtracking matcher tries both ways of taking it.
+ *
+ * The automaton follows the tree it is given, so to model an expression as written it
+ * should be parsed by a {@link RegexNodeFactory} that does not apply identities.
+ *
+ * Counted repetitions are expanded into copies of their body, as x{2,3} is xx(x)?. Where
+ * that would exceed the position limit, the repetition is treated as unbounded instead,
+ * which only ever adds paths.
+ */
+public final class GlushkovNFA {
+    /**
+     * The initial state, which is not a position.
+     */
+    public static final int INITIAL_STATE = 0;
+
+    private final int maxPositions;
+    private final List<CharRangeSet> positionChars = new ArrayList<>();
+    private final List<BitSet> follow = new ArrayList<>();
+    private final List<BitSet> repeatedFollow = new ArrayList<>();
+    private final Fragment root;
+
+    /**
+     * Builds the position automaton of an expression.
+     *
+     * @param regex The expression
+     * @param maxPositions The largest number of positions to create
+     * @throws IllegalArgumentException If the expression needs more positions than allowed
+     */
+    public GlushkovNFA(RegexNode regex, int maxPositions) {
+        this.maxPositions = maxPositions;
+        // Index 0 stands for the initial state, so positions can be used as state numbers
+        positionChars.add(CharRangeSet.EMPTY);
+        follow.add(new BitSet());
+        repeatedFollow.add(new BitSet());
+        root = build(regex);
+        follow.set(INITIAL_STATE, (BitSet) root.first.clone());
+    }
+
+    /**
+     * Gets the number of states, including the initial state.
+     *
+     * @return The number of positions plus one
+     */
+    public int getNumStates() {
+        return positionChars.size();
+    }
+
+    /**
+     * Gets the characters read on entering a state.
+     *
+     * @param state A position
+     * @return The characters of its class, or the empty set for the initial state
+     */
+    public CharRangeSet getChars(int state) {
+        return positionChars.get(state);
+    }
+
+    /**
+     * Gets the states that can be entered from a state.
+     *
+     * @param state The state
+     * @return The positions that can follow it; the caller must not modify the set
+     */
+    public BitSet getSuccessors(int state) {
+        return follow.get(state);
+    }
+
+    /**
+     * Gets the states that can be entered from a state by more than one transition of
+     * the expression, as the loop back to a in (a*)* is added by both stars.
+     *
+     * @param state The state
+     * @return A subset of its successors; the caller must not modify the set
+     */
+    public BitSet getRepeatedSuccessors(int state) {
+        return repeatedFollow.get(state);
+    }
+
+    /**
+     * Checks whether the automaton may stop in a state.
+     *
+     * @param state The state
+     * @return true if a match can end there
+     */
+    public boolean isAccepting(int state) {
+        return state == INITIAL_STATE ? root.nullable : root.last.get(state);
+    }
+
+    /**
+     * Builds a deterministic automaton for the same language by the subset construction.
+     * The guards out of each subset are split into the blocks of characters that lead to
+     * the same positions, so classes are never expanded into single characters.
+     *
+     * @param maxStates The largest number of states to create
+     * @return The automaton, or null if it would need more states
+     */
+    public SymbolicDFA determinise(int maxStates) {
+        SymbolicDFA dfa = new SymbolicDFA(0);
+        Map<BitSet, Integer> ids = new HashMap<>();
+        List<BitSet> subsets = new ArrayList<>();
+        BitSet start = new BitSet();
+        start.set(INITIAL_STATE);
+        ids.put(start, 0);
+        subsets.add(start);
+
+        for (int id = 0; id < subsets.size(); id++) {
+            BitSet subset = subsets.get(id);
+            BitSet targets = new BitSet();
+            for (int state = subset.nextSetBit(0); state >= 0; state = subset.nextSetBit(state + 1)) {
+                targets.or(follow.get(state));
+                if (isAccepting(state)) {
+                    dfa.addAcceptingState(id);
+                }
+            }
+
+            // Split the characters by exactly which of the targets they can enter
+            Map<CharRangeSet, BitSet> blocks = new LinkedHashMap<>();
+            blocks.put(CharRangeSet.ALL, new BitSet());
+            for (int target = targets.nextSetBit(0); target >= 0; target = targets.nextSetBit(target + 1)) {
+                CharRangeSet chars = positionChars.get(target);
+                Map<CharRangeSet, BitSet> split = new LinkedHashMap<>();
+                for (Map.Entry<CharRangeSet, BitSet> block : blocks.entrySet()) {
+                    CharRangeSet inside = block.getKey().intersect(chars);
+                    CharRangeSet outside = block.getKey().minus(chars);
+                    if (!inside.isEmpty()) {
+                        BitSet entered = (BitSet) block.getValue().clone();
+                        entered.set(target);
+                        split.put(inside, entered);
+                    }
+                    if (!outside.isEmpty()) {
+                        split.put(outside, block.getValue());
+                    }
+                }
+                blocks = split;
+            }
+
+            // Blocks entering the same subset share one transition
+            Map<BitSet, CharRangeSet> guards = new LinkedHashMap<>();
+            for (Map.Entry<CharRangeSet, BitSet> block : blocks.entrySet()) {
+                if (!block.getValue().isEmpty()) {
+                    guards.merge(block.getValue(), block.getKey(), CharRangeSet::union);
+                }
+            }
+            for (Map.Entry<BitSet, CharRangeSet> guard : guards.entrySet()) {
+                Integer target = ids.get(guard.getKey());
+                if (target == null) {
+                    if (subsets.size() >= maxStates) {
+                        return null;
+                    }
+                    target = subsets.size();
+                    ids.put(guard.getKey(), target);
+                    subsets.add(guard.getKey());
+                }
+                dfa.addTransition(id, guard.getValue(), target);
+            }
+        }
+        return dfa;
+    }
+
+    /**
+     * Builds the positions of a sub-expression. Sequences are walked iteratively down
+     * their left spine, so long sequences do not exhaust the call stack.
+     *
+     * @param node The sub-expression
+     * @return Its first and last positions and whether it matches the empty string
+     */
+    private Fragment build(RegexNode node) {
+        if (node.getKind() == RegexNode.Kind.CONCAT) {
+            Deque<RegexNode> factors = new ArrayDeque<>();
+            RegexNode rest = node;
+            while (rest.getKind() == RegexNode.Kind.CONCAT) {
+                factors.push(rest.getChildren().get(1));
+                rest = rest.getChildren().get(0);
+            }
+            Fragment sequence = build(rest);
+            for (RegexNode factor : factors) {
+                sequence = concat(sequence, build(factor));
+            }
+            return sequence;
+        }
+
+        List<RegexNode> children = node.getChildren();
+        switch (node.getKind()) {
+            case LITERAL:
+            case CLASS:
+                return newPosition(node.getChars());
+            case ALT:
+                // Children rather than getAlternatives(), which would drop repeated alternatives
+                Fragment choice = null;
+                for (RegexNode alternative : children) {
+                    Fragment branch = build(alternative);
+                    choice = choice == null ? branch : alt(choice, branch);
+                }
+                return choice;
+            case STAR:
+                return loop(build(children.get(0)), true);
+            case REPEAT:
+                return repeat(children.get(0), node.getMin(), node.getMax());
+            default:
+                return new Fragment(new BitSet(), new BitSet(), true);
+        }
+    }
+
+    /**
+     * Builds a counted repetition from copies of its body.
+     *
+     * @param body The repeated expression
+     * @param min The minimum count
+     * @param max The maximum count, or {@link RegexNode#UNBOUNDED}
+     * @return The repetition
+     */
+    private Fragment repeat(RegexNode body, int min, int max) {
+        int copies = max == RegexNode.UNBOUNDED ? Math.max(min, 1) : max;
+        long needed = (long) copies * countPositions(body);
+        if (positionChars.size() - 1 + needed > maxPositions) {
+            // Too many copies: treat the repetition as unbounded
+            return loop(build(body), min == 0);
+        }
+
+        // The optional copies nest, as x{1,3} is x(x(x)?)?, like a matcher's counted loop
+        Fragment optional = null;
+        if (max != RegexNode.UNBOUNDED) {
+            for (int i = max; i > min; i--) {
+                Fragment copy = build(body);
+                optional = optional(optional == null ? copy : concat(copy, optional));
+            }
+        }
+
+        Fragment result = null;
+        for (int i = 0; i < min; i++) {
+            Fragment copy = build(body);
+            if (max == RegexNode.UNBOUNDED && i == min - 1) {
+                copy = loop(copy, false);
+            }
+            result = result == null ? copy : concat(result, copy);
+        }
+        if (max == RegexNode.UNBOUNDED && min == 0) {
+            result = loop(build(body), true);
+        }
+        if (optional != null) {
+            result = result == null ? optional : concat(result, optional);
+        }
+        return result == null ? new Fragment(new BitSet(), new BitSet(), true) : result;
+    }
+
+    /**
+     * Counts the positions of one copy of an expression.
+     *
+     * @param node The expression
+     * @return The number of characters and classes written in it, capped at the limit
+     */
+    private int countPositions(RegexNode node) {
+        int count = 0;
+        Deque<RegexNode> pending = new ArrayDeque<>();
+        pending.push(node);
+        while (!pending.isEmpty() && count <= maxPositions) {
+            RegexNode next = pending.pop();
+            if (next.getChars() != null) {
+                count++;
+            } else if (next.getKind() == RegexNode.Kind.REPEAT && next.getMax() != RegexNode.UNBOUNDED) {
+                // Nested counts multiply; an estimate from the largest count is enough here
+                count += next.getMax() * countPositions(next.getChildren().get(0));
+            } else {
+                for (RegexNode child : next.getChildren()) {
+                    pending.push(child);
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Creates a position for a character class.
+     *
+     * @param chars The characters of the class
+     * @return The fragment matching one character of the class
+     * @throws IllegalArgumentException If the position limit is reached
+     */
+    private Fragment newPosition(CharRangeSet chars) {
+        if (positionChars.size() > maxPositions) {
+            throw new IllegalArgumentException("The expression has more than " + maxPositions + " positions");
+        }
+        int position = positionChars.size();
+        positionChars.add(chars);
+        follow.add(new BitSet());
+        repeatedFollow.add(new BitSet());
+        BitSet single = new BitSet();
+        single.set(position);
+        return new Fragment(single, (BitSet) single.clone(), false);
+    }
+
+    /**
+     * Joins two fragments in sequence, letting every last position of the first be
+     * followed by every first position of the second.
+     *
+     * @param left The first fragment
+     * @param right The second fragment
+     * @return The sequence
+     */
+    private Fragment concat(Fragment left, Fragment right) {
+        for (int p = left.last.nextSetBit(0); p >= 0; p = left.last.nextSetBit(p + 1)) {
+            addFollow(p, right.first);
+        }
+        BitSet first = (BitSet) left.first.clone();
+        if (left.nullable) {
+            first.or(right.first);
+        }
+        BitSet last = (BitSet) right.last.clone();
+        if (right.nullable) {
+            last.or(left.last);
+        }
+        return new Fragment(first, last, left.nullable && right.nullable);
+    }
+
+    /**
+     * Adds transitions from a position, noting any that already existed.
+     *
+     * @param position The position
+     * @param targets The positions that can follow it
+     */
+    private void addFollow(int position, BitSet targets) {
+        BitSet existing = follow.get(position);
+        if (existing.intersects(targets)) {
+            BitSet repeated = (BitSet) existing.clone();
+            repeated.and(targets);
+            repeatedFollow.get(position).or(repeated);
+        }
+        existing.or(targets);
+    }
+
+    /**
+     * Joins two fragments as alternatives.
+     *
+     * @param first The first fragment
+     * @param second The second fragment
+     * @return The choice
+     */
+    private static Fragment alt(Fragment first, Fragment second) {
+        BitSet firsts = (BitSet) first.first.clone();
+        firsts.or(second.first);
+        BitSet lasts = (BitSet) first.last.clone();
+        lasts.or(second.last);
+        return new Fragment(firsts, lasts, first.nullable || second.nullable);
+    }
+
+    /**
+     * Repeats a fragment, letting its last positions be followed by its first again.
+     *
+     * @param body The fragment
+     * @param nullable Whether zero repetitions are allowed
+     * @return The repetition
+     */
+    private Fragment loop(Fragment body, boolean nullable) {
+        for (int p = body.last.nextSetBit(0); p >= 0; p = body.last.nextSetBit(p + 1)) {
+            addFollow(p, body.first);
+        }
+        return new Fragment(body.first, body.last, nullable || body.nullable);
+    }
+
+    /**
+     * Makes a fragment optional.
+     *
+     * @param body The fragment
+     * @return The fragment, also matching the empty string
+     */
+    private static Fragment optional(Fragment body) {
+        return new Fragment(body.first, body.last, true);
+    }
+
+    /**
+     * The first and last positions of a sub-expression.
+     */
+    private static final class Fragment {
+        private final BitSet first;
+        private final BitSet last;
+        private final boolean nullable;
+
+        /**
+         * Creates a fragment.
+         *
+         * @param first The positions a match can start with
+         * @param last The positions a match can end with
+         * @param nullable Whether the empty string matches
+         */
+        Fragment(BitSet first, BitSet last, boolean nullable) {
+            this.first = first;
+            this.last = last;
+            this.nullable = nullable;
+        }
+    }
+}
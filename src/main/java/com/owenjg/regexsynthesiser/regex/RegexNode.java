@@ -0,0 +1,430 @@
+package com.owenjg.regexsynthesiser.regex;
+
+import com.owenjg.regexsynthesiser.dfa.CharRangeSet;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+
+/**
+ * An immutable node of a regular expression syntax tree.
+ *
+ * Nodes are only created through a {@link RegexNodeFactory}, which hash-conses them:
+ * structurally equal nodes built by the same factory are the same object. Sub-expressions
+ * can therefore be shared freely between edges during state elimination, equality checks
+ * only compare the identities of children, and the hash code is computed once when the
+ * node is created. The expression is rendered as a string only when it is needed.
+ */
+public final class RegexNode {
+
+    /**
+     * The kinds of regular expression node.
+     */
+    public enum Kind {
+        /** The empty string. */
+        EPSILON,
+        /** A single character. */
+        LITERAL,
+        /** A set of characters matched by one character class. */
+        CLASS,
+        /** A sequence of expressions. */
+        CONCAT,
+        /** A choice between expressions, whose children may themselves be alternations. */
+        ALT,
+        /** Zero or more repetitions of an expression. */
+        STAR,
+        /** A bounded or unbounded count of repetitions of an expression. */
+        REPEAT
+    }
+
+    /**
+     * Marks a repetition with no upper bound.
+     */
+    public static final int UNBOUNDED = -1;
+
+    private final Kind kind;
+    private final CharRangeSet chars;
+    private final List<RegexNode> children;
+    private final int min;
+    private final int max;
+    private final int hash;
+    private final int size;
+    private final int length;
+    private final boolean nullable;
+
+    /**
+     * Creates a node. Only the factory may call this, so that nodes stay interned.
+     *
+     * @param kind The kind of node
+     * @param chars The characters of a LITERAL or CLASS node, otherwise null
+     * @param children The sub-expressions, already interned by the same factory
+     * @param min The minimum count of a REPEAT node, otherwise 0
+     * @param max The maximum count of a REPEAT node, otherwise 0
+     */
+    RegexNode(Kind kind, CharRangeSet chars, List<RegexNode> children, int min, int max) {
+        this.kind = kind;
+        this.chars = chars;
+        this.children = children;
+        this.min = min;
+        this.max = max;
+
+        int h = kind.ordinal();
+        h = 31 * h + Objects.hashCode(chars);
+        long s = kind == Kind.EPSILON ? 0 : 1;
+        for (RegexNode child : children) {
+            h = 31 * h + child.hash;
+            s += child.size;
+        }
+        this.hash = 31 * (31 * h + min) + max;
+        this.size = (int) Math.min(s, Integer.MAX_VALUE);
+        this.length = (int) Math.min(renderedLength(), Integer.MAX_VALUE);
+        this.nullable = computeNullable();
+    }
+
+    /**
+     * Works out from the children whether the expression matches the empty string.
+     *
+     * @return true if the empty string is matched
+     */
+    private boolean computeNullable() {
+        switch (kind) {
+            case EPSILON:
+            case STAR:
+                return true;
+            case CONCAT:
+                return children.get(0).nullable && children.get(1).nullable;
+            case ALT:
+                for (RegexNode child : children) {
+                    if (child.nullable) {
+                        return true;
+                    }
+                }
+                return false;
+            case REPEAT:
+                return min == 0 || children.get(0).nullable;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Computes the length of the rendered expression from the lengths of the children.
+     * Duplicate alternatives are only dropped when rendering, so for alternations this
+     * may overestimate.
+     *
+     * @return The rendered length, or an upper bound on it
+     */
+    private long renderedLength() {
+        switch (kind) {
+            case LITERAL:
+            case CLASS:
+                return chars.toRegex().length();
+            case CONCAT:
+                return (long) children.get(0).length + children.get(1).length;
+            case ALT:
+                // Nested alternations are flattened into this one's parentheses
+                long total = 2 + children.size() - 1;
+                for (RegexNode child : children) {
+                    total += child.kind == Kind.ALT ? child.length - 2 : child.length;
+                }
+                return total;
+            case STAR:
+            case REPEAT:
+                RegexNode body = children.get(0);
+                String quantifier = kind == Kind.STAR ? "*" : quantifier();
+                return (long) body.length + quantifier.length() + (body.isAtom() ? 0 : 2);
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Gets the kind of the node.
+     *
+     * @return The node kind
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Gets the characters matched by a LITERAL or CLASS node.
+     *
+     * @return The character set, or null for other kinds
+     */
+    public CharRangeSet getChars() {
+        return chars;
+    }
+
+    /**
+     * Gets the sub-expressions of the node.
+     *
+     * @return The children in order; empty for leaves
+     */
+    public List<RegexNode> getChildren() {
+        return children;
+    }
+
+    /**
+     * Gets the distinct alternatives of an ALT node, flattening any nested alternations.
+     *
+     * @return The alternatives in order of first appearance, or a list holding just
+     *         this node for other kinds
+     */
+    public List<RegexNode> getAlternatives() {
+        if (kind != Kind.ALT) {
+            return List.of(this);
+        }
+
+        // Nodes are interned, so identity is enough to spot duplicates
+        Set<RegexNode> alternatives = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<RegexNode> ordered = new ArrayList<>();
+        Deque<RegexNode> pending = new ArrayDeque<>();
+        pending.push(this);
+        while (!pending.isEmpty()) {
+            RegexNode node = pending.pop();
+            if (node.kind == Kind.ALT) {
+                for (int i = node.children.size() - 1; i >= 0; i--) {
+                    pending.push(node.children.get(i));
+                }
+            } else if (alternatives.add(node)) {
+                ordered.add(node);
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * Gets the minimum repetition count of a REPEAT node.
+     *
+     * @return The minimum count
+     */
+    public int getMin() {
+        return min;
+    }
+
+    /**
+     * Gets the maximum repetition count of a REPEAT node.
+     *
+     * @return The maximum count, or {@link #UNBOUNDED}
+     */
+    public int getMax() {
+        return max;
+    }
+
+    /**
+     * Gets the size of the expression as the number of nodes in its tree.
+     * Shared sub-expressions are counted once per occurrence, so this reflects the
+     * length of the rendered expression. Sizes too large for an int are capped.
+     *
+     * @return The number of nodes, or Integer.MAX_VALUE if larger
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Gets the length of the rendered expression without rendering it.
+     * The length is exact except that duplicate alternatives nested inside an
+     * alternation are still counted, so it is never less than the real length.
+     * Lengths too large for an int are capped.
+     *
+     * @return The rendered length, or Integer.MAX_VALUE if larger
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Checks whether the expression matches the empty string.
+     *
+     * @return true if the empty string is matched
+     */
+    public boolean matchesEmpty() {
+        return nullable;
+    }
+
+    /**
+     * Renders the expression as a Java regular expression.
+     *
+     * @return The rendered expression
+     */
+    public String render() {
+        StringBuilder regex = new StringBuilder();
+        appendTo(regex);
+        return regex.toString();
+    }
+
+    /**
+     * Appends the rendered expression to a builder.
+     *
+     * @param regex The builder to append to
+     */
+    public void appendTo(StringBuilder regex) {
+        try {
+            appendTo((Appendable) regex);
+        } catch (IOException e) {
+            // A StringBuilder never throws
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the rendered expression to any character sink, such as a Writer, piece by
+     * piece, so the whole expression never has to be held as a single string.
+     * Alternations are always wrapped in parentheses, matching the style of the
+     * rest of the synthesiser, so they can be placed anywhere without further grouping.
+     * The tree is walked with an explicit stack, since long sequences built by state
+     * elimination nest far deeper than the call stack allows.
+     *
+     * @param regex The sink to write to
+     * @throws IOException If the sink fails
+     */
+    public void appendTo(Appendable regex) throws IOException {
+        appendTo(regex, Collections.emptySet());
+    }
+
+    /**
+     * Writes the rendered expression to a character sink, making the quantifiers of some
+     * repetitions possessive. A possessive quantifier never gives back what it matched,
+     * which only leaves the language unchanged where nothing that can follow the
+     * repetition could also be matched by it.
+     *
+     * @param regex The sink to write to
+     * @param possessive The STAR and REPEAT nodes whose quantifiers are made possessive
+     * @throws IOException If the sink fails
+     */
+    public void appendTo(Appendable regex, Set<RegexNode> possessive) throws IOException {
+        // Pending items are either nodes still to render or fixed text
+        Deque<Object> pending = new ArrayDeque<>();
+        pending.push(this);
+
+        while (!pending.isEmpty()) {
+            Object item = pending.pop();
+            if (item instanceof String) {
+                regex.append((String) item);
+                continue;
+            }
+
+            RegexNode node = (RegexNode) item;
+            switch (node.kind) {
+                case EPSILON:
+                    break;
+                case LITERAL:
+                case CLASS:
+                    regex.append(node.chars.toRegex());
+                    break;
+                case CONCAT:
+                    for (int i = node.children.size() - 1; i >= 0; i--) {
+                        pending.push(node.children.get(i));
+                    }
+                    break;
+                case ALT:
+                    pending.push(")");
+                    List<RegexNode> alternatives = node.getAlternatives();
+                    for (int i = alternatives.size() - 1; i >= 0; i--) {
+                        pending.push(alternatives.get(i));
+                        if (i > 0) {
+                            pending.push("|");
+                        }
+                    }
+                    regex.append('(');
+                    break;
+                case STAR:
+                case REPEAT:
+                    String quantifier = node.kind == Kind.STAR ? "*" : node.quantifier();
+                    pending.push(possessive.contains(node) ? quantifier + "+" : quantifier);
+                    RegexNode body = node.children.get(0);
+                    if (body.isAtom()) {
+                        pending.push(body);
+                    } else {
+                        pending.push(")");
+                        pending.push(body);
+                        regex.append('(');
+                    }
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Checks whether another node has the same structure as this one, even if the two
+     * were built by different factories and so are not identical. The nodes are compared
+     * in full, so this costs time proportional to their size.
+     *
+     * @param other The node to compare with
+     * @return true if the two are the same expression
+     */
+    public boolean isSameExpression(RegexNode other) {
+        Deque<RegexNode[]> pending = new ArrayDeque<>();
+        pending.push(new RegexNode[]{this, other});
+        while (!pending.isEmpty()) {
+            RegexNode[] pair = pending.pop();
+            RegexNode left = pair[0];
+            RegexNode right = pair[1];
+            if (left == right) {
+                continue;
+            }
+            if (left.hash != right.hash || left.kind != right.kind || left.min != right.min
+                    || left.max != right.max || !Objects.equals(left.chars, right.chars)
+                    || left.children.size() != right.children.size()) {
+                return false;
+            }
+            for (int i = 0; i < left.children.size(); i++) {
+                pending.push(new RegexNode[]{left.children.get(i), right.children.get(i)});
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the quantifier of a REPEAT node in its shortest form.
+     *
+     * @return The quantifier, for example +, ?, {3} or {2,5}
+     */
+    private String quantifier() {
+        if (min == 1 && max == UNBOUNDED) return "+";
+        if (min == 0 && max == 1) return "?";
+        if (min == max) return "{" + min + "}";
+        if (max == UNBOUNDED) return "{" + min + ",}";
+        return "{" + min + "," + max + "}";
+    }
+
+    /**
+     * Checks whether the node renders as a single atom that a quantifier can follow directly.
+     *
+     * @return true for characters, classes and (parenthesised) alternations
+     */
+    private boolean isAtom() {
+        return kind == Kind.LITERAL || kind == Kind.CLASS || kind == Kind.ALT;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        RegexNode that = (RegexNode) o;
+        if (hash != that.hash || kind != that.kind || min != that.min || max != that.max
+                || !Objects.equals(chars, that.chars) || children.size() != that.children.size()) {
+            return false;
+        }
+
+        // Children are interned, so equal children are identical
+        for (int i = 0; i < children.size(); i++) {
+            if (children.get(i) != that.children.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return render();
+    }
+}
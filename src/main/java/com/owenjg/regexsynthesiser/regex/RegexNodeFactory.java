@@ -0,0 +1,323 @@
+package com.owenjg.regexsynthesiser.regex;
+
+import com.owenjg.regexsynthesiser.dfa.CharRangeSet;
+import com.owenjg.regexsynthesiser.regex.RegexNode.Kind;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates hash-consed {@link RegexNode}s.
+ *
+ * Every node is looked up in an intern table before it is returned, so building an
+ * expression that already exists costs a single hash lookup and returns the shared
+ * instance. The constructors also apply cheap algebraic identities as nodes are built,
+ * such as dropping the empty string from sequences and rewriting X·X* as X+, so the
+ * trees stay small without a separate string-rewriting pass.
+ *
+ * The identities can be turned off to keep an expression exactly as written, for
+ * analyses where (a|a)* and a* differ, such as how much a backtracking matcher explores.
+ *
+ * The intern table is concurrent, so one factory can be shared by threads building
+ * expressions in parallel and they will still agree on a single instance per expression.
+ */
+public class RegexNodeFactory {
+    private final Map<RegexNode, RegexNode> interned = new ConcurrentHashMap<>();
+    private final RegexNode epsilon = intern(new RegexNode(Kind.EPSILON, null, List.of(), 0, 0));
+    private final boolean applyIdentities;
+
+    /**
+     * Creates a factory that applies algebraic identities as nodes are built.
+     */
+    public RegexNodeFactory() {
+        this(true);
+    }
+
+    /**
+     * Creates a factory.
+     *
+     * @param applyIdentities Whether to simplify nodes as they are built; if false, only
+     *                        empty strings in sequences are dropped, and alternations keep
+     *                        their duplicates and are not flattened
+     */
+    public RegexNodeFactory(boolean applyIdentities) {
+        this.applyIdentities = applyIdentities;
+    }
+
+    /**
+     * Gets the node matching only the empty string.
+     *
+     * @return The epsilon node
+     */
+    public RegexNode epsilon() {
+        return epsilon;
+    }
+
+    /**
+     * Creates a node matching a single character.
+     *
+     * @param c The character
+     * @return The literal node
+     */
+    public RegexNode literal(char c) {
+        return chars(CharRangeSet.of(c));
+    }
+
+    /**
+     * Creates a node matching any one character of a set.
+     *
+     * @param chars The characters to match
+     * @return A literal node for a single character, otherwise a class node
+     * @throws IllegalArgumentException If the set is empty
+     */
+    public RegexNode chars(CharRangeSet chars) {
+        if (chars.isEmpty()) {
+            throw new IllegalArgumentException("A character node needs at least one character");
+        }
+        Kind kind = chars.size() == 1 ? Kind.LITERAL : Kind.CLASS;
+        return intern(new RegexNode(kind, chars, List.of(), 0, 0));
+    }
+
+    /**
+     * Creates the sequence of two expressions.
+     *
+     * @param left The expression matched first
+     * @param right The expression matched second
+     * @return A node matching left followed by right
+     */
+    public RegexNode concat(RegexNode left, RegexNode right) {
+        if (left == epsilon) return right;
+        if (right == epsilon) return left;
+        if (!applyIdentities) {
+            return intern(new RegexNode(Kind.CONCAT, null, List.of(left, right), 0, 0));
+        }
+
+        // X X* and X* X both match X+
+        if (right.getKind() == Kind.STAR && right.getChildren().get(0) == left) {
+            return plus(left);
+        }
+        if (left.getKind() == Kind.STAR && left.getChildren().get(0) == right) {
+            return plus(right);
+        }
+
+        // (P X) X* matches P X+
+        if (left.getKind() == Kind.CONCAT && right.getKind() == Kind.STAR) {
+            List<RegexNode> parts = left.getChildren();
+            if (parts.get(1) == right.getChildren().get(0)) {
+                return concat(parts.get(0), plus(parts.get(1)));
+            }
+        }
+
+        // X* X* matches X*
+        if (left == right && left.getKind() == Kind.STAR) {
+            return left;
+        }
+
+        return intern(new RegexNode(Kind.CONCAT, null, List.of(left, right), 0, 0));
+    }
+
+    /**
+     * Creates the choice between two expressions.
+     * Adding a single alternative to an existing alternation nests the alternation
+     * instead of copying its alternatives, so an edge that collects thousands of paths
+     * during state elimination grows by one small node per path. Nested alternations
+     * are flattened, and any duplicates removed, when rendered or passed to {@link #alt(List)}.
+     *
+     * @param first The first alternative
+     * @param second The second alternative
+     * @return A node matching either expression
+     */
+    public RegexNode alt(RegexNode first, RegexNode second) {
+        if (applyIdentities && first.getKind() == Kind.ALT && second.getKind() != Kind.ALT && second != epsilon) {
+            // Duplicates are dropped when the alternation is flattened
+            if (first.getChildren().contains(second)) {
+                return first;
+            }
+            return intern(new RegexNode(Kind.ALT, null, List.of(first, second), 0, 0));
+        }
+        return alt(List.of(first, second));
+    }
+
+    /**
+     * Creates the choice between several expressions.
+     * Nested alternations are flattened and duplicates removed, keeping the order in
+     * which alternatives first appear. An empty-string alternative makes the rest optional.
+     *
+     * @param alternatives The alternatives, at least one
+     * @return A node matching any of the alternatives
+     * @throws IllegalArgumentException If no alternatives are given
+     */
+    public RegexNode alt(List<RegexNode> alternatives) {
+        if (alternatives.isEmpty()) {
+            throw new IllegalArgumentException("An alternation needs at least one alternative");
+        }
+        if (!applyIdentities) {
+            return alternatives.size() == 1 ? alternatives.get(0)
+                    : intern(new RegexNode(Kind.ALT, null, List.copyOf(alternatives), 0, 0));
+        }
+
+        Set<RegexNode> unique = new LinkedHashSet<>();
+        boolean matchesEmpty = false;
+        for (RegexNode alternative : alternatives) {
+            if (alternative == epsilon) {
+                matchesEmpty = true;
+            } else if (alternative.getKind() == Kind.ALT) {
+                unique.addAll(alternative.getAlternatives());
+            } else {
+                unique.add(alternative);
+            }
+        }
+
+        RegexNode choice;
+        if (unique.isEmpty()) {
+            return epsilon;
+        } else if (unique.size() == 1) {
+            choice = unique.iterator().next();
+        } else {
+            choice = intern(new RegexNode(Kind.ALT, null, List.copyOf(unique), 0, 0));
+        }
+
+        return matchesEmpty ? optional(choice) : choice;
+    }
+
+    /**
+     * Creates zero or more repetitions of an expression.
+     *
+     * @param body The repeated expression
+     * @return A node matching any number of repetitions
+     */
+    public RegexNode star(RegexNode body) {
+        if (body == epsilon || (applyIdentities && body.getKind() == Kind.STAR)) {
+            return body;
+        }
+        if (!applyIdentities) {
+            return intern(new RegexNode(Kind.STAR, null, List.of(body), 0, 0));
+        }
+
+        // (X+)* and (X?)* both match X*
+        if (body.getKind() == Kind.REPEAT && body.getMin() <= 1
+                && (body.getMax() == RegexNode.UNBOUNDED || body.getMax() == 1)) {
+            return star(body.getChildren().get(0));
+        }
+
+        return intern(new RegexNode(Kind.STAR, null, List.of(body), 0, 0));
+    }
+
+    /**
+     * Creates one or more repetitions of an expression.
+     *
+     * @param body The repeated expression
+     * @return A node matching at least one repetition
+     */
+    public RegexNode plus(RegexNode body) {
+        return repeat(body, 1, RegexNode.UNBOUNDED);
+    }
+
+    /**
+     * Creates an optional expression.
+     *
+     * @param body The optional expression
+     * @return A node matching the expression or the empty string
+     */
+    public RegexNode optional(RegexNode body) {
+        return repeat(body, 0, 1);
+    }
+
+    /**
+     * Creates a counted repetition of an expression.
+     *
+     * @param body The repeated expression
+     * @param min The minimum number of repetitions
+     * @param max The maximum number of repetitions, or {@link RegexNode#UNBOUNDED}
+     * @return A node matching between min and max repetitions
+     * @throws IllegalArgumentException If the bounds are invalid
+     */
+    public RegexNode repeat(RegexNode body, int min, int max) {
+        if (min < 0 || (max != RegexNode.UNBOUNDED && max < min)) {
+            throw new IllegalArgumentException("Invalid repetition bounds {" + min + "," + max + "}");
+        }
+        if (body == epsilon || max == 0) return epsilon;
+        if (min == 1 && max == 1) return body;
+        if (min == 0 && max == RegexNode.UNBOUNDED) return star(body);
+        if (!applyIdentities) {
+            return intern(new RegexNode(Kind.REPEAT, null, List.of(body), min, max));
+        }
+
+        // Anything that can already be empty or repeated absorbs ? and +
+        if (body.getKind() == Kind.STAR && min <= 1) {
+            return body;
+        }
+        if (body.getKind() == Kind.REPEAT && body.getMin() == 0 && body.getMax() == 1 && min == 0 && max == 1) {
+            return body;
+        }
+        if (body.getKind() == Kind.REPEAT && body.getMin() == 1 && body.getMax() == RegexNode.UNBOUNDED
+                && min == 0 && max == 1) {
+            return star(body.getChildren().get(0));
+        }
+
+        return intern(new RegexNode(Kind.REPEAT, null, List.of(body), min, max));
+    }
+
+    /**
+     * Interns a node built by another factory, so it can be combined with this factory's
+     * nodes. The node is copied as it is, without applying any identities.
+     *
+     * @param node The node
+     * @return The node of this factory with the same structure
+     */
+    public RegexNode adopt(RegexNode node) {
+        Map<RegexNode, RegexNode> adopted = new IdentityHashMap<>();
+        Deque<RegexNode> pending = new ArrayDeque<>();
+        pending.push(node);
+        while (!pending.isEmpty()) {
+            RegexNode next = pending.peek();
+            if (adopted.containsKey(next)) {
+                pending.pop();
+                continue;
+            }
+
+            // Adopt the children first
+            boolean childrenDone = true;
+            for (RegexNode child : next.getChildren()) {
+                if (!adopted.containsKey(child)) {
+                    pending.push(child);
+                    childrenDone = false;
+                }
+            }
+            if (!childrenDone) {
+                continue;
+            }
+
+            List<RegexNode> children = new ArrayList<>(next.getChildren().size());
+            for (RegexNode child : next.getChildren()) {
+                children.add(adopted.get(child));
+            }
+            RegexNode copy = next.getKind() == Kind.EPSILON ? epsilon
+                    : intern(new RegexNode(next.getKind(), next.getChars(), List.copyOf(children),
+                            next.getMin(), next.getMax()));
+            adopted.put(next, copy);
+            pending.pop();
+        }
+        return adopted.get(node);
+    }
+
+    /**
+     * Gets the number of distinct nodes created so far.
+     *
+     * @return The size of the intern table
+     */
+    public int getNodeCount() {
+        return interned.size();
+    }
+
+    /**
+     * Returns the shared instance of a node, registering it if it is new.
+     *
+     * @param node The freshly built node
+     * @return The interned node structurally equal to it
+     */
+    private RegexNode intern(RegexNode node) {
+        RegexNode existing = interned.putIfAbsent(node, node);
+        return existing == null ? node : existing;
+    }
+}
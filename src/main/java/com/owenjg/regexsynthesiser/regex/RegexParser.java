@@ -0,0 +1,330 @@
+package com.owenjg.regexsynthesiser.regex;
+
+import com.owenjg.regexsynthesiser.dfa.CharRangeSet;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Parses regular expressions into hash-consed {@link RegexNode} trees.
+ *
+ * The parser understands the subset of Java regular expression syntax that the
+ * synthesiser itself produces: literals and escaped metacharacters, character classes
+ * with ranges and their negations, the \d, \w and \s shorthands and their upper-case
+ * complements, capturing and non-capturing groups, alternation and the greedy quantifiers
+ * *, +, ?, {n}, {n,} and {n,m}. Anything else, such as anchors, the dot, back-references,
+ * lookarounds or lazy and possessive quantifiers, is rejected rather than guessed at.
+ *
+ * Groups are tracked with an explicit stack instead of recursion, so deeply nested
+ * expressions built by state elimination can be parsed without exhausting the call stack.
+ */
+public class RegexParser {
+    private final RegexNodeFactory nodeFactory;
+    private String input;
+    private int position;
+
+    /**
+     * Creates a parser building its nodes with the given factory.
+     *
+     * @param nodeFactory The factory the parsed nodes are interned in
+     */
+    public RegexParser(RegexNodeFactory nodeFactory) {
+        this.nodeFactory = nodeFactory;
+    }
+
+    /**
+     * Parses a regular expression.
+     *
+     * @param regex The regular expression
+     * @return The syntax tree of the expression
+     * @throws IllegalArgumentException If the expression is malformed or uses syntax the parser does not support
+     */
+    public RegexNode parse(String regex) {
+        input = regex;
+        position = 0;
+
+        Deque<Group> openGroups = new ArrayDeque<>();
+        Group group = new Group();
+        while (position < input.length()) {
+            char c = input.charAt(position++);
+            switch (c) {
+                case '(':
+                    if (input.startsWith("?:", position)) {
+                        position += 2;
+                    } else if (input.startsWith("?", position)) {
+                        throw error("Unsupported group construct", position - 1);
+                    }
+                    openGroups.push(group);
+                    group = new Group();
+                    break;
+                case ')':
+                    if (openGroups.isEmpty()) {
+                        throw error("Unmatched closing parenthesis", position - 1);
+                    }
+                    RegexNode closed = group.finish();
+                    group = openGroups.pop();
+                    group.append(parseQuantifier(closed));
+                    break;
+                case '|':
+                    group.endAlternative();
+                    break;
+                case '[':
+                    group.append(parseQuantifier(nodeFactory.chars(parseClass())));
+                    break;
+                case '\\':
+                    group.append(parseQuantifier(nodeFactory.chars(parseEscape())));
+                    break;
+                case '*':
+                case '+':
+                case '?':
+                case '{':
+                    throw error("Dangling quantifier", position - 1);
+                case '.':
+                case '^':
+                case '$':
+                    throw error("Unsupported metacharacter " + c, position - 1);
+                default:
+                    group.append(parseQuantifier(nodeFactory.literal(c)));
+            }
+        }
+
+        if (!openGroups.isEmpty()) {
+            throw error("Unclosed group", input.length());
+        }
+        return group.finish();
+    }
+
+    /**
+     * Applies the quantifier following an atom, if there is one.
+     *
+     * @param atom The atom just parsed
+     * @return The atom, repeated as the quantifier says
+     */
+    private RegexNode parseQuantifier(RegexNode atom) {
+        if (position >= input.length()) {
+            return atom;
+        }
+
+        RegexNode quantified;
+        switch (input.charAt(position)) {
+            case '*':
+                position++;
+                quantified = nodeFactory.star(atom);
+                break;
+            case '+':
+                position++;
+                quantified = nodeFactory.plus(atom);
+                break;
+            case '?':
+                position++;
+                quantified = nodeFactory.optional(atom);
+                break;
+            case '{':
+                int start = position++;
+                int min = parseCount(start);
+                int max = min;
+                if (position < input.length() && input.charAt(position) == ',') {
+                    position++;
+                    max = position < input.length() && input.charAt(position) == '}'
+                            ? RegexNode.UNBOUNDED : parseCount(start);
+                }
+                if (position >= input.length() || input.charAt(position) != '}') {
+                    throw error("Malformed repetition", start);
+                }
+                position++;
+                if (max != RegexNode.UNBOUNDED && max < min) {
+                    throw error("Repetition maximum is below its minimum", start);
+                }
+                quantified = nodeFactory.repeat(atom, min, max);
+                break;
+            default:
+                return atom;
+        }
+
+        if (position < input.length() && (input.charAt(position) == '?' || input.charAt(position) == '+')) {
+            throw error("Unsupported lazy or possessive quantifier", position);
+        }
+        return quantified;
+    }
+
+    /**
+     * Parses the decimal count of a repetition.
+     *
+     * @param start The position of the opening brace, for error messages
+     * @return The count
+     */
+    private int parseCount(int start) {
+        int digitsStart = position;
+        long count = 0;
+        while (position < input.length() && Character.isDigit(input.charAt(position))) {
+            count = Math.min(count * 10 + (input.charAt(position++) - '0'), Integer.MAX_VALUE);
+        }
+        if (position == digitsStart) {
+            throw error("Malformed repetition", start);
+        }
+        return (int) count;
+    }
+
+    /**
+     * Parses a character class, after its opening bracket.
+     *
+     * @return The characters in the class, or those outside it if it is negated
+     */
+    private CharRangeSet parseClass() {
+        int start = position - 1;
+        boolean negated = position < input.length() && input.charAt(position) == '^';
+        if (negated) {
+            position++;
+        }
+
+        CharRangeSet chars = CharRangeSet.EMPTY;
+        while (true) {
+            if (position >= input.length()) {
+                throw error("Unclosed character class", start);
+            }
+            char c = input.charAt(position++);
+            if (c == ']') {
+                break;
+            }
+            if (c == '[' || (c == '&' && position < input.length() && input.charAt(position) == '&')) {
+                throw error("Unsupported character class operation", position - 1);
+            }
+
+            CharRangeSet item = c == '\\' ? parseEscape() : CharRangeSet.of(c);
+
+            // A dash between two single characters makes a range; elsewhere it is literal
+            if (item.size() == 1 && position + 1 < input.length() && input.charAt(position) == '-'
+                    && input.charAt(position + 1) != ']') {
+                position++;
+                char next = input.charAt(position++);
+                CharRangeSet end = next == '\\' ? parseEscape() : CharRangeSet.of(next);
+                char first = item.getRangeStart(0);
+                if (end.size() != 1 || end.getRangeStart(0) < first) {
+                    throw error("Invalid character range", position - 1);
+                }
+                item = CharRangeSet.range(first, end.getRangeStart(0));
+            }
+            chars = chars.union(item);
+        }
+
+        if (negated) {
+            chars = chars.complement();
+        }
+        if (chars.isEmpty()) {
+            throw error("Empty character class", start);
+        }
+        return chars;
+    }
+
+    /**
+     * Parses an escape sequence, after its backslash.
+     *
+     * @return The characters the escape matches
+     */
+    private CharRangeSet parseEscape() {
+        if (position >= input.length()) {
+            throw error("Trailing backslash", position - 1);
+        }
+
+        char c = input.charAt(position++);
+        switch (c) {
+            case 'd':
+                return CharRangeSet.DIGITS;
+            case 'w':
+                return CharRangeSet.WORD_CHARACTERS;
+            case 's':
+                return CharRangeSet.WHITESPACE;
+            case 'D':
+                return CharRangeSet.DIGITS.complement();
+            case 'W':
+                return CharRangeSet.WORD_CHARACTERS.complement();
+            case 'S':
+                return CharRangeSet.WHITESPACE.complement();
+            case 't':
+                return CharRangeSet.of('\t');
+            case 'n':
+                return CharRangeSet.of('\n');
+            case 'r':
+                return CharRangeSet.of('\r');
+            case 'f':
+                return CharRangeSet.of('\f');
+            case 'x':
+                return CharRangeSet.of(parseHex(2));
+            case 'u':
+                return CharRangeSet.of(parseHex(4));
+            default:
+                // Escaped letters and digits have special meanings the parser does not model
+                if (Character.isLetterOrDigit(c)) {
+                    throw error("Unsupported escape \\" + c, position - 2);
+                }
+                return CharRangeSet.of(c);
+        }
+    }
+
+    /**
+     * Parses the hexadecimal digits of an x or u escape.
+     *
+     * @param digits The number of digits
+     * @return The character they encode
+     */
+    private char parseHex(int digits) {
+        if (position + digits > input.length()) {
+            throw error("Malformed hexadecimal escape", position - 2);
+        }
+        try {
+            char c = (char) Integer.parseInt(input.substring(position, position + digits), 16);
+            position += digits;
+            return c;
+        } catch (NumberFormatException e) {
+            throw error("Malformed hexadecimal escape", position - 2);
+        }
+    }
+
+    /**
+     * Creates the exception reporting a syntax error.
+     *
+     * @param message What is wrong
+     * @param index Where in the expression it was found
+     * @return The exception to throw
+     */
+    private IllegalArgumentException error(String message, int index) {
+        return new IllegalArgumentException(message + " at index " + index);
+    }
+
+    /**
+     * The alternatives of a group being parsed, and the sequence of the current one.
+     */
+    private final class Group {
+        private final List<RegexNode> alternatives = new ArrayList<>();
+        private RegexNode sequence = nodeFactory.epsilon();
+
+        /**
+         * Adds an atom to the end of the current alternative.
+         *
+         * @param atom The atom
+         */
+        void append(RegexNode atom) {
+            sequence = nodeFactory.concat(sequence, atom);
+        }
+
+        /**
+         * Completes the current alternative and starts an empty one.
+         */
+        void endAlternative() {
+            alternatives.add(sequence);
+            sequence = nodeFactory.epsilon();
+        }
+
+        /**
+         * Completes the group.
+         *
+         * @return The alternation of its alternatives
+         */
+        RegexNode finish() {
+            endAlternative();
+            return nodeFactory.alt(alternatives);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.owenjg.regexsynthesiser.simplification;
+
+import com.owenjg.regexsynthesiser.dfa.CharRangeSet;
+import com.owenjg.regexsynthesiser.dfa.DFA;
+import com.owenjg.regexsynthesiser.dfa.DFATrimmer;
+import com.owenjg.regexsynthesiser.regex.RegexNode;
+import com.owenjg.regexsynthesiser.regex.RegexNodeFactory;
+
+import java.util.*;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Converts a Deterministic Finite Automaton (DFA) to a regular expression by solving
+ * its language equations, following Brzozowski's algebraic method.
+ *
+ * Each state i gives one equation X_i = a X_j | b X_k | ... , with an extra empty-string
+ * term if i is accepting, where X_i is the set of words accepted from i. A variable is
+ * removed by solving its own equation with Arden's lemma, which turns X = A X | B into
+ * X = A* B, and substituting the solution into every equation that mentions it. When
+ * only the start variable is left, its solution is the expression for the automaton.
+ *
+ * The equations are stored as a {@link RegexGraph}: the coefficient of X_j in the
+ * equation of X_i is the edge from i to j, and the constant term of X_i is an edge to an
+ * extra terminal vertex. Acceptance is therefore just another term, so accepting states
+ * are substituted away like any other and optional suffixes come out as X? rather than
+ * as a repeated alternative. Variables are substituted cheapest first, re-scoring the
+ * affected equations after each step. Coefficients are hash-consed {@link RegexNode}s,
+ * and the products of each substitution are memoised by coefficient, so equations that
+ * refer to a variable through the same coefficient share a single product.
+ */
+public class AlgebraicConverter {
+    private final DFATrimmer dfaTrimmer = new DFATrimmer();
+    private BooleanSupplier cancellationCheck = () -> false;
+
+    /**
+     * Sets a check that is polled between substitutions; once it returns true the
+     * conversion stops and returns null.
+     *
+     * @param cancellationCheck Returns true when the conversion should stop
+     */
+    public void setCancellationCheck(BooleanSupplier cancellationCheck) {
+        this.cancellationCheck = cancellationCheck;
+    }
+
+    /**
+     * Converts a DFA to an equivalent regular expression.
+     *
+     * @param dfa The DFA to convert
+     * @return A regular expression for the language accepted by the DFA, the empty
+     *         string if it accepts nothing, or null if the conversion was cancelled
+     */
+    public String convert(DFA dfa) {
+        // Drop dead states so they never appear in an equation
+        dfa = dfaTrimmer.trimDFA(dfa);
+        int startState = dfa.getStartState();
+        int terminal = dfa.getNumStates();
+
+        RegexNodeFactory nodeFactory = new RegexNodeFactory();
+        RegexGraph equations = createEquations(dfa, nodeFactory);
+
+        IndexedMinHeap queue = new IndexedMinHeap(terminal);
+        for (int state = 0; state < terminal; state++) {
+            if (state != startState) {
+                queue.update(state, equations.getBypassWeight(state));
+            }
+        }
+
+        while (!queue.isEmpty()) {
+            if (cancellationCheck.getAsBoolean()) {
+                return null;
+            }
+
+            int variable = queue.poll();
+            Set<Integer> affected = new HashSet<>(equations.getIncoming(variable).keySet());
+            affected.addAll(equations.getOutgoing(variable).keySet());
+
+            substitute(equations, variable, nodeFactory);
+
+            for (int state : affected) {
+                if (state != terminal && queue.contains(state)) {
+                    queue.update(state, equations.getBypassWeight(state));
+                }
+            }
+        }
+
+        // Only X_start = A X_start | B is left, whose solution is A* B
+        RegexNode constant = equations.getLabel(startState, terminal);
+        if (constant == null) {
+            return "";
+        }
+        RegexNode loop = equations.getLabel(startState, startState);
+        RegexNode solution = loop == null ? constant : nodeFactory.concat(nodeFactory.star(loop), constant);
+        return solution.render();
+    }
+
+    /**
+     * Sets up one equation per state of the DFA. The symbols leading from a state to
+     * the same target are collected into a single character class coefficient.
+     *
+     * @param dfa The trimmed DFA, with states numbered from 0
+     * @param nodeFactory The factory building the coefficients
+     * @return The equations, with the constant terms on edges to the vertex after the last state
+     */
+    private RegexGraph createEquations(DFA dfa, RegexNodeFactory nodeFactory) {
+        int terminal = dfa.getNumStates();
+        RegexGraph equations = new RegexGraph(terminal + 1);
+
+        for (Map.Entry<Integer, Map<Character, Integer>> fromState : dfa.getTransitions().entrySet()) {
+            Map<Integer, CharRangeSet> coefficients = new HashMap<>();
+            for (Map.Entry<Character, Integer> transition : fromState.getValue().entrySet()) {
+                coefficients.merge(transition.getValue(), CharRangeSet.of(transition.getKey()), CharRangeSet::union);
+            }
+            for (Map.Entry<Integer, CharRangeSet> coefficient : coefficients.entrySet()) {
+                equations.putLabel(fromState.getKey(), coefficient.getKey(), nodeFactory.chars(coefficient.getValue()));
+            }
+        }
+
+        for (int state = 0; state < terminal; state++) {
+            if (dfa.isAcceptingState(state)) {
+                equations.putLabel(state, terminal, nodeFactory.epsilon());
+            }
+        }
+        return equations;
+    }
+
+    /**
+     * Solves the equation of a variable and substitutes the solution into every other
+     * equation that refers to it, removing the variable from the system.
+     *
+     * @param equations The equation system
+     * @param variable The variable to remove
+     * @param nodeFactory The factory building the new coefficients
+     */
+    private void substitute(RegexGraph equations, int variable, RegexNodeFactory nodeFactory) {
+        RegexNode loop = equations.getLabel(variable, variable);
+        Map<Integer, RegexNode> terms = new HashMap<>(equations.getOutgoing(variable));
+        Map<Integer, RegexNode> references = new HashMap<>(equations.getIncoming(variable));
+        terms.remove(variable);
+        references.remove(variable);
+
+        equations.disconnect(variable);
+
+        // Arden's lemma: X = A X | B has the solution X = A* B
+        if (loop != null) {
+            RegexNode repeated = nodeFactory.star(loop);
+            terms.replaceAll((target, term) -> nodeFactory.concat(repeated, term));
+        }
+
+        // Equations referring to the variable through the same coefficient share one product
+        Map<RegexNode, Map<Integer, RegexNode>> products = new HashMap<>();
+        for (Map.Entry<Integer, RegexNode> reference : references.entrySet()) {
+            Map<Integer, RegexNode> product = products.computeIfAbsent(reference.getValue(), coefficient -> {
+                Map<Integer, RegexNode> multiplied = new HashMap<>();
+                for (Map.Entry<Integer, RegexNode> term : terms.entrySet()) {
+                    multiplied.put(term.getKey(), nodeFactory.concat(coefficient, term.getValue()));
+                }
+                return multiplied;
+            });
+
+            for (Map.Entry<Integer, RegexNode> term : product.entrySet()) {
+                equations.mergeLabel(reference.getKey(), term.getKey(), term.getValue(),
+                        (existing, added) -> combine(existing, added, nodeFactory));
+            }
+        }
+    }
+
+    /**
+     * Adds two coefficients of the same variable, keeping single characters together
+     * as one character class.
+     *
+     * @param first The existing coefficient
+     * @param second The coefficient being added
+     * @param nodeFactory The factory building the sum
+     * @return A coefficient matching either
+     */
+    private RegexNode combine(RegexNode first, RegexNode second, RegexNodeFactory nodeFactory) {
+        if (first.getChars() != null && second.getChars() != null) {
+            return nodeFactory.chars(first.getChars().union(second.getChars()));
+        }
+        return nodeFactory.alt(first, second);
+    }
+}
@@ -0,0 +1,20 @@
+package com.owenjg.regexsynthesiser.simplification;
+
+/**
+ * The algorithms available for converting a minimised DFA to a regular expression.
+ */
+public enum ConversionEngine {
+    /**
+     * Removes states one at a time, replacing them with bypass edges, using
+     * {@link StateEliminationAlgorithm}. Honours the size budget and can fall back
+     * to eliminating each branch separately.
+     */
+    STATE_ELIMINATION,
+
+    /**
+     * Solves one language equation per state with Arden's lemma, using
+     * {@link AlgebraicConverter}. Accepting states are substituted like any other,
+     * which often gives shorter expressions for automata with many accepting states.
+     */
+    ALGEBRAIC
+}
@@ -0,0 +1,37 @@
+package com.owenjg.regexsynthesiser.simplification;
+
+/**
+ * Strategies for choosing the order in which state elimination removes states.
+ */
+public enum EliminationOrder {
+    /**
+     * Scores every state once, by the number of bypass edges it would create,
+     * and eliminates them in that fixed order.
+     */
+    STATIC,
+
+    /**
+     * Keeps states in a priority queue weighted by the size of the labels they would
+     * produce, as in the heuristic of Delgado and Morais, and re-scores the neighbours
+     * of each eliminated state before choosing the next one.
+     */
+    DYNAMIC,
+
+    /**
+     * Eliminates the states furthest from the start state first, following a reverse
+     * topological order of the strongly connected components.
+     */
+    REVERSE_TOPOLOGICAL,
+
+    /**
+     * Eliminates the states in a random order drawn from a fixed seed.
+     */
+    RANDOM,
+
+    /**
+     * Runs the static, dynamic and reverse topological orders and several random
+     * orders concurrently, and keeps the shortest expression. The branch fallback and
+     * symbolic automata use the dynamic order.
+     */
+    PORTFOLIO
+}
@@ -0,0 +1,246 @@
+package com.owenjg.regexsynthesiser.simplification;
+
+import com.owenjg.regexsynthesiser.regex.RegexNode;
+
+import java.io.IOException;
+
+/**
+ * The outcome of converting an automaton to a regular expression by state elimination.
+ *
+ * Besides the expression itself, the result records whether the elimination ran to
+ * completion, and if not, which elimination order was in use, at which state it gave
+ * up and how far it had got. When the size budget is exceeded the expression, if any,
+ * comes from the cheaper fallback of eliminating each branch of the start state separately.
+ *
+ * The expression is kept as a syntax tree and only rendered to a string when asked for,
+ * so a large expression can instead be written straight to a file with
+ * {@link #appendRegexTo(Appendable)}.
+ */
+public final class EliminationResult {
+
+    /**
+     * How the elimination ended.
+     */
+    public enum Status {
+        /** Every state was eliminated within the size budget. */
+        COMPLETE,
+        /** An expression grew larger than the size budget. */
+        BUDGET_EXCEEDED,
+        /** The caller asked for the elimination to stop. */
+        CANCELLED
+    }
+
+    /**
+     * Marks a result whose elimination did not stop at a particular state.
+     */
+    public static final int NO_STATE = -1;
+
+    private final Status status;
+    private final RegexNode regex;
+    private final boolean fallback;
+    private final EliminationOrder order;
+    private final SizeBudget budget;
+    private final int abortState;
+    private final int eliminatedStates;
+    private final int totalStates;
+    private final long size;
+    private String rendered;
+
+    /**
+     * Creates a result.
+     *
+     * @param status How the elimination ended
+     * @param regex The expression produced, or null if the language is empty or there is none
+     * @param fallback Whether the expression came from the branch fallback
+     * @param order The elimination order that was used
+     * @param budget The size budget that applied
+     * @param abortState The state being eliminated when the elimination stopped, or {@link #NO_STATE}
+     * @param eliminatedStates The number of states eliminated before stopping
+     * @param totalStates The number of states that had to be eliminated
+     * @param size The size of the expression in the unit of the budget, or of the
+     *             expression that broke the budget
+     */
+    EliminationResult(Status status, RegexNode regex, boolean fallback, EliminationOrder order, SizeBudget budget,
+                      int abortState, int eliminatedStates, int totalStates, long size) {
+        this.status = status;
+        this.regex = regex;
+        this.fallback = fallback;
+        this.order = order;
+        this.budget = budget;
+        this.abortState = abortState;
+        this.eliminatedStates = eliminatedStates;
+        this.totalStates = totalStates;
+        this.size = size;
+    }
+
+    /**
+     * Creates a copy of this result carrying the expression built by the fallback.
+     *
+     * @param fallbackRegex The fallback expression
+     * @param fallbackSize Its size in the unit of the budget
+     * @return The updated result
+     */
+    EliminationResult withFallback(RegexNode fallbackRegex, long fallbackSize) {
+        return new EliminationResult(status, fallbackRegex, true, order, budget,
+                abortState, eliminatedStates, totalStates, fallbackSize);
+    }
+
+    /**
+     * Gets how the elimination ended.
+     *
+     * @return The status
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Checks whether the elimination stopped before every state was eliminated.
+     *
+     * @return true if the budget was exceeded or the elimination was cancelled
+     */
+    public boolean isAborted() {
+        return status != Status.COMPLETE;
+    }
+
+    /**
+     * Checks whether an expression was produced.
+     *
+     * @return false only if the elimination was aborted and no fallback succeeded
+     */
+    public boolean hasRegex() {
+        return regex != null || !isAborted();
+    }
+
+    /**
+     * Gets the expression produced, rendering it the first time it is asked for.
+     *
+     * @return The expression, the empty string if the automaton accepts nothing, or
+     *         null if the elimination was aborted and no fallback succeeded
+     */
+    public String getRegex() {
+        if (!hasRegex()) {
+            return null;
+        }
+        if (rendered == null) {
+            rendered = regex == null ? "" : regex.render();
+        }
+        return rendered;
+    }
+
+    /**
+     * Gets the expression produced as a syntax tree.
+     *
+     * @return The expression, or null if there is none or the automaton accepts nothing
+     */
+    RegexNode getRegexNode() {
+        return regex;
+    }
+
+    /**
+     * Writes the expression to a character sink without building it as one string.
+     * Nothing is written if the automaton accepts nothing or no expression was produced.
+     *
+     * @param out The sink to write to
+     * @throws IOException If the sink fails
+     */
+    public void appendRegexTo(Appendable out) throws IOException {
+        if (rendered != null) {
+            out.append(rendered);
+        } else if (regex != null) {
+            regex.appendTo(out);
+        }
+    }
+
+    /**
+     * Checks whether the expression came from the branch fallback rather than the
+     * full elimination.
+     *
+     * @return true if the fallback produced the expression
+     */
+    public boolean isFallback() {
+        return fallback;
+    }
+
+    /**
+     * Gets the elimination order that was used.
+     *
+     * @return The elimination order
+     */
+    public EliminationOrder getOrder() {
+        return order;
+    }
+
+    /**
+     * Gets the size budget that applied.
+     *
+     * @return The budget
+     */
+    public SizeBudget getBudget() {
+        return budget;
+    }
+
+    /**
+     * Gets the state whose elimination broke the budget.
+     *
+     * @return The state in the trimmed automaton, or {@link #NO_STATE} if the elimination
+     *         completed, was cancelled, or broke the budget only when assembling the final expression
+     */
+    public int getAbortState() {
+        return abortState;
+    }
+
+    /**
+     * Gets the number of states eliminated before the elimination stopped.
+     *
+     * @return The number of eliminated states
+     */
+    public int getEliminatedStates() {
+        return eliminatedStates;
+    }
+
+    /**
+     * Gets the number of states the elimination had to remove.
+     *
+     * @return The number of states other than the start state
+     */
+    public int getTotalStates() {
+        return totalStates;
+    }
+
+    /**
+     * Gets the size of the expression, measured in the unit of the budget. For an
+     * aborted elimination without a fallback, this is the size of the expression that
+     * broke the budget.
+     *
+     * @return The size
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Describes the outcome in a single line, suitable for a status message.
+     *
+     * @return The description
+     */
+    public String getSummary() {
+        switch (status) {
+            case COMPLETE:
+                return "Eliminated " + totalStates + " states with the " + order + " order";
+            case CANCELLED:
+                return "Cancelled after eliminating " + eliminatedStates + " of " + totalStates + " states";
+            default:
+                String where = abortState == NO_STATE ? "assembling the final expression"
+                        : "eliminating state " + abortState;
+                return "Size budget of " + budget + " exceeded with the " + order + " order while "
+                        + where + " (" + eliminatedStates + " of " + totalStates + " states eliminated)"
+                        + (fallback ? "; used the branch fallback" : "");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getSummary();
+    }
+}
@@ -0,0 +1,338 @@
+package com.owenjg.regexsynthesiser.simplification;
+
+import com.owenjg.regexsynthesiser.dfa.CharRangeSet;
+import com.owenjg.regexsynthesiser.regex.RegexNode;
+import com.owenjg.regexsynthesiser.regex.RegexNodeFactory;
+import com.owenjg.regexsynthesiser.regex.RegexParser;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Tests, within a bound, that a rewritten regular expression still matches the same
+ * strings as the expression it came from. This is a heuristic rather than a decision
+ * procedure: it looks for a string the two expressions disagree on, and only reports
+ * that none was found among the strings it tried.
+ *
+ * The characters are split into the classes no character class of the original
+ * expression tells apart, and one representative of each is used as the alphabet.
+ * Every string over that alphabet is tried up to the length that keeps the total under
+ * {@link #MAX_EXHAUSTIVE_STRINGS}, followed by random members of the original language
+ * and small edits of each: a character added, dropped, doubled or replaced. The two
+ * expressions are compiled with java.util.regex and must agree on whether each string
+ * matches in full. Passing the check is evidence of equivalence, not a proof.
+ *
+ * A greedy expression may backtrack exponentially on some strings, so the matchers read
+ * their input through a sequence that counts every character read. Once
+ * {@link #MAX_MATCH_STEPS} have been read in total, the check gives up without a verdict.
+ */
+public final class EquivalenceTester {
+    // Strings of each length are tried while the total stays within this many
+    private static final int MAX_EXHAUSTIVE_STRINGS = 4096;
+    // The number of random members of the original language tried
+    private static final int SAMPLED_MEMBERS = 256;
+    // The most repetitions beyond the minimum a sampled member takes of a quantifier
+    private static final int MAX_EXTRA_REPETITIONS = 3;
+    // Sampled members are cut off at this length, keeping backtracking matchers quick
+    private static final int MAX_MEMBER_LENGTH = 64;
+    // The most characters the matchers may read over the whole check
+    private static final long MAX_MATCH_STEPS = 5_000_000;
+    // Only this many distinct classes are used to split the alphabet
+    private static final int MAX_ALPHABET_CLASSES = 256;
+
+    private final RegexNode root;
+    private final Pattern expected;
+    private final Pattern actual;
+    private long steps;
+    private String counterexample;
+
+    /**
+     * Creates a tester for a rewritten expression.
+     *
+     * @param regex The original expression, in the syntax understood by {@link RegexParser}
+     * @param candidate The rewritten expression, in any java.util.regex syntax
+     * @throws IllegalArgumentException If either expression is malformed or the original
+     *         uses syntax the parser does not support
+     */
+    public EquivalenceTester(String regex, String candidate) {
+        this(new RegexParser(new RegexNodeFactory()).parse(regex), regex, candidate);
+    }
+
+    /**
+     * Creates a tester for a rewritten expression whose original is already parsed.
+     *
+     * @param root The syntax tree of the original expression
+     * @param regex The rendered original expression
+     * @param candidate The rewritten expression
+     */
+    EquivalenceTester(RegexNode root, String regex, String candidate) {
+        this.root = root;
+        this.expected = Pattern.compile(regex);
+        this.actual = Pattern.compile(candidate);
+    }
+
+    /**
+     * Tries the two expressions on every string of the check. Agreeing on all of them
+     * does not prove the expressions equivalent, since strings outside the check are
+     * never tried.
+     *
+     * @return true if they agreed on every string, false if they disagreed on one or the
+     *         check ran out of steps first
+     */
+    public boolean test() {
+        try {
+            counterexample = findCounterexample();
+            return counterexample == null;
+        } catch (StepLimitExceeded e) {
+            return false;
+        }
+    }
+
+    /**
+     * Gets the string the expressions were found to disagree on.
+     *
+     * @return The string, or null if none was found
+     */
+    public String getCounterexample() {
+        return counterexample;
+    }
+
+    /**
+     * Looks for a string that one expression matches and the other does not.
+     *
+     * @return A string the two disagree on, or null if none was found
+     */
+    private String findCounterexample() {
+        char[] alphabet = getAlphabet(root);
+
+        // Every short string over the alphabet
+        int budget = MAX_EXHAUSTIVE_STRINGS;
+        long count = 1;
+        for (int length = 0; count <= budget; length++) {
+            budget -= (int) count;
+            int[] digits = new int[length];
+            char[] word = new char[length];
+            while (true) {
+                for (int i = 0; i < length; i++) {
+                    word[i] = alphabet[digits[i]];
+                }
+                String text = new String(word);
+                if (disagree(text)) {
+                    return text;
+                }
+
+                // Advance to the next string, like an odometer
+                int position = length - 1;
+                while (position >= 0 && ++digits[position] == alphabet.length) {
+                    digits[position--] = 0;
+                }
+                if (position < 0) {
+                    break;
+                }
+            }
+            count *= alphabet.length;
+        }
+
+        // Random members of the original language, and near misses around them
+        Random random = new Random(0);
+        for (int i = 0; i < SAMPLED_MEMBERS; i++) {
+            String member = sampleMember(root, random);
+            for (String text : getEdits(member, alphabet, random)) {
+                if (disagree(text)) {
+                    return text;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether exactly one of the expressions matches a string in full.
+     *
+     * @param text The string
+     * @return true if the expressions disagree on the string
+     */
+    private boolean disagree(String text) {
+        CharSequence counted = new CountingSequence(text);
+        return expected.matcher(counted).matches() != actual.matcher(counted).matches();
+    }
+
+    /**
+     * Picks one character from each set of characters that the classes of an expression
+     * cannot tell apart, including the characters none of them match.
+     *
+     * @param root The expression
+     * @return The representative characters
+     */
+    private static char[] getAlphabet(RegexNode root) {
+        Set<CharRangeSet> classes = new LinkedHashSet<>();
+        Set<RegexNode> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<RegexNode> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty() && classes.size() < MAX_ALPHABET_CLASSES) {
+            RegexNode node = pending.pop();
+            if (!visited.add(node)) {
+                continue;
+            }
+            if (node.getChars() != null) {
+                classes.add(node.getChars());
+            }
+            for (RegexNode child : node.getChildren()) {
+                pending.push(child);
+            }
+        }
+
+        // Split the whole alphabet by each class in turn
+        List<CharRangeSet> blocks = new ArrayList<>(List.of(CharRangeSet.ALL));
+        for (CharRangeSet chars : classes) {
+            List<CharRangeSet> split = new ArrayList<>();
+            for (CharRangeSet block : blocks) {
+                CharRangeSet inside = block.intersect(chars);
+                CharRangeSet outside = block.minus(chars);
+                if (!inside.isEmpty()) split.add(inside);
+                if (!outside.isEmpty()) split.add(outside);
+            }
+            blocks = split;
+        }
+
+        char[] alphabet = new char[blocks.size()];
+        for (int i = 0; i < alphabet.length; i++) {
+            alphabet[i] = blocks.get(i).getRangeStart(0);
+        }
+        return alphabet;
+    }
+
+    /**
+     * Builds a random string matched by an expression, taking a random alternative of
+     * each alternation and a small random count for each repetition.
+     *
+     * @param root The expression
+     * @param random The source of randomness
+     * @return The string, cut short if it grows past {@link #MAX_MEMBER_LENGTH}
+     */
+    private static String sampleMember(RegexNode root, Random random) {
+        StringBuilder member = new StringBuilder();
+        Deque<RegexNode> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty() && member.length() < MAX_MEMBER_LENGTH) {
+            RegexNode node = pending.pop();
+            List<RegexNode> children = node.getChildren();
+            switch (node.getKind()) {
+                case LITERAL:
+                case CLASS:
+                    member.append(sampleChar(node.getChars(), random));
+                    break;
+                case CONCAT:
+                    pending.push(children.get(1));
+                    pending.push(children.get(0));
+                    break;
+                case ALT:
+                    List<RegexNode> alternatives = node.getAlternatives();
+                    pending.push(alternatives.get(random.nextInt(alternatives.size())));
+                    break;
+                case STAR:
+                case REPEAT:
+                    int min = node.getKind() == RegexNode.Kind.STAR ? 0 : node.getMin();
+                    int max = node.getKind() == RegexNode.Kind.STAR ? RegexNode.UNBOUNDED : node.getMax();
+                    int extra = max == RegexNode.UNBOUNDED ? MAX_EXTRA_REPETITIONS
+                            : Math.min(max - min, MAX_EXTRA_REPETITIONS);
+                    int repetitions = Math.min(min + random.nextInt(extra + 1), MAX_MEMBER_LENGTH);
+                    for (int i = 0; i < repetitions; i++) {
+                        pending.push(children.get(0));
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return member.toString();
+    }
+
+    /**
+     * Picks a random character from a set.
+     *
+     * @param chars The set, which must not be empty
+     * @param random The source of randomness
+     * @return One of its characters
+     */
+    private static char sampleChar(CharRangeSet chars, Random random) {
+        int range = random.nextInt(chars.getRangeCount());
+        int start = chars.getRangeStart(range);
+        return (char) (start + random.nextInt(chars.getRangeEnd(range) - start + 1));
+    }
+
+    /**
+     * Lists a string together with small edits of it.
+     *
+     * @param text The string
+     * @param alphabet The representative characters to add or substitute
+     * @param random The source of randomness
+     * @return The string, with a character added at the end, and, if it is not empty,
+     *         with its first or last character dropped, a character doubled and a
+     *         character replaced
+     */
+    private static List<String> getEdits(String text, char[] alphabet, Random random) {
+        List<String> edits = new ArrayList<>();
+        edits.add(text);
+        edits.add(text + alphabet[random.nextInt(alphabet.length)]);
+        if (!text.isEmpty()) {
+            int position = random.nextInt(text.length());
+            edits.add(text.substring(1));
+            edits.add(text.substring(0, text.length() - 1));
+            edits.add(text.substring(0, position + 1) + text.substring(position));
+            edits.add(text.substring(0, position) + alphabet[random.nextInt(alphabet.length)]
+                    + text.substring(position + 1));
+        }
+        return edits;
+    }
+
+    /**
+     * A string whose characters count against the step limit of the check as they are read.
+     */
+    private final class CountingSequence implements CharSequence {
+        private final String text;
+
+        /**
+         * Wraps a string.
+         *
+         * @param text The string
+         */
+        CountingSequence(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public int length() {
+            return text.length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (++steps > MAX_MATCH_STEPS) {
+                throw new StepLimitExceeded();
+            }
+            return text.charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new CountingSequence(text.substring(start, end));
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+
+    /**
+     * Thrown from inside a matcher to abandon a check that has run out of steps.
+     */
+    private static final class StepLimitExceeded extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        StepLimitExceeded() {
+            super(null, null, false, false);
+        }
+    }
+}
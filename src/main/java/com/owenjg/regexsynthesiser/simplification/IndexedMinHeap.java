@@ -0,0 +1,158 @@
+package com.owenjg.regexsynthesiser.simplification;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A binary min-heap of state indices whose priorities can be changed in place.
+ * The position of every queued index is tracked, so a priority update only sifts
+ * that one entry instead of rebuilding the queue.
+ */
+class IndexedMinHeap {
+    private final int[] heap;
+    private final int[] positions;
+    private final long[] priorities;
+    private int size;
+
+    /**
+     * Creates an empty heap for indices from 0 to capacity - 1.
+     *
+     * @param capacity The number of distinct indices
+     */
+    IndexedMinHeap(int capacity) {
+        heap = new int[capacity];
+        positions = new int[capacity];
+        priorities = new long[capacity];
+        Arrays.fill(positions, -1);
+    }
+
+    /**
+     * Checks whether the heap is empty.
+     *
+     * @return true if no indices are queued
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Checks whether an index is queued.
+     *
+     * @param index The index to look for
+     * @return true if the index is in the heap
+     */
+    boolean contains(int index) {
+        return positions[index] >= 0;
+    }
+
+    /**
+     * Queues an index, or changes its priority if it is already queued.
+     *
+     * @param index The index to queue
+     * @param priority Its priority; lower priorities are removed first
+     */
+    void update(int index, long priority) {
+        if (!contains(index)) {
+            heap[size] = index;
+            positions[index] = size;
+            priorities[index] = priority;
+            siftUp(size++);
+            return;
+        }
+
+        long previous = priorities[index];
+        priorities[index] = priority;
+        if (priority < previous) {
+            siftUp(positions[index]);
+        } else {
+            siftDown(positions[index]);
+        }
+    }
+
+    /**
+     * Removes the index with the lowest priority, preferring the smaller index on ties.
+     *
+     * @return The removed index
+     * @throws NoSuchElementException If the heap is empty
+     */
+    int poll() {
+        if (size == 0) {
+            throw new NoSuchElementException("The heap is empty");
+        }
+
+        int first = heap[0];
+        positions[first] = -1;
+        size--;
+        if (size > 0) {
+            heap[0] = heap[size];
+            positions[heap[0]] = 0;
+            siftDown(0);
+        }
+        return first;
+    }
+
+    /**
+     * Moves an entry towards the root until its parent has a lower or equal priority.
+     *
+     * @param position The heap position of the entry
+     */
+    private void siftUp(int position) {
+        int index = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (!precedes(index, heap[parent])) {
+                break;
+            }
+            place(heap[parent], position);
+            position = parent;
+        }
+        place(index, position);
+    }
+
+    /**
+     * Moves an entry away from the root until both children have higher or equal priorities.
+     *
+     * @param position The heap position of the entry
+     */
+    private void siftDown(int position) {
+        int index = heap[position];
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && precedes(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!precedes(heap[child], index)) {
+                break;
+            }
+            place(heap[child], position);
+            position = child;
+        }
+        place(index, position);
+    }
+
+    /**
+     * Compares two indices by priority, breaking ties by the smaller index so the
+     * removal order is deterministic.
+     *
+     * @param a The first index
+     * @param b The second index
+     * @return true if a should be removed before b
+     */
+    private boolean precedes(int a, int b) {
+        return priorities[a] < priorities[b] || (priorities[a] == priorities[b] && a < b);
+    }
+
+    /**
+     * Stores an index at a heap position.
+     *
+     * @param index The index to store
+     * @param position The heap position
+     */
+    private void place(int index, int position) {
+        heap[position] = index;
+        positions[index] = position;
+    }
+}
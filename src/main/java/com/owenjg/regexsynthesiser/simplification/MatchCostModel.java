@@ -0,0 +1,282 @@
+package com.owenjg.regexsynthesiser.simplification;
+
+import com.owenjg.regexsynthesiser.dfa.CharRangeSet;
+import com.owenjg.regexsynthesiser.regex.RegexNode;
+import com.owenjg.regexsynthesiser.regex.RegexNodeFactory;
+import com.owenjg.regexsynthesiser.regex.RegexParser;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Estimates how much work a backtracking matcher such as java.util.regex does per
+ * character of input for a regular expression, so that equivalent expressions can be
+ * ranked by expected match speed rather than by length.
+ *
+ * The estimate is the expected number of steps to match one occurrence of the
+ * expression divided by the expected number of characters it consumes. A step is one
+ * character test, so a class costs a little more for each range it is made of. Each
+ * alternative of an alternation is assumed equally likely, and reaching a later one
+ * costs a failed attempt at every earlier one: a single test if the earlier
+ * alternative cannot start with the same characters, or half of its full match
+ * otherwise. Repetitions add a small cost per iteration, and a repetition whose body
+ * can start with characters that an inner repetition also consumes, as in (a+)+, is
+ * penalised for the many ways it can split its input.
+ *
+ * The model is static and only meant to rank candidates. Where two are too close to
+ * call, {@link #fastest(List, List)} times them on sample inputs instead.
+ */
+public final class MatchCostModel {
+    // The extra cost of testing each range of a class beyond the first
+    private static final double RANGE_COST = 0.25;
+    // The cost of entering one alternative of an alternation
+    private static final double BRANCH_COST = 0.5;
+    // The bookkeeping cost of one iteration of a repetition
+    private static final double ITERATION_COST = 0.5;
+    // The number of iterations beyond the minimum assumed for an unbounded repetition
+    private static final double EXPECTED_EXTRA_ITERATIONS = 3;
+    // The factor applied to a repetition that can split its input in many ways
+    private static final double AMBIGUITY_PENALTY = 4;
+    // The most sample inputs used when timing candidates
+    private static final int MAX_SAMPLES = 64;
+    // Sample inputs longer than this are cut short
+    private static final int MAX_SAMPLE_LENGTH = 256;
+    // Rounds run before timing starts, to let the JIT compile the matchers
+    private static final int WARMUP_ROUNDS = 3;
+    // Timed rounds; the fastest round of each candidate is kept
+    private static final int TIMED_ROUNDS = 7;
+
+    private MatchCostModel() {
+    }
+
+    /**
+     * Estimates the match cost of an expression.
+     *
+     * @param regex The expression, optionally anchored with ^ and $
+     * @return The expected steps per input character, or NaN if the expression uses
+     *         syntax the parser does not support
+     */
+    public static double estimate(String regex) {
+        String body = regex.trim();
+        if (body.startsWith("^")) {
+            body = body.substring(1);
+        }
+        if (body.endsWith("$")) {
+            // The $ is an anchor unless an odd number of backslashes escape it
+            int backslashes = 0;
+            while (backslashes < body.length() - 1 && body.charAt(body.length() - 2 - backslashes) == '\\') {
+                backslashes++;
+            }
+            if (backslashes % 2 == 0) {
+                body = body.substring(0, body.length() - 1);
+            }
+        }
+        try {
+            return estimate(new RegexParser(new RegexNodeFactory()).parse(body));
+        } catch (IllegalArgumentException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Estimates the match cost of a parsed expression.
+     *
+     * @param root The expression
+     * @return The expected steps per input character
+     */
+    public static double estimate(RegexNode root) {
+        Cost cost = computeCosts(root).get(root);
+        return cost.steps / Math.max(cost.chars, 1);
+    }
+
+    /**
+     * Times equivalent expressions on sample inputs and finds the fastest. Each sample is
+     * matched as it is and with its last character dropped, so failing matches are
+     * timed as well as successful ones.
+     *
+     * @param candidates The expressions, in any java.util.regex syntax
+     * @param samples The inputs to match
+     * @return The index of the candidate with the fastest round
+     */
+    public static int fastest(List<String> candidates, List<String> samples) {
+        List<String> inputs = new ArrayList<>();
+        for (String sample : samples.subList(0, Math.min(samples.size(), MAX_SAMPLES))) {
+            String input = sample.length() > MAX_SAMPLE_LENGTH ? sample.substring(0, MAX_SAMPLE_LENGTH) : sample;
+            inputs.add(input);
+            if (!input.isEmpty()) {
+                inputs.add(input.substring(0, input.length() - 1));
+            }
+        }
+
+        List<Pattern> patterns = new ArrayList<>();
+        for (String candidate : candidates) {
+            patterns.add(Pattern.compile(candidate));
+        }
+        long[] best = new long[candidates.size()];
+        Arrays.fill(best, Long.MAX_VALUE);
+
+        // Candidates take turns within each round, so drift in machine load affects all alike
+        for (int round = 0; round < WARMUP_ROUNDS + TIMED_ROUNDS; round++) {
+            for (int i = 0; i < patterns.size(); i++) {
+                long start = System.nanoTime();
+                for (String input : inputs) {
+                    patterns.get(i).matcher(input).matches();
+                }
+                long elapsed = System.nanoTime() - start;
+                if (round >= WARMUP_ROUNDS) {
+                    best[i] = Math.min(best[i], elapsed);
+                }
+            }
+        }
+
+        int fastest = 0;
+        for (int i = 1; i < best.length; i++) {
+            if (best[i] < best[fastest]) {
+                fastest = i;
+            }
+        }
+        return fastest;
+    }
+
+    /**
+     * Computes the cost of every node of an expression, children before parents.
+     *
+     * @param root The expression
+     * @return The cost of each distinct node
+     */
+    private static Map<RegexNode, Cost> computeCosts(RegexNode root) {
+        Map<RegexNode, Cost> costs = new IdentityHashMap<>();
+        Deque<RegexNode> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            RegexNode node = pending.peek();
+            if (costs.containsKey(node)) {
+                pending.pop();
+                continue;
+            }
+            boolean childrenDone = true;
+            for (RegexNode child : node.getChildren()) {
+                if (!costs.containsKey(child)) {
+                    pending.push(child);
+                    childrenDone = false;
+                }
+            }
+            if (childrenDone) {
+                costs.put(node, computeCost(node, costs));
+                pending.pop();
+            }
+        }
+        return costs;
+    }
+
+    /**
+     * Computes the cost of a node from the costs of its children.
+     *
+     * @param node The node
+     * @param costs The costs of its children
+     * @return Its cost
+     */
+    private static Cost computeCost(RegexNode node, Map<RegexNode, Cost> costs) {
+        List<RegexNode> children = node.getChildren();
+        switch (node.getKind()) {
+            case LITERAL:
+            case CLASS:
+                double test = 1 + RANGE_COST * (node.getChars().getRangeCount() - 1);
+                return new Cost(test, 1, node.getChars(), CharRangeSet.EMPTY);
+            case CONCAT:
+                Cost left = costs.get(children.get(0));
+                Cost right = costs.get(children.get(1));
+                CharRangeSet first = children.get(0).matchesEmpty() ? left.first.union(right.first) : left.first;
+                return new Cost(left.steps + right.steps, left.chars + right.chars, first,
+                        left.loopChars.union(right.loopChars));
+            case ALT:
+                return alternationCost(node.getAlternatives(), costs);
+            case STAR:
+                return repetitionCost(costs.get(children.get(0)), children.get(0).matchesEmpty(),
+                        0, RegexNode.UNBOUNDED);
+            case REPEAT:
+                return repetitionCost(costs.get(children.get(0)), children.get(0).matchesEmpty(),
+                        node.getMin(), node.getMax());
+            default:
+                return new Cost(0, 0, CharRangeSet.EMPTY, CharRangeSet.EMPTY);
+        }
+    }
+
+    /**
+     * Computes the cost of an alternation, trying its alternatives in order.
+     *
+     * @param alternatives The alternatives
+     * @param costs The costs of the alternatives
+     * @return The expected cost over the alternatives
+     */
+    private static Cost alternationCost(List<RegexNode> alternatives, Map<RegexNode, Cost> costs) {
+        double steps = 0;
+        double chars = 0;
+        CharRangeSet first = CharRangeSet.EMPTY;
+        CharRangeSet loopChars = CharRangeSet.EMPTY;
+        for (int i = 0; i < alternatives.size(); i++) {
+            Cost chosen = costs.get(alternatives.get(i));
+            double attempt = BRANCH_COST + chosen.steps;
+            for (int j = 0; j < i; j++) {
+                Cost earlier = costs.get(alternatives.get(j));
+                boolean overlaps = !earlier.first.intersect(chosen.first).isEmpty();
+                attempt += BRANCH_COST + (overlaps ? earlier.steps / 2 : 1);
+            }
+            steps += attempt;
+            chars += chosen.chars;
+            first = first.union(chosen.first);
+            loopChars = loopChars.union(chosen.loopChars);
+        }
+        return new Cost(steps / alternatives.size(), chars / alternatives.size(), first, loopChars);
+    }
+
+    /**
+     * Computes the cost of a repetition.
+     *
+     * @param body The cost of the repeated expression
+     * @param nullableBody Whether the repeated expression matches the empty string
+     * @param min The minimum count
+     * @param max The maximum count, or {@link RegexNode#UNBOUNDED}
+     * @return The cost of the expected number of iterations
+     */
+    private static Cost repetitionCost(Cost body, boolean nullableBody, int min, int max) {
+        double iterations = max == RegexNode.UNBOUNDED ? min + EXPECTED_EXTRA_ITERATIONS : (min + max) / 2.0;
+        double steps = iterations * (body.steps + ITERATION_COST);
+        if (max != min) {
+            // The test that ends the repetition
+            steps += 1;
+        }
+
+        // Input the body could start again with might also have been taken by an inner loop
+        if (nullableBody || !body.first.intersect(body.loopChars).isEmpty()) {
+            steps *= AMBIGUITY_PENALTY;
+        }
+        CharRangeSet loopChars = max == RegexNode.UNBOUNDED ? body.loopChars.union(body.first) : body.loopChars;
+        return new Cost(steps, iterations * body.chars, body.first, loopChars);
+    }
+
+    /**
+     * The expected cost of matching one occurrence of a sub-expression.
+     */
+    private static final class Cost {
+        private final double steps;
+        private final double chars;
+        private final CharRangeSet first;
+        private final CharRangeSet loopChars;
+
+        /**
+         * Creates a cost.
+         *
+         * @param steps The expected number of steps
+         * @param chars The expected number of characters consumed
+         * @param first The characters a match can start with
+         * @param loopChars The characters that can start an iteration of an unbounded repetition inside
+         */
+        Cost(double steps, double chars, CharRangeSet first, CharRangeSet loopChars) {
+            this.steps = steps;
+            this.chars = chars;
+            this.first = first;
+            this.loopChars = loopChars;
+        }
+    }
+}
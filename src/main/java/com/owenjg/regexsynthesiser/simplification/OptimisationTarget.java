@@ -0,0 +1,18 @@
+package com.owenjg.regexsynthesiser.simplification;
+
+/**
+ * What the simplifier optimises for when several equivalent expressions are available.
+ */
+public enum OptimisationTarget {
+    /**
+     * Keeps the shortest expression the rewrite rules reach.
+     */
+    SIZE,
+
+    /**
+     * Keeps the expression a backtracking matcher is expected to match fastest, as
+     * estimated by the {@link MatchCostModel}, even if it is longer. Where the estimates
+     * are too close to call, the candidates are timed on sample inputs.
+     */
+    MATCH_COST
+}
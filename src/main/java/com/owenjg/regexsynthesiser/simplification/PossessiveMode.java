@@ -0,0 +1,26 @@
+package com.owenjg.regexsynthesiser.simplification;
+
+/**
+ * Whether the simplifier makes quantifiers possessive where that cannot change the
+ * language, to spare backtracking matchers work they can never benefit from.
+ */
+public enum PossessiveMode {
+    /**
+     * Keeps every quantifier greedy.
+     */
+    OFF,
+
+    /**
+     * Makes the quantifiers found by {@link PossessiveQuantifiers} possessive.
+     */
+    ON,
+
+    /**
+     * Makes the quantifiers possessive as for {@link #ON}, then tests the result against
+     * the greedy expression with an {@link EquivalenceTester}, and keeps the greedy
+     * expression if the two disagree on any string tried or the test gives up. The test
+     * only tries a bounded set of strings, so passing it is not a proof that the two
+     * expressions are equivalent.
+     */
+    TESTED
+}
@@ -0,0 +1,155 @@
+package com.owenjg.regexsynthesiser.simplification;
+
+import com.owenjg.regexsynthesiser.dfa.CharRangeSet;
+import com.owenjg.regexsynthesiser.regex.RegexNode;
+import com.owenjg.regexsynthesiser.regex.RegexNode.Kind;
+
+import java.util.*;
+
+/**
+ * Finds the quantifiers of an expression that can be made possessive without changing
+ * the language it matches.
+ *
+ * A backtracking matcher such as java.util.regex tries every shorter count of a greedy
+ * repetition when the rest of the expression fails. If the repetition matches one
+ * character at a time from a class C, and no character that can come after it is in C,
+ * giving back a character can never help: the rest of the expression cannot start with
+ * it. The quantifier can then be made possessive, as in [a-z]++@, so the matcher fails
+ * straight away instead of backtracking.
+ *
+ * The characters that can come after each node are its follow set, computed from the
+ * first sets of its neighbours in a single pass from the root. Nodes are hash-consed
+ * and may be shared by several contexts, so a node's follow set is the union over all of
+ * them, which keeps the test safe for every occurrence.
+ */
+public final class PossessiveQuantifiers {
+
+    private PossessiveQuantifiers() {
+    }
+
+    /**
+     * Finds the repetitions of single characters that never overlap with what follows them.
+     * Repetitions with a fixed count, such as x{3}, are left out since they never backtrack.
+     *
+     * @param root The expression
+     * @return The STAR and REPEAT nodes whose quantifiers can be made possessive
+     */
+    public static Set<RegexNode> find(RegexNode root) {
+        List<RegexNode> order = topologicalOrder(root);
+        Map<RegexNode, CharRangeSet> first = new IdentityHashMap<>();
+        for (int i = order.size() - 1; i >= 0; i--) {
+            RegexNode node = order.get(i);
+            first.put(node, computeFirst(node, first));
+        }
+
+        // Parents come before children, so each node's follow set is complete when it is reached
+        Map<RegexNode, CharRangeSet> follow = new IdentityHashMap<>();
+        follow.put(root, CharRangeSet.EMPTY);
+        Set<RegexNode> possessive = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (RegexNode node : order) {
+            CharRangeSet after = follow.get(node);
+            List<RegexNode> children = node.getChildren();
+            switch (node.getKind()) {
+                case CONCAT:
+                    RegexNode right = children.get(1);
+                    CharRangeSet afterLeft = right.matchesEmpty()
+                            ? first.get(right).union(after) : first.get(right);
+                    addFollow(follow, children.get(0), afterLeft);
+                    addFollow(follow, right, after);
+                    break;
+                case ALT:
+                    for (RegexNode child : children) {
+                        addFollow(follow, child, after);
+                    }
+                    break;
+                case STAR:
+                case REPEAT:
+                    RegexNode body = children.get(0);
+                    boolean repeats = node.getKind() == Kind.STAR || node.getMax() != 1;
+                    addFollow(follow, body, repeats ? first.get(body).union(after) : after);
+
+                    boolean fixedCount = node.getKind() == Kind.REPEAT && node.getMin() == node.getMax();
+                    if (!fixedCount && body.getChars() != null && body.getChars().intersect(after).isEmpty()) {
+                        possessive.add(node);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return possessive;
+    }
+
+    /**
+     * Orders the nodes of an expression so every node comes before all of its children.
+     *
+     * @param root The expression
+     * @return Each distinct node once, in reverse post-order
+     */
+    private static List<RegexNode> topologicalOrder(RegexNode root) {
+        List<RegexNode> postOrder = new ArrayList<>();
+        Set<RegexNode> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<RegexNode> pending = new ArrayDeque<>();
+        Deque<Iterator<RegexNode>> children = new ArrayDeque<>();
+        visited.add(root);
+        pending.push(root);
+        children.push(root.getChildren().iterator());
+
+        while (!pending.isEmpty()) {
+            Iterator<RegexNode> next = children.peek();
+            if (next.hasNext()) {
+                RegexNode child = next.next();
+                if (visited.add(child)) {
+                    pending.push(child);
+                    children.push(child.getChildren().iterator());
+                }
+            } else {
+                postOrder.add(pending.pop());
+                children.pop();
+            }
+        }
+        Collections.reverse(postOrder);
+        return postOrder;
+    }
+
+    /**
+     * Computes the characters a node's matches can start with.
+     *
+     * @param node The node
+     * @param first The first sets of its children, already computed
+     * @return The first set of the node
+     */
+    private static CharRangeSet computeFirst(RegexNode node, Map<RegexNode, CharRangeSet> first) {
+        List<RegexNode> children = node.getChildren();
+        switch (node.getKind()) {
+            case LITERAL:
+            case CLASS:
+                return node.getChars();
+            case CONCAT:
+                CharRangeSet left = first.get(children.get(0));
+                return children.get(0).matchesEmpty() ? left.union(first.get(children.get(1))) : left;
+            case ALT:
+                CharRangeSet union = CharRangeSet.EMPTY;
+                for (RegexNode child : children) {
+                    union = union.union(first.get(child));
+                }
+                return union;
+            case STAR:
+            case REPEAT:
+                return first.get(children.get(0));
+            default:
+                return CharRangeSet.EMPTY;
+        }
+    }
+
+    /**
+     * Adds the characters that can follow one occurrence of a node to its follow set.
+     *
+     * @param follow The follow sets found so far
+     * @param node The node
+     * @param after The characters that can follow this occurrence
+     */
+    private static void addFollow(Map<RegexNode, CharRangeSet> follow, RegexNode node, CharRangeSet after) {
+        follow.merge(node, after, CharRangeSet::union);
+    }
+}
@@ -0,0 +1,195 @@
+package com.owenjg.regexsynthesiser.simplification;
+
+import com.owenjg.regexsynthesiser.regex.RegexNode;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BinaryOperator;
+
+/**
+ * A directed graph over densely numbered states whose edges are labelled with
+ * regular expressions, as used during state elimination.
+ *
+ * Every edge is indexed both by its source and by its target, so the neighbours of a
+ * state can be read without scanning the rest of the graph. Eliminating a state
+ * therefore only touches the edges around it. A self-loop is stored in both indexes.
+ * The total size of the labels entering and leaving each state is kept up to date as
+ * edges change, so elimination heuristics can score a state in constant time.
+ *
+ * Operations on different states touch disjoint maps, so threads may edit the graph
+ * concurrently as long as no two of them change edges at the same state.
+ */
+class RegexGraph {
+    private final List<Map<Integer, RegexNode>> outgoing;
+    private final List<Map<Integer, RegexNode>> incoming;
+    private final long[] incomingSize;
+    private final long[] outgoingSize;
+    private final AtomicInteger edgeCount = new AtomicInteger();
+
+    /**
+     * Creates a graph with no edges.
+     *
+     * @param stateCount The number of states, numbered from 0
+     */
+    RegexGraph(int stateCount) {
+        outgoing = new ArrayList<>(stateCount);
+        incoming = new ArrayList<>(stateCount);
+        incomingSize = new long[stateCount];
+        outgoingSize = new long[stateCount];
+        for (int i = 0; i < stateCount; i++) {
+            outgoing.add(new HashMap<>());
+            incoming.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * Gets the number of states in the graph, including isolated ones.
+     *
+     * @return The number of states
+     */
+    int getStateCount() {
+        return outgoing.size();
+    }
+
+    /**
+     * Gets the number of edges in the graph.
+     *
+     * @return The number of edges
+     */
+    int getEdgeCount() {
+        return edgeCount.get();
+    }
+
+    /**
+     * Gets the label of an edge.
+     *
+     * @param from The source state
+     * @param to The target state
+     * @return The label, or null if the states are not connected
+     */
+    RegexNode getLabel(int from, int to) {
+        return outgoing.get(from).get(to);
+    }
+
+    /**
+     * Gets the outgoing edges of a state.
+     *
+     * @param state The source state
+     * @return An unmodifiable map from target states to edge labels
+     */
+    Map<Integer, RegexNode> getOutgoing(int state) {
+        return Collections.unmodifiableMap(outgoing.get(state));
+    }
+
+    /**
+     * Gets the incoming edges of a state.
+     *
+     * @param state The target state
+     * @return An unmodifiable map from source states to edge labels
+     */
+    Map<Integer, RegexNode> getIncoming(int state) {
+        return Collections.unmodifiableMap(incoming.get(state));
+    }
+
+    /**
+     * Gets the total size of the labels on the edges entering a state, including any self-loop.
+     *
+     * @param state The target state
+     * @return The sum of {@link RegexNode#getSize()} over the incoming edges
+     */
+    long getIncomingSize(int state) {
+        return incomingSize[state];
+    }
+
+    /**
+     * Gets the total size of the labels on the edges leaving a state, including any self-loop.
+     *
+     * @param state The source state
+     * @return The sum of {@link RegexNode#getSize()} over the outgoing edges
+     */
+    long getOutgoingSize(int state) {
+        return outgoingSize[state];
+    }
+
+    /**
+     * Estimates how much removing a state would grow the labels, using the weight of
+     * Delgado and Morais: each incoming label is copied once per outgoing edge and vice
+     * versa, the self-loop is copied into every bypass edge, and the labels of the
+     * removed edges are subtracted. Only running totals are read, so this takes
+     * constant time.
+     *
+     * @param state The state to score
+     * @return The estimated change in total label size
+     */
+    long getBypassWeight(int state) {
+        RegexNode selfLoop = getLabel(state, state);
+        long loopSize = selfLoop == null ? 0 : selfLoop.getSize();
+        int loopCount = selfLoop == null ? 0 : 1;
+
+        long in = incomingSize[state] - loopSize;
+        long out = outgoingSize[state] - loopSize;
+        int inCount = incoming.get(state).size() - loopCount;
+        int outCount = outgoing.get(state).size() - loopCount;
+
+        return in * (outCount - 1) + out * (inCount - 1) + loopSize * ((long) inCount * outCount - 1);
+    }
+
+    /**
+     * Sets the label of an edge, replacing any existing label.
+     *
+     * @param from The source state
+     * @param to The target state
+     * @param label The new label
+     */
+    void putLabel(int from, int to, RegexNode label) {
+        RegexNode previous = outgoing.get(from).put(to, label);
+        if (previous == null) {
+            edgeCount.incrementAndGet();
+        } else {
+            outgoingSize[from] -= previous.getSize();
+            incomingSize[to] -= previous.getSize();
+        }
+        incoming.get(to).put(from, label);
+        outgoingSize[from] += label.getSize();
+        incomingSize[to] += label.getSize();
+    }
+
+    /**
+     * Adds a label to an edge, combining it with any existing label.
+     *
+     * @param from The source state
+     * @param to The target state
+     * @param label The label to add
+     * @param combiner Combines an existing label with the new one
+     * @return The label the edge now carries
+     */
+    RegexNode mergeLabel(int from, int to, RegexNode label, BinaryOperator<RegexNode> combiner) {
+        RegexNode existing = outgoing.get(from).get(to);
+        RegexNode merged = existing == null ? label : combiner.apply(existing, label);
+        putLabel(from, to, merged);
+        return merged;
+    }
+
+    /**
+     * Removes every edge entering or leaving a state.
+     *
+     * @param state The state to disconnect
+     */
+    void disconnect(int state) {
+        for (Map.Entry<Integer, RegexNode> edge : incoming.get(state).entrySet()) {
+            outgoing.get(edge.getKey()).remove(state);
+            outgoingSize[edge.getKey()] -= edge.getValue().getSize();
+            edgeCount.decrementAndGet();
+        }
+        // Any self-loop was removed from the outgoing edges by the loop above
+        for (Map.Entry<Integer, RegexNode> edge : outgoing.get(state).entrySet()) {
+            incoming.get(edge.getKey()).remove(state);
+            incomingSize[edge.getKey()] -= edge.getValue().getSize();
+            edgeCount.decrementAndGet();
+        }
+        incoming.get(state).clear();
+        outgoing.get(state).clear();
+        incomingSize[state] = 0;
+        outgoingSize[state] = 0;
+    }
+}
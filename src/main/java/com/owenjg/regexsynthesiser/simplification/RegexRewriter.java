@@ -0,0 +1,817 @@
+package com.owenjg.regexsynthesiser.simplification;
+
+import com.owenjg.regexsynthesiser.dfa.CharRangeSet;
+import com.owenjg.regexsynthesiser.regex.RegexNode;
+import com.owenjg.regexsynthesiser.regex.RegexNode.Kind;
+import com.owenjg.regexsynthesiser.regex.RegexNodeFactory;
+
+import java.util.*;
+
+/**
+ * Simplifies regular expression syntax trees by applying {@link RewriteRule}s until
+ * none of them changes anything.
+ *
+ * The tree is rewritten bottom-up: each node is rebuilt from its simplified children,
+ * which also flattens nested alternations and applies the identities of the
+ * {@link RegexNodeFactory}, such as dropping the empty string from sequences and
+ * rewriting (x|) as x?. The rules are then tried on the node until it reaches a fixed
+ * point, and any new node a rule builds is simplified in the same way. Nodes are
+ * hash-consed, so the result for each node is memoised by identity and a sub-expression
+ * shared many times over is only simplified once, keeping the whole pass close to linear
+ * in the size of the tree. The traversal uses an explicit stack, since long sequences
+ * nest far deeper than the call stack allows.
+ *
+ * Sequences are kept left-associated, so the last factor of a sequence is always its
+ * right child and the factors before it can be reached by walking down the left children.
+ *
+ * Alternations are factored as if their branches were stored in a prefix trie and a
+ * suffix trie: branches starting with the same factors share a single copy of them,
+ * as do branches ending with the same factors, so (abc|abd) becomes ab(c|d) and then
+ * ab[cd]. Besides making the expression shorter, this stops a backtracking matcher from
+ * scanning a shared prefix again for every branch.
+ *
+ * A {@link SubexpressionMemo} can be given to carry results over from one rewrite to
+ * the next, so sub-expressions that recur across expressions are only simplified once.
+ *
+ * Runs of the same factor are folded into counted repetitions, so \d\d\d\d\d becomes
+ * \d{5} and [a-z][a-z][a-z]?[a-z]? becomes [a-z]{2,4}, but only where the count is
+ * strictly shorter than the run it replaces.
+ */
+public class RegexRewriter {
+    // How many trailing factors of a sequence are examined for a run to fold
+    private static final int MAX_RUN_FACTORS = 64;
+    // The longest repeated sequence of factors looked for, as in (abc){3}
+    private static final int MAX_RUN_PERIOD = 8;
+
+    private final RegexNodeFactory nodeFactory;
+    private final List<RewriteRule> rules;
+    private final SubexpressionMemo memo;
+    private final Map<RegexNode, RegexNode> simplified = new IdentityHashMap<>();
+    private final Set<RegexNode> lookedUp = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * Creates a rewriter using the default rules.
+     *
+     * @param nodeFactory The factory that built the trees to be rewritten
+     */
+    public RegexRewriter(RegexNodeFactory nodeFactory) {
+        this(nodeFactory, defaultRules());
+    }
+
+    /**
+     * Creates a rewriter using the given rules, tried in order.
+     *
+     * @param nodeFactory The factory that built the trees to be rewritten
+     * @param rules The rules to apply
+     */
+    public RegexRewriter(RegexNodeFactory nodeFactory, List<RewriteRule> rules) {
+        this(nodeFactory, rules, null);
+    }
+
+    /**
+     * Creates a rewriter using the default rules and a memo of earlier results.
+     *
+     * @param nodeFactory The factory that built the trees to be rewritten
+     * @param memo The memo to consult and fill, shared only with rewriters using the default rules
+     */
+    public RegexRewriter(RegexNodeFactory nodeFactory, SubexpressionMemo memo) {
+        this(nodeFactory, defaultRules(), memo);
+    }
+
+    /**
+     * Creates a rewriter using the given rules and a memo of earlier results.
+     *
+     * @param nodeFactory The factory that built the trees to be rewritten
+     * @param rules The rules to apply
+     * @param memo The memo to consult and fill, or null for none
+     */
+    public RegexRewriter(RegexNodeFactory nodeFactory, List<RewriteRule> rules, SubexpressionMemo memo) {
+        this.nodeFactory = nodeFactory;
+        this.rules = List.copyOf(rules);
+        this.memo = memo;
+    }
+
+    /**
+     * Gets the rules used by default: keeping sequences left-associated, folding a
+     * factor next to its own repetition (xx* to x+), removing quantifiers made redundant
+     * by an expression that already matches the empty string, moving optional
+     * alternatives out of an alternation ((x?|y) to (x|y)?), merging single characters
+     * of an alternation into one class ((a|b) to [ab]), factoring the common prefixes
+     * and suffixes out of alternations ((abc|abd) to ab(c|d)), folding runs of a factor
+     * into a counted repetition (aaaaa to a{5}) and merging counted alternatives whose
+     * counts touch ((x{2}|x{3,4}) to x{2,4}).
+     *
+     * @return The default rules
+     */
+    public static List<RewriteRule> defaultRules() {
+        return List.of(
+                RegexRewriter::associateLeft,
+                RegexRewriter::foldRepetitions,
+                RegexRewriter::absorbNullableBodies,
+                RegexRewriter::absorbOptionalAlternatives,
+                RegexRewriter::mergeCharacterAlternatives,
+                RegexRewriter::factorAlternatives,
+                RegexRewriter::foldCountedRepetitions,
+                RegexRewriter::mergeCountedAlternatives);
+    }
+
+    /**
+     * Gets the default rules without those that fold runs into counted repetitions, for
+     * when a run such as \d\d\d is preferred to \d{3} because a matcher steps
+     * through it without keeping count.
+     *
+     * @return The default rules, less the counted repetition rules
+     */
+    public static List<RewriteRule> uncountedRules() {
+        return List.of(
+                RegexRewriter::associateLeft,
+                RegexRewriter::foldRepetitions,
+                RegexRewriter::absorbNullableBodies,
+                RegexRewriter::absorbOptionalAlternatives,
+                RegexRewriter::mergeCharacterAlternatives,
+                RegexRewriter::factorAlternatives);
+    }
+
+    /**
+     * Rewrites an expression until no rule applies.
+     *
+     * @param root The expression, built by this rewriter's factory
+     * @return The simplified expression
+     */
+    public RegexNode rewrite(RegexNode root) {
+        Deque<RegexNode> pending = new ArrayDeque<>();
+        pending.push(root);
+
+        while (!pending.isEmpty()) {
+            RegexNode node = pending.peek();
+            if (simplified.containsKey(node)) {
+                pending.pop();
+                continue;
+            }
+
+            // An earlier rewrite may already have simplified the same structure
+            if (memo != null && lookedUp.add(node)) {
+                RegexNode remembered = memo.get(node, nodeFactory);
+                if (remembered != null) {
+                    simplified.put(node, remembered);
+                    pending.pop();
+                    continue;
+                }
+            }
+
+            // Simplify the children first
+            boolean childrenDone = true;
+            for (RegexNode child : getOperands(node)) {
+                if (!simplified.containsKey(child)) {
+                    pending.push(child);
+                    childrenDone = false;
+                }
+            }
+            if (!childrenDone) {
+                continue;
+            }
+
+            // Then rebuild the node from them, and try the rules once it is stable
+            RegexNode next = rebuild(node);
+            if (next == node) {
+                next = applyRules(node);
+            }
+
+            if (next == node) {
+                finish(node, node);
+                pending.pop();
+            } else if (simplified.containsKey(next)) {
+                finish(node, simplified.get(next));
+                pending.pop();
+            } else {
+                // Come back to this node once the replacement is simplified
+                pending.push(next);
+            }
+        }
+        return simplified.get(root);
+    }
+
+    /**
+     * Records the simplified form of a node, and remembers it for later rewrites.
+     *
+     * @param node The node
+     * @param result Its simplified form
+     */
+    private void finish(RegexNode node, RegexNode result) {
+        simplified.put(node, result);
+        if (memo != null) {
+            memo.put(node, result);
+        }
+    }
+
+    /**
+     * Gets the sub-expressions that are simplified before a node. For an alternation these
+     * are its flattened alternatives, so the nested alternations that state elimination
+     * builds are never visited one level at a time.
+     *
+     * @param node The node
+     * @return Its operands
+     */
+    private static List<RegexNode> getOperands(RegexNode node) {
+        return node.getKind() == Kind.ALT ? node.getAlternatives() : node.getChildren();
+    }
+
+    /**
+     * Rebuilds a node from the simplified forms of its operands.
+     *
+     * @param node The node, whose operands have all been simplified
+     * @return The rebuilt node, which is the node itself if nothing changed
+     */
+    private RegexNode rebuild(RegexNode node) {
+        List<RegexNode> children = node.getChildren();
+        switch (node.getKind()) {
+            case CONCAT:
+                return nodeFactory.concat(simplified.get(children.get(0)), simplified.get(children.get(1)));
+            case ALT:
+                List<RegexNode> alternatives = new ArrayList<>();
+                for (RegexNode alternative : node.getAlternatives()) {
+                    alternatives.add(simplified.get(alternative));
+                }
+                return nodeFactory.alt(alternatives);
+            case STAR:
+                return nodeFactory.star(simplified.get(children.get(0)));
+            case REPEAT:
+                return nodeFactory.repeat(simplified.get(children.get(0)), node.getMin(), node.getMax());
+            default:
+                return node;
+        }
+    }
+
+    /**
+     * Tries each rule in turn on a node.
+     *
+     * @param node The node, whose operands have all been simplified
+     * @return The result of the first rule that applies, or the node itself if none does
+     */
+    private RegexNode applyRules(RegexNode node) {
+        for (RewriteRule rule : rules) {
+            RegexNode rewritten = rule.apply(node, nodeFactory);
+            if (rewritten != node) {
+                return rewritten;
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Re-associates x(yz) as (xy)z, so the last factor of every sequence is its right child.
+     *
+     * @param node The node to rewrite
+     * @param nodeFactory The factory to build the replacement with
+     * @return The re-associated sequence, or the node itself
+     */
+    static RegexNode associateLeft(RegexNode node, RegexNodeFactory nodeFactory) {
+        if (node.getKind() != Kind.CONCAT || node.getChildren().get(1).getKind() != Kind.CONCAT) {
+            return node;
+        }
+        RegexNode right = node.getChildren().get(1);
+        return nodeFactory.concat(
+                nodeFactory.concat(node.getChildren().get(0), right.getChildren().get(0)),
+                right.getChildren().get(1));
+    }
+
+    /**
+     * Folds the last factor of a sequence into a repetition of the same expression just
+     * before it: x x* and x* x become x+, x* x* becomes x*, and x+ x* or x* x+ becomes x+.
+     * The repeated expression may itself be a sequence, as in ab(ab)*.
+     *
+     * @param node The node to rewrite
+     * @param nodeFactory The factory to build the replacement with
+     * @return The folded sequence, or the node itself
+     */
+    static RegexNode foldRepetitions(RegexNode node, RegexNodeFactory nodeFactory) {
+        if (node.getKind() != Kind.CONCAT) {
+            return node;
+        }
+        RegexNode prefix = node.getChildren().get(0);
+        RegexNode last = node.getChildren().get(1);
+        RegexNode previous = lastFactor(prefix);
+        RegexNode beforePrevious = prefix.getKind() == Kind.CONCAT ? prefix.getChildren().get(0) : null;
+
+        RegexNode lastBody = repeatedBody(last);
+        if (lastBody != null && lastBody == repeatedBody(previous)) {
+            // Two repetitions of the same expression, at least one of them a star
+            if (last.getKind() == Kind.STAR) {
+                return append(nodeFactory, beforePrevious, previous);
+            }
+            if (previous.getKind() == Kind.STAR) {
+                return append(nodeFactory, beforePrevious, last);
+            }
+        }
+
+        // x* x becomes x+
+        if (previous.getKind() == Kind.STAR && previous.getChildren().get(0) == last) {
+            return append(nodeFactory, beforePrevious, nodeFactory.plus(last));
+        }
+
+        // x x* becomes x+, where x may be the last few factors of the prefix
+        if (last.getKind() == Kind.STAR) {
+            RegexNode body = last.getChildren().get(0);
+            RegexNode rest = prefix;
+            RegexNode factor = body;
+            while (true) {
+                if (rest == null || lastFactor(rest) != lastFactor(factor)) {
+                    return node;
+                }
+                rest = rest.getKind() == Kind.CONCAT ? rest.getChildren().get(0) : null;
+                if (factor.getKind() != Kind.CONCAT) {
+                    break;
+                }
+                factor = factor.getChildren().get(0);
+            }
+            return append(nodeFactory, rest, nodeFactory.plus(body));
+        }
+        return node;
+    }
+
+    /**
+     * Drops the quantifiers that cannot change an expression already matching the empty
+     * string: x? becomes x, and x+ becomes x*.
+     *
+     * @param node The node to rewrite
+     * @param nodeFactory The factory to build the replacement with
+     * @return The simpler node, or the node itself
+     */
+    static RegexNode absorbNullableBodies(RegexNode node, RegexNodeFactory nodeFactory) {
+        if (node.getKind() != Kind.REPEAT || !node.getChildren().get(0).matchesEmpty()) {
+            return node;
+        }
+        RegexNode body = node.getChildren().get(0);
+        if (node.getMin() == 0 && node.getMax() == 1) {
+            return body;
+        }
+        if (node.getMin() == 1 && node.getMax() == RegexNode.UNBOUNDED) {
+            return nodeFactory.star(body);
+        }
+        return node;
+    }
+
+    /**
+     * Moves optional alternatives out of an alternation: (x?|y) becomes (x|y)?, and if
+     * another alternative already matches the empty string, as in (x?|y*), the ? is
+     * simply dropped.
+     *
+     * @param node The node to rewrite
+     * @param nodeFactory The factory to build the replacement with
+     * @return The rewritten alternation, or the node itself
+     */
+    static RegexNode absorbOptionalAlternatives(RegexNode node, RegexNodeFactory nodeFactory) {
+        if (node.getKind() != Kind.ALT) {
+            return node;
+        }
+
+        List<RegexNode> alternatives = new ArrayList<>();
+        boolean stripped = false;
+        boolean nullable = false;
+        for (RegexNode alternative : node.getAlternatives()) {
+            if (alternative.getKind() == Kind.REPEAT && alternative.getMin() == 0 && alternative.getMax() == 1) {
+                alternative = alternative.getChildren().get(0);
+                stripped = true;
+            }
+            nullable |= alternative.matchesEmpty();
+            alternatives.add(alternative);
+        }
+        if (!stripped) {
+            return node;
+        }
+
+        RegexNode choice = nodeFactory.alt(alternatives);
+        return nullable ? choice : nodeFactory.optional(choice);
+    }
+
+    /**
+     * Merges the single characters and classes among the alternatives of an alternation
+     * into one class, placed where the first of them was: (a|bc|[0-9]) becomes ([\da]|bc).
+     *
+     * @param node The node to rewrite
+     * @param nodeFactory The factory to build the replacement with
+     * @return The rewritten alternation, or the node itself
+     */
+    static RegexNode mergeCharacterAlternatives(RegexNode node, RegexNodeFactory nodeFactory) {
+        if (node.getKind() != Kind.ALT) {
+            return node;
+        }
+
+        List<RegexNode> alternatives = new ArrayList<>();
+        CharRangeSet chars = CharRangeSet.EMPTY;
+        int classPosition = -1;
+        int charAlternatives = 0;
+        for (RegexNode alternative : node.getAlternatives()) {
+            if (alternative.getChars() == null) {
+                alternatives.add(alternative);
+                continue;
+            }
+            if (classPosition < 0) {
+                classPosition = alternatives.size();
+                alternatives.add(alternative);
+            }
+            chars = chars.union(alternative.getChars());
+            charAlternatives++;
+        }
+        if (charAlternatives < 2) {
+            return node;
+        }
+
+        alternatives.set(classPosition, nodeFactory.chars(chars));
+        return nodeFactory.alt(alternatives);
+    }
+
+    /**
+     * Factors the branches of an alternation through a prefix trie: the branches are
+     * grouped by their first factor, and each group of two or more becomes its longest
+     * common prefix followed by the alternation of what is left of each branch. If no two
+     * branches start alike, the same is done with their last factors and a suffix trie.
+     * The alternations left over are factored in turn when the rewriter simplifies them.
+     *
+     * @param node The node to rewrite
+     * @param nodeFactory The factory to build the replacement with
+     * @return The factored expression, or the node itself
+     */
+    static RegexNode factorAlternatives(RegexNode node, RegexNodeFactory nodeFactory) {
+        if (node.getKind() != Kind.ALT) {
+            return node;
+        }
+
+        List<List<RegexNode>> branches = new ArrayList<>();
+        for (RegexNode alternative : node.getAlternatives()) {
+            branches.add(getFactors(alternative));
+        }
+        RegexNode factored = factorBranches(branches, true, nodeFactory);
+        if (factored == null) {
+            factored = factorBranches(branches, false, nodeFactory);
+        }
+        return factored == null ? node : factored;
+    }
+
+    /**
+     * Folds the run of repetitions of one expression at the end of a sequence into a
+     * single counted repetition, adding up their counts: \d\d\d\d\d becomes \d{5},
+     * x{2}xx? becomes x{3,4} and abcabcabc becomes (abc){3}. Every repetition period up
+     * to {@link #MAX_RUN_PERIOD} factors is tried, and the shortest result is kept only
+     * if it is strictly shorter than the sequence.
+     *
+     * @param node The node to rewrite
+     * @param nodeFactory The factory to build the replacement with
+     * @return The folded sequence, or the node itself
+     */
+    static RegexNode foldCountedRepetitions(RegexNode node, RegexNodeFactory nodeFactory) {
+        if (node.getKind() != Kind.CONCAT) {
+            return node;
+        }
+
+        // Runs further back have already been folded, so only the last few factors matter
+        List<RegexNode> factors = new ArrayList<>();
+        RegexNode rest = node;
+        while (rest != null && factors.size() < MAX_RUN_FACTORS) {
+            factors.add(lastFactor(rest));
+            rest = rest.getKind() == Kind.CONCAT ? rest.getChildren().get(0) : null;
+        }
+        Collections.reverse(factors);
+
+        RegexNode best = node;
+        for (int period = 1; period <= MAX_RUN_PERIOD && period <= factors.size(); period++) {
+            RegexNode folded = foldRun(rest, factors, period, nodeFactory);
+            if (folded != null && folded.getLength() < best.getLength()) {
+                best = folded;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Folds the run at the end of a list of factors that repeats its last few factors.
+     *
+     * @param rest The sequence before the listed factors, or null if there is none
+     * @param factors The last factors of the sequence
+     * @param period The number of factors at the end forming the repeated expression;
+     *               for a single factor, a repetition is counted as its body
+     * @param nodeFactory The factory to build the replacement with
+     * @return The sequence with the run folded, or null if the expression is not repeated
+     */
+    private static RegexNode foldRun(RegexNode rest, List<RegexNode> factors, int period,
+                                     RegexNodeFactory nodeFactory) {
+        int start = factors.size() - period;
+        RegexNode body;
+        int min;
+        int max;
+        if (period == 1) {
+            RegexNode last = factors.get(start);
+            body = countedBody(last);
+            min = countedMin(last);
+            max = countedMax(last);
+        } else {
+            // Only build the expression once a repetition of it is in sight
+            RegexNode previous = factors.get(start - 1 < 0 ? 0 : start - 1);
+            if (start == 0 || (countedBody(previous) == previous
+                    && !endsWith(factors, start, factors.subList(start, factors.size())))) {
+                return null;
+            }
+            body = sequence(factors, start, factors.size(), nodeFactory);
+            min = 1;
+            max = 1;
+        }
+        List<RegexNode> bodyFactors = getFactors(body);
+
+        int units = 1;
+        while (start > 0) {
+            RegexNode previous = factors.get(start - 1);
+            if (countedBody(previous) == body) {
+                // A repetition of the whole expression, or the expression itself
+                min += countedMin(previous);
+                max = addCounts(max, countedMax(previous));
+                start--;
+            } else if (bodyFactors.size() > 1 && endsWith(factors, start, bodyFactors)) {
+                // The factors of the expression written out again
+                min++;
+                max = addCounts(max, 1);
+                start -= bodyFactors.size();
+            } else {
+                break;
+            }
+            units++;
+        }
+        if (units < 2) {
+            return null;
+        }
+
+        RegexNode prefix = rest;
+        for (int i = 0; i < start; i++) {
+            prefix = append(nodeFactory, prefix, factors.get(i));
+        }
+        return append(nodeFactory, prefix, nodeFactory.repeat(body, min, max));
+    }
+
+    /**
+     * Merges the alternatives of an alternation that repeat the same expression with
+     * counts that overlap or touch, such as (x{2}|x{3,4}) to x{2,4} or (x?|x{2}) to x{0,2}.
+     * The merged repetition takes the place of the first of them. The rewrite is kept
+     * only if it is strictly shorter.
+     *
+     * @param node The node to rewrite
+     * @param nodeFactory The factory to build the replacement with
+     * @return The rewritten alternation, or the node itself
+     */
+    static RegexNode mergeCountedAlternatives(RegexNode node, RegexNodeFactory nodeFactory) {
+        if (node.getKind() != Kind.ALT) {
+            return node;
+        }
+
+        List<RegexNode> alternatives = new ArrayList<>(node.getAlternatives());
+        boolean merged = false;
+        for (int i = 0; i < alternatives.size(); i++) {
+            for (int j = i + 1; j < alternatives.size(); j++) {
+                RegexNode first = alternatives.get(i);
+                RegexNode second = alternatives.get(j);
+                RegexNode body = countedBody(first);
+                if (countedBody(second) != body) {
+                    continue;
+                }
+
+                // The counts must leave no gap between them
+                int lowMin = Math.min(countedMin(first), countedMin(second));
+                int highMin = Math.max(countedMin(first), countedMin(second));
+                int lowMax = countedMin(first) <= countedMin(second) ? countedMax(first) : countedMax(second);
+                if (lowMax != RegexNode.UNBOUNDED && lowMax + 1 < highMin) {
+                    continue;
+                }
+                int max = countedMax(first) == RegexNode.UNBOUNDED || countedMax(second) == RegexNode.UNBOUNDED
+                        ? RegexNode.UNBOUNDED : Math.max(countedMax(first), countedMax(second));
+
+                alternatives.set(i, nodeFactory.repeat(body, lowMin, max));
+                alternatives.remove(j);
+                merged = true;
+                // The merged repetition may now touch an alternative already passed over
+                j = i;
+            }
+        }
+        if (!merged) {
+            return node;
+        }
+
+        RegexNode choice = nodeFactory.alt(alternatives);
+        return choice.getLength() < node.getLength() ? choice : node;
+    }
+
+    /**
+     * Factors the shared prefixes or suffixes out of the branches of an alternation.
+     *
+     * @param branches The factors of each branch
+     * @param prefixes true to factor prefixes, false to factor suffixes
+     * @param nodeFactory The factory to build the replacement with
+     * @return The factored alternation, or null if no two branches share a first (or last) factor
+     */
+    private static RegexNode factorBranches(List<List<RegexNode>> branches, boolean prefixes,
+                                            RegexNodeFactory nodeFactory) {
+        // Group the branches by the factor at the shared end, in order of first appearance
+        Map<RegexNode, List<List<RegexNode>>> groups = new LinkedHashMap<>();
+        for (List<RegexNode> branch : branches) {
+            RegexNode key = prefixes ? branch.get(0) : branch.get(branch.size() - 1);
+            groups.computeIfAbsent(key, k -> new ArrayList<>()).add(branch);
+        }
+        if (groups.size() == branches.size()) {
+            return null;
+        }
+
+        List<RegexNode> alternatives = new ArrayList<>();
+        for (List<List<RegexNode>> group : groups.values()) {
+            List<RegexNode> first = group.get(0);
+            if (group.size() == 1) {
+                alternatives.add(sequence(first, 0, first.size(), nodeFactory));
+                continue;
+            }
+
+            // Follow the trie down while every branch of the group agrees
+            int common = 1;
+            while (sharesFactor(group, common, prefixes)) {
+                common++;
+            }
+
+            List<RegexNode> remainders = new ArrayList<>();
+            for (List<RegexNode> branch : group) {
+                remainders.add(prefixes
+                        ? sequence(branch, common, branch.size(), nodeFactory)
+                        : sequence(branch, 0, branch.size() - common, nodeFactory));
+            }
+            RegexNode rest = nodeFactory.alt(remainders);
+            alternatives.add(prefixes
+                    ? nodeFactory.concat(sequence(first, 0, common, nodeFactory), rest)
+                    : nodeFactory.concat(rest, sequence(first, first.size() - common, first.size(), nodeFactory)));
+        }
+        return nodeFactory.alt(alternatives);
+    }
+
+    /**
+     * Checks whether every branch of a group has the same factor at a given distance from
+     * the shared end.
+     *
+     * @param group The branches
+     * @param depth The number of factors already shared
+     * @param prefixes true to compare from the start, false from the end
+     * @return true if all branches are long enough and agree on the next factor
+     */
+    private static boolean sharesFactor(List<List<RegexNode>> group, int depth, boolean prefixes) {
+        RegexNode shared = null;
+        for (List<RegexNode> branch : group) {
+            if (branch.size() <= depth) {
+                return false;
+            }
+            RegexNode factor = branch.get(prefixes ? depth : branch.size() - 1 - depth);
+            if (shared == null) {
+                shared = factor;
+            } else if (factor != shared) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Lists the factors of a left-associated sequence.
+     *
+     * @param node The sequence, or any other node
+     * @return The factors in order; a single element for anything but a sequence
+     */
+    private static List<RegexNode> getFactors(RegexNode node) {
+        List<RegexNode> factors = new ArrayList<>();
+        while (node.getKind() == Kind.CONCAT) {
+            factors.add(node.getChildren().get(1));
+            node = node.getChildren().get(0);
+        }
+        factors.add(node);
+        Collections.reverse(factors);
+        return factors;
+    }
+
+    /**
+     * Builds the left-associated sequence of a run of factors.
+     *
+     * @param factors The factors
+     * @param from The index of the first factor to use
+     * @param to The index after the last factor to use
+     * @param nodeFactory The factory to build the sequence with
+     * @return The sequence, or the empty string if the run is empty
+     */
+    private static RegexNode sequence(List<RegexNode> factors, int from, int to, RegexNodeFactory nodeFactory) {
+        RegexNode sequence = nodeFactory.epsilon();
+        for (int i = from; i < to; i++) {
+            sequence = nodeFactory.concat(sequence, factors.get(i));
+        }
+        return sequence;
+    }
+
+    /**
+     * Gets the last factor of a left-associated sequence.
+     *
+     * @param node The sequence, or any other node
+     * @return The right child of a sequence, otherwise the node itself
+     */
+    private static RegexNode lastFactor(RegexNode node) {
+        return node.getKind() == Kind.CONCAT ? node.getChildren().get(1) : node;
+    }
+
+    /**
+     * Gets the expression repeated by a star or an unbounded repetition of at least one.
+     *
+     * @param node The node
+     * @return The repeated expression, or null for anything else
+     */
+    private static RegexNode repeatedBody(RegexNode node) {
+        if (node.getKind() == Kind.STAR || (node.getKind() == Kind.REPEAT && node.getMin() == 1
+                && node.getMax() == RegexNode.UNBOUNDED)) {
+            return node.getChildren().get(0);
+        }
+        return null;
+    }
+
+    /**
+     * Gets the expression counted by a repetition.
+     *
+     * @param node The node
+     * @return The body of a star or counted repetition, otherwise the node itself
+     */
+    private static RegexNode countedBody(RegexNode node) {
+        return node.getKind() == Kind.STAR || node.getKind() == Kind.REPEAT ? node.getChildren().get(0) : node;
+    }
+
+    /**
+     * Gets the least number of times a node matches its {@link #countedBody}.
+     *
+     * @param node The node
+     * @return The minimum count
+     */
+    private static int countedMin(RegexNode node) {
+        switch (node.getKind()) {
+            case STAR:
+                return 0;
+            case REPEAT:
+                return node.getMin();
+            default:
+                return 1;
+        }
+    }
+
+    /**
+     * Gets the greatest number of times a node matches its {@link #countedBody}.
+     *
+     * @param node The node
+     * @return The maximum count, or {@link RegexNode#UNBOUNDED}
+     */
+    private static int countedMax(RegexNode node) {
+        switch (node.getKind()) {
+            case STAR:
+                return RegexNode.UNBOUNDED;
+            case REPEAT:
+                return node.getMax();
+            default:
+                return 1;
+        }
+    }
+
+    /**
+     * Adds two maximum counts.
+     *
+     * @param first The first count, or {@link RegexNode#UNBOUNDED}
+     * @param second The second count, or {@link RegexNode#UNBOUNDED}
+     * @return Their sum, which is unbounded if either is
+     */
+    private static int addCounts(int first, int second) {
+        return first == RegexNode.UNBOUNDED || second == RegexNode.UNBOUNDED ? RegexNode.UNBOUNDED : first + second;
+    }
+
+    /**
+     * Checks whether a list of factors has a given run of factors just before an index.
+     *
+     * @param factors The factors
+     * @param end The index after the run
+     * @param run The factors to look for
+     * @return true if the run ends at the index
+     */
+    private static boolean endsWith(List<RegexNode> factors, int end, List<RegexNode> run) {
+        if (end < run.size()) {
+            return false;
+        }
+        for (int i = 0; i < run.size(); i++) {
+            if (factors.get(end - run.size() + i) != run.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Appends a factor to a possibly empty prefix.
+     *
+     * @param nodeFactory The factory to build the sequence with
+     * @param prefix The prefix, or null if there is none
+     * @param factor The factor to append
+     * @return The sequence
+     */
+    private static RegexNode append(RegexNodeFactory nodeFactory, RegexNode prefix, RegexNode factor) {
+        return prefix == null ? factor : nodeFactory.concat(prefix, factor);
+    }
+}
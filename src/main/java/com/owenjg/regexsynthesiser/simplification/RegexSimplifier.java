@@ -1,15 +1,54 @@
 package com.owenjg.regexsynthesiser.simplification;
 
+import com.owenjg.regexsynthesiser.regex.RegexNode;
+import com.owenjg.regexsynthesiser.regex.RegexNodeFactory;
+import com.owenjg.regexsynthesiser.regex.RegexParser;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
 
 /**
  * A utility class that simplifies regular expressions by removing redundancies
  * and improving clarity.
  *
- * This class focuses primarily on removing duplicate alternations and
- * unnecessary parentheses from regular expressions.
+ * The expression is parsed into a syntax tree and rewritten by a {@link RegexRewriter}
+ * until no rule applies, which removes duplicate and nested alternations, redundant
+ * empty strings and quantifiers, and folds repetitions such as xx* into x+. A leading ^
+ * and trailing $ are kept around the simplified expression. Expressions using syntax
+ * the parser does not model are returned unchanged.
+ *
+ * Simplified sub-expressions are remembered in a {@link SubexpressionMemo} shared by
+ * every call, so structure that recurs across expressions and synthesis runs is only
+ * rewritten once.
+ *
+ * A {@link PossessiveMode} can also make quantifiers possessive where nothing after
+ * them could be matched by them, such as [a-z]++@, so matchers do not backtrack into them.
+ *
+ * With the {@link OptimisationTarget#MATCH_COST} target, the shortest expression is
+ * weighed against the same rewrite without counted repetitions and against the input
+ * as written, and the one the {@link MatchCostModel} expects to match fastest is kept.
  */
 public class RegexSimplifier {
+    /**
+     * The number of simplified sub-expressions remembered across calls.
+     */
+    public static final int MEMO_CAPACITY = 4096;
+
+    // Candidates whose estimated costs are within this fraction of the cheapest are timed
+    private static final double CALIBRATION_MARGIN = 0.1;
+
+    private static final SubexpressionMemo memo = new SubexpressionMemo(MEMO_CAPACITY);
+
+    /**
+     * Gets the memo of simplified sub-expressions shared by every call, for example to
+     * read its hit and miss counts.
+     *
+     * @return The memo
+     */
+    public static SubexpressionMemo getMemo() {
+        return memo;
+    }
 
     /**
      * Simplifies a regular expression by removing redundancies.
@@ -18,102 +57,187 @@ public class RegexSimplifier {
      * @return A simplified version of the input regular expression
      */
     public static String simplify(String regex) {
-        // First, normalise the regex by removing whitespace
-        String normalised = regex.trim();
+        return simplify(regex, PossessiveMode.OFF);
+    }
 
-        // Extract patterns, handling both parenthesised and non-parenthesised input
-        List<String> patterns;
-        if (normalised.startsWith("(") && normalised.endsWith(")") && isMatchingParentheses(normalised)) {
-            // Remove outer parentheses first if they're matching
-            patterns = extractTopLevelAlternations(normalised.substring(1, normalised.length() - 1));
-        } else {
-            patterns = extractTopLevelAlternations(normalised);
+    /**
+     * Simplifies a regular expression, making quantifiers possessive as the mode allows.
+     *
+     * @param regex The regular expression to simplify
+     * @param possessiveMode Whether to make quantifiers possessive, and whether to test the result
+     * @return A simplified version of the input regular expression
+     */
+    public static String simplify(String regex, PossessiveMode possessiveMode) {
+        StringBuilder simplified = new StringBuilder(regex.length());
+        try {
+            simplify(regex, simplified, possessiveMode);
+        } catch (IOException e) {
+            // A StringBuilder never throws
+            throw new UncheckedIOException(e);
         }
+        return simplified.toString();
+    }
 
-        // If all patterns are identical, return just one instance
-        if (arePatternsSame(patterns)) {
-            return patterns.get(0);
+    /**
+     * Simplifies a regular expression for an optimisation target, making quantifiers
+     * possessive as the mode allows.
+     *
+     * @param regex The regular expression to simplify
+     * @param possessiveMode Whether to make quantifiers possessive, and whether to test the result
+     * @param target Whether to prefer the shortest expression or the one expected to match fastest
+     * @param samples Inputs to time candidates on when their estimated costs are too close
+     *                to call, such as the examples of a synthesis job; may be empty
+     * @return A simplified version of the input regular expression
+     */
+    public static String simplify(String regex, PossessiveMode possessiveMode, OptimisationTarget target,
+                                  List<String> samples) {
+        StringBuilder simplified = new StringBuilder(regex.length());
+        try {
+            simplify(regex, simplified, possessiveMode, target, samples);
+        } catch (IOException e) {
+            // A StringBuilder never throws
+            throw new UncheckedIOException(e);
         }
+        return simplified.toString();
+    }
 
-        // Remove duplicates while preserving order
-        List<String> uniquePatterns = new ArrayList<>(new LinkedHashSet<>(patterns));
-
-        // If we only have one pattern after removing duplicates, return it
-        if (uniquePatterns.size() == 1) {
-            return uniquePatterns.get(0);
-        }
+    /**
+     * Simplifies a regular expression and writes the result to a character sink, such
+     * as a Writer, without building the simplified expression as a string first.
+     *
+     * @param regex The regular expression to simplify
+     * @param out The sink the simplified expression is written to
+     * @throws IOException If the sink fails
+     */
+    public static void simplify(String regex, Appendable out) throws IOException {
+        simplify(regex, out, PossessiveMode.OFF);
+    }
 
-        // Join patterns with alternation
-        String result = String.join("|", uniquePatterns);
-        return result.contains("|") ? "(" + result + ")" : result;
+    /**
+     * Simplifies a regular expression and writes the result to a character sink, making
+     * quantifiers possessive as the mode allows.
+     *
+     * @param regex The regular expression to simplify
+     * @param out The sink the simplified expression is written to
+     * @param possessiveMode Whether to make quantifiers possessive, and whether to test the result
+     * @throws IOException If the sink fails
+     */
+    public static void simplify(String regex, Appendable out, PossessiveMode possessiveMode) throws IOException {
+        simplify(regex, out, possessiveMode, OptimisationTarget.SIZE, List.of());
     }
 
     /**
-     * Checks if the parentheses in the regex are properly matched.
+     * Simplifies a regular expression for an optimisation target and writes the result
+     * to a character sink, making quantifiers possessive as the mode allows.
      *
-     * @param regex The regular expression to check
-     * @return true if all parentheses are properly matched, false otherwise
+     * @param regex The regular expression to simplify
+     * @param out The sink the simplified expression is written to
+     * @param possessiveMode Whether to make quantifiers possessive, and whether to test the result
+     * @param target Whether to prefer the shortest expression or the one expected to match fastest
+     * @param samples Inputs to time candidates on when their estimated costs are too close
+     *                to call; may be empty
+     * @throws IOException If the sink fails
      */
-    private static boolean isMatchingParentheses(String regex) {
-        int count = 0;
-        for (int i = 0; i < regex.length(); i++) {
-            char c = regex.charAt(i);
-            if (!isEscaped(regex, i)) {
-                if (c == '(') count++;
-                if (c == ')') count--;
-                if (count < 0) return false;
-            }
+    public static void simplify(String regex, Appendable out, PossessiveMode possessiveMode,
+                                OptimisationTarget target, List<String> samples) throws IOException {
+        // First, normalise the regex by removing whitespace
+        String normalised = regex.trim();
+
+        // Anchors are put back around the simplified expression
+        boolean startAnchor = normalised.startsWith("^");
+        boolean endAnchor = normalised.length() > (startAnchor ? 1 : 0) && normalised.endsWith("$")
+                && !isEscaped(normalised, normalised.length() - 1);
+        String body = normalised.substring(startAnchor ? 1 : 0, normalised.length() - (endAnchor ? 1 : 0));
+
+        RegexNodeFactory nodeFactory = new RegexNodeFactory();
+        RegexNode parsed;
+        try {
+            parsed = new RegexParser(nodeFactory).parse(body);
+        } catch (IllegalArgumentException e) {
+            // Leave syntax the parser does not understand untouched rather than risk changing it
+            out.append(normalised);
+            return;
+        }
+
+        if (startAnchor) {
+            out.append('^');
+        }
+        RegexNode simplified = new RegexRewriter(nodeFactory, memo).rewrite(parsed);
+        if (target == OptimisationTarget.MATCH_COST) {
+            simplified = chooseCheapest(parsed, simplified, nodeFactory, samples);
+        }
+        simplified.appendTo(out, findPossessive(simplified, possessiveMode));
+        if (endAnchor) {
+            out.append('$');
         }
-        return count == 0;
     }
 
     /**
-     * Extracts top-level alternations from a regular expression.
-     * This splits a regex on unescaped pipe symbols (|) that are not inside
-     * parentheses or character classes.
+     * Chooses the equivalent expression expected to match fastest.
      *
-     * @param regex The regular expression to process
-     * @return A list of alternation components
+     * @param parsed The expression as written
+     * @param simplified The shortest simplified expression
+     * @param nodeFactory The factory that built both
+     * @param samples Inputs to time the candidates on if the model cannot separate them
+     * @return The chosen expression
      */
-    private static List<String> extractTopLevelAlternations(String regex) {
-        List<String> patterns = new ArrayList<>();
-        StringBuilder currentPattern = new StringBuilder();
-        int parenthesesCount = 0;
-        boolean inCharacterClass = false;
-
-        for (int i = 0; i < regex.length(); i++) {
-            char c = regex.charAt(i);
-
-            // Handle character class brackets
-            if (c == '[' && !isEscaped(regex, i)) {
-                inCharacterClass = true;
-            } else if (c == ']' && !isEscaped(regex, i)) {
-                inCharacterClass = false;
-            }
+    private static RegexNode chooseCheapest(RegexNode parsed, RegexNode simplified, RegexNodeFactory nodeFactory,
+                                            List<String> samples) {
+        Set<RegexNode> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+        distinct.add(simplified);
+        distinct.add(new RegexRewriter(nodeFactory, RegexRewriter.uncountedRules()).rewrite(parsed));
+        distinct.add(parsed);
 
-            // Only count unescaped parentheses outside character classes
-            if (!inCharacterClass) {
-                if (c == '(' && !isEscaped(regex, i)) {
-                    parenthesesCount++;
-                } else if (c == ')' && !isEscaped(regex, i)) {
-                    parenthesesCount--;
-                }
-            }
+        // Rank the candidates by the static model, shortest first among equals
+        List<RegexNode> candidates = new ArrayList<>(distinct);
+        Map<RegexNode, Double> costs = new IdentityHashMap<>();
+        for (RegexNode candidate : candidates) {
+            costs.put(candidate, MatchCostModel.estimate(candidate));
+        }
+        candidates.sort(Comparator.comparingDouble((RegexNode candidate) -> costs.get(candidate))
+                .thenComparingInt(RegexNode::getLength));
 
-            // Split on unescaped pipe symbols at top level
-            if (c == '|' && parenthesesCount == 0 && !inCharacterClass && !isEscaped(regex, i)) {
-                patterns.add(currentPattern.toString());
-                currentPattern = new StringBuilder();
-            } else {
-                currentPattern.append(c);
+        // Time the candidates the model cannot tell apart from the cheapest
+        double cheapest = costs.get(candidates.get(0));
+        List<String> close = new ArrayList<>();
+        for (RegexNode candidate : candidates) {
+            if (costs.get(candidate) <= cheapest * (1 + CALIBRATION_MARGIN)) {
+                close.add(candidate.render());
             }
         }
-
-        if (!currentPattern.isEmpty()) {
-            patterns.add(currentPattern.toString());
+        if (close.size() > 1 && !samples.isEmpty()) {
+            return candidates.get(MatchCostModel.fastest(close, samples));
         }
+        return candidates.get(0);
+    }
 
-        return patterns;
+    /**
+     * Chooses the quantifiers to make possessive.
+     *
+     * @param simplified The simplified expression
+     * @param possessiveMode Whether to make quantifiers possessive, and whether to test the result
+     * @return The STAR and REPEAT nodes to render as possessive
+     */
+    private static Set<RegexNode> findPossessive(RegexNode simplified, PossessiveMode possessiveMode) {
+        if (possessiveMode == PossessiveMode.OFF) {
+            return Collections.emptySet();
+        }
+        Set<RegexNode> possessive = PossessiveQuantifiers.find(simplified);
+        if (possessiveMode == PossessiveMode.TESTED && !possessive.isEmpty()) {
+            StringBuilder rendered = new StringBuilder();
+            simplified.appendTo(rendered);
+            StringBuilder candidate = new StringBuilder();
+            try {
+                simplified.appendTo(candidate, possessive);
+            } catch (IOException e) {
+                // A StringBuilder never throws
+                throw new UncheckedIOException(e);
+            }
+            if (!new EquivalenceTester(simplified, rendered.toString(), candidate.toString()).test()) {
+                return Collections.emptySet();
+            }
+        }
+        return possessive;
     }
 
     /**
@@ -134,17 +258,4 @@ public class RegexSimplifier {
         }
         return count % 2 == 1;
     }
-
-    /**
-     * Checks if all patterns in a list are identical.
-     *
-     * @param patterns The list of patterns to compare
-     * @return true if all patterns are the same, false otherwise
-     */
-    private static boolean arePatternsSame(List<String> patterns) {
-        if (patterns.isEmpty()) return true;
-        String first = patterns.get(0);
-        return patterns.stream().allMatch(p -> p.equals(first));
-    }
-
-}
\ No newline at end of file
+}
@@ -0,0 +1,20 @@
+package com.owenjg.regexsynthesiser.simplification;
+
+import com.owenjg.regexsynthesiser.regex.RegexNode;
+import com.owenjg.regexsynthesiser.regex.RegexNodeFactory;
+
+/**
+ * A single language-preserving rewrite applied by the {@link RegexRewriter}.
+ */
+@FunctionalInterface
+public interface RewriteRule {
+
+    /**
+     * Rewrites a node whose children are already fully simplified.
+     *
+     * @param node The node to rewrite
+     * @param nodeFactory The factory the node was built by, to build any replacement with
+     * @return An equivalent node, or the node itself if the rule does not apply
+     */
+    RegexNode apply(RegexNode node, RegexNodeFactory nodeFactory);
+}
@@ -0,0 +1,113 @@
+package com.owenjg.regexsynthesiser.simplification;
+
+import com.owenjg.regexsynthesiser.regex.RegexNode;
+
+/**
+ * A limit on the size of the regular expressions built during state elimination.
+ *
+ * State elimination can produce expressions exponentially larger than the automaton,
+ * so a budget lets the elimination give up early instead of running until memory is
+ * exhausted. The size can be measured either in syntax tree nodes or in characters of
+ * the rendered expression.
+ */
+public final class SizeBudget {
+
+    /**
+     * The units a budget is measured in.
+     */
+    public enum Unit {
+        /** Nodes of the expression syntax tree. */
+        NODES,
+        /** Characters of the rendered expression. */
+        CHARACTERS
+    }
+
+    /**
+     * A budget that is never exceeded.
+     */
+    public static final SizeBudget UNLIMITED = new SizeBudget(Unit.NODES, Long.MAX_VALUE);
+
+    private final Unit unit;
+    private final long limit;
+
+    /**
+     * Creates a budget.
+     *
+     * @param unit The unit the limit is measured in
+     * @param limit The largest allowed size
+     * @throws IllegalArgumentException If the limit is not positive
+     */
+    public SizeBudget(Unit unit, long limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("A size budget must be positive");
+        }
+        this.unit = unit;
+        this.limit = limit;
+    }
+
+    /**
+     * Creates a budget measured in syntax tree nodes.
+     *
+     * @param limit The largest allowed number of nodes
+     * @return The budget
+     */
+    public static SizeBudget nodes(long limit) {
+        return new SizeBudget(Unit.NODES, limit);
+    }
+
+    /**
+     * Creates a budget measured in rendered characters.
+     *
+     * @param limit The largest allowed expression length
+     * @return The budget
+     */
+    public static SizeBudget characters(long limit) {
+        return new SizeBudget(Unit.CHARACTERS, limit);
+    }
+
+    /**
+     * Gets the unit the budget is measured in.
+     *
+     * @return The unit
+     */
+    public Unit getUnit() {
+        return unit;
+    }
+
+    /**
+     * Gets the largest allowed size.
+     *
+     * @return The limit
+     */
+    public long getLimit() {
+        return limit;
+    }
+
+    /**
+     * Measures an expression in the unit of this budget.
+     *
+     * @param regex The expression to measure
+     * @return Its number of nodes or its rendered length
+     */
+    public long measure(RegexNode regex) {
+        return unit == Unit.NODES ? regex.getSize() : regex.getLength();
+    }
+
+    /**
+     * Checks whether an expression is larger than the budget allows.
+     *
+     * @param regex The expression to check
+     * @return true if the expression exceeds the limit
+     */
+    public boolean isExceededBy(RegexNode regex) {
+        return measure(regex) > limit;
+    }
+
+    @Override
+    public String toString() {
+        if (this == UNLIMITED) {
+            return "unlimited";
+        }
+        return limit + (unit == Unit.NODES ? " nodes" : " characters");
+    }
+}
@@ -1,7 +1,22 @@
 package com.owenjg.regexsynthesiser.simplification;
 
+import com.owenjg.regexsynthesiser.dfa.Automaton;
+import com.owenjg.regexsynthesiser.dfa.CharRangeSet;
 import com.owenjg.regexsynthesiser.dfa.DFA;
+import com.owenjg.regexsynthesiser.dfa.DFATrimmer;
+import com.owenjg.regexsynthesiser.dfa.StronglyConnectedComponents;
+import com.owenjg.regexsynthesiser.dfa.SymbolicDFA;
+import com.owenjg.regexsynthesiser.minimisation.DFAMinimiser;
+import com.owenjg.regexsynthesiser.regex.RegexNode;
+import com.owenjg.regexsynthesiser.regex.RegexNodeFactory;
+import com.owenjg.regexsynthesiser.simplification.EliminationResult.Status;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
 
 /**
  * Converts a Deterministic Finite Automaton (DFA) to a regular expression
@@ -10,140 +25,639 @@ import java.util.*;
  * This class systematically removes states from the DFA, preserving its language,
  * until only the initial and accepting states remain. The transitions between these
  * states are then combined to form the final regular expression.
+ *
+ * Edge labels are hash-consed {@link RegexNode} trees rather than strings, so bypass
+ * edges share the labels they are built from instead of copying them, and the final
+ * expression is rendered to a string only once. The labelled edges are kept in a
+ * {@link RegexGraph} indexed by both endpoints, so each elimination only visits the
+ * neighbours of the eliminated state.
+ *
+ * The states inside each strongly connected component are eliminated first, with the
+ * components handled concurrently on the common fork/join pool, and the states joining
+ * the components are eliminated afterwards.
+ *
+ * Every new label is checked against a {@link SizeBudget}, and a cancellation check is
+ * polled between eliminations, so a conversion that blows up can be stopped early. When
+ * the budget is exceeded, each branch leaving the start state is minimised and eliminated
+ * on its own, and the alternation of the branches is used instead if it fits.
+ *
+ * With the {@link EliminationOrder#PORTFOLIO} order, several orders are run concurrently
+ * on the same trimmed DFA and the shortest expression wins. Every label built during a
+ * run ends up inside its final expression, so a run is cancelled as soon as one of its
+ * labels is already longer than the best expression another run has finished.
  */
 public class StateEliminationAlgorithm {
-    private Map<StateTransition, String> regexTransitions = new HashMap<>();
-    private static final String REGEX_METACHARACTERS = ".[{()*+?^$|\\";
+    // The number of random orders the portfolio tries alongside the heuristic ones
+    private static final int PORTFOLIO_RANDOM_RESTARTS = 2;
+
+    private RegexGraph regexTransitions = new RegexGraph(0);
+    private RegexNodeFactory nodeFactory = new RegexNodeFactory();
+    private final DFATrimmer dfaTrimmer = new DFATrimmer();
+    private final DFAMinimiser branchMinimiser = new DFAMinimiser();
+    private EliminationOrder eliminationOrder;
+    private SizeBudget sizeBudget = SizeBudget.UNLIMITED;
+    private BooleanSupplier cancellationCheck = () -> false;
+    private long randomSeed;
+
+    // The length of the shortest expression finished by a portfolio run, or null outside a portfolio
+    private AtomicLong portfolioBest;
+    private StronglyConnectedComponents components;
+
+    // Progress of the current run, shared with the threads eliminating components
+    private final AtomicInteger eliminatedCount = new AtomicInteger();
+    private volatile Status abortStatus;
+    private volatile int abortState;
+    private volatile int abortEliminated;
+    private volatile long abortSize;
+
+    /**
+     * Creates an elimination algorithm using the static elimination order.
+     */
+    public StateEliminationAlgorithm() {
+        this(EliminationOrder.STATIC);
+    }
+
+    /**
+     * Creates an elimination algorithm using the given elimination order.
+     *
+     * @param eliminationOrder The strategy for choosing which state to eliminate next
+     */
+    public StateEliminationAlgorithm(EliminationOrder eliminationOrder) {
+        this.eliminationOrder = eliminationOrder;
+    }
+
+    /**
+     * Sets the strategy for choosing which state to eliminate next.
+     *
+     * @param eliminationOrder The elimination order to use
+     */
+    public void setEliminationOrder(EliminationOrder eliminationOrder) {
+        this.eliminationOrder = eliminationOrder;
+    }
+
+    /**
+     * Sets the largest expression the elimination may build before giving up.
+     *
+     * @param sizeBudget The budget, or {@link SizeBudget#UNLIMITED} (the default)
+     */
+    public void setSizeBudget(SizeBudget sizeBudget) {
+        this.sizeBudget = sizeBudget;
+    }
+
+    /**
+     * Sets the seed of the random order, and of the random orders tried by the portfolio.
+     *
+     * @param randomSeed The seed
+     */
+    public void setRandomSeed(long randomSeed) {
+        this.randomSeed = randomSeed;
+    }
+
+    /**
+     * Sets a check that is polled between eliminations; once it returns true the
+     * elimination stops and reports that it was cancelled.
+     *
+     * @param cancellationCheck Returns true when the elimination should stop
+     */
+    public void setCancellationCheck(BooleanSupplier cancellationCheck) {
+        this.cancellationCheck = cancellationCheck;
+    }
 
     /**
      * Eliminates states from a DFA and produces an equivalent regular expression.
      *
      * @param dfa The DFA to convert to a regular expression
-     * @return A regular expression equivalent to the language accepted by the DFA
+     * @return A regular expression equivalent to the language accepted by the DFA,
+     *         or null if the elimination was aborted and no fallback fitted the budget
      */
     public String eliminateStates(DFA dfa) {
+        return eliminate(dfa).getRegex();
+    }
+
+    /**
+     * Eliminates states from a DFA and writes the equivalent regular expression to a
+     * character sink, such as a Writer, without building it as a single string.
+     *
+     * @param dfa The DFA to convert to a regular expression
+     * @param out The sink the expression is written to
+     * @return The outcome; nothing is written if it has no expression
+     * @throws IOException If the sink fails
+     */
+    public EliminationResult eliminateStates(DFA dfa, Appendable out) throws IOException {
+        EliminationResult result = eliminate(dfa);
+        result.appendRegexTo(out);
+        return result;
+    }
+
+    /**
+     * Eliminates states from a DFA within the size budget, reporting how the
+     * elimination ended. If the budget is exceeded, the branches leaving the start
+     * state are minimised and eliminated separately as a fallback.
+     *
+     * @param dfa The DFA to convert to a regular expression
+     * @return The outcome, including the expression if one was produced
+     */
+    public EliminationResult eliminate(DFA dfa) {
+        // Drop sink and dead states so they are never scored or eliminated
+        dfa = dfaTrimmer.trimDFA(dfa);
+
+        EliminationResult result = eliminationOrder == EliminationOrder.PORTFOLIO
+                ? eliminateWithPortfolio(dfa) : eliminateTrimmed(dfa);
+        if (result.getStatus() == Status.BUDGET_EXCEEDED) {
+            RegexNode fallback = eliminateBranches(dfa);
+            if (fallback != null) {
+                result = result.withFallback(fallback, sizeBudget.measure(fallback));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Eliminates every state of a trimmed DFA with the configured order, without the fallback.
+     *
+     * @param dfa The trimmed DFA
+     * @return The outcome of the run
+     */
+    private EliminationResult eliminateTrimmed(DFA dfa) {
         // Initialise transitions
+        nodeFactory = new RegexNodeFactory();
         initialiseRegexTransitions(dfa);
 
-        if (regexTransitions.isEmpty()) {
-            return "";
+        return createResult(eliminateAllStates(dfa));
+    }
+
+    /**
+     * Runs each order of the portfolio concurrently on the same trimmed DFA, each with
+     * its own copy of the edge labels, and keeps the shortest complete result. Ties go
+     * to the earlier order, so the outcome does not depend on which run finishes first.
+     *
+     * @param dfa The trimmed DFA, which is only read
+     * @return The shortest complete result, or if no run completed, the result of the
+     *         first run that exceeded the budget or was cancelled
+     */
+    private EliminationResult eliminateWithPortfolio(DFA dfa) {
+        AtomicLong bestLength = new AtomicLong(Long.MAX_VALUE);
+        List<StateEliminationAlgorithm> runs = new ArrayList<>();
+        for (EliminationOrder order : List.of(EliminationOrder.STATIC, EliminationOrder.DYNAMIC,
+                EliminationOrder.REVERSE_TOPOLOGICAL)) {
+            runs.add(createPortfolioRun(order, randomSeed, bestLength));
+        }
+        for (int restart = 1; restart <= PORTFOLIO_RANDOM_RESTARTS; restart++) {
+            runs.add(createPortfolioRun(EliminationOrder.RANDOM, randomSeed + restart, bestLength));
         }
 
-        // Get elimination order using complexity heuristic
-        List<Integer> eliminationOrder = getSmartEliminationOrder(dfa);
+        List<ForkJoinTask<EliminationResult>> tasks = new ArrayList<>();
+        for (StateEliminationAlgorithm run : runs) {
+            tasks.add(ForkJoinPool.commonPool().submit(() -> {
+                EliminationResult result = run.eliminateTrimmed(dfa);
+                if (result.getStatus() == Status.COMPLETE) {
+                    // Let the other runs stop once they can no longer win
+                    bestLength.accumulateAndGet(getLength(result), Math::min);
+                }
+                return result;
+            }));
+        }
 
-        // Eliminate states
-        for (Integer state : eliminationOrder) {
-            eliminateState(dfa, state);
+        EliminationResult best = null;
+        EliminationResult firstAborted = null;
+        for (ForkJoinTask<EliminationResult> task : tasks) {
+            EliminationResult result = task.join();
+            if (result.getStatus() == Status.COMPLETE) {
+                if (best == null || getLength(result) < getLength(best)) {
+                    best = result;
+                }
+            } else if (firstAborted == null || (firstAborted.getStatus() == Status.CANCELLED
+                    && result.getStatus() == Status.BUDGET_EXCEEDED)) {
+                firstAborted = result;
+            }
         }
 
-        // Get final regex
-        String regex = getFinalRegex(dfa);
+        return best != null ? best : firstAborted;
+    }
 
-        // Apply additional simplification for repetitions
-        regex = simplifyRepetitions(regex);
+    /**
+     * Creates one run of the portfolio, sharing the budget and cancellation check of this one.
+     *
+     * @param order The order the run uses
+     * @param seed The seed for a random order
+     * @param bestLength The length of the shortest expression finished so far by any run
+     * @return The run
+     */
+    private StateEliminationAlgorithm createPortfolioRun(EliminationOrder order, long seed, AtomicLong bestLength) {
+        StateEliminationAlgorithm run = new StateEliminationAlgorithm(order);
+        run.setSizeBudget(sizeBudget);
+        run.setCancellationCheck(cancellationCheck);
+        run.setRandomSeed(seed);
+        run.portfolioBest = bestLength;
+        return run;
+    }
+
+    /**
+     * Gets the length of the expression of a complete result.
+     *
+     * @param result The result
+     * @return The rendered length, 0 for the empty language
+     */
+    private static long getLength(EliminationResult result) {
+        RegexNode regex = result.getRegexNode();
+        return regex == null ? 0 : regex.getLength();
+    }
+
+    /**
+     * Eliminates states from a symbolic DFA and produces an equivalent regular expression.
+     * Each edge starts out labelled with the character class of its guard, so ranges
+     * such as [a-z0-9] are emitted directly rather than assembled one character at a time.
+     *
+     * @param dfa The symbolic DFA to convert to a regular expression
+     * @return A regular expression equivalent to the language accepted by the DFA,
+     *         or null if the elimination was aborted
+     */
+    public String eliminateStates(SymbolicDFA dfa) {
+        return eliminate(dfa).getRegex();
+    }
+
+    /**
+     * Eliminates states from a symbolic DFA within the size budget, reporting how the
+     * elimination ended. Unlike {@link #eliminate(DFA)}, there is no fallback once the
+     * budget is exceeded.
+     *
+     * @param dfa The symbolic DFA to convert to a regular expression
+     * @return The outcome, including the expression if one was produced
+     */
+    public EliminationResult eliminate(SymbolicDFA dfa) {
+        // Drop dead states so they are never scored or eliminated
+        dfa = dfaTrimmer.trimDFA(dfa);
+
+        regexTransitions = new RegexGraph(dfa.getNumStates());
+        nodeFactory = new RegexNodeFactory();
+        for (Map.Entry<Integer, Map<Integer, CharRangeSet>> fromState : dfa.getTransitions().entrySet()) {
+            for (Map.Entry<Integer, CharRangeSet> edge : fromState.getValue().entrySet()) {
+                regexTransitions.putLabel(fromState.getKey(), edge.getKey(), nodeFactory.chars(edge.getValue()));
+            }
+        }
+
+        return createResult(eliminateAllStates(dfa));
+    }
+
+    /**
+     * Runs state elimination over the initialised regex transitions.
+     *
+     * @param dfa The trimmed automaton being processed
+     * @return A regular expression equivalent to the language accepted by the automaton,
+     *         or null if it accepts nothing or the elimination was aborted
+     */
+    private RegexNode eliminateAllStates(Automaton dfa) {
+        abortStatus = null;
+        eliminatedCount.set(0);
+        if (regexTransitions.getEdgeCount() == 0) {
+            return dfa.isAcceptingState(dfa.getStartState()) ? nodeFactory.epsilon() : null;
+        }
+
+        // Resolve the inside of each cycle first, in parallel, then everything that is left
+        Set<Integer> resolved = eliminateComponentInteriors(dfa);
+        List<Integer> remaining = new ArrayList<>();
+        for (int state = 0; state < regexTransitions.getStateCount(); state++) {
+            if (state != dfa.getStartState() && !resolved.contains(state)) {
+                remaining.add(state);
+            }
+        }
+        eliminateInOrder(dfa, remaining);
+        if (isStopped()) {
+            return null;
+        }
 
+        RegexNode regex = getFinalRegex(dfa);
+        if (regex != null && sizeBudget.isExceededBy(regex)) {
+            abort(Status.BUDGET_EXCEEDED, EliminationResult.NO_STATE, sizeBudget.measure(regex));
+            return null;
+        }
         return regex;
     }
 
     /**
-     * Initialises the regex transitions map from DFA transitions.
+     * Packages the outcome of the last run.
      *
-     * @param dfa The DFA to initialise transitions from
+     * @param regex The expression built, or null
+     * @return The result of the run
      */
-    private void initialiseRegexTransitions(DFA dfa) {
-        regexTransitions.clear();
+    private EliminationResult createResult(RegexNode regex) {
+        int totalStates = Math.max(regexTransitions.getStateCount() - 1, 0);
+        if (abortStatus != null) {
+            return new EliminationResult(abortStatus, null, false, eliminationOrder, sizeBudget,
+                    abortState, abortEliminated, totalStates, abortSize);
+        }
+
+        long size = regex == null ? 0 : sizeBudget.measure(regex);
+        return new EliminationResult(Status.COMPLETE, regex, false, eliminationOrder, sizeBudget,
+                EliminationResult.NO_STATE, totalStates, totalStates, size);
+    }
+
+    /**
+     * Builds the cheaper fallback expression after the budget was exceeded. The
+     * language is split by the first transition taken from the start state, and the
+     * automaton for each branch is minimised and eliminated on its own, so a branch
+     * is never blown up by states it does not reach.
+     *
+     * @param dfa The trimmed DFA whose elimination exceeded the budget
+     * @return The alternation of the branches, or null if a branch or the whole
+     *         alternation still exceeds the budget or the run was cancelled
+     */
+    private RegexNode eliminateBranches(DFA dfa) {
+        int startState = dfa.getStartState();
+
+        // Group the symbols leaving the start state by target, so each branch is built once
+        Map<Integer, CharRangeSet> branches = new TreeMap<>();
+        for (Map.Entry<Character, Integer> transition : dfa.getTransitions().getOrDefault(startState, Map.of()).entrySet()) {
+            branches.merge(transition.getValue(), CharRangeSet.of(transition.getKey()), CharRangeSet::union);
+        }
+
+        List<RegexNode> alternatives = new ArrayList<>();
+        RegexNode startLoop = null;
+        for (Map.Entry<Integer, CharRangeSet> branch : branches.entrySet()) {
+            RegexNode guard = nodeFactory.chars(branch.getValue());
+            if (branch.getKey() == startState) {
+                startLoop = guard;
+                continue;
+            }
+
+            DFA branchDFA = dfaTrimmer.trimDFA(branchMinimiser.minimiseDFA(
+                    dfaTrimmer.trimDFA(rootedAt(dfa, branch.getKey()))));
+            initialiseRegexTransitions(branchDFA);
+            RegexNode rest = eliminateAllStates(branchDFA);
+            if (abortStatus != null || rest == null) {
+                return null;
+            }
+            alternatives.add(nodeFactory.concat(guard, rest));
+        }
 
-        // Get all transitions from DFA
-        Map<Integer, Map<Character, Integer>> dfaTransitions = dfa.getTransitions();
+        if (dfa.isAcceptingState(startState)) {
+            alternatives.add(nodeFactory.epsilon());
+        }
+        if (alternatives.isEmpty()) {
+            return null;
+        }
+
+        RegexNode regex = nodeFactory.alt(alternatives);
+        if (startLoop != null) {
+            regex = nodeFactory.concat(nodeFactory.star(startLoop), regex);
+        }
+        return sizeBudget.isExceededBy(regex) ? null : regex;
+    }
 
-        // Convert each DFA transition to regex transition
-        for (Map.Entry<Integer, Map<Character, Integer>> fromState : dfaTransitions.entrySet()) {
-            int from = fromState.getKey();
+    /**
+     * Copies a DFA with a different start state.
+     *
+     * @param dfa The DFA to copy
+     * @param startState The state to start from
+     * @return A DFA accepting the words that lead from the given state to acceptance
+     */
+    private DFA rootedAt(DFA dfa, int startState) {
+        DFA rooted = new DFA(startState);
+        for (Map.Entry<Integer, Map<Character, Integer>> fromState : dfa.getTransitions().entrySet()) {
             for (Map.Entry<Character, Integer> transition : fromState.getValue().entrySet()) {
-                char symbol = transition.getKey();
-                int to = transition.getValue();
-
-                StateTransition trans = new StateTransition(from, to);
-                String transStr = escapeSpecialCharacters(symbol);
-
-                // If transition already exists, merge with OR
-                if (regexTransitions.containsKey(trans)) {
-                    String existing = regexTransitions.get(trans);
-                    regexTransitions.put(trans, combineAlternatives(existing, transStr));
-                } else {
-                    regexTransitions.put(trans, transStr);
-                }
+                rooted.addTransition(fromState.getKey(), transition.getKey(), transition.getValue());
+            }
+        }
+        for (int state : dfa.getStates()) {
+            if (dfa.isAcceptingState(state)) {
+                rooted.addAcceptingState(state);
             }
         }
+        return rooted;
     }
 
     /**
-     * Escapes special regex metacharacters to ensure they're treated as literals.
+     * Records why the current run stopped. Only the first reason is kept, since
+     * several component threads may give up at the same time.
      *
-     * @param symbol The character to potentially escape
-     * @return The escaped character if it's a metacharacter, otherwise the original character
+     * @param status Why the run stopped
+     * @param state The state being eliminated, or {@link EliminationResult#NO_STATE}
+     * @param size The size of the expression that broke the budget, or 0
      */
-    private String escapeSpecialCharacters(char symbol) {
-        if (REGEX_METACHARACTERS.indexOf(symbol) >= 0) {
-            return "\\" + symbol;
+    private synchronized void abort(Status status, int state, long size) {
+        if (abortStatus == null) {
+            abortState = state;
+            abortSize = size;
+            abortEliminated = eliminatedCount.get();
+            abortStatus = status;
         }
-        return String.valueOf(symbol);
     }
 
     /**
-     * Combines alternative patterns more efficiently than simple concatenation.
-     * Attempts to create character classes when appropriate.
+     * Checks whether the current run should stop, polling the cancellation check.
      *
-     * @param pattern1 The first pattern to combine
-     * @param pattern2 The second pattern to combine
-     * @return A combined pattern representing alternatives
+     * @return true if the run was aborted or cancelled
      */
-    private String combineAlternatives(String pattern1, String pattern2) {
-        // Try to create character classes when possible
-        if (isLiteralCharacter(pattern1) && isLiteralCharacter(pattern2)) {
-            char c1 = getUnescapedChar(pattern1);
-            char c2 = getUnescapedChar(pattern2);
+    private boolean isStopped() {
+        if (abortStatus == null && cancellationCheck.getAsBoolean()) {
+            abort(Status.CANCELLED, EliminationResult.NO_STATE, 0);
+        }
+        return abortStatus != null;
+    }
+
+    /**
+     * Eliminates the interior states of every strongly connected component, running
+     * the components concurrently.
+     *
+     * A state is interior if it is neither the start state nor accepting and all of its
+     * neighbours lie in its own component. Eliminating it only creates edges between
+     * those neighbours, so components never touch each other's edges and can be
+     * processed on separate threads. The boundary states that connect the components
+     * are left for the sequential pass over the acyclic condensation.
+     *
+     * @param dfa The trimmed automaton being processed
+     * @return The states that were eliminated, empty if fewer than two components have interiors
+     */
+    private Set<Integer> eliminateComponentInteriors(Automaton dfa) {
+        int stateCount = regexTransitions.getStateCount();
+        int[][] successors = new int[stateCount][];
+        for (int state = 0; state < stateCount; state++) {
+            successors[state] = regexTransitions.getOutgoing(state).keySet().stream().mapToInt(Integer::intValue).toArray();
+        }
+        components = new StronglyConnectedComponents(successors);
+
+        // Group the interior states by component
+        Map<Integer, List<Integer>> interiors = new HashMap<>();
+        for (int state = 0; state < stateCount; state++) {
+            if (state == dfa.getStartState() || dfa.isAcceptingState(state)) {
+                continue;
+            }
+
+            int component = components.getComponent(state);
+            boolean interior = true;
+            for (int neighbour : regexTransitions.getIncoming(state).keySet()) {
+                interior &= components.getComponent(neighbour) == component;
+            }
+            for (int neighbour : regexTransitions.getOutgoing(state).keySet()) {
+                interior &= components.getComponent(neighbour) == component;
+            }
+
+            if (interior) {
+                interiors.computeIfAbsent(component, k -> new ArrayList<>()).add(state);
+            }
+        }
+
+        // With a single cycle there is nothing to run in parallel, and fixing its
+        // interior first would only constrain the elimination order
+        if (interiors.size() < 2) {
+            return Collections.emptySet();
+        }
+
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (List<Integer> interior : interiors.values()) {
+            tasks.add(ForkJoinPool.commonPool().submit(() -> eliminateInOrder(dfa, interior)));
+        }
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+
+        Set<Integer> eliminated = new HashSet<>();
+        for (List<Integer> interior : interiors.values()) {
+            eliminated.addAll(interior);
+        }
+        return eliminated;
+    }
+
+    /**
+     * Eliminates a set of states using the configured elimination order.
+     *
+     * @param dfa The trimmed automaton being processed
+     * @param states The states to eliminate, in ascending order
+     */
+    private void eliminateInOrder(Automaton dfa, List<Integer> states) {
+        List<Integer> order;
+        switch (eliminationOrder) {
+            case STATIC:
+                // Get elimination order using complexity heuristic
+                order = getSmartEliminationOrder(dfa, states);
+                break;
+            case REVERSE_TOPOLOGICAL:
+                order = getReverseTopologicalOrder(states);
+                break;
+            case RANDOM:
+                order = new ArrayList<>(states);
+                // Seeded by the states too, so concurrent components shuffle independently
+                Collections.shuffle(order, new Random(randomSeed ^ states.hashCode()));
+                break;
+            default:
+                // The portfolio's own runs are separate, so here it behaves like the dynamic order
+                eliminateInDynamicOrder(dfa, states);
+                return;
+        }
+
+        for (Integer state : order) {
+            if (isStopped()) {
+                return;
+            }
+            eliminateState(dfa, state);
+        }
+    }
+
+    /**
+     * Orders states so that the components furthest from the start state come first.
+     * Within a component, higher numbered states come first.
+     *
+     * @param states The states to order
+     * @return The states in reverse topological order of their components
+     */
+    private List<Integer> getReverseTopologicalOrder(List<Integer> states) {
+        // Tarjan's algorithm numbers the components in reverse topological order
+        List<Integer> order = new ArrayList<>(states);
+        order.sort(Comparator.comparingInt((Integer state) -> components.getComponent(state))
+                .thenComparing(Comparator.reverseOrder()));
+        return order;
+    }
+
+    /**
+     * Eliminates states, always choosing the one with the lowest current weight.
+     * After each elimination only the neighbours of the removed state are re-scored,
+     * since no other edges have changed.
+     *
+     * @param dfa The trimmed automaton being processed
+     * @param states The states to eliminate, in ascending order
+     */
+    private void eliminateInDynamicOrder(Automaton dfa, List<Integer> states) {
+        // The heap is indexed by position in the list, so it only needs room for these states
+        IndexedMinHeap queue = new IndexedMinHeap(states.size());
+        Map<Integer, Integer> positions = new HashMap<>();
+        for (int i = 0; i < states.size(); i++) {
+            positions.put(states.get(i), i);
+            queue.update(i, getEliminationWeight(dfa, states.get(i)));
+        }
 
-            // Check if both are letters or both are digits
-            boolean bothLetters = Character.isLetter(c1) && Character.isLetter(c2);
-            boolean bothDigits = Character.isDigit(c1) && Character.isDigit(c2);
+        while (!queue.isEmpty() && !isStopped()) {
+            int state = states.get(queue.poll());
+            Set<Integer> neighbours = new HashSet<>(regexTransitions.getIncoming(state).keySet());
+            neighbours.addAll(regexTransitions.getOutgoing(state).keySet());
+
+            eliminateState(dfa, state);
 
-            if (bothLetters || bothDigits) {
-                return "[" + pattern1 + pattern2 + "]";
+            for (int neighbour : neighbours) {
+                Integer position = positions.get(neighbour);
+                if (position != null && queue.contains(position)) {
+                    queue.update(position, getEliminationWeight(dfa, neighbour));
+                }
             }
         }
+    }
 
-        // Check if either pattern already contains alternatives
-        if (pattern1.startsWith("(") && pattern1.endsWith(")") && pattern1.contains("|")) {
-            // Remove outer parentheses and add new alternative
-            return "(" + pattern1.substring(1, pattern1.length() - 1) + "|" + pattern2 + ")";
-        } else if (pattern2.startsWith("(") && pattern2.endsWith(")") && pattern2.contains("|")) {
-            // Remove outer parentheses and add new alternative
-            return "(" + pattern1 + "|" + pattern2.substring(1, pattern2.length() - 1) + ")";
-        } else {
-            return "(" + pattern1 + "|" + pattern2 + ")";
+    /**
+     * Estimates how much eliminating a state would grow the expression, using the
+     * weight of Delgado and Morais. Accepting states also keep their incoming edges,
+     * so those labels are added back.
+     *
+     * @param dfa The automaton being processed
+     * @param state The state to score
+     * @return The estimated change in total label size
+     */
+    private long getEliminationWeight(Automaton dfa, int state) {
+        long weight = regexTransitions.getBypassWeight(state);
+        if (dfa.isAcceptingState(state)) {
+            RegexNode selfLoop = regexTransitions.getLabel(state, state);
+            long loopSize = selfLoop == null ? 0 : selfLoop.getSize();
+            int inCount = regexTransitions.getIncoming(state).size() - (selfLoop == null ? 0 : 1);
+            weight += regexTransitions.getIncomingSize(state) - loopSize + loopSize * inCount;
         }
+        return weight;
     }
 
     /**
-     * Checks if a pattern is a single literal character (escaped or not).
+     * Initialises the regex transitions graph from DFA transitions.
+     * All the symbols leading from one state to the same target are collected into a
+     * single character set first, so each edge starts with one compact class such as
+     * [a-f\d_] rather than an alternation built one symbol at a time.
      *
-     * @param pattern The pattern to check
-     * @return true if the pattern is a single character, false otherwise
+     * @param dfa The trimmed DFA to initialise transitions from, with states numbered from 0
      */
-    private boolean isLiteralCharacter(String pattern) {
-        return pattern.length() == 1 || (pattern.length() == 2 && pattern.charAt(0) == '\\');
+    private void initialiseRegexTransitions(DFA dfa) {
+        regexTransitions = new RegexGraph(dfa.getNumStates());
+
+        for (Map.Entry<Integer, Map<Character, Integer>> fromState : dfa.getTransitions().entrySet()) {
+            // Group the symbols of parallel transitions by target state
+            Map<Integer, CharRangeSet> edges = new HashMap<>();
+            for (Map.Entry<Character, Integer> transition : fromState.getValue().entrySet()) {
+                edges.merge(transition.getValue(), CharRangeSet.of(transition.getKey()), CharRangeSet::union);
+            }
+
+            for (Map.Entry<Integer, CharRangeSet> edge : edges.entrySet()) {
+                regexTransitions.putLabel(fromState.getKey(), edge.getKey(), nodeFactory.chars(edge.getValue()));
+            }
+        }
     }
 
     /**
-     * Gets the character from a possibly escaped sequence.
+     * Combines alternative patterns, keeping single characters together as one character class.
      *
-     * @param pattern The pattern containing a possibly escaped character
-     * @return The unescaped character
+     * @param pattern1 The first pattern to combine
+     * @param pattern2 The second pattern to combine
+     * @return A combined pattern representing alternatives
      */
-    private char getUnescapedChar(String pattern) {
-        return pattern.length() == 1 ? pattern.charAt(0) : pattern.charAt(1);
+    private RegexNode combineAlternatives(RegexNode pattern1, RegexNode pattern2) {
+        if (pattern1.getChars() != null && pattern2.getChars() != null) {
+            return nodeFactory.chars(pattern1.getChars().union(pattern2.getChars()));
+        }
+
+        return nodeFactory.alt(pattern1, pattern2);
     }
 
     /**
@@ -152,116 +666,102 @@ public class StateEliminationAlgorithm {
      * @param dfa The DFA being processed
      * @param state The state to eliminate
      */
-    private void eliminateState(DFA dfa, int state) {
-        // Create maps for incoming and outgoing transitions
-        Map<Integer, String> incomingTransitions = new HashMap<>();
-        Map<Integer, String> outgoingTransitions = new HashMap<>();
-        String selfLoop = null;
-
-        // Collect transitions
-        for (Map.Entry<StateTransition, String> entry : new HashMap<>(regexTransitions).entrySet()) {
-            StateTransition trans = entry.getKey();
-            String regex = entry.getValue();
-
-            if (trans.from == state && trans.to == state) {
-                selfLoop = regex;
-            } else if (trans.from == state) {
-                outgoingTransitions.put(trans.to, regex);
-            } else if (trans.to == state) {
-                incomingTransitions.put(trans.from, regex);
-            }
-        }
+    private void eliminateState(Automaton dfa, int state) {
+        // Copy the neighbours of the state before disconnecting it
+        RegexNode selfLoop = regexTransitions.getLabel(state, state);
+        Map<Integer, RegexNode> incomingTransitions = new HashMap<>(regexTransitions.getIncoming(state));
+        Map<Integer, RegexNode> outgoingTransitions = new HashMap<>(regexTransitions.getOutgoing(state));
+        incomingTransitions.remove(state);
+        outgoingTransitions.remove(state);
 
         // Remove transitions involving this state
-        regexTransitions.entrySet().removeIf(entry ->
-                entry.getKey().from == state || entry.getKey().to == state);
+        regexTransitions.disconnect(state);
+
+        // Each incoming label followed by the self-loop is shared by every bypass edge
+        Map<Integer, RegexNode> loopedIncoming = new HashMap<>();
+        for (Map.Entry<Integer, RegexNode> incoming : incomingTransitions.entrySet()) {
+            RegexNode regex = incoming.getValue();
+            if (selfLoop != null) {
+                regex = nodeFactory.concat(regex, nodeFactory.star(selfLoop));
+            }
+            loopedIncoming.put(incoming.getKey(), regex);
+        }
 
         // Create new transitions
-        for (Map.Entry<Integer, String> incoming : incomingTransitions.entrySet()) {
-            for (Map.Entry<Integer, String> outgoing : outgoingTransitions.entrySet()) {
-                int from = incoming.getKey();
-                int to = outgoing.getKey();
-
-                String newRegex = incoming.getValue();
-                if (selfLoop != null) {
-                    // Simplify self-loop expression
-                    if (isLiteralCharacter(selfLoop)) {
-                        newRegex += selfLoop + "*";
-                    } else {
-                        newRegex += "(" + selfLoop + ")*";
-                    }
-                }
-                newRegex += outgoing.getValue();
-
-                StateTransition newTrans = new StateTransition(from, to);
+        for (Map.Entry<Integer, RegexNode> incoming : loopedIncoming.entrySet()) {
+            for (Map.Entry<Integer, RegexNode> outgoing : outgoingTransitions.entrySet()) {
+                RegexNode newRegex = nodeFactory.concat(incoming.getValue(), outgoing.getValue());
 
                 // Merge or add new transition
-                if (regexTransitions.containsKey(newTrans)) {
-                    String existing = regexTransitions.get(newTrans);
-                    regexTransitions.put(newTrans, combineAlternatives(existing, newRegex));
-                } else {
-                    regexTransitions.put(newTrans, newRegex);
+                RegexNode merged = regexTransitions.mergeLabel(incoming.getKey(), outgoing.getKey(),
+                        newRegex, this::combineAlternatives);
+                if (sizeBudget.isExceededBy(merged)) {
+                    abort(Status.BUDGET_EXCEEDED, state, sizeBudget.measure(merged));
+                    return;
+                }
+                if (isBeatenBy(merged)) {
+                    abort(Status.CANCELLED, EliminationResult.NO_STATE, 0);
+                    return;
                 }
             }
         }
 
         // Preserve accepting state transitions
         if (dfa.isAcceptingState(state)) {
-            for (Map.Entry<Integer, String> incoming : incomingTransitions.entrySet()) {
-                StateTransition acceptingTrans = new StateTransition(incoming.getKey(), state);
-                String incomingRegex = incoming.getValue();
-                if (selfLoop != null) {
-                    if (isLiteralCharacter(selfLoop)) {
-                        incomingRegex += selfLoop + "*";
-                    } else {
-                        incomingRegex += "(" + selfLoop + ")*";
-                    }
-                }
-                regexTransitions.put(acceptingTrans, incomingRegex);
+            for (Map.Entry<Integer, RegexNode> incoming : loopedIncoming.entrySet()) {
+                regexTransitions.putLabel(incoming.getKey(), state, incoming.getValue());
             }
         }
+        eliminatedCount.incrementAndGet();
+    }
+
+    /**
+     * Checks whether a new label shows that this portfolio run can no longer produce the
+     * shortest expression. Character classes are skipped, since merging more characters
+     * into a class can shorten it, but any other label survives into the final expression.
+     *
+     * @param label The label just built
+     * @return true if the label is longer than an expression another run has finished
+     */
+    private boolean isBeatenBy(RegexNode label) {
+        return portfolioBest != null && label.getChars() == null && label.getLength() > portfolioBest.get();
     }
 
     /**
      * Constructs the final regular expression from the remaining transitions.
+     * Any loop left on the start state may be taken before each accepted path, so the
+     * result is the loop repeated, followed by one of the paths to an accepting state.
      *
      * @param dfa The DFA being processed
-     * @return The final regular expression
+     * @return The final regular expression, or null if the DFA accepts nothing
      */
-    private String getFinalRegex(DFA dfa) {
-        List<String> patterns = new ArrayList<>();
+    private RegexNode getFinalRegex(Automaton dfa) {
+        List<RegexNode> patterns = new ArrayList<>();
         int startState = dfa.getStartState();
 
         // Collect all patterns from start state to accepting states
-        for (Map.Entry<StateTransition, String> entry : regexTransitions.entrySet()) {
-            StateTransition trans = entry.getKey();
-            if (trans.from == startState && dfa.isAcceptingState(trans.to)) {
+        for (Map.Entry<Integer, RegexNode> entry : regexTransitions.getOutgoing(startState).entrySet()) {
+            if (entry.getKey() != startState && dfa.isAcceptingState(entry.getKey())) {
                 patterns.add(entry.getValue());
             }
         }
 
         // Handle case where start state is accepting (empty string)
         if (dfa.isAcceptingState(startState)) {
-            patterns.add("ε"); // Empty string representation
+            patterns.add(nodeFactory.epsilon());
         }
 
         if (patterns.isEmpty()) {
-            return "";
+            return null;
         }
 
-        // Join patterns with OR
-        String regex = String.join("|", patterns);
-        // Replace ε with empty string after combination
-        regex = regex.replace("ε", "");
-        if (regex.equals("|")) {
-            regex = "";
-        } else if (regex.startsWith("|")) {
-            regex = regex.substring(1);
-        } else if (regex.endsWith("|")) {
-            regex = regex.substring(0, regex.length() - 1);
+        RegexNode regex = nodeFactory.alt(patterns);
+        RegexNode startLoop = regexTransitions.getLabel(startState, startState);
+        if (startLoop != null) {
+            regex = nodeFactory.concat(nodeFactory.star(startLoop), regex);
         }
 
-        return patterns.size() > 1 ? "(" + regex + ")" : regex;
+        return regex;
     }
 
     /**
@@ -269,38 +769,24 @@ public class StateEliminationAlgorithm {
      * States with fewer/simpler transitions are eliminated first.
      *
      * @param dfa The DFA being processed
+     * @param states The states to order, never including the start state
      * @return A list of states in the order they should be eliminated
      */
-    private List<Integer> getSmartEliminationOrder(DFA dfa) {
+    private List<Integer> getSmartEliminationOrder(Automaton dfa, List<Integer> states) {
         // Create a map of states to their complexity scores
-        Map<Integer, Integer> stateComplexity = new HashMap<>();
+        Map<Integer, Integer> stateComplexity = new LinkedHashMap<>();
 
         // Calculate complexity for each state
-        for (Integer state : dfa.getStates()) {
-            if (state == dfa.getStartState()) {
-                // Skip start state - we eliminate it last
-                continue;
-            }
-
+        for (Integer state : states) {
             // Count incoming and outgoing transitions
-            int inCount = 0;
-            int outCount = 0;
-
-            for (Map.Entry<StateTransition, String> entry : regexTransitions.entrySet()) {
-                StateTransition trans = entry.getKey();
-                if (trans.from == state) {
-                    outCount++;
-                }
-                if (trans.to == state) {
-                    inCount++;
-                }
-            }
+            int inCount = regexTransitions.getIncoming(state).size();
+            int outCount = regexTransitions.getOutgoing(state).size();
 
             // Complexity score based on how many new transitions would be created
             int complexity = inCount * outCount;
 
             // Add bonus for self-loops (they're usually easier to eliminate)
-            boolean hasSelfLoop = regexTransitions.containsKey(new StateTransition(state, state));
+            boolean hasSelfLoop = regexTransitions.getLabel(state, state) != null;
             if (hasSelfLoop) {
                 complexity -= 1;
             }
@@ -319,113 +805,4 @@ public class StateEliminationAlgorithm {
 
         return order;
     }
-
-    /**
-     * Applies simplification for repetitions in the regex.
-     *
-     * @param regex The regex to simplify
-     * @return The simplified regex
-     */
-    private String simplifyRepetitions(String regex) {
-        // Convert (a)* to a*
-        regex = regex.replaceAll("\\(([^|)(]+)\\)\\*", "$1*");
-
-        // Convert character class with single char to just the char
-        regex = regex.replaceAll("\\[([a-zA-Z0-9])\\]", "$1");
-
-        // Look for repeated groups
-        regex = simplifyRepeatedGroups(regex);
-
-        return regex;
-    }
-
-    /**
-     * Simplifies patterns with repeated groups like (ab)(ab)* to (ab)+.
-     *
-     * @param regex The regex to simplify
-     * @return The simplified regex
-     */
-    private String simplifyRepeatedGroups(String regex) {
-
-        for (int i = 0; i < regex.length(); i++) {
-            // Find closing parenthesis
-            if (regex.charAt(i) == ')') {
-                // Look for a group that repeats itself
-                int start = findMatchingOpenParen(regex, i);
-                if (start >= 0) {
-                    String group = regex.substring(start, i + 1);
-
-                    // Check if followed by the same group with a star
-                    if (i + group.length() + 1 < regex.length() &&
-                            regex.substring(i + 1).startsWith(group + "*")) {
-                        // Replace with group+
-                        regex = regex.substring(0, start) +
-                                group + "+" +
-                                regex.substring(i + 1 + group.length() + 1);
-                    }
-                }
-            }
-        }
-
-        return regex;
-    }
-
-    /**
-     * Finds the matching opening parenthesis for a closing one.
-     *
-     * @param regex The regex string
-     * @param closePos The position of the closing parenthesis
-     * @return The position of the matching opening parenthesis, or -1 if not found
-     */
-    private int findMatchingOpenParen(String regex, int closePos) {
-        int count = 1;
-        for (int i = closePos - 1; i >= 0; i--) {
-            if (regex.charAt(i) == ')') {
-                count++;
-            } else if (regex.charAt(i) == '(') {
-                count--;
-                if (count == 0) {
-                    return i;
-                }
-            }
-        }
-        return -1;
-    }
-
-    /**
-     * Represents a transition between two states in the DFA.
-     */
-    private static class StateTransition {
-        final int from;
-        final int to;
-
-        /**
-         * Creates a new state transition.
-         *
-         * @param from The source state
-         * @param to The destination state
-         */
-        StateTransition(int from, int to) {
-            this.from = from;
-            this.to = to;
-        }
-
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (o == null || getClass() != o.getClass()) return false;
-            StateTransition that = (StateTransition) o;
-            return from == that.from && to == that.to;
-        }
-
-        @Override
-        public int hashCode() {
-            return Objects.hash(from, to);
-        }
-
-        @Override
-        public String toString() {
-            return from + "->" + to;
-        }
-    }
-}
\ No newline at end of file
+}
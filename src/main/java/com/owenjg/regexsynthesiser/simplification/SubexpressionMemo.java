@@ -0,0 +1,137 @@
+package com.owenjg.regexsynthesiser.simplification;
+
+import com.owenjg.regexsynthesiser.cache.ConcurrentLruCache;
+import com.owenjg.regexsynthesiser.regex.RegexNode;
+import com.owenjg.regexsynthesiser.regex.RegexNodeFactory;
+
+/**
+ * Remembers the simplified forms of sub-expressions across rewrites, so structure that
+ * keeps coming back, such as [a-z]+, \d{3} or a domain name, costs a lookup instead of
+ * another pass of the rules.
+ *
+ * Each rewrite builds its trees with its own factory, so entries are matched by
+ * structure rather than identity, and a remembered result is adopted into the factory
+ * of the rewrite that asks for it. Only sub-expressions of a moderate size are kept:
+ * small ones are quicker to simplify than to look up, and large ones rarely repeat.
+ *
+ * A memo must only be shared by rewriters using the same rules, since the rules decide
+ * what the simplified form is. It is safe to share between threads.
+ */
+public class SubexpressionMemo {
+    // Sub-expressions smaller than this are not remembered
+    private static final int MIN_SIZE = 8;
+    // Sub-expressions larger than this are not remembered
+    private static final int MAX_SIZE = 256;
+
+    private final ConcurrentLruCache<ExpressionKey, RegexNode> entries;
+
+    /**
+     * Creates an empty memo.
+     *
+     * @param capacity The largest number of sub-expressions remembered
+     * @throws IllegalArgumentException If the capacity is not positive
+     */
+    public SubexpressionMemo(int capacity) {
+        this.entries = new ConcurrentLruCache<>(capacity);
+    }
+
+    /**
+     * Looks up the simplified form of a sub-expression.
+     *
+     * @param node The sub-expression
+     * @param nodeFactory The factory to adopt the result into
+     * @return The simplified form built by the given factory, or null if it is not known
+     */
+    RegexNode get(RegexNode node, RegexNodeFactory nodeFactory) {
+        if (!isMemorable(node)) {
+            return null;
+        }
+        RegexNode simplified = entries.get(new ExpressionKey(node));
+        return simplified == null ? null : nodeFactory.adopt(simplified);
+    }
+
+    /**
+     * Remembers the simplified form of a sub-expression.
+     *
+     * @param node The sub-expression
+     * @param simplified Its simplified form
+     */
+    void put(RegexNode node, RegexNode simplified) {
+        if (isMemorable(node)) {
+            entries.put(new ExpressionKey(node), simplified);
+        }
+    }
+
+    /**
+     * Forgets every sub-expression. The hit and miss counts are kept.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Gets the number of sub-expressions remembered.
+     *
+     * @return The number of entries
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the number of lookups that found a simplified form.
+     *
+     * @return The hit count
+     */
+    public long getHitCount() {
+        return entries.getHitCount();
+    }
+
+    /**
+     * Gets the number of lookups that found nothing.
+     *
+     * @return The miss count
+     */
+    public long getMissCount() {
+        return entries.getMissCount();
+    }
+
+    /**
+     * Checks whether a sub-expression is worth remembering.
+     *
+     * @param node The sub-expression
+     * @return true if its size is within the bounds of the memo
+     */
+    private static boolean isMemorable(RegexNode node) {
+        return node.getSize() >= MIN_SIZE && node.getSize() <= MAX_SIZE;
+    }
+
+    /**
+     * A sub-expression compared by structure.
+     */
+    private static final class ExpressionKey {
+        private final RegexNode node;
+
+        /**
+         * Wraps a sub-expression.
+         *
+         * @param node The sub-expression
+         */
+        ExpressionKey(RegexNode node) {
+            this.node = node;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ExpressionKey)) return false;
+            return node.isSameExpression(((ExpressionKey) o).node);
+        }
+
+        @Override
+        public int hashCode() {
+            // The hash of a node depends only on its structure
+            return node.hashCode();
+        }
+    }
+}
@@ -0,0 +1,402 @@
+package com.owenjg.regexsynthesiser.synthesis;
+
+import com.owenjg.regexsynthesiser.dfa.CharRangeSet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A column-major summary of a set of examples, built up front so that the questions
+ * the pattern analyser asks position by position, such as which characters appear at
+ * an offset or how long the examples are, are answered without going back over every
+ * example. Building it reads each character once and boxes none of them.
+ *
+ * The distinct characters of the examples form a small alphabet, numbered in the order
+ * they are first seen, and each position holds a bitset over it, both counted from the
+ * start and from the end of the examples, together with the number of examples long
+ * enough to reach it. A histogram of the example lengths completes the profile.
+ *
+ * A profile can also describe a window of its examples, with a fixed number of
+ * characters dropped from the start and end of each, or only the examples of one
+ * length, without creating the shorter strings.
+ */
+final class ExampleProfile {
+    // The number of positions made room for at first
+    private static final int INITIAL_ROWS = 16;
+    // The characters that can be looked up before the lookup table grows
+    private static final int INITIAL_SLOTS = 128;
+
+    private final List<String> source;
+    private final int skipStart;
+    private final int skipEnd;
+    // The only length of example included, or -1 for every length
+    private final int onlyLength;
+
+    private final int exampleCount;
+    private final char[] alphabet;
+    private final int wordsPerColumn;
+    private final long[] columns;
+    private final long[] reverseColumns;
+    private final int[] columnCounts;
+    private final int[] lengthCounts;
+    private final int minLength;
+    private final int maxLength;
+
+    // The examples as strings, created the first time they are needed
+    private List<String> examples;
+
+    /**
+     * Profiles a set of examples.
+     *
+     * @param examples The examples
+     */
+    ExampleProfile(List<String> examples) {
+        this(examples, 0, 0, -1);
+    }
+
+    /**
+     * Profiles a window of a set of examples.
+     *
+     * @param source The examples
+     * @param skipStart The number of characters dropped from the start of each
+     * @param skipEnd The number of characters dropped from the end of each
+     * @param onlyLength The only length of window included, or -1 for every length
+     */
+    private ExampleProfile(List<String> source, int skipStart, int skipEnd, int onlyLength) {
+        this.source = source;
+        this.skipStart = skipStart;
+        this.skipEnd = skipEnd;
+        this.onlyLength = onlyLength;
+
+        int count = 0;
+        int min = Integer.MAX_VALUE;
+        int max = 0;
+        int[] lengths = new int[INITIAL_ROWS + 1];
+
+        // Characters join the alphabet in the order they are first seen
+        int[] slots = new int[INITIAL_SLOTS];
+        char[] letters = new char[Long.SIZE];
+        int letterCount = 0;
+        int words = 1;
+        int rows = INITIAL_ROWS;
+        long[] forward = new long[rows * words];
+        long[] reverse = new long[rows * words];
+
+        char[] buffer = new char[INITIAL_ROWS];
+        for (String example : source) {
+            int length = example.length() - skipStart - skipEnd;
+            if (onlyLength >= 0 && length != onlyLength) {
+                continue;
+            }
+            if (length > rows) {
+                int grownRows = Math.max(length, rows * 2);
+                forward = resize(forward, rows, words, grownRows, words);
+                reverse = resize(reverse, rows, words, grownRows, words);
+                rows = grownRows;
+                lengths = Arrays.copyOf(lengths, rows + 1);
+            }
+            if (length > buffer.length) {
+                buffer = new char[rows];
+            }
+            count++;
+            min = Math.min(min, length);
+            max = Math.max(max, length);
+            lengths[length]++;
+
+            example.getChars(skipStart, skipStart + length, buffer, 0);
+            for (int i = 0; i < length; i++) {
+                char c = buffer[i];
+                if (c >= slots.length) {
+                    slots = Arrays.copyOf(slots, Math.max(c + 1, slots.length * 2));
+                }
+                int slot = slots[c] - 1;
+                if (slot < 0) {
+                    // A new character, which may need a wider column
+                    if (letterCount == words * Long.SIZE) {
+                        forward = resize(forward, rows, words, rows, words * 2);
+                        reverse = resize(reverse, rows, words, rows, words * 2);
+                        words *= 2;
+                    }
+                    if (letterCount == letters.length) {
+                        letters = Arrays.copyOf(letters, letterCount * 2);
+                    }
+                    slot = letterCount++;
+                    letters[slot] = c;
+                    slots[c] = slot + 1;
+                }
+                long bit = 1L << slot;
+                forward[i * words + (slot >>> 6)] |= bit;
+                reverse[(length - 1 - i) * words + (slot >>> 6)] |= bit;
+            }
+        }
+
+        this.exampleCount = count;
+        this.minLength = count == 0 ? 0 : min;
+        this.maxLength = max;
+        this.alphabet = Arrays.copyOf(letters, letterCount);
+        this.wordsPerColumn = words;
+        this.columns = forward;
+        this.reverseColumns = reverse;
+        this.lengthCounts = lengths;
+
+        this.columnCounts = new int[maxLength];
+        int reaching = exampleCount;
+        for (int position = 0; position < maxLength; position++) {
+            reaching -= lengthCounts[position];
+            columnCounts[position] = reaching;
+        }
+    }
+
+    /**
+     * Profiles the same examples with characters dropped from the start and end of each.
+     * Every example must be at least as long as the characters dropped.
+     *
+     * @param start The number of characters to drop from the start
+     * @param end The number of characters to drop from the end
+     * @return The profile of the shortened examples
+     */
+    ExampleProfile trim(int start, int end) {
+        if (start == 0 && end == 0) {
+            return this;
+        }
+        return new ExampleProfile(source, skipStart + start, skipEnd + end, onlyLength < 0 ? -1 : onlyLength - start - end);
+    }
+
+    /**
+     * Profiles only the examples of one length.
+     *
+     * @param length The length
+     * @return The profile of the examples with that length
+     */
+    ExampleProfile withLength(int length) {
+        if (minLength == length && maxLength == length) {
+            return this;
+        }
+        return new ExampleProfile(source, skipStart, skipEnd, length);
+    }
+
+    /**
+     * Gets the examples as strings. Safe to call from several threads at once.
+     *
+     * @return The examples, in their original order
+     */
+    synchronized List<String> getExamples() {
+        if (examples == null) {
+            if (skipStart == 0 && skipEnd == 0 && onlyLength < 0) {
+                examples = source;
+            } else {
+                List<String> window = new ArrayList<>(exampleCount);
+                for (String example : source) {
+                    int length = example.length() - skipStart - skipEnd;
+                    if (onlyLength < 0 || length == onlyLength) {
+                        window.add(example.substring(skipStart, skipStart + length));
+                    }
+                }
+                examples = window;
+            }
+        }
+        return examples;
+    }
+
+    /**
+     * Gets the number of examples.
+     *
+     * @return The number of examples
+     */
+    int size() {
+        return exampleCount;
+    }
+
+    /**
+     * Gets the length of the shortest example.
+     *
+     * @return The shortest length, or 0 if there are no examples
+     */
+    int getMinLength() {
+        return minLength;
+    }
+
+    /**
+     * Gets the length of the longest example.
+     *
+     * @return The longest length, or 0 if there are no examples
+     */
+    int getMaxLength() {
+        return maxLength;
+    }
+
+    /**
+     * Gets the number of examples of a length.
+     *
+     * @param length The length
+     * @return The number of examples with exactly that length
+     */
+    int countOfLength(int length) {
+        return length < lengthCounts.length ? lengthCounts[length] : 0;
+    }
+
+    /**
+     * Gets the distinct lengths of the examples.
+     *
+     * @return The lengths, in ascending order
+     */
+    List<Integer> getLengths() {
+        List<Integer> lengths = new ArrayList<>();
+        for (int length = minLength; length <= maxLength; length++) {
+            if (lengthCounts[length] > 0) {
+                lengths.add(length);
+            }
+        }
+        return lengths;
+    }
+
+    /**
+     * Gets the number of examples long enough to have a character at a position.
+     *
+     * @param position The offset from the start
+     * @return The number of examples reaching it
+     */
+    int getCountAt(int position) {
+        return position < maxLength ? columnCounts[position] : 0;
+    }
+
+    /**
+     * Gets every character that appears in the examples.
+     *
+     * @return The alphabet of the examples
+     */
+    CharRangeSet getCharacters() {
+        return CharRangeSet.of(new String(alphabet));
+    }
+
+    /**
+     * Gets the characters the examples have at a position, skipping any too short to have one.
+     *
+     * @param position The offset from the start
+     * @return The set of characters found there
+     */
+    CharRangeSet charactersAt(int position) {
+        return position < maxLength ? toCharacters(columns, position) : CharRangeSet.EMPTY;
+    }
+
+    /**
+     * Gets the number of distinct characters the examples have at a position.
+     *
+     * @param position The offset from the start
+     * @return The number of characters found there
+     */
+    int distinctAt(int position) {
+        return position < maxLength ? countSet(columns, position) : 0;
+    }
+
+    /**
+     * Gets a character the examples have at a position, which is the only one if
+     * {@link #distinctAt(int)} is 1.
+     *
+     * @param position The offset from the start
+     * @return The character first seen in the alphabet of those found there
+     * @throws IllegalArgumentException If no example reaches the position
+     */
+    char characterAt(int position) {
+        if (position >= maxLength) {
+            throw new IllegalArgumentException("No example reaches position " + position);
+        }
+        return firstCharacter(columns, position);
+    }
+
+    /**
+     * Finds the longest prefix shared by every example.
+     *
+     * @return The common prefix, or an empty string if there is none
+     */
+    String commonPrefix() {
+        StringBuilder prefix = new StringBuilder();
+        for (int position = 0; position < minLength && countSet(columns, position) == 1; position++) {
+            prefix.append(firstCharacter(columns, position));
+        }
+        return prefix.toString();
+    }
+
+    /**
+     * Finds the longest suffix shared by every example that does not overlap a
+     * prefix of the given length.
+     *
+     * @param prefixLength The length of the prefix the suffix must not overlap
+     * @return The common suffix, or an empty string if there is none
+     */
+    String commonSuffix(int prefixLength) {
+        StringBuilder suffix = new StringBuilder();
+        for (int position = 0; position < minLength - prefixLength && countSet(reverseColumns, position) == 1; position++) {
+            suffix.append(firstCharacter(reverseColumns, position));
+        }
+        return suffix.reverse().toString();
+    }
+
+    /**
+     * Counts the characters in a column.
+     *
+     * @param bits The columns to read
+     * @param position The column
+     * @return The number of bits set
+     */
+    private int countSet(long[] bits, int position) {
+        int count = 0;
+        for (int word = 0; word < wordsPerColumn; word++) {
+            count += Long.bitCount(bits[position * wordsPerColumn + word]);
+        }
+        return count;
+    }
+
+    /**
+     * Gets the character of the lowest bit set in a column.
+     *
+     * @param bits The columns to read
+     * @param position The column, which must not be empty
+     * @return The character
+     */
+    private char firstCharacter(long[] bits, int position) {
+        int word = 0;
+        while (bits[position * wordsPerColumn + word] == 0) {
+            word++;
+        }
+        return alphabet[(word << 6) + Long.numberOfTrailingZeros(bits[position * wordsPerColumn + word])];
+    }
+
+    /**
+     * Copies columns into a larger array, keeping each bit in its row and word.
+     *
+     * @param bits The columns
+     * @param rows The number of rows
+     * @param words The number of words in each row
+     * @param newRows The number of rows to make room for
+     * @param newWords The number of words to give each row
+     * @return The copied columns
+     */
+    private static long[] resize(long[] bits, int rows, int words, int newRows, int newWords) {
+        long[] resized = new long[newRows * newWords];
+        for (int row = 0; row < rows; row++) {
+            System.arraycopy(bits, row * words, resized, row * newWords, words);
+        }
+        return resized;
+    }
+
+    /**
+     * Converts a column to a set of characters.
+     *
+     * @param bits The columns to read
+     * @param position The column
+     * @return The characters whose bits are set
+     */
+    private CharRangeSet toCharacters(long[] bits, int position) {
+        StringBuilder chars = new StringBuilder();
+        for (int word = 0; word < wordsPerColumn; word++) {
+            long value = bits[position * wordsPerColumn + word];
+            while (value != 0) {
+                chars.append(alphabet[(word << 6) + Long.numberOfTrailingZeros(value)]);
+                value &= value - 1;
+            }
+        }
+        return CharRangeSet.of(chars);
+    }
+}
@@ -1,6 +1,14 @@
 package com.owenjg.regexsynthesiser.synthesis;
 
+import com.owenjg.regexsynthesiser.dfa.CharRangeSet;
+import com.owenjg.regexsynthesiser.regex.RegexNode;
+import com.owenjg.regexsynthesiser.regex.RegexNodeFactory;
+import com.owenjg.regexsynthesiser.regex.RegexParser;
+
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -9,6 +17,12 @@ import java.util.stream.Collectors;
  * It uses a variety of pattern recognition techniques to create optimal regex patterns.
  */
 public class PatternAnalyser {
+    // The familiar classes a set of characters is widened to, narrowest first
+    private static final CharRangeSet LOWERCASE = CharRangeSet.range('a', 'z');
+    private static final CharRangeSet UPPERCASE = CharRangeSet.range('A', 'Z');
+    private static final CharRangeSet LETTERS = LOWERCASE.union(UPPERCASE);
+    private static final CharRangeSet LETTERS_AND_DIGITS = LETTERS.union(CharRangeSet.DIGITS);
+
     /**
      * Generates a regular expression pattern that matches all positive examples
      * and excludes all negative examples.
@@ -18,8 +32,11 @@ public class PatternAnalyser {
      * @return A regular expression that satisfies the given examples
      */
     public String generalisePattern(List<String> positiveExamples, List<String> negativeExamples) {
-        // First try the original pattern based only on positive examples
-        String initialPattern = generaliseFromPositive(positiveExamples);
+        // Every analysis below reads the examples through one profile
+        ExampleProfile positives = new ExampleProfile(positiveExamples);
+
+        // First try the original pattern generalised from the positive examples
+        String initialPattern = generaliseFromPositive(positives, negativeExamples);
 
         // Check if it already excludes all negative examples
         if (negativeExamples.isEmpty() || isPatternValid(initialPattern, positiveExamples, negativeExamples)) {
@@ -27,78 +44,39 @@ public class PatternAnalyser {
         }
 
         // If not, refine the pattern to handle negative examples
-        return refinePattern(initialPattern, positiveExamples, negativeExamples);
-    }
-
-    /**
-     * Finds the longest common prefix shared by all example strings.
-     *
-     * @param examples List of strings to analyse
-     * @return The common prefix or empty string if none exists
-     */
-    private String findCommonPrefix(List<String> examples) {
-        if (examples.isEmpty()) return "";
-
-        String firstStr = examples.get(0);
-        StringBuilder prefix = new StringBuilder();
-
-        for (int i = 0; i < firstStr.length(); i++) {
-            char currentChar = firstStr.charAt(i);
-            int finalI = i;
-            if (examples.stream().allMatch(s -> s.length() > finalI && s.charAt(finalI) == currentChar)) {
-                prefix.append(currentChar);
-            } else {
-                break;
-            }
-        }
-
-        return prefix.toString();
-    }
-
-    /**
-     * Finds the longest common suffix shared by all example strings.
-     *
-     * @param examples List of strings to analyse
-     * @return The common suffix or empty string if none exists
-     */
-    private String findCommonSuffix(List<String> examples) {
-        if (examples.isEmpty()) return "";
-
-        // Reverse all strings and find their common prefix, then reverse the result
-        List<String> reversed = examples.stream()
-                .map(s -> new StringBuilder(s).reverse().toString())
-                .collect(Collectors.toList());
-
-        return new StringBuilder(findCommonPrefix(reversed)).reverse().toString();
+        return refinePattern(initialPattern, positives, negativeExamples);
     }
 
     /**
      * Analyses the middle pattern after removing common prefix and suffix.
      * This is the core pattern recognition algorithm that handles various cases.
      *
-     * @param examples List of strings to analyse (with prefix/suffix removed)
+     * When the examples differ in length, the strategies for them run concurrently as a
+     * portfolio, and each proposal is scored as part of the whole pattern, so the best
+     * proposal wins rather than the first one found.
+     *
+     * @param examples Profile of the strings to analyse (with prefix/suffix removed)
+     * @param prefix The common prefix that was removed
+     * @param suffix The common suffix that was removed
+     * @param positiveExamples List of strings that should match
+     * @param negativeExamples List of strings that should not match
      * @return A regex pattern for the middle section
      */
-    private String analyseMiddlePattern(List<String> examples) {
-        if (examples.isEmpty() || examples.stream().allMatch(String::isEmpty)) {
+    private String analyseMiddlePattern(ExampleProfile examples, String prefix, String suffix,
+                                        List<String> positiveExamples, List<String> negativeExamples) {
+        if (examples.size() == 0 || examples.getMaxLength() == 0) {
             return "";
         }
 
         // First check if all strings are the same length
-        boolean sameLengths = examples.stream().allMatch(s -> s.length() == examples.get(0).length());
+        boolean sameLengths = examples.getMinLength() == examples.getMaxLength();
         if (sameLengths) {
             // Find positions where characters differ
-            String firstExample = examples.get(0);
-            int length = firstExample.length();
+            int length = examples.getMaxLength();
             List<Integer> differentPositions = new ArrayList<>();
 
             for (int i = 0; i < length; i++) {
-                final int pos = i;
-                Set<Character> charsAtPosition = examples.stream()
-                        .map(s -> s.charAt(pos))
-                        .collect(Collectors.toSet());
-
-                if (charsAtPosition.size() > 1) {
+                if (examples.distinctAt(i) > 1) {
                     differentPositions.add(i);
                 }
             }
@@ -111,23 +89,19 @@ public class PatternAnalyser {
                 // Build pattern with character classes at differing positions
                 for (int pos : differentPositions) {
                     // Add common characters before this position
-                    if (pos > lastPos) {
-                        pattern.append(firstExample.substring(lastPos, pos));
+                    for (int i = lastPos; i < pos; i++) {
+                        pattern.append(examples.characterAt(i));
                     }
 
                     // Add character class for this position
-                    final int finalPos = pos;
-                    Set<Character> chars = examples.stream()
-                            .map(s -> s.charAt(finalPos))
-                            .collect(Collectors.toSet());
-                    pattern.append(generaliseCharacterClass(chars));
+                    pattern.append(generaliseCharacterClass(examples.charactersAt(pos)));
 
                     lastPos = pos + 1;
                 }
 
                 // Add remaining common characters
-                if (lastPos < length) {
-                    pattern.append(firstExample.substring(lastPos));
+                for (int i = lastPos; i < length; i++) {
+                    pattern.append(examples.characterAt(i));
                 }
 
                 return pattern.toString();
@@ -136,52 +110,53 @@ public class PatternAnalyser {
             return analyseFixedLengthPattern(examples);
         }
 
-        // Check for optional repeating pattern
-        String optionalRepeatingPattern = findOptionalRepeatingPattern(examples);
-        if (optionalRepeatingPattern != null) {
-            return optionalRepeatingPattern;
+        // Optional repetition, repetition, a single class and length groups, in order of preference
+        List<Function<ExampleProfile, String>> strategies = List.of(this::findOptionalRepeatingPattern,
+                this::findRepeatingPattern, this::analyseVariableLengthPattern, this::analyseComplexPattern);
+
+        List<String> positiveSample = PatternCandidate.samplePositives(positiveExamples);
+        List<ForkJoinTask<PatternCandidate>> tasks = new ArrayList<>();
+        for (Function<ExampleProfile, String> strategy : strategies) {
+            tasks.add(ForkJoinPool.commonPool().submit(() -> {
+                String middle = strategy.apply(examples);
+                return middle == null ? null : PatternCandidate.score(prefix, middle, suffix, examples,
+                        positiveSample, negativeExamples);
+            }));
         }
 
-        // Check for repeating pattern
-        String repeatingPattern = findRepeatingPattern(examples);
-        if (repeatingPattern != null) {
-            return repeatingPattern;
-        }
-
-        // Check for variable length patterns
-        String variablePattern = analyseVariableLengthPattern(examples);
-        if (variablePattern != null) {
-            return variablePattern;
+        // Ties go to the earlier strategy, so the outcome does not depend on which finishes first
+        PatternCandidate best = null;
+        for (ForkJoinTask<PatternCandidate> task : tasks) {
+            PatternCandidate candidate = task.join();
+            if (candidate != null && (best == null || candidate.compareTo(best) < 0)) {
+                best = candidate;
+            }
         }
 
-        // If no clear pattern, analyse as complex pattern
-        return analyseComplexPattern(examples);
+        // The length groups always give a candidate
+        return best.getMiddle();
     }
 
     /**
      * Detects optional repeating patterns, such as characters that may appear
      * zero or more times in the examples.
      *
-     * @param examples List of strings to analyse
+     * @param examples Profile of the strings to analyse
      * @return A regex pattern for optional repetition or null if none found
      */
-    private String findOptionalRepeatingPattern(List<String> examples) {
+    private String findOptionalRepeatingPattern(ExampleProfile examples) {
         // If any string is empty, we might have an optional pattern
-        boolean hasEmpty = examples.stream().anyMatch(String::isEmpty);
+        boolean hasEmpty = examples.countOfLength(0) > 0;
 
-        // Get all non-empty strings
-        List<String> nonEmpty = examples.stream()
-                .filter(s -> !s.isEmpty())
-                .collect(Collectors.toList());
-
-        if (nonEmpty.isEmpty()) return "";
+        if (examples.countOfLength(0) == examples.size()) return "";
 
         // Check if all non-empty strings consist of the same character
-        char repeatingChar = nonEmpty.get(0).charAt(0);
-        boolean allSameChar = nonEmpty.stream()
-                .allMatch(s -> s.chars().allMatch(c -> c == repeatingChar));
+        CharRangeSet allChars = examples.getCharacters();
+        boolean allSameChar = allChars.size() == 1;
 
         if (allSameChar) {
+            char repeatingChar = allChars.getRangeStart(0);
+
             // If we found empty strings, use * (zero or more)
             // Otherwise use + (one or more)
             return "(" + repeatingChar + (hasEmpty ? "*" : "+") + ")";
@@ -194,36 +169,34 @@ public class PatternAnalyser {
      * Detects repeating patterns in the examples, such as sequences that
      * repeat one or more times.
      *
-     * @param examples List of strings to analyse
+     * @param profile Profile of the strings to analyse
      * @return A regex pattern for repetition or null if none found
      */
-    private String findRepeatingPattern(List<String> examples) {
+    private String findRepeatingPattern(ExampleProfile profile) {
+        if (profile.getMinLength() == 0) return null;
+
         // Find the shortest example to use as potential pattern
+        List<String> examples = profile.getExamples();
         String shortest = examples.stream()
-                .min(Comparator.comparingInt(String::length))
+                .filter(s -> s.length() == profile.getMinLength())
+                .findFirst()
                 .orElse("");
 
-        if (shortest.isEmpty()) return null;
-
         // Check if other strings are repetitions of this pattern
         for (int len = 1; len <= shortest.length(); len++) {
             if (shortest.length() % len != 0) continue;
 
-            String pattern = shortest.substring(0, len);
-            int finalLen = len;
-            boolean isRepeating = examples.stream().allMatch(s -> {
-                if (s.isEmpty()) return true;
-                if (s.length() % finalLen != 0) return false;
-                for (int i = 0; i < s.length(); i += finalLen) {
-                    if (!s.substring(i, i + finalLen).equals(pattern)) {
-                        return false;
-                    }
-                }
-                return true;
-            });
+            // Every example must have a length the pattern divides, and the pattern at each of its offsets
+            boolean isRepeating = true;
+            for (int length : profile.getLengths()) {
+                isRepeating &= length % len == 0;
+            }
+            for (int i = 0; isRepeating && i < profile.getMaxLength(); i++) {
+                isRepeating = profile.distinctAt(i) == 1 && profile.characterAt(i) == shortest.charAt(i % len);
+            }
 
             if (isRepeating) {
-                return "(" + pattern + ")+";
+                return "(" + shortest.substring(0, len) + ")+";
             }
         }
 
@@ -239,20 +212,15 @@ public class PatternAnalyser {
      * Analyses patterns where all examples have the same length.
      * Creates character classes at each position where needed.
      *
-     * @param examples List of fixed-length strings to analyse
+     * @param examples Profile of the fixed-length strings to analyse
      * @return A regex pattern for fixed-length strings
      */
-    private String analyseFixedLengthPattern(List<String> examples) {
+    private String analyseFixedLengthPattern(ExampleProfile examples) {
         StringBuilder pattern = new StringBuilder();
-        int length = examples.get(0).length();
+        int length = examples.getMaxLength();
 
         for (int i = 0; i < length; i++) {
-            int finalI = i;
-            Set<Character> chars = examples.stream()
-                    .map(s -> s.charAt(finalI))
-                    .collect(Collectors.toSet());
-
-            pattern.append(generaliseCharacterClass(chars));
+            pattern.append(generaliseCharacterClass(examples.charactersAt(i)));
         }
 
         return pattern.toString();
@@ -260,46 +228,38 @@ public class PatternAnalyser {
 
     /**
      * Analyses patterns where examples have variable lengths.
-     * Attempts to find a common character class that applies to all.
+     * Finds a common character class that applies to all, leaving it to the scoring
+     * of the candidates to decide whether that is too general.
      *
-     * @param examples List of variable-length strings to analyse
-     * @return A regex pattern for variable-length strings or null if no pattern found
+     * @param examples Profile of the variable-length strings to analyse
+     * @return A regex pattern for variable-length strings
      */
-    private String analyseVariableLengthPattern(List<String> examples) {
+    private String analyseVariableLengthPattern(ExampleProfile examples) {
         // Get all unique characters across all strings
-        Set<Character> allChars = examples.stream()
-                .flatMap(s -> s.chars().mapToObj(c -> (char)c))
-                .collect(Collectors.toSet());
-
-        // Check if all characters are of same type
-        String charClassPattern = generaliseCharacterClass(allChars);
-        if (!charClassPattern.startsWith("[") || charClassPattern.length() <= 3) {
-            return charClassPattern + "+";
-        }
+        CharRangeSet allChars = examples.getCharacters();
 
-        return null;
+        return generaliseCharacterClass(allChars) + "+";
     }
 
     /**
      * Handles complex patterns that don't fit simpler categories.
      * This is a fallback method for when other pattern recognition fails.
      *
-     * @param examples List of strings to analyse
+     * @param examples Profile of the strings to analyse
      * @return A regex pattern that covers the complex patterns
      */
-    private String analyseComplexPattern(List<String> examples) {
+    private String analyseComplexPattern(ExampleProfile examples) {
         // Group similar strings
-        Map<Integer, List<String>> lengthGroups = examples.stream()
-                .collect(Collectors.groupingBy(String::length));
+        List<Integer> lengths = examples.getLengths();
 
-        if (lengthGroups.size() == 1) {
+        if (lengths.size() == 1) {
             return analyseFixedLengthPattern(examples);
         }
 
         // Try to find character class patterns within groups
         List<String> patterns = new ArrayList<>();
-        for (List<String> group : lengthGroups.values()) {
-            String groupPattern = analyseFixedLengthPattern(group);
+        for (int length : lengths) {
+            String groupPattern = analyseFixedLengthPattern(examples.withLength(length));
             if (!patterns.contains(groupPattern)) {
                 patterns.add(groupPattern);
             }
@@ -313,41 +273,36 @@ public class PatternAnalyser {
         }
 
         // Fallback to character class if possible
-        Set<Character> allChars = examples.stream()
-                .flatMap(s -> s.chars().mapToObj(c -> (char)c))
-                .collect(Collectors.toSet());
+        CharRangeSet allChars = examples.getCharacters();
 
         String charClass = generaliseCharacterClass(allChars);
-        if (!charClass.equals(examples.get(0))) {
+        if (!charClass.equals(examples.getExamples().get(0))) {
             return charClass + "+";
         }
 
         // Last resort: alternation
-        return "(" + examples.stream().distinct().collect(Collectors.joining("|")) + ")";
+        return "(" + examples.getExamples().stream().distinct().collect(Collectors.joining("|")) + ")";
     }
 
     /**
      * Generates a regex pattern from positive examples by finding
      * common prefixes, suffixes, and analysing the middle pattern.
      *
-     * @param examples List of positive examples
+     * @param examples Profile of the positive examples
+     * @param negativeExamples List of strings that should not match, used to score candidates
      * @return A regex pattern that matches the positive examples
      */
-    private String generaliseFromPositive(List<String> examples) {
+    private String generaliseFromPositive(ExampleProfile examples, List<String> negativeExamples) {
         // Find common prefix among all examples
-        String commonPrefix = findCommonPrefix(examples);
-        List<String> withoutPrefix = examples.stream()
-                .map(s -> s.substring(commonPrefix.length()))
-                .collect(Collectors.toList());
+        String commonPrefix = examples.commonPrefix();
 
         // Find common suffix in the remainder
-        String commonSuffix = findCommonSuffix(withoutPrefix);
-        List<String> middle = withoutPrefix.stream()
-                .map(s -> s.substring(0, s.length() - commonSuffix.length()))
-                .collect(Collectors.toList());
+        String commonSuffix = examples.commonSuffix(commonPrefix.length());
+        ExampleProfile middle = examples.trim(commonPrefix.length(), commonSuffix.length());
 
         // Analyse the middle pattern after removing prefix and suffix
-        String middlePattern = analyseMiddlePattern(middle);
+        String middlePattern = analyseMiddlePattern(middle, commonPrefix, commonSuffix,
+                examples.getExamples(), negativeExamples);
         return commonPrefix + middlePattern + commonSuffix;
     }
 
@@ -356,72 +311,81 @@ public class PatternAnalyser {
      * while still matching all positive examples.
      *
      * @param initialPattern The pattern generated from positive examples
-     * @param positiveExamples List of strings that should match
+     * @param positives Profile of the strings that should match
      * @param negativeExamples List of strings that should not match
      * @return A refined regex pattern
      */
-    private String refinePattern(String initialPattern, List<String> positiveExamples, List<String> negativeExamples) {
+    private String refinePattern(String initialPattern, ExampleProfile positives, List<String> negativeExamples) {
+        List<String> positiveExamples = positives.getExamples();
+
         // Strategy 1: Try to make character classes more specific
-        String refinedPattern = refineCharacterClasses(initialPattern, positiveExamples, negativeExamples);
+        String refinedPattern = refineCharacterClasses(initialPattern, positives);
         if (isPatternValid(refinedPattern, positiveExamples, negativeExamples)) {
             return refinedPattern;
         }
 
         // Strategy 2: Add length constraints if needed
-        refinedPattern = addLengthConstraints(refinedPattern, positiveExamples, negativeExamples);
+        refinedPattern = addLengthConstraints(refinedPattern, positives, negativeExamples);
         if (isPatternValid(refinedPattern, positiveExamples, negativeExamples)) {
             return refinedPattern;
         }
 
         // Strategy 3: Convert to alternation if needed
-        return createAlternationPattern(positiveExamples, negativeExamples);
+        return createAlternationPattern(positives, negativeExamples);
     }
 
     /**
      * Refines character classes in a pattern to make them more specific
-     * based on actual characters in positive and negative examples.
+     * based on actual characters in positive examples.
+     *
+     * The pattern is parsed, and each class in its leading run of single-character
+     * factors is intersected with the characters the positive examples have at that
+     * offset. Every positive example still matches, since those are exactly the
+     * characters it needs, while as many others as possible are excluded.
      *
      * @param pattern The initial regex pattern
-     * @param positiveExamples List of strings that should match
-     * @param negativeExamples List of strings that should not match
-     * @return A refined regex pattern with more specific character classes
+     * @param positives Profile of the strings that should match
+     * @return A refined regex pattern with more specific character classes, or the
+     *         pattern unchanged if it cannot be parsed or nothing narrows
      */
-    private String refineCharacterClasses(String pattern, List<String> positiveExamples, List<String> negativeExamples) {
-        // Replace generic character classes with more specific ones
-        Map<String, Set<Character>> actualChars = new HashMap<>();
-
-        // Collect actual characters used in positive examples for each position
-        for (String example : positiveExamples) {
-            for (int i = 0; i < example.length(); i++) {
-                String pos = String.valueOf(i);
-                actualChars.computeIfAbsent(pos, k -> new HashSet<>()).add(example.charAt(i));
-            }
+    private String refineCharacterClasses(String pattern, ExampleProfile positives) {
+        RegexNodeFactory nodeFactory = new RegexNodeFactory();
+        RegexNode parsed;
+        try {
+            parsed = new RegexParser(nodeFactory).parse(pattern);
+        } catch (IllegalArgumentException e) {
+            return pattern;
         }
 
-        // Remove characters that appear in negative examples at same positions
-        for (String negative : negativeExamples) {
-            for (int i = 0; i < negative.length(); i++) {
-                String pos = String.valueOf(i);
-                if (actualChars.containsKey(pos)) {
-                    Set<Character> chars = actualChars.get(pos);
-                    if (chars.size() > 1) { // Don't remove if only one char left
-                        chars.remove(negative.charAt(i));
-                    }
+        // Sequences are left-associated, so the factors are found down the left spine
+        Deque<RegexNode> factors = new ArrayDeque<>();
+        RegexNode rest = parsed;
+        while (rest.getKind() == RegexNode.Kind.CONCAT) {
+            factors.addFirst(rest.getChildren().get(1));
+            rest = rest.getChildren().get(0);
+        }
+        factors.addFirst(rest);
+
+        RegexNode refined = nodeFactory.epsilon();
+        boolean changed = false;
+        int offset = 0;
+        boolean fixedOffset = true;
+        for (RegexNode factor : factors) {
+            if (fixedOffset && factor.getChars() != null) {
+                CharRangeSet narrowed = factor.getChars().intersect(positives.charactersAt(offset));
+                if (!narrowed.isEmpty() && !narrowed.equals(factor.getChars())) {
+                    factor = nodeFactory.chars(narrowed);
+                    changed = true;
                 }
+                offset++;
+            } else {
+                // Past a factor of variable width the offsets no longer line up
+                fixedOffset = false;
             }
+            refined = nodeFactory.concat(refined, factor);
         }
 
-        // Replace \w, \d, [a-z], etc. with specific character classes
-        String refined = pattern;
-        for (Map.Entry<String, Set<Character>> entry : actualChars.entrySet()) {
-            refined = refined.replace("\\w", generaliseCharacterClass(entry.getValue()))
-                    .replace("\\d", generaliseCharacterClass(entry.getValue()))
-                    .replace("[a-z]", generaliseCharacterClass(entry.getValue()))
-                    .replace("[A-Z]", generaliseCharacterClass(entry.getValue()))
-                    .replace("[a-zA-Z]", generaliseCharacterClass(entry.getValue()));
-        }
-
-        return refined;
+        return changed ? refined.render() : pattern;
     }
 
     /**
@@ -429,13 +393,13 @@ public class PatternAnalyser {
      * that differ in length from positive examples.
      *
      * @param pattern The initial regex pattern
-     * @param positiveExamples List of strings that should match
+     * @param positives Profile of the strings that should match
      * @param negativeExamples List of strings that should not match
      * @return A refined regex pattern with length constraints
      */
-    private String addLengthConstraints(String pattern, List<String> positiveExamples, List<String> negativeExamples) {
-        int minLength = positiveExamples.stream().mapToInt(String::length).min().orElse(0);
-        int maxLength = positiveExamples.stream().mapToInt(String::length).max().orElse(0);
+    private String addLengthConstraints(String pattern, ExampleProfile positives, List<String> negativeExamples) {
+        int minLength = positives.getMinLength();
+        int maxLength = positives.getMaxLength();
 
         // If there's a length difference in negative examples, add constraints
         boolean needsConstraint = negativeExamples.stream()
@@ -456,19 +420,15 @@ public class PatternAnalyser {
      * Creates an alternation pattern as a last resort when other strategies fail.
      * This creates a pattern with specific alternatives for each length group.
      *
-     * @param positiveExamples List of strings that should match
+     * @param positives Profile of the strings that should match
      * @param negativeExamples List of strings that should not match
      * @return A regex pattern using alternation
      */
-    private String createAlternationPattern(List<String> positiveExamples, List<String> negativeExamples) {
-        // Group positive examples by length
-        Map<Integer, List<String>> lengthGroups = positiveExamples.stream()
-                .collect(Collectors.groupingBy(String::length));
-
+    private String createAlternationPattern(ExampleProfile positives, List<String> negativeExamples) {
         // Create patterns for each length group
         List<String> patterns = new ArrayList<>();
-        for (Map.Entry<Integer, List<String>> entry : lengthGroups.entrySet()) {
-            String groupPattern = analyseFixedLengthPattern(entry.getValue());
+        for (int length : positives.getLengths()) {
+            String groupPattern = analyseFixedLengthPattern(positives.withLength(length));
             patterns.add(groupPattern);
         }
 
@@ -506,36 +466,23 @@ public class PatternAnalyser {
 
     /**
      * Creates an appropriate character class based on a set of characters.
-     * Optimises by using predefined classes like \d, [a-z], etc. when possible.
+     * Widens the set to a familiar class like \d or [a-z] when one contains it,
+     * and otherwise renders it as the shortest equivalent class.
      *
      * @param chars Set of characters to generalise
-     * @return A regex character class or single character if only one
+     * @return A regex character class, or an escaped single character if only one
      */
-    private String generaliseCharacterClass(Set<Character> chars) {
+    private String generaliseCharacterClass(CharRangeSet chars) {
         if (chars.size() == 1) {
-            return String.valueOf(chars.iterator().next());
+            return chars.toRegex();
         }
 
-        boolean allDigits = chars.stream().allMatch(Character::isDigit);
-        boolean allLower = chars.stream().allMatch(c -> Character.isLowerCase(c));
-        boolean allUpper = chars.stream().allMatch(c -> Character.isUpperCase(c));
-        boolean allLetters = chars.stream().allMatch(Character::isLetter);
-        boolean allAlphanumeric = chars.stream().allMatch(Character::isLetterOrDigit);
-
-        if (allDigits) return "\\d";
-        if (allLower) return "[a-z]";
-        if (allUpper) return "[A-Z]";
-        if (allLetters) return "[a-zA-Z]";
-        if (allAlphanumeric) return "\\w";
-
-        return "[" + chars.stream()
-                .map(c -> {
-                    if (c == '-' || c == '^' || c == '\\' || c == ']' || c == '[') {
-                        return "\\" + c;
-                    }
-                    return String.valueOf(c);
-                })
-                .sorted()
-                .collect(Collectors.joining()) + "]";
+        if (chars.isSubsetOf(CharRangeSet.DIGITS)) return CharRangeSet.DIGITS.toRegex();
+        if (chars.isSubsetOf(LOWERCASE)) return LOWERCASE.toRegex();
+        if (chars.isSubsetOf(UPPERCASE)) return UPPERCASE.toRegex();
+        if (chars.isSubsetOf(LETTERS)) return LETTERS.toRegex();
+        if (chars.isSubsetOf(LETTERS_AND_DIGITS)) return CharRangeSet.WORD_CHARACTERS.toRegex();
+
+        return chars.toRegex();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,343 @@
+package com.owenjg.regexsynthesiser.synthesis;
+
+import com.owenjg.regexsynthesiser.regex.RegexNode;
+import com.owenjg.regexsynthesiser.regex.RegexNodeFactory;
+import com.owenjg.regexsynthesiser.regex.RegexParser;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * A pattern for the middle of the examples proposed by one of the analyser's
+ * strategies, scored so that the proposals of different strategies can be compared.
+ *
+ * A candidate that fails to match a positive example loses to one that matches them
+ * all, and then fewer matched negative examples win. Between candidates that are
+ * equally valid, the score follows the minimum description length principle: the
+ * bits needed to write the pattern down, at a byte per character, plus the bits
+ * needed to pick each example out of the strings of its length the pattern matches.
+ * A pattern that is too specific pays for its size, and one that is too general pays
+ * for every example, so the best trade-off between size and generality wins.
+ *
+ * To keep scoring cheaper than proposing, candidates are checked against a sample of
+ * the positive examples, spread evenly over them and with at least one of each
+ * length, since that is where the strategies differ in what they cover.
+ *
+ * The number of strings of each length a pattern matches is counted on its syntax
+ * tree, counting a string once for each way an alternation can match it, and only up
+ * to a fixed length, beyond which it is extrapolated.
+ */
+final class PatternCandidate implements Comparable<PatternCandidate> {
+    // The bits charged for each character of a pattern
+    private static final double BITS_PER_PATTERN_CHAR = 8;
+    // The longest length strings are counted up to
+    private static final int MAX_COUNTED_LENGTH = 64;
+    // The number of positive examples spread over the set that a candidate is checked against
+    private static final int SPREAD_SAMPLE_SIZE = 1000;
+
+    private final String middle;
+    private final boolean matchesPositives;
+    private final int matchedNegatives;
+    private final double bits;
+
+    /**
+     * Creates a scored candidate.
+     *
+     * @param middle The pattern for the middle of the examples
+     * @param matchesPositives Whether the full pattern matches every positive example
+     * @param matchedNegatives The number of negative examples the full pattern matches
+     * @param bits The description length of the pattern and the examples
+     */
+    private PatternCandidate(String middle, boolean matchesPositives, int matchedNegatives, double bits) {
+        this.middle = middle;
+        this.matchesPositives = matchesPositives;
+        this.matchedNegatives = matchedNegatives;
+        this.bits = bits;
+    }
+
+    /**
+     * Scores a pattern for the middle of the examples.
+     *
+     * @param prefix The prefix every example shares
+     * @param middle The pattern for what lies between the prefix and suffix
+     * @param suffix The suffix every example shares
+     * @param middles Profile of the middles of the positive examples
+     * @param positiveSample Sample of the strings that should match, from {@link #samplePositives(List)}
+     * @param negativeExamples List of strings that should not match
+     * @return The scored candidate
+     */
+    static PatternCandidate score(String prefix, String middle, String suffix, ExampleProfile middles,
+                                  List<String> positiveSample, List<String> negativeExamples) {
+        Pattern full;
+        try {
+            full = Pattern.compile(prefix + middle + suffix);
+        } catch (Exception e) {
+            return new PatternCandidate(middle, false, negativeExamples.size(), Double.MAX_VALUE);
+        }
+
+        boolean matchesPositives = true;
+        for (String example : positiveSample) {
+            if (!full.matcher(example).matches()) {
+                matchesPositives = false;
+                break;
+            }
+        }
+        int matchedNegatives = 0;
+        for (String example : negativeExamples) {
+            if (full.matcher(example).matches()) {
+                matchedNegatives++;
+            }
+        }
+
+        double bits = BITS_PER_PATTERN_CHAR * middle.length() + exampleBits(middle, middles);
+        return new PatternCandidate(middle, matchesPositives, matchedNegatives, bits);
+    }
+
+    /**
+     * Picks the positive examples candidates are checked against: every one if there
+     * are few, and otherwise a spread of them plus the first of each length.
+     *
+     * @param positiveExamples List of strings that should match
+     * @return The sample, in the order of the examples
+     */
+    static List<String> samplePositives(List<String> positiveExamples) {
+        if (positiveExamples.size() <= SPREAD_SAMPLE_SIZE) {
+            return positiveExamples;
+        }
+
+        int step = positiveExamples.size() / SPREAD_SAMPLE_SIZE;
+        Set<Integer> lengthsSeen = new HashSet<>();
+        List<String> sample = new ArrayList<>();
+        for (int i = 0; i < positiveExamples.size(); i++) {
+            String example = positiveExamples.get(i);
+            if (lengthsSeen.add(example.length()) || i % step == 0) {
+                sample.add(example);
+            }
+        }
+        return sample;
+    }
+
+    /**
+     * Gets the pattern for the middle of the examples.
+     *
+     * @return The pattern
+     */
+    String getMiddle() {
+        return middle;
+    }
+
+    @Override
+    public int compareTo(PatternCandidate other) {
+        if (matchesPositives != other.matchesPositives) {
+            return matchesPositives ? -1 : 1;
+        }
+        if (matchedNegatives != other.matchedNegatives) {
+            return Integer.compare(matchedNegatives, other.matchedNegatives);
+        }
+        return Double.compare(bits, other.bits);
+    }
+
+    /**
+     * Computes the bits needed to pick each example out of the strings of its length a
+     * pattern matches.
+     *
+     * @param middle The pattern
+     * @param middles Profile of the strings it should match
+     * @return The total bits over every example
+     */
+    private static double exampleBits(String middle, ExampleProfile middles) {
+        RegexNode parsed;
+        try {
+            parsed = new RegexParser(new RegexNodeFactory()).parse(middle);
+        } catch (IllegalArgumentException e) {
+            // Without a tree to count on, assume any character could be anywhere
+            double bits = 0;
+            for (int length : middles.getLengths()) {
+                bits += (double) middles.countOfLength(length) * length * Character.SIZE;
+            }
+            return bits;
+        }
+
+        int limit = Math.min(middles.getMaxLength(), MAX_COUNTED_LENGTH);
+        double[] counts = countStrings(parsed, limit);
+
+        // Examples longer than the counted lengths cost as many bits per character as the longest counted
+        int longest = limit;
+        while (longest > 0 && counts[longest] < 1) {
+            longest--;
+        }
+        double bitsPerChar = longest == 0 ? 0 : log2(counts[longest]) / longest;
+
+        double bits = 0;
+        for (int length : middles.getLengths()) {
+            double lengthBits = length <= limit ? log2(Math.max(counts[length], 1)) : bitsPerChar * length;
+            bits += middles.countOfLength(length) * lengthBits;
+        }
+        return bits;
+    }
+
+    /**
+     * Counts the strings of each length an expression matches.
+     *
+     * @param root The expression
+     * @param limit The longest length to count
+     * @return The count for each length from 0 to the limit
+     */
+    private static double[] countStrings(RegexNode root, int limit) {
+        // Children are counted before their parents, once for each distinct node
+        Map<RegexNode, double[]> counts = new IdentityHashMap<>();
+        Deque<RegexNode> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            RegexNode node = pending.peek();
+            if (counts.containsKey(node)) {
+                pending.pop();
+                continue;
+            }
+            boolean childrenDone = true;
+            for (RegexNode child : node.getChildren()) {
+                if (!counts.containsKey(child)) {
+                    pending.push(child);
+                    childrenDone = false;
+                }
+            }
+            if (childrenDone) {
+                counts.put(node, countNode(node, counts, limit));
+                pending.pop();
+            }
+        }
+        return counts.get(root);
+    }
+
+    /**
+     * Counts the strings of each length a node matches from the counts of its children.
+     *
+     * @param node The node
+     * @param counts The counts of its children
+     * @param limit The longest length to count
+     * @return The count for each length from 0 to the limit
+     */
+    private static double[] countNode(RegexNode node, Map<RegexNode, double[]> counts, int limit) {
+        double[] result = new double[limit + 1];
+        List<RegexNode> children = node.getChildren();
+        switch (node.getKind()) {
+            case EPSILON:
+                result[0] = 1;
+                return result;
+            case LITERAL:
+            case CLASS:
+                if (limit > 0) {
+                    result[1] = node.getChars().size();
+                }
+                return result;
+            case CONCAT:
+                return convolve(counts.get(children.get(0)), counts.get(children.get(1)));
+            case ALT:
+                for (RegexNode alternative : node.getAlternatives()) {
+                    double[] alternativeCounts = counts.get(alternative);
+                    for (int length = 0; length <= limit; length++) {
+                        result[length] = clamp(result[length] + alternativeCounts[length]);
+                    }
+                }
+                return result;
+            case STAR:
+                return star(counts.get(children.get(0)));
+            case REPEAT:
+                return repeat(counts.get(children.get(0)), node.getMin(), node.getMax());
+            default:
+                return result;
+        }
+    }
+
+    /**
+     * Counts the strings of a concatenation.
+     *
+     * @param left The counts of the first part
+     * @param right The counts of the second part
+     * @return The counts of the two parts in sequence
+     */
+    private static double[] convolve(double[] left, double[] right) {
+        double[] result = new double[left.length];
+        for (int i = 0; i < left.length; i++) {
+            if (left[i] == 0) {
+                continue;
+            }
+            for (int j = 0; i + j < result.length; j++) {
+                result[i + j] = clamp(result[i + j] + left[i] * right[j]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Counts the strings of zero or more repetitions.
+     *
+     * @param body The counts of the repeated expression
+     * @return The counts of its repetitions
+     */
+    private static double[] star(double[] body) {
+        // Iterations that match the empty string add no new strings, so they are skipped
+        double[] result = new double[body.length];
+        result[0] = 1;
+        for (int length = 1; length < result.length; length++) {
+            double total = 0;
+            for (int first = 1; first <= length; first++) {
+                total = clamp(total + body[first] * result[length - first]);
+            }
+            result[length] = total;
+        }
+        return result;
+    }
+
+    /**
+     * Counts the strings of a counted repetition.
+     *
+     * @param body The counts of the repeated expression
+     * @param min The minimum count
+     * @param max The maximum count, or {@link RegexNode#UNBOUNDED}
+     * @return The counts of its repetitions
+     */
+    private static double[] repeat(double[] body, int min, int max) {
+        double[] power = new double[body.length];
+        power[0] = 1;
+        double[] result = new double[body.length];
+
+        // Past the limit, more repetitions only add strings too long to count
+        int last = max == RegexNode.UNBOUNDED ? min : Math.min(max, min + body.length);
+        for (int count = 0; count <= last; count++) {
+            if (count >= min) {
+                for (int length = 0; length < result.length; length++) {
+                    result[length] = clamp(result[length] + power[length]);
+                }
+            }
+            if (count < last) {
+                power = convolve(power, body);
+            }
+        }
+        if (max == RegexNode.UNBOUNDED) {
+            // The minimum followed by any number more
+            return convolve(power, star(body));
+        }
+        return result;
+    }
+
+    /**
+     * Keeps a count finite, so that later products cannot become NaN.
+     *
+     * @param count The count
+     * @return The count, or the largest double if it is larger
+     */
+    private static double clamp(double count) {
+        return Math.min(count, Double.MAX_VALUE);
+    }
+
+    /**
+     * Computes a binary logarithm.
+     *
+     * @param value The value
+     * @return Its logarithm to base 2
+     */
+    private static double log2(double value) {
+        return Math.log(value) / Math.log(2);
+    }
+}
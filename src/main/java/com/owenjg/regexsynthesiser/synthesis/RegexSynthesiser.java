@@ -1,8 +1,23 @@
 package com.owenjg.regexsynthesiser.synthesis;
 
+import com.owenjg.regexsynthesiser.cache.LruCache;
+import com.owenjg.regexsynthesiser.dfa.CanonicalDFA;
 import com.owenjg.regexsynthesiser.dfa.DFABuilder;
+import com.owenjg.regexsynthesiser.dfa.DFAFingerprint;
+import com.owenjg.regexsynthesiser.dfa.DFATrimmer;
 import com.owenjg.regexsynthesiser.minimisation.DFAMinimiser;
+import com.owenjg.regexsynthesiser.minimisation.IncrementalDFAMinimiser;
+import com.owenjg.regexsynthesiser.simplification.AlgebraicConverter;
+import com.owenjg.regexsynthesiser.simplification.ConversionEngine;
+import com.owenjg.regexsynthesiser.simplification.EliminationOrder;
+import com.owenjg.regexsynthesiser.simplification.EliminationResult;
+import com.owenjg.regexsynthesiser.simplification.OptimisationTarget;
+import com.owenjg.regexsynthesiser.simplification.PossessiveMode;
 import com.owenjg.regexsynthesiser.simplification.RegexSimplifier;
+import com.owenjg.regexsynthesiser.simplification.SizeBudget;
+import com.owenjg.regexsynthesiser.validation.BacktrackingAnalyser;
+import com.owenjg.regexsynthesiser.validation.BacktrackingReport;
+import com.owenjg.regexsynthesiser.validation.Counterexamples;
 import com.owenjg.regexsynthesiser.validation.RegexComparator;
 import com.owenjg.regexsynthesiser.dfa.DFA;
 import com.owenjg.regexsynthesiser.exceptions.RegexSynthesisException;
@@ -13,6 +28,7 @@ import javafx.fxml.FXML;
 import javafx.scene.control.Label;
 
 import java.util.*;
+import java.util.function.BiFunction;
 
 /**
  * The main synthesiser class for regular expressions. This class orchestrates the entire
@@ -21,16 +37,45 @@ import java.util.*;
  * DFA (Deterministic Finite Automaton) construction and minimisation techniques.
  */
 public class RegexSynthesiser {
+    /**
+     * The default limit on the length of the DFA-based expression, in characters.
+     */
+    public static final long DEFAULT_SIZE_BUDGET = 1_000_000;
+
+    /**
+     * The number of DFA-based expressions remembered for reuse.
+     */
+    public static final int DEFAULT_CACHE_CAPACITY = 64;
+
+    // The seed of the sample drawn in sampling mode, so runs on the same examples agree
+    private static final long SAMPLING_SEED = 0;
+
     private volatile boolean cancelRequested = false;
     private ProgressCallback progressCallback;
     private final DFAMinimiser dfaMinimiser;
+    private final IncrementalDFAMinimiser incrementalMinimiser;
+    private boolean incrementalMinimisation = true;
     private final StateEliminationAlgorithm stateElimination;
+    private final AlgebraicConverter algebraicConverter;
+    private ConversionEngine conversionEngine = ConversionEngine.STATE_ELIMINATION;
+    private EliminationOrder eliminationOrder = EliminationOrder.PORTFOLIO;
+    private SizeBudget sizeBudget = SizeBudget.characters(DEFAULT_SIZE_BUDGET);
+    private PossessiveMode possessiveMode = PossessiveMode.OFF;
+    private OptimisationTarget optimisationTarget = OptimisationTarget.SIZE;
+    private SamplingBudget samplingBudget;
+    private final LruCache<DFAFingerprint, String> regexCache = new LruCache<>(DEFAULT_CACHE_CAPACITY);
     private final ExampleValidator exampleValidator;
     private final DFABuilder dfaBuilder;
+    private final DFATrimmer dfaTrimmer;
     private List<String> positiveExamples;
     private List<String> negativeExamples;
+    private EliminationResult lastEliminationResult;
+    private int lastSampledExampleCount;
+    // Whether each expression checked against every example in sampling mode was consistent
+    private final Map<String, Boolean> corpusVerdicts = new HashMap<>();
 
     private final PatternAnalyser patternAnalyser;
+    private final BacktrackingAnalyser backtrackingAnalyser;
     @FXML
     private Label currentStatusLabel;
 
@@ -44,10 +89,18 @@ public class RegexSynthesiser {
         this.positiveExamples = new ArrayList<>();
         this.negativeExamples = new ArrayList<>();
         this.dfaBuilder = new DFABuilder();
+        this.dfaTrimmer = new DFATrimmer();
         this.patternAnalyser = new PatternAnalyser();
         this.dfaMinimiser = new DFAMinimiser();
-        this.stateElimination = new StateEliminationAlgorithm();
+        this.incrementalMinimiser = new IncrementalDFAMinimiser();
+        this.stateElimination = new StateEliminationAlgorithm(eliminationOrder);
+        this.stateElimination.setSizeBudget(sizeBudget);
+        this.stateElimination.setCancellationCheck(() -> cancelRequested);
+        this.algebraicConverter = new AlgebraicConverter();
+        this.algebraicConverter.setCancellationCheck(() -> cancelRequested);
         this.exampleValidator = new ExampleValidator();
+        this.backtrackingAnalyser = new BacktrackingAnalyser();
+        this.backtrackingAnalyser.setCancellationCheck(() -> cancelRequested);
         this.currentStatusLabel = statusLabel;
     }
 
@@ -92,34 +145,68 @@ public class RegexSynthesiser {
      * @param negativeExamples List of strings that should NOT match the pattern
      */
     public void synthesise(List<String> positiveExamples, List<String> negativeExamples) {
+        cancelRequested = false;
         try {
             validateInputExamples(positiveExamples, negativeExamples);
 
             this.positiveExamples = positiveExamples;
             this.negativeExamples = negativeExamples;
+            lastSampledExampleCount = 0;
+            corpusVerdicts.clear();
+            boolean sampling = samplingBudget != null
+                    && positiveExamples.size() + negativeCount() > samplingBudget.getSampleSize();
+            List<List<String>> sample = sampling ? drawSample() : null;
 
             // Generate regex using pattern analysis approach
-            String analyserRegex = createRegexFromAnalyser();
+            String analyserRegex = sampling
+                    ? synthesiseWithCounterexamples("Pattern analysis", sample, this::createRegexFromAnalyser)
+                    : createRegexFromAnalyser(positiveExamples, negativeExamples);
+            if (cancelRequested) {
+                handleCancel();
+                return;
+            }
 
-            // Generate regex using DFA-based approach
-            String dfaRegex = createRegexFromDFA();
+            // Generate regex using DFA-based approach, which accepts only the positives it is
+            // built from and so cannot generalise from a sample
+            String dfaRegex = sampling ? null : createRegexFromDFA(positiveExamples, negativeExamples);
+            if (cancelRequested) {
+                handleCancel();
+                return;
+            }
+
+            // Check both regexes for catastrophic backtracking, using a safe equivalent if one was found
+            updateStatus("Analysing backtracking complexity...");
+            BacktrackingReport analyserReport = analyseBacktracking(analyserRegex);
+            if (analyserReport != null && analyserReport.getRepairedRegex() != null) {
+                analyserRegex = analyserReport.getRepairedRegex();
+            }
+            BacktrackingReport dfaReport = analyseBacktracking(dfaRegex);
+            if (dfaReport != null && dfaReport.getRepairedRegex() != null) {
+                dfaRegex = dfaReport.getRepairedRegex();
+            }
+            if (cancelRequested) {
+                handleCancel();
+                return;
+            }
 
             // Validate both regexes against the provided examples
-            boolean analyserValid = analyserRegex != null &&
-                    exampleValidator.validateExamples(analyserRegex, positiveExamples, negativeExamples);
-            boolean dfaValid = dfaRegex != null &&
-                    exampleValidator.validateExamples(dfaRegex, positiveExamples, negativeExamples);
+            boolean analyserValid = analyserRegex != null && isValid(analyserRegex, sampling);
+            boolean dfaValid = dfaRegex != null && isValid(dfaRegex, sampling);
 
             // Mark invalid regexes clearly
             if (!analyserValid) {
                 analyserRegex = "INVALID: " + analyserRegex;
             }
-            if (!dfaValid) {
+            if (sampling) {
+                dfaRegex = "SKIPPED: the DFA-based approach needs every example and is not run in sampling mode";
+            } else if (dfaRegex == null && lastEliminationResult != null && lastEliminationResult.isAborted()) {
+                dfaRegex = "ABORTED: " + lastEliminationResult.getSummary();
+            } else if (!dfaValid) {
                 dfaRegex = "INVALID: " + dfaRegex;
             }
 
             // Create comparison string with both regexes
-            String comparison = RegexComparator.compareRegexes(analyserRegex, dfaRegex);
+            String comparison = RegexComparator.compareRegexes(analyserRegex, analyserReport, dfaRegex, dfaReport);
             updateStatus("Comparing regex patterns....");
 
             // Notify caller of completion with the results
@@ -137,44 +224,237 @@ public class RegexSynthesiser {
         }
     }
 
+    /**
+     * Draws the sample both approaches start from in sampling mode. Each kind of
+     * example gets a share of the sample in proportion to its count, with at least
+     * one of each kind there is.
+     *
+     * @return The sampled positive and negative examples, in that order
+     */
+    private List<List<String>> drawSample() {
+        int sampleSize = samplingBudget.getSampleSize();
+        long total = positiveExamples.size() + negativeCount();
+        int positiveShare = (int) Math.max(1, (long) sampleSize * positiveExamples.size() / total);
+        int negativeShare = negativeCount() == 0 ? 0 : Math.max(1, sampleSize - positiveShare);
+
+        Random random = new Random(SAMPLING_SEED);
+        List<List<String>> sample = new ArrayList<>();
+        sample.add(reservoirSample(positiveExamples, positiveShare, random));
+        sample.add(negativeShare == 0 ? new ArrayList<>() : reservoirSample(negativeExamples, negativeShare, random));
+        return sample;
+    }
+
+    /**
+     * Gets the number of negative examples, which may have been given as null.
+     *
+     * @return The number of negative examples
+     */
+    private int negativeCount() {
+        return negativeExamples == null ? 0 : negativeExamples.size();
+    }
+
+    /**
+     * Samples examples uniformly in a single pass, keeping a reservoir of the chosen
+     * ones and replacing them at random as later examples arrive.
+     *
+     * @param examples The examples to sample from
+     * @param size The number of examples to sample
+     * @param random The source of randomness
+     * @return The sampled examples, or all of them if there are no more than the size
+     */
+    private static List<String> reservoirSample(List<String> examples, int size, Random random) {
+        List<String> reservoir = new ArrayList<>(Math.min(size, examples.size()));
+        int seen = 0;
+        for (String example : examples) {
+            if (seen < size) {
+                reservoir.add(example);
+            } else {
+                int slot = random.nextInt(seen + 1);
+                if (slot < size) {
+                    reservoir.set(slot, example);
+                }
+            }
+            seen++;
+        }
+        return reservoir;
+    }
+
+    /**
+     * Synthesises an expression by counterexample-guided refinement of a sample. Each
+     * round synthesises from the working examples, checks the result against every
+     * example in parallel and adds the ones it gets wrong to the working examples,
+     * until the expression is consistent, the sampling budget runs out or a round finds
+     * nothing new.
+     *
+     * @param approach The name of the approach, for status messages
+     * @param sample The sampled positive and negative examples to start from
+     * @param synthesiser The approach, taking the working positive and negative examples
+     * @return The expression of the last round, or null if the approach produced none
+     */
+    private String synthesiseWithCounterexamples(String approach, List<List<String>> sample,
+                                                 BiFunction<List<String>, List<String>, String> synthesiser) {
+        Set<String> positives = new LinkedHashSet<>(sample.get(0));
+        Set<String> negatives = new LinkedHashSet<>(sample.get(1));
+
+        String regex = null;
+        for (int round = 1; round <= samplingBudget.getMaxRounds() && !cancelRequested; round++) {
+            lastSampledExampleCount = Math.max(lastSampledExampleCount, positives.size() + negatives.size());
+            regex = synthesiser.apply(new ArrayList<>(positives), new ArrayList<>(negatives));
+            if (regex == null) {
+                return null;
+            }
+
+            updateStatus(approach + " round " + round + ": checking against every example...");
+            Counterexamples counterexamples = exampleValidator.findCounterexamples(regex, positiveExamples,
+                    negativeExamples, samplingBudget.getCounterexamplesPerRound());
+            corpusVerdicts.put(regex, counterexamples.isEmpty());
+            if (counterexamples.isEmpty()) {
+                updateStatus(approach + " consistent after " + round + " rounds from "
+                        + (positives.size() + negatives.size()) + " examples");
+                return regex;
+            }
+
+            // Examples already being learnt from would only give the same expression again
+            boolean learnt = positives.addAll(counterexamples.getMissedPositives());
+            learnt |= negatives.addAll(counterexamples.getMatchedNegatives());
+            if (!learnt) {
+                break;
+            }
+        }
+        return regex;
+    }
+
+    /**
+     * Checks whether an expression matches every positive and no negative example.
+     * In sampling mode the examples are checked in parallel, and an expression already
+     * checked while sampling is not checked again.
+     *
+     * @param regex The expression
+     * @param sampling Whether the expression was synthesised in sampling mode
+     * @return true if the expression is consistent with every example
+     */
+    private boolean isValid(String regex, boolean sampling) {
+        if (!sampling) {
+            return exampleValidator.validateExamples(regex, positiveExamples, negativeExamples);
+        }
+        return corpusVerdicts.computeIfAbsent(regex, r ->
+                exampleValidator.findCounterexamples(r, positiveExamples, negativeExamples, 1).isEmpty());
+    }
+
     /**
      * Creates a regular expression using the pattern analysis approach.
      * This approach examines common patterns in the examples and builds a regex
      * based on identified patterns, without constructing a complete automaton.
      *
+     * @param positives List of strings that should match the pattern
+     * @param negatives List of strings that should NOT match the pattern
      * @return A regular expression that matches the positive examples
      */
-    private String createRegexFromAnalyser() {
+    private String createRegexFromAnalyser(List<String> positives, List<String> negatives) {
         updateStatus("Analysing patterns in examples...");
-        String regex = patternAnalyser.generalisePattern(positiveExamples, negativeExamples);
+        String regex = patternAnalyser.generalisePattern(positives, negatives);
 
-        String simplifiedRegex = RegexSimplifier.simplify(regex);
+        String simplifiedRegex = RegexSimplifier.simplify(regex, possessiveMode, optimisationTarget, positives);
         return simplifiedRegex;
     }
 
     /**
      * Creates a regular expression using the DFA-based approach.
-     * This approach constructs a DFA from the examples, minimises it,
-     * and then converts it to a regular expression.
+     * This approach obtains a minimal DFA for the examples and then
+     * converts it to a regular expression. Example sets with the same language have
+     * the same canonical minimal DFA, so a cached expression is reused for them
+     * without converting or simplifying again.
      *
-     * @return A regular expression derived from the DFA
+     * @param positives List of strings that should match the pattern
+     * @param negatives List of strings that should NOT match the pattern
+     * @return A regular expression derived from the DFA, or null if the conversion was
+     *         aborted without a fallback
      */
-    private String createRegexFromDFA() {
-        updateStatus("Building DFA from examples...");
-        DFA dfa = dfaBuilder.buildDFAFromExamples(positiveExamples, negativeExamples);
+    private String createRegexFromDFA(List<String> positives, List<String> negatives) {
+        DFA minimisedDFA = incrementalMinimisation
+                ? updateMinimisedDFA(positives, negatives)
+                : buildMinimisedDFA(positives, negatives);
 
-        updateStatus("Minimising DFA...");
-        DFA minimisedDFA = dfaMinimiser.minimiseDFA(dfa);
+        // The conversion settings are part of the key, since they change the expression
+        CanonicalDFA canonicalDFA = new CanonicalDFA(minimisedDFA);
+        DFAFingerprint fingerprint = canonicalDFA.getFingerprint(
+                conversionEngine + "/" + eliminationOrder + "/" + sizeBudget + "/" + possessiveMode
+                        + "/" + optimisationTarget);
+        String cachedRegex = regexCache.get(fingerprint);
+        if (cachedRegex != null) {
+            updateStatus("Reusing regex of an equivalent DFA...");
+            lastEliminationResult = null;
+            return cachedRegex;
+        }
 
         updateStatus("Generating regex from DFA...");
-        String regex = stateElimination.eliminateStates(minimisedDFA);
+        String regex;
+        if (conversionEngine == ConversionEngine.ALGEBRAIC) {
+            lastEliminationResult = null;
+            regex = algebraicConverter.convert(canonicalDFA.getDFA());
+        } else {
+            lastEliminationResult = stateElimination.eliminate(canonicalDFA.getDFA());
+            regex = lastEliminationResult.getRegex();
+            if (lastEliminationResult.isAborted()) {
+                updateStatus(lastEliminationResult.getSummary());
+            }
+        }
+        if (regex == null) {
+            return null;
+        }
 
         updateStatus("Simplifying DFA-based regex...");
-        String simplifiedRegex = RegexSimplifier.simplify(regex);
+        String simplifiedRegex = RegexSimplifier.simplify(regex, possessiveMode, optimisationTarget, positives);
 
+        regexCache.put(fingerprint, simplifiedRegex);
         return simplifiedRegex;
     }
 
+    /**
+     * Analyses a generated regular expression for catastrophic backtracking.
+     *
+     * @param regex The expression, or null if none was generated
+     * @return The verdict, with a repaired expression if the original is unsafe, or null
+     *         if there is no expression
+     */
+    private BacktrackingReport analyseBacktracking(String regex) {
+        return regex == null ? null : backtrackingAnalyser.analyse(regex);
+    }
+
+    /**
+     * Builds a minimal DFA from scratch. This constructs a DFA from the examples,
+     * trims its dead states and minimises it.
+     *
+     * @param positives List of strings the DFA should accept
+     * @param negatives List of strings the DFA should reject
+     * @return A minimised DFA for the examples
+     */
+    private DFA buildMinimisedDFA(List<String> positives, List<String> negatives) {
+        updateStatus("Building DFA from examples...");
+        DFA dfa = dfaBuilder.buildDFAFromExamples(positives, negatives);
+
+        updateStatus("Trimming dead states...");
+        DFA trimmedDFA = dfaTrimmer.trimDFA(dfa);
+
+        updateStatus("Minimising DFA...");
+        return dfaMinimiser.minimiseDFA(trimmedDFA);
+    }
+
+    /**
+     * Updates the incrementally maintained minimal DFA with the examples that changed
+     * since the previous run, so a single added or removed example only costs time
+     * proportional to its length.
+     *
+     * @param positives List of strings the DFA should accept
+     * @param negatives List of strings the DFA should reject
+     * @return A minimal DFA for the examples
+     */
+    private DFA updateMinimisedDFA(List<String> positives, List<String> negatives) {
+        updateStatus("Updating minimal DFA with changed examples...");
+        incrementalMinimiser.updateExamples(positives, negatives);
+        return incrementalMinimiser.toDFA();
+    }
+
     /**
      * Validates the provided examples to ensure they meet the minimum requirements.
      *
@@ -201,6 +481,16 @@ public class RegexSynthesiser {
         }
     }
 
+    /**
+     * Reports that the synthesis stopped because cancellation was requested.
+     */
+    private void handleCancel() {
+        updateStatus("Generation cancelled.");
+        if (progressCallback != null) {
+            progressCallback.onCancel();
+        }
+    }
+
     /**
      * Handles an error that occurred during synthesis.
      *
@@ -222,7 +512,120 @@ public class RegexSynthesiser {
     }
 
     /**
-     * Requests cancellation of the current synthesis operation.
+     * Chooses how the minimal DFA is obtained. When enabled (the default), the minimal DFA
+     * is kept between runs and only updated with the examples that changed; otherwise it is
+     * rebuilt and minimised from scratch on every run.
+     *
+     * @param incremental true to maintain the minimal DFA incrementally
+     */
+    public void setIncrementalMinimisation(boolean incremental) {
+        this.incrementalMinimisation = incremental;
+    }
+
+    /**
+     * Sets the largest expression the DFA-based approach may build. If state elimination
+     * exceeds it, a cheaper expression built from the separately minimised branches of
+     * the DFA is used instead, and the result is reported as aborted if that does not
+     * fit either.
+     *
+     * @param sizeBudget The budget, measured in syntax tree nodes or characters
+     */
+    public void setSizeBudget(SizeBudget sizeBudget) {
+        this.sizeBudget = sizeBudget;
+        stateElimination.setSizeBudget(sizeBudget);
+    }
+
+    /**
+     * Chooses the algorithm that converts the minimal DFA to a regular expression.
+     * State elimination is the default; the size budget only applies to it.
+     *
+     * @param conversionEngine The conversion algorithm to use
+     */
+    public void setConversionEngine(ConversionEngine conversionEngine) {
+        this.conversionEngine = conversionEngine;
+    }
+
+    /**
+     * Sets the order in which state elimination removes states. The default portfolio
+     * tries several orders concurrently and keeps the shortest expression.
+     *
+     * @param eliminationOrder The elimination order to use
+     */
+    public void setEliminationOrder(EliminationOrder eliminationOrder) {
+        this.eliminationOrder = eliminationOrder;
+        stateElimination.setEliminationOrder(eliminationOrder);
+    }
+
+    /**
+     * Chooses whether the simplified expressions use possessive quantifiers where they
+     * cannot change the language, so backtracking matchers give up sooner on strings that
+     * do not match. Quantifiers are left greedy by default.
+     *
+     * @param possessiveMode Whether to make quantifiers possessive, and whether to test the result
+     */
+    public void setPossessiveMode(PossessiveMode possessiveMode) {
+        this.possessiveMode = possessiveMode;
+    }
+
+    /**
+     * Chooses whether the simplified expressions are the shortest available or the ones
+     * expected to match fastest. When the cost model cannot separate the candidates,
+     * they are timed on the positive examples. The shortest are chosen by default.
+     *
+     * @param optimisationTarget What the simplifier optimises for
+     */
+    public void setOptimisationTarget(OptimisationTarget optimisationTarget) {
+        this.optimisationTarget = optimisationTarget;
+    }
+
+    /**
+     * Enables synthesis from a sample of the examples for example sets larger than the
+     * sample. The pattern analyser then synthesises from a random sample, checks its
+     * expression against every example in parallel and feeds back only the examples it
+     * gets wrong, until the expression is consistent or the budget runs out. The
+     * DFA-based approach accepts exactly the positives it is built from, so it could
+     * only become consistent once every example had been fed back; it is skipped
+     * instead, and reported as such. Every example is used directly by default.
+     *
+     * @param samplingBudget The limits of the sampling, or null to synthesise from every example
+     */
+    public void setSamplingBudget(SamplingBudget samplingBudget) {
+        this.samplingBudget = samplingBudget;
+    }
+
+    /**
+     * Gets the largest number of examples an approach synthesised from in the most
+     * recent run in sampling mode.
+     *
+     * @return The number of sampled examples, including those fed back, or 0 if the
+     *         most recent run did not sample
+     */
+    public int getLastSampledExampleCount() {
+        return lastSampledExampleCount;
+    }
+
+    /**
+     * Gets the outcome of the most recent conversion by state elimination.
+     *
+     * @return The elimination result, or null if no synthesis has reached that stage,
+     *         the algebraic engine was used or the expression came from the cache
+     */
+    public EliminationResult getLastEliminationResult() {
+        return lastEliminationResult;
+    }
+
+    /**
+     * Gets the number of runs whose DFA-based expression was found in the cache.
+     *
+     * @return The number of cache hits
+     */
+    public long getCacheHitCount() {
+        return regexCache.getHitCount();
+    }
+
+    /**
+     * Requests cancellation of the current synthesis operation. State elimination
+     * checks the request between states, so even a long conversion stops promptly.
      */
     public void cancelGeneration() {
         cancelRequested = true;
@@ -0,0 +1,85 @@
+package com.owenjg.regexsynthesiser.synthesis;
+
+/**
+ * The limits of counterexample-guided synthesis from a sample of a large example set.
+ *
+ * Instead of synthesising from every example, the pattern analyser starts from a
+ * random sample, checks its expression against the whole set and adds only the
+ * examples it gets wrong to its sample before trying again. This stops once an expression is
+ * consistent with every example, after a number of rounds, or when a round finds
+ * nothing new to learn from. The work then grows with the number of hard examples
+ * rather than with the size of the set.
+ */
+public final class SamplingBudget {
+
+    /**
+     * The number of rounds allowed when none is given.
+     */
+    public static final int DEFAULT_MAX_ROUNDS = 8;
+
+    private final int sampleSize;
+    private final int maxRounds;
+    private final int counterexamplesPerRound;
+
+    /**
+     * Creates a budget.
+     *
+     * @param sampleSize The number of examples sampled at the start; smaller example sets
+     *                   are synthesised from in full
+     * @param maxRounds The most rounds of synthesis and checking
+     * @param counterexamplesPerRound The most positive and the most negative examples
+     *                                added to the sample after each round
+     * @throws IllegalArgumentException If any limit is not positive
+     */
+    public SamplingBudget(int sampleSize, int maxRounds, int counterexamplesPerRound) {
+        if (sampleSize <= 0 || maxRounds <= 0 || counterexamplesPerRound <= 0) {
+            throw new IllegalArgumentException("A sampling budget must be positive");
+        }
+        this.sampleSize = sampleSize;
+        this.maxRounds = maxRounds;
+        this.counterexamplesPerRound = counterexamplesPerRound;
+    }
+
+    /**
+     * Creates a budget with the default number of rounds, adding at most as many
+     * counterexamples of each kind per round as were sampled at the start.
+     *
+     * @param sampleSize The number of examples sampled at the start
+     * @return The budget
+     */
+    public static SamplingBudget of(int sampleSize) {
+        return new SamplingBudget(sampleSize, DEFAULT_MAX_ROUNDS, sampleSize);
+    }
+
+    /**
+     * Gets the number of examples sampled at the start.
+     *
+     * @return The sample size
+     */
+    public int getSampleSize() {
+        return sampleSize;
+    }
+
+    /**
+     * Gets the most rounds of synthesis and checking.
+     *
+     * @return The round limit
+     */
+    public int getMaxRounds() {
+        return maxRounds;
+    }
+
+    /**
+     * Gets the most examples of each kind added to the sample after a round.
+     *
+     * @return The counterexample limit
+     */
+    public int getCounterexamplesPerRound() {
+        return counterexamplesPerRound;
+    }
+
+    @Override
+    public String toString() {
+        return "sample " + sampleSize + ", " + maxRounds + " rounds, " + counterexamplesPerRound + " per round";
+    }
+}
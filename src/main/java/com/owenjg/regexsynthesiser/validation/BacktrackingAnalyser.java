@@ -0,0 +1,663 @@
+package com.owenjg.regexsynthesiser.validation;
+
+import com.owenjg.regexsynthesiser.dfa.CharRangeSet;
+import com.owenjg.regexsynthesiser.dfa.SymbolicDFA;
+import com.owenjg.regexsynthesiser.regex.GlushkovNFA;
+import com.owenjg.regexsynthesiser.regex.RegexNode;
+import com.owenjg.regexsynthesiser.regex.RegexNodeFactory;
+import com.owenjg.regexsynthesiser.regex.RegexParser;
+import com.owenjg.regexsynthesiser.simplification.EliminationResult;
+import com.owenjg.regexsynthesiser.simplification.RegexSimplifier;
+import com.owenjg.regexsynthesiser.simplification.SizeBudget;
+import com.owenjg.regexsynthesiser.simplification.StateEliminationAlgorithm;
+
+import java.util.*;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+
+/**
+ * Finds regular expressions that a backtracking matcher such as java.util.regex may
+ * take exponential or polynomial time to reject, and tries to repair them.
+ *
+ * The expression is parsed and turned into its Glushkov position automaton, in which
+ * each way a backtracking matcher can match a string is one path. A matcher is only
+ * slow on strings with very many such paths, which happens in two ways:
+ * <ul>
+ *   <li>Exponential degree of ambiguity: some state has two different loops reading the
+ *       same string, as in (a|a)*. Each repetition doubles the number of paths. This is
+ *       found by looking for a strongly connected component of the product automaton,
+ *       whose states are pairs of states reading the same characters, that holds both a
+ *       pair (p, p) and a pair (p', q') with p' and q' different.</li>
+ *   <li>Infinite degree of ambiguity: a string w can loop on a state p, lead from p to a
+ *       different state q, and loop on q, as in \d*\d*. The number of paths grows
+ *       polynomially with the repetitions of w. This is found by a search of the triple
+ *       product from (p, p, q) to (p, q, q).</li>
+ * </ul>
+ * Both searches are bounded; an expression whose search runs out of steps without
+ * finding either is reported as {@link BacktrackingComplexity#UNKNOWN}.
+ *
+ * An unsafe expression is repaired by first simplifying it, which removes ambiguity
+ * such as (a|a)* or a*a*, and otherwise by determinising its automaton and converting
+ * that back to an expression by state elimination. An expression read off a
+ * deterministic automaton has at most one path for every string. Its elimination may
+ * only build an expression a few times longer than the original, since the expression
+ * of even a small automaton can grow exponentially, and is abandoned beyond that.
+ */
+public class BacktrackingAnalyser {
+    // Expressions with more positions than this are not analysed
+    private static final int MAX_POSITIONS = 1000;
+    // The most pairs of states in the product of one component with itself
+    private static final int MAX_PRODUCT_STATES = 250_000;
+    // The most transitions examined by the product searches of one analysis
+    private static final long MAX_STEPS = 2_000_000;
+    // The most states of the deterministic automaton built for a repair
+    private static final int MAX_REPAIR_STATES = 500;
+    // A repair may be this many times longer than the expression it replaces
+    private static final int REPAIR_LENGTH_FACTOR = 4;
+    // The longest repair allowed however short the expression it replaces
+    private static final int MIN_REPAIR_LENGTH = 256;
+    // Pump strings are searched in the printable characters first
+    private static final CharRangeSet PRINTABLE = CharRangeSet.range(' ', '~');
+
+    private BooleanSupplier cancellationCheck = () -> false;
+
+    /**
+     * Sets a check that is polled while a repair is built; once it returns true the
+     * repair is abandoned and the verdict is returned without one.
+     *
+     * @param cancellationCheck Returns true when the repair should stop
+     */
+    public void setCancellationCheck(BooleanSupplier cancellationCheck) {
+        this.cancellationCheck = cancellationCheck;
+    }
+
+    /**
+     * Analyses an expression and, if it is unsafe, tries to repair it.
+     *
+     * @param regex The expression, optionally anchored with ^ and $
+     * @return The verdict, with an attack string and any repaired expression
+     */
+    public BacktrackingReport analyse(String regex) {
+        BacktrackingReport report = analyseWithoutRepair(regex);
+        if (report.getComplexity() == BacktrackingComplexity.POLYNOMIAL
+                || report.getComplexity() == BacktrackingComplexity.EXPONENTIAL) {
+            return repair(regex, report);
+        }
+        return report;
+    }
+
+    /**
+     * Analyses an expression without trying to repair it.
+     *
+     * @param regex The expression, optionally anchored with ^ and $
+     * @return The verdict, with an attack string if it is unsafe
+     */
+    private BacktrackingReport analyseWithoutRepair(String regex) {
+        GlushkovNFA nfa = buildAutomaton(regex);
+        if (nfa == null) {
+            return BacktrackingReport.of(BacktrackingComplexity.UNKNOWN);
+        }
+        return new Analysis(nfa).run();
+    }
+
+    /**
+     * Tries equivalent forms of an unsafe expression until one has a better complexity.
+     *
+     * @param regex The unsafe expression
+     * @param report The verdict on it
+     * @return The verdict carrying the best repair found, or unchanged if none is better
+     */
+    private BacktrackingReport repair(String regex, BacktrackingReport report) {
+        String trimmed = regex.trim();
+        boolean startAnchor = trimmed.startsWith("^");
+        boolean endAnchor = hasEndAnchor(trimmed, startAnchor);
+        String body = toGreedyBody(trimmed);
+
+        List<String> candidates = new ArrayList<>();
+        candidates.add(RegexSimplifier.simplify(body));
+        GlushkovNFA nfa = buildAutomaton(body);
+        SymbolicDFA dfa = nfa == null ? null : nfa.determinise(MAX_REPAIR_STATES);
+        if (dfa != null && !cancellationCheck.getAsBoolean()) {
+            StateEliminationAlgorithm eliminator = new StateEliminationAlgorithm();
+            eliminator.setSizeBudget(SizeBudget.characters(
+                    Math.max(MIN_REPAIR_LENGTH, (long) REPAIR_LENGTH_FACTOR * body.length())));
+            eliminator.setCancellationCheck(cancellationCheck);
+            EliminationResult eliminated = eliminator.eliminate(dfa);
+
+            // Only an expression within the budget is small enough to simplify and analyse
+            if (!eliminated.isAborted()) {
+                candidates.add(RegexSimplifier.simplify(eliminated.getRegex()));
+                candidates.add(eliminated.getRegex());
+            }
+        }
+        if (cancellationCheck.getAsBoolean()) {
+            return report;
+        }
+
+        String best = null;
+        BacktrackingComplexity bestComplexity = report.getComplexity();
+        for (String candidate : candidates) {
+            BacktrackingComplexity complexity = analyseWithoutRepair(candidate).getComplexity();
+            if (complexity.isBetterThan(bestComplexity)) {
+                best = candidate;
+                bestComplexity = complexity;
+            }
+        }
+        if (best == null) {
+            return report;
+        }
+        return report.withRepair((startAnchor ? "^" : "") + best + (endAnchor ? "$" : ""), bestComplexity);
+    }
+
+    /**
+     * Parses an expression and builds its position automaton.
+     *
+     * @param regex The expression, optionally anchored with ^ and $
+     * @return The automaton, or null if the expression cannot be parsed or is too large
+     */
+    private static GlushkovNFA buildAutomaton(String regex) {
+        try {
+            // Identities are off so that (a|a)* is analysed as written rather than as a*
+            RegexNode root = new RegexParser(new RegexNodeFactory(false)).parse(toGreedyBody(regex.trim()));
+            return new GlushkovNFA(root, MAX_POSITIONS);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Removes a leading ^ and trailing $ and makes possessive quantifiers greedy. A
+     * possessive quantifier only ever removes paths, so the greedy expression has at
+     * least the same complexity.
+     *
+     * @param regex The trimmed expression
+     * @return The expression the parser can read
+     */
+    private static String toGreedyBody(String regex) {
+        boolean startAnchor = regex.startsWith("^");
+        boolean endAnchor = hasEndAnchor(regex, startAnchor);
+        String body = regex.substring(startAnchor ? 1 : 0, regex.length() - (endAnchor ? 1 : 0));
+
+        StringBuilder greedy = new StringBuilder(body.length());
+        boolean inClass = false;
+        boolean afterQuantifier = false;
+        for (int i = 0; i < body.length(); i++) {
+            char c = body.charAt(i);
+            if (c == '+' && afterQuantifier) {
+                afterQuantifier = false;
+                continue;
+            }
+            greedy.append(c);
+            if (c == '\\' && i + 1 < body.length()) {
+                greedy.append(body.charAt(++i));
+                afterQuantifier = false;
+            } else if (inClass) {
+                inClass = c != ']';
+            } else {
+                inClass = c == '[';
+                afterQuantifier = c == '*' || c == '+' || c == '?' || c == '}';
+            }
+        }
+        return greedy.toString();
+    }
+
+    /**
+     * Checks whether an expression ends with an unescaped $.
+     *
+     * @param regex The trimmed expression
+     * @param startAnchor Whether it starts with ^
+     * @return true if the final $ is an anchor
+     */
+    private static boolean hasEndAnchor(String regex, boolean startAnchor) {
+        if (regex.length() <= (startAnchor ? 1 : 0) || !regex.endsWith("$")) {
+            return false;
+        }
+        int backslashes = 0;
+        for (int i = regex.length() - 2; i >= 0 && regex.charAt(i) == '\\'; i--) {
+            backslashes++;
+        }
+        return backslashes % 2 == 0;
+    }
+
+    /**
+     * Picks a character from a set, preferring a printable one.
+     *
+     * @param chars The set, which must not be empty
+     * @return One of its characters
+     */
+    private static char pick(CharRangeSet chars) {
+        CharRangeSet printable = chars.intersect(PRINTABLE);
+        return printable.isEmpty() ? chars.getRangeStart(0) : printable.getRangeStart(0);
+    }
+
+    /**
+     * The searches over one automaton, sharing a step budget.
+     */
+    private static final class Analysis {
+        private final GlushkovNFA nfa;
+        private final int[][] successors;
+        private final int[] component;
+        private final boolean[] cyclic;
+        private long steps;
+        private boolean exhausted;
+
+        /**
+         * Prepares the searches, finding the strongly connected components of the automaton.
+         *
+         * @param nfa The automaton
+         */
+        Analysis(GlushkovNFA nfa) {
+            this.nfa = nfa;
+            int numStates = nfa.getNumStates();
+            successors = new int[numStates][];
+            for (int state = 0; state < numStates; state++) {
+                successors[state] = nfa.getSuccessors(state).stream().toArray();
+            }
+            component = findComponents(numStates, state -> successors[state]);
+
+            // A component is cyclic if it has several states or a state that loops to itself
+            int[] sizes = new int[numStates];
+            for (int state = 0; state < numStates; state++) {
+                sizes[component[state]]++;
+            }
+            cyclic = new boolean[numStates];
+            for (int state = 0; state < numStates; state++) {
+                if (sizes[component[state]] > 1 || nfa.getSuccessors(state).get(state)) {
+                    cyclic[component[state]] = true;
+                }
+            }
+        }
+
+        /**
+         * Looks for exponential and then polynomial ambiguity.
+         *
+         * @return The verdict
+         */
+        BacktrackingReport run() {
+            Map<Integer, List<Integer>> members = new LinkedHashMap<>();
+            for (int state = 0; state < component.length; state++) {
+                if (cyclic[component[state]]) {
+                    members.computeIfAbsent(component[state], c -> new ArrayList<>()).add(state);
+                }
+            }
+
+            try {
+                for (List<Integer> states : members.values()) {
+                    BacktrackingReport report = findExponential(states);
+                    if (report != null) {
+                        return report;
+                    }
+                }
+                BacktrackingReport report = findPolynomial(members);
+                if (report != null) {
+                    return report;
+                }
+            } catch (BudgetExceeded e) {
+                return BacktrackingReport.of(BacktrackingComplexity.UNKNOWN);
+            }
+            return BacktrackingReport.of(exhausted ? BacktrackingComplexity.UNKNOWN : BacktrackingComplexity.LINEAR);
+        }
+
+        /**
+         * Looks for two different loops reading the same string within one component.
+         *
+         * @param states The states of the component
+         * @return The exponential verdict with its attack, or null if there is none
+         * @throws BudgetExceeded If the search runs out of steps
+         */
+        private BacktrackingReport findExponential(List<Integer> states) {
+            // A transition added by two nested loops is already a second loop through it
+            for (int p : states) {
+                BitSet repeated = nfa.getRepeatedSuccessors(p);
+                for (int q = repeated.nextSetBit(0); q >= 0; q = repeated.nextSetBit(q + 1)) {
+                    if (component[q] == component[p]) {
+                        String pump = pick(nfa.getChars(q)) + path(q, p, component[p]);
+                        return new BacktrackingReport(BacktrackingComplexity.EXPONENTIAL,
+                                pathTo(p), pump, failingSuffix(), null, null);
+                    }
+                }
+            }
+
+            int size = states.size();
+            if ((long) size * size > MAX_PRODUCT_STATES) {
+                exhausted = true;
+                return null;
+            }
+            int[] local = new int[nfa.getNumStates()];
+            Arrays.fill(local, -1);
+            for (int i = 0; i < size; i++) {
+                local[states.get(i)] = i;
+            }
+
+            // Pair (i, j) is numbered i * size + j and steps to pairs entering overlapping classes
+            IntFunction<int[]> pairSuccessors = pair -> {
+                int p = states.get(pair / size);
+                int q = states.get(pair % size);
+                List<Integer> targets = new ArrayList<>();
+                for (int nextP : successors[p]) {
+                    for (int nextQ : successors[q]) {
+                        if (local[nextP] >= 0 && local[nextQ] >= 0 && overlap(nextP, nextQ)) {
+                            targets.add(local[nextP] * size + local[nextQ]);
+                        }
+                    }
+                }
+                return targets.stream().mapToInt(Integer::intValue).toArray();
+            };
+
+            int[] pairComponent = findComponents(size * size, pairSuccessors);
+
+            // A component holding a pair (p, p) and a pair (p', q') gives two loops on p
+            Map<Integer, Integer> diagonal = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                diagonal.putIfAbsent(pairComponent[i * size + i], i * size + i);
+            }
+            for (int pair = 0; pair < size * size; pair++) {
+                Integer start = diagonal.get(pairComponent[pair]);
+                if (pair / size != pair % size && start != null) {
+                    int c = pairComponent[pair];
+                    IntPredicate inside = other -> pairComponent[other] == c;
+                    String pump = pairPath(start, pair, size, states, pairSuccessors, inside)
+                            + pairPath(pair, start, size, states, pairSuccessors, inside);
+                    int p = states.get(start / size);
+                    return new BacktrackingReport(BacktrackingComplexity.EXPONENTIAL,
+                            pathTo(p), pump, failingSuffix(), null, null);
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Finds the string read along a shortest path between two pairs of states.
+         *
+         * @param from The pair to start from
+         * @param to The pair to reach, after at least one step
+         * @param size The number of states in the component
+         * @param states The states of the component
+         * @param pairSuccessors The transitions between pairs
+         * @param inside Which pairs the path may pass through
+         * @return The characters read, each in the classes of both states entered
+         */
+        private String pairPath(int from, int to, int size, List<Integer> states,
+                                IntFunction<int[]> pairSuccessors, IntPredicate inside) {
+            Map<Integer, Integer> parent = new HashMap<>();
+            Deque<Integer> pending = new ArrayDeque<>();
+            for (int next : pairSuccessors.apply(from)) {
+                if (inside.test(next) && parent.putIfAbsent(next, from) == null) {
+                    pending.add(next);
+                }
+            }
+            while (!pending.isEmpty() && !parent.containsKey(to)) {
+                int pair = pending.poll();
+                for (int next : pairSuccessors.apply(pair)) {
+                    if (inside.test(next) && parent.putIfAbsent(next, pair) == null) {
+                        pending.add(next);
+                    }
+                }
+            }
+
+            StringBuilder word = new StringBuilder();
+            int pair = to;
+            do {
+                CharRangeSet chars = nfa.getChars(states.get(pair / size)).intersect(nfa.getChars(states.get(pair % size)));
+                word.append(pick(chars));
+                pair = parent.get(pair);
+            } while (pair != from);
+            return word.reverse().toString();
+        }
+
+        /**
+         * Looks for a string that loops on a state p, leads from p to a state q in a later
+         * component, and loops on q.
+         *
+         * @param members The states of each cyclic component
+         * @return The polynomial verdict with its attack, or null if there is none
+         * @throws BudgetExceeded If the search runs out of steps
+         */
+        private BacktrackingReport findPolynomial(Map<Integer, List<Integer>> members) {
+            for (Map.Entry<Integer, List<Integer>> from : members.entrySet()) {
+                BitSet reachable = reachableFrom(from.getValue());
+                for (Map.Entry<Integer, List<Integer>> to : members.entrySet()) {
+                    if (to.getKey().equals(from.getKey()) || !reachable.get(to.getValue().get(0))) {
+                        continue;
+                    }
+                    for (int p : from.getValue()) {
+                        for (int q : to.getValue()) {
+                            String pump = tripleSearch(p, q, from.getKey(), to.getKey(), reachable);
+                            if (pump != null) {
+                                return new BacktrackingReport(BacktrackingComplexity.POLYNOMIAL,
+                                        pathTo(p), pump, failingSuffix(), null, null);
+                            }
+                        }
+                    }
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Searches the triple product for a string that loops on p, leads from p to q
+         * and loops on q.
+         *
+         * @param p The first state
+         * @param q The second state
+         * @param first The component of p
+         * @param second The component of q
+         * @param reachable The states reachable from the component of p
+         * @return The string, or null if there is none
+         * @throws BudgetExceeded If the search runs out of steps
+         */
+        private String tripleSearch(int p, int q, int first, int second, BitSet reachable) {
+            long n = nfa.getNumStates();
+            long start = (p * n + p) * n + q;
+            long target = (p * n + q) * n + q;
+            Map<Long, Long> parent = new HashMap<>();
+            Map<Long, Character> read = new HashMap<>();
+            Deque<Long> pending = new ArrayDeque<>();
+            pending.add(start);
+
+            while (!pending.isEmpty()) {
+                long triple = pending.poll();
+                int x = (int) (triple / n / n);
+                int y = (int) (triple / n % n);
+                int z = (int) (triple % n);
+                for (int nextX : successors[x]) {
+                    if (component[nextX] != first) continue;
+                    for (int nextY : successors[y]) {
+                        if (!reachable.get(nextY)) continue;
+                        for (int nextZ : successors[z]) {
+                            if (++steps > MAX_STEPS) {
+                                throw new BudgetExceeded();
+                            }
+                            if (component[nextZ] != second) continue;
+                            CharRangeSet chars = nfa.getChars(nextX).intersect(nfa.getChars(nextY))
+                                    .intersect(nfa.getChars(nextZ));
+                            long next = (nextX * n + nextY) * n + nextZ;
+                            if (chars.isEmpty() || parent.containsKey(next)) continue;
+                            parent.put(next, triple);
+                            read.put(next, pick(chars));
+                            if (next == target) {
+                                StringBuilder word = new StringBuilder();
+                                long step = target;
+                                do {
+                                    word.append(read.get(step));
+                                    step = parent.get(step);
+                                } while (step != start);
+                                return word.reverse().toString();
+                            }
+                            pending.add(next);
+                        }
+                    }
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Finds the states reachable from a set of states.
+         *
+         * @param states The states to start from
+         * @return The states reachable by one or more transitions, and the states themselves
+         */
+        private BitSet reachableFrom(List<Integer> states) {
+            BitSet reached = new BitSet();
+            Deque<Integer> pending = new ArrayDeque<>(states);
+            states.forEach(reached::set);
+            while (!pending.isEmpty()) {
+                for (int next : successors[pending.pop()]) {
+                    if (!reached.get(next)) {
+                        reached.set(next);
+                        pending.push(next);
+                    }
+                }
+            }
+            return reached;
+        }
+
+        /**
+         * Finds a string leading from the initial state to a state.
+         *
+         * @param state The state to reach
+         * @return The characters read along a shortest path
+         */
+        private String pathTo(int state) {
+            return path(GlushkovNFA.INITIAL_STATE, state, -1);
+        }
+
+        /**
+         * Finds a string leading from one state to another.
+         *
+         * @param from The state to start from
+         * @param to The state to reach, which must be reachable
+         * @param within The component the path must stay in, or -1 for any
+         * @return The characters read along a shortest path, empty if the states are the same
+         */
+        private String path(int from, int to, int within) {
+            int[] parent = new int[nfa.getNumStates()];
+            Arrays.fill(parent, -1);
+            Deque<Integer> pending = new ArrayDeque<>();
+            pending.add(from);
+            parent[from] = from;
+            while (!pending.isEmpty() && parent[to] < 0) {
+                int current = pending.poll();
+                for (int next : successors[current]) {
+                    if (parent[next] < 0 && (within < 0 || component[next] == within)) {
+                        parent[next] = current;
+                        pending.add(next);
+                    }
+                }
+            }
+
+            StringBuilder word = new StringBuilder();
+            for (int current = to; current != from; current = parent[current]) {
+                word.append(pick(nfa.getChars(current)));
+            }
+            return word.reverse().toString();
+        }
+
+        /**
+         * Finds a character no position can read, so that a match fails once it is reached
+         * and the matcher tries every other way of matching what came before.
+         *
+         * @return The character, or the empty string if every character can be read
+         */
+        private String failingSuffix() {
+            CharRangeSet readable = CharRangeSet.EMPTY;
+            for (int state = 1; state < nfa.getNumStates(); state++) {
+                readable = readable.union(nfa.getChars(state));
+            }
+            CharRangeSet unreadable = readable.complement();
+            return unreadable.isEmpty() ? "" : String.valueOf(pick(unreadable));
+        }
+
+        /**
+         * Checks whether two states read a common character.
+         *
+         * @param p The first state
+         * @param q The second state
+         * @return true if their classes overlap
+         * @throws BudgetExceeded If the search runs out of steps
+         */
+        private boolean overlap(int p, int q) {
+            if (++steps > MAX_STEPS) {
+                throw new BudgetExceeded();
+            }
+            return p == q || !nfa.getChars(p).intersect(nfa.getChars(q)).isEmpty();
+        }
+    }
+
+    /**
+     * Finds the strongly connected components of a graph by Tarjan's algorithm, with an
+     * explicit stack so deep graphs do not exhaust the call stack.
+     *
+     * @param size The number of vertices, numbered from 0
+     * @param successors The successors of each vertex
+     * @return The component of each vertex; components are numbered in reverse topological order
+     */
+    private static int[] findComponents(int size, IntFunction<int[]> successors) {
+        int[] index = new int[size];
+        int[] low = new int[size];
+        int[] component = new int[size];
+        Arrays.fill(index, -1);
+        Arrays.fill(component, -1);
+        int[][] edges = new int[size][];
+        int[] nextEdge = new int[size];
+        Deque<Integer> stack = new ArrayDeque<>();
+        Deque<Integer> calls = new ArrayDeque<>();
+        int counter = 0;
+        int components = 0;
+
+        for (int root = 0; root < size; root++) {
+            if (index[root] >= 0) {
+                continue;
+            }
+            index[root] = low[root] = counter++;
+            edges[root] = successors.apply(root);
+            stack.push(root);
+            calls.push(root);
+
+            while (!calls.isEmpty()) {
+                int vertex = calls.peek();
+                if (nextEdge[vertex] < edges[vertex].length) {
+                    int next = edges[vertex][nextEdge[vertex]++];
+                    if (index[next] < 0) {
+                        index[next] = low[next] = counter++;
+                        edges[next] = successors.apply(next);
+                        stack.push(next);
+                        calls.push(next);
+                    } else if (component[next] < 0) {
+                        low[vertex] = Math.min(low[vertex], index[next]);
+                    }
+                    continue;
+                }
+
+                calls.pop();
+                edges[vertex] = null;
+                if (low[vertex] == index[vertex]) {
+                    int member;
+                    do {
+                        member = stack.pop();
+                        component[member] = components;
+                    } while (member != vertex);
+                    components++;
+                }
+                if (!calls.isEmpty()) {
+                    int caller = calls.peek();
+                    low[caller] = Math.min(low[caller], low[vertex]);
+                }
+            }
+        }
+        return component;
+    }
+
+    /**
+     * Thrown to abandon a search that has run out of steps.
+     */
+    private static final class BudgetExceeded extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        BudgetExceeded() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.owenjg.regexsynthesiser.validation;
+
+/**
+ * How the worst-case running time of a backtracking matcher grows with the length of
+ * the input, for a given regular expression.
+ */
+public enum BacktrackingComplexity {
+    /**
+     * Every string has at most one way of matching, so matching takes linear time.
+     */
+    LINEAR,
+
+    /**
+     * Some strings can be matched in polynomially many ways, as in \d*\d*x, so a failing
+     * match may take quadratic time or worse.
+     */
+    POLYNOMIAL,
+
+    /**
+     * Some strings can be matched in exponentially many ways, as in (a|a)*x, so a failing
+     * match may take exponential time.
+     */
+    EXPONENTIAL,
+
+    /**
+     * The expression was too large or used syntax the analyser does not support.
+     */
+    UNKNOWN;
+
+    /**
+     * Checks whether an expression of this complexity is safe to run on untrusted input.
+     *
+     * @return true only for linear expressions
+     */
+    public boolean isSafe() {
+        return this == LINEAR;
+    }
+
+    /**
+     * Checks whether this complexity is known to be better than another.
+     *
+     * @param other The complexity to compare with
+     * @return true if both are known and this one grows more slowly
+     */
+    public boolean isBetterThan(BacktrackingComplexity other) {
+        return this != UNKNOWN && other != UNKNOWN && ordinal() < other.ordinal();
+    }
+}
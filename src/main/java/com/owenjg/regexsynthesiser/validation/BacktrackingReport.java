@@ -0,0 +1,149 @@
+package com.owenjg.regexsynthesiser.validation;
+
+/**
+ * The verdict of a {@link BacktrackingAnalyser} on one regular expression.
+ *
+ * For an unsafe expression the report carries an attack: a prefix leading to the
+ * ambiguous part, a pump string that can be matched there in several ways, and a suffix
+ * that makes the match fail, so the matcher tries every way before giving up. It may
+ * also carry a repaired expression for the same language with a better complexity.
+ */
+public final class BacktrackingReport {
+    private final BacktrackingComplexity complexity;
+    private final String prefix;
+    private final String pump;
+    private final String suffix;
+    private final String repairedRegex;
+    private final BacktrackingComplexity repairedComplexity;
+
+    /**
+     * Creates a report.
+     *
+     * @param complexity The worst-case complexity of the expression
+     * @param prefix The start of the attack string, or null for a safe expression
+     * @param pump The part of the attack string that is repeated, or null for a safe expression
+     * @param suffix The end of the attack string, or null for a safe expression
+     * @param repairedRegex An equivalent expression with a better complexity, or null if none was found
+     * @param repairedComplexity The complexity of the repaired expression, or null if there is none
+     */
+    BacktrackingReport(BacktrackingComplexity complexity, String prefix, String pump, String suffix,
+                       String repairedRegex, BacktrackingComplexity repairedComplexity) {
+        this.complexity = complexity;
+        this.prefix = prefix;
+        this.pump = pump;
+        this.suffix = suffix;
+        this.repairedRegex = repairedRegex;
+        this.repairedComplexity = repairedComplexity;
+    }
+
+    /**
+     * Creates a report without an attack or repair.
+     *
+     * @param complexity The complexity
+     * @return The report
+     */
+    static BacktrackingReport of(BacktrackingComplexity complexity) {
+        return new BacktrackingReport(complexity, null, null, null, null, null);
+    }
+
+    /**
+     * Creates a copy of this report carrying a repaired expression.
+     *
+     * @param regex The repaired expression
+     * @param regexComplexity Its complexity
+     * @return The updated report
+     */
+    BacktrackingReport withRepair(String regex, BacktrackingComplexity regexComplexity) {
+        return new BacktrackingReport(complexity, prefix, pump, suffix, regex, regexComplexity);
+    }
+
+    /**
+     * Gets the worst-case complexity of the expression.
+     *
+     * @return The complexity
+     */
+    public BacktrackingComplexity getComplexity() {
+        return complexity;
+    }
+
+    /**
+     * Checks whether an attack string is available.
+     *
+     * @return true if the expression was found to be polynomial or exponential
+     */
+    public boolean hasAttack() {
+        return pump != null;
+    }
+
+    /**
+     * Builds an attack string that makes a backtracking matcher slow.
+     *
+     * @param pumps The number of times to repeat the pump string; the matching time
+     *              grows exponentially or polynomially with it
+     * @return The attack string, or null if the expression is safe
+     */
+    public String getAttackString(int pumps) {
+        return hasAttack() ? prefix + pump.repeat(pumps) + suffix : null;
+    }
+
+    /**
+     * Gets the repaired expression.
+     *
+     * @return An equivalent expression with a better complexity, or null if none was found
+     */
+    public String getRepairedRegex() {
+        return repairedRegex;
+    }
+
+    /**
+     * Gets the complexity of the repaired expression.
+     *
+     * @return The complexity, or null if there is no repair
+     */
+    public BacktrackingComplexity getRepairedComplexity() {
+        return repairedComplexity;
+    }
+
+    /**
+     * Describes the verdict in a single line.
+     *
+     * @return The description, for example "exponential (attack "a" x n + "!")"
+     */
+    public String getSummary() {
+        StringBuilder summary = new StringBuilder(complexity.toString().toLowerCase());
+        if (hasAttack()) {
+            summary.append(" (attack ").append(quote(prefix)).append(" + ").append(quote(pump))
+                    .append(" x n + ").append(quote(suffix)).append(")");
+        }
+        if (repairedRegex != null) {
+            summary.append("; repaired to ").append(repairedComplexity.toString().toLowerCase());
+        }
+        return summary.toString();
+    }
+
+    /**
+     * Quotes part of an attack string, escaping characters that are not printable so
+     * the summary stays on one line.
+     *
+     * @param text The text
+     * @return The text in double quotes
+     */
+    private static String quote(String text) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (char c : text.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < ' ' || c > '~') {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    @Override
+    public String toString() {
+        return getSummary();
+    }
+}
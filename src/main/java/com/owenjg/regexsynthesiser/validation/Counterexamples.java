@@ -0,0 +1,61 @@
+package com.owenjg.regexsynthesiser.validation;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The examples a regular expression gets wrong: positive examples it fails to match and
+ * negative examples it matches. Only a limited number of each may have been collected,
+ * but an empty set means every example was checked and none was wrong.
+ */
+public final class Counterexamples {
+    private final List<String> missedPositives;
+    private final List<String> matchedNegatives;
+
+    /**
+     * Creates a set of counterexamples.
+     *
+     * @param missedPositives The positive examples the expression does not match
+     * @param matchedNegatives The negative examples the expression matches
+     */
+    public Counterexamples(List<String> missedPositives, List<String> matchedNegatives) {
+        this.missedPositives = Collections.unmodifiableList(missedPositives);
+        this.matchedNegatives = Collections.unmodifiableList(matchedNegatives);
+    }
+
+    /**
+     * Gets the positive examples the expression does not match.
+     *
+     * @return The missed positive examples, in the order of the examples
+     */
+    public List<String> getMissedPositives() {
+        return missedPositives;
+    }
+
+    /**
+     * Gets the negative examples the expression matches.
+     *
+     * @return The matched negative examples, in the order of the examples
+     */
+    public List<String> getMatchedNegatives() {
+        return matchedNegatives;
+    }
+
+    /**
+     * Gets the number of counterexamples collected.
+     *
+     * @return The number of missed positive and matched negative examples
+     */
+    public int size() {
+        return missedPositives.size() + matchedNegatives.size();
+    }
+
+    /**
+     * Checks whether the expression is consistent with every example.
+     *
+     * @return true if there are no counterexamples
+     */
+    public boolean isEmpty() {
+        return missedPositives.isEmpty() && matchedNegatives.isEmpty();
+    }
+}
@@ -1,7 +1,11 @@
 package com.owenjg.regexsynthesiser.validation;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 /**
  * Validates regular expressions against sets of positive and negative examples.
@@ -9,6 +13,8 @@ import java.util.regex.Pattern;
  * while avoiding matches with forbidden strings.
  */
 public class ExampleValidator {
+    // The number of examples each parallel task checks
+    private static final int CHUNK_SIZE = 4096;
 
     /**
      * Validates a regular expression against sets of positive and negative examples.
@@ -37,4 +43,84 @@ public class ExampleValidator {
             return false;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Finds the examples a regular expression gets wrong. The examples are checked in
+     * chunks in parallel, so a corpus of millions costs a fraction of a serial pass on a
+     * machine with several cores. Each chunk is checked in full, so the same
+     * counterexamples are found however the chunks are scheduled.
+     *
+     * @param regex The regular expression to check; one that does not compile matches nothing
+     * @param positiveExamples List of strings that should match the regex
+     * @param negativeExamples List of strings that should not match the regex
+     * @param limit The most counterexamples of each kind to collect
+     * @return The first missed positive and matched negative examples, up to the limit
+     */
+    public Counterexamples findCounterexamples(String regex, List<String> positiveExamples,
+                                               List<String> negativeExamples, int limit) {
+        Pattern pattern;
+        try {
+            pattern = Pattern.compile(regex);
+        } catch (PatternSyntaxException e) {
+            pattern = null;
+        }
+        Pattern compiled = pattern;
+
+        List<ForkJoinTask<List<String>>> positiveTasks = new ArrayList<>();
+        for (int start = 0; start < positiveExamples.size(); start += CHUNK_SIZE) {
+            List<String> chunk = positiveExamples.subList(start, Math.min(start + CHUNK_SIZE, positiveExamples.size()));
+            positiveTasks.add(ForkJoinPool.commonPool().submit(() -> collectWrong(compiled, chunk, true, limit)));
+        }
+        List<ForkJoinTask<List<String>>> negativeTasks = new ArrayList<>();
+        if (negativeExamples != null) {
+            for (int start = 0; start < negativeExamples.size(); start += CHUNK_SIZE) {
+                List<String> chunk = negativeExamples.subList(start, Math.min(start + CHUNK_SIZE, negativeExamples.size()));
+                negativeTasks.add(ForkJoinPool.commonPool().submit(() -> collectWrong(compiled, chunk, false, limit)));
+            }
+        }
+
+        return new Counterexamples(joinUpTo(positiveTasks, limit), joinUpTo(negativeTasks, limit));
+    }
+
+    /**
+     * Collects the examples of one chunk a pattern gets wrong.
+     *
+     * @param pattern The pattern, or null for one that matches nothing
+     * @param chunk The examples to check
+     * @param shouldMatch Whether the examples should match
+     * @param limit The most examples to collect
+     * @return The examples whose match differs from what it should be
+     */
+    private static List<String> collectWrong(Pattern pattern, List<String> chunk, boolean shouldMatch, int limit) {
+        List<String> wrong = new ArrayList<>();
+        for (String example : chunk) {
+            boolean matches = pattern != null && pattern.matcher(example).matches();
+            if (matches != shouldMatch) {
+                wrong.add(example);
+                if (wrong.size() == limit) {
+                    break;
+                }
+            }
+        }
+        return wrong;
+    }
+
+    /**
+     * Joins the tasks for the chunks of a list of examples, in order.
+     *
+     * @param tasks The tasks, one for each chunk
+     * @param limit The most examples to keep
+     * @return The examples the tasks found, up to the limit
+     */
+    private static List<String> joinUpTo(List<ForkJoinTask<List<String>>> tasks, int limit) {
+        List<String> found = new ArrayList<>();
+        for (ForkJoinTask<List<String>> task : tasks) {
+            for (String example : task.join()) {
+                if (found.size() < limit) {
+                    found.add(example);
+                }
+            }
+        }
+        return found;
+    }
+}
@@ -1,11 +1,17 @@
 package com.owenjg.regexsynthesiser.validation;
 
+import com.owenjg.regexsynthesiser.simplification.MatchCostModel;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
 /**
  * A regex comparator that calculates numerical ratios between two regular expressions.
  * This allows for quantitative comparison between different regex generation techniques.
+ * The comparison also gives each expression's worst-case backtracking complexity, as
+ * found by a {@link BacktrackingAnalyser}.
  */
 public class RegexComparator {
 
@@ -14,17 +20,83 @@ public class RegexComparator {
      *
      * @param analyserRegex The regex generated by the pattern analyser
      * @param dfaRegex The regex generated by the DFA-based algorithm
-     * @return A formatted string containing both regex patterns
+     * @return A formatted string containing both regex patterns and their backtracking verdicts
      */
     public static String compareRegexes(String analyserRegex, String dfaRegex) {
-        if (analyserRegex == null || dfaRegex == null) {
-            return "Pattern Analyser: " + (analyserRegex != null ? analyserRegex : "N/A") + "\n" +
-                    "DFA-based: " + (dfaRegex != null ? dfaRegex : "N/A");
+        return compareRegexes(analyserRegex, analyseBacktracking(analyserRegex),
+                dfaRegex, analyseBacktracking(dfaRegex));
+    }
+
+    /**
+     * Compare two regular expressions whose backtracking verdicts are already known, and
+     * return them in a formatted string. This suits callers that mark the expressions,
+     * for example as invalid, before comparing them.
+     *
+     * @param analyserRegex The regex generated by the pattern analyser
+     * @param analyserReport The backtracking verdict on it, or null if there is none
+     * @param dfaRegex The regex generated by the DFA-based algorithm
+     * @param dfaReport The backtracking verdict on it, or null if there is none
+     * @return A formatted string containing both regex patterns and their backtracking verdicts
+     */
+    public static String compareRegexes(String analyserRegex, BacktrackingReport analyserReport,
+                                        String dfaRegex, BacktrackingReport dfaReport) {
+        StringBuilder comparison = new StringBuilder();
+        try {
+            compareRegexes(comparison, analyserRegex, analyserReport, dfaRegex, dfaReport);
+        } catch (IOException e) {
+            // A StringBuilder never throws
+            throw new UncheckedIOException(e);
         }
+        return comparison.toString();
+    }
+
+    /**
+     * Writes two regular expressions to a character sink in the same format as
+     * {@link #compareRegexes(String, String)}, without concatenating them first.
+     *
+     * @param out The sink to write to
+     * @param analyserRegex The regex generated by the pattern analyser
+     * @param dfaRegex The regex generated by the DFA-based algorithm
+     * @throws IOException If the sink fails
+     */
+    public static void compareRegexes(Appendable out, String analyserRegex, String dfaRegex) throws IOException {
+        compareRegexes(out, analyserRegex, analyseBacktracking(analyserRegex),
+                dfaRegex, analyseBacktracking(dfaRegex));
+    }
+
+    /**
+     * Writes two regular expressions and their backtracking verdicts to a character sink
+     * in the same format as {@link #compareRegexes(String, String)}.
+     *
+     * @param out The sink to write to
+     * @param analyserRegex The regex generated by the pattern analyser
+     * @param analyserReport The backtracking verdict on it, or null if there is none
+     * @param dfaRegex The regex generated by the DFA-based algorithm
+     * @param dfaReport The backtracking verdict on it, or null if there is none
+     * @throws IOException If the sink fails
+     */
+    public static void compareRegexes(Appendable out, String analyserRegex, BacktrackingReport analyserReport,
+                                      String dfaRegex, BacktrackingReport dfaReport) throws IOException {
+        // The regex patterns for the UI fields
+        out.append("Pattern Analyser: ").append(analyserRegex != null ? analyserRegex : "N/A")
+                .append("\n")
+                .append("DFA-based: ").append(dfaRegex != null ? dfaRegex : "N/A");
+
+        // The verdicts go on lines of their own, after the patterns
+        out.append("\n")
+                .append("Backtracking (PA): ").append(analyserReport != null ? analyserReport.getSummary() : "N/A")
+                .append("\n")
+                .append("Backtracking (DFA): ").append(dfaReport != null ? dfaReport.getSummary() : "N/A");
+    }
 
-        // Return only the regex patterns for the UI fields
-        return "Pattern Analyser: " + analyserRegex + "\n" +
-                "DFA-based: " + dfaRegex;
+    /**
+     * Analyses a regular expression for catastrophic backtracking.
+     *
+     * @param regex The regular expression, or null
+     * @return The verdict, or null if there is no expression
+     */
+    private static BacktrackingReport analyseBacktracking(String regex) {
+        return regex == null ? null : new BacktrackingAnalyser().analyse(regex);
     }
 
     /**
@@ -68,6 +140,37 @@ public class RegexComparator {
         return (double) analyserComplexity / dfaComplexity;
     }
 
+    /**
+     * Estimates how much work a backtracking matcher does per input character for a
+     * regular expression, using the {@link MatchCostModel}.
+     *
+     * @param regex The regular expression to analyse
+     * @return The expected steps per input character, or NaN if the expression is null
+     *         or uses syntax the model does not support
+     */
+    public static double getMatchCost(String regex) {
+        return regex == null ? Double.NaN : MatchCostModel.estimate(regex);
+    }
+
+    /**
+     * Calculate the match cost ratio between two regular expressions.
+     * The ratio is expressed as (Pattern Analyser cost : DFA cost).
+     *
+     * @param analyserRegex The regex generated by the pattern analyser
+     * @param dfaRegex The regex generated by the DFA-based algorithm
+     * @return A double representing the ratio (e.g., 0.75 means the Pattern Analyser regex is
+     *         expected to take 75% as many steps per character), or 0.0 if either cost is unknown
+     */
+    public static double getMatchCostRatio(String analyserRegex, String dfaRegex) {
+        double analyserCost = getMatchCost(analyserRegex);
+        double dfaCost = getMatchCost(dfaRegex);
+        if (Double.isNaN(analyserCost) || Double.isNaN(dfaCost) || dfaCost == 0) {
+            return 0.0;
+        }
+
+        return analyserCost / dfaCost;
+    }
+
     /**
      * Counts the special regex metacharacters in a regular expression.
      * Characters considered special are: [](){}*+?.|^$\
@@ -1,10 +1,17 @@
 package com.owenjg.regexsynthesiser;
 
+import com.owenjg.regexsynthesiser.dfa.CanonicalDFA;
+import com.owenjg.regexsynthesiser.dfa.CharRangeSet;
 import com.owenjg.regexsynthesiser.dfa.DFA;
+import com.owenjg.regexsynthesiser.dfa.DFATrimmer;
+import com.owenjg.regexsynthesiser.dfa.StronglyConnectedComponents;
+import com.owenjg.regexsynthesiser.dfa.SymbolicDFA;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
 import java.util.Set;
+import java.util.regex.Pattern;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -127,4 +134,195 @@ public class DFATest {
         // Start state should be in states set
         assertTrue(dfa.getStates().contains(5));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testTrimRemovesDeadAndUnreachableStates() {
+        // 0 -a-> 1 (accepting), 0 -b-> 2 (sink), 3 is unreachable
+        dfa.addTransition(0, 'a', 1);
+        dfa.addTransition(0, 'b', 2);
+        dfa.addTransition(2, 'a', 2);
+        dfa.addTransition(2, 'b', 2);
+        dfa.addTransition(3, 'a', 1);
+        dfa.addAcceptingState(1);
+        dfa.addAcceptingState(3);
+
+        DFA trimmed = new DFATrimmer().trimDFA(dfa);
+
+        // Only the start state and the accepting state survive
+        assertEquals(2, trimmed.getNumStates());
+        assertEquals(0, trimmed.getStartState());
+        int accepting = trimmed.getTransition(0, 'a');
+        assertTrue(trimmed.isAcceptingState(accepting));
+        assertEquals(DFA.INVALID_STATE, trimmed.getTransition(0, 'b'));
+    }
+
+    @Test
+    void testTrimKeepsStartStateOfEmptyLanguage() {
+        dfa.addTransition(0, 'a', 1);
+        dfa.addTransition(1, 'a', 1);
+
+        DFA trimmed = new DFATrimmer().trimDFA(dfa);
+
+        assertEquals(1, trimmed.getNumStates());
+        assertTrue(trimmed.getTransitions().isEmpty());
+        assertFalse(trimmed.isAcceptingState(trimmed.getStartState()));
+    }
+
+    @Test
+    void testCharRangeSetOperations() {
+        CharRangeSet lower = CharRangeSet.range('a', 'z');
+        CharRangeSet digits = CharRangeSet.range('0', '9');
+        CharRangeSet vowels = CharRangeSet.of(List.of('a', 'e', 'i', 'o', 'u'));
+
+        CharRangeSet alphanumeric = lower.union(digits);
+        assertEquals(2, alphanumeric.getRangeCount());
+        assertEquals(36, alphanumeric.size());
+        assertEquals("[\\da-z]", alphanumeric.toRegex());
+
+        // Adjacent ranges are merged
+        assertEquals(1, CharRangeSet.range('a', 'm').union(CharRangeSet.range('n', 'z')).getRangeCount());
+
+        assertEquals(vowels, lower.intersect(vowels));
+        assertTrue(lower.intersect(digits).isEmpty());
+        assertEquals(21, lower.minus(vowels).size());
+        assertFalse(lower.minus(vowels).contains('e'));
+        assertTrue(lower.minus(vowels).contains('z'));
+        assertTrue(vowels.isSubsetOf(lower));
+
+        // Single characters are rendered as escaped literals
+        assertEquals("a", CharRangeSet.of('a').toRegex());
+        assertEquals("\\.", CharRangeSet.of('.').toRegex());
+        assertEquals("[\\-ab]", CharRangeSet.of(List.of('a', 'b', '-')).toRegex());
+    }
+
+    @Test
+    void testSymbolicDFAFromDFAGroupsCharacters() {
+        for (char c = 'a'; c <= 'z'; c++) {
+            dfa.addTransition(0, c, 1);
+        }
+        dfa.addTransition(0, '0', 2);
+        dfa.addAcceptingState(1);
+        dfa.addAcceptingState(2);
+
+        SymbolicDFA symbolic = SymbolicDFA.fromDFA(dfa);
+
+        // One edge per target state, however many characters lead there
+        assertEquals(2, symbolic.getTransitions(0).size());
+        assertEquals(CharRangeSet.range('a', 'z'), symbolic.getTransitions(0).get(1));
+        assertEquals(1, symbolic.getTransition(0, 'q'));
+        assertEquals(2, symbolic.getTransition(0, '0'));
+        assertEquals(DFA.INVALID_STATE, symbolic.getTransition(0, '1'));
+        assertEquals(3, symbolic.getNumStates());
+    }
+
+    @Test
+    void testSymbolicDFARejectsOverlappingGuards() {
+        SymbolicDFA symbolic = new SymbolicDFA(0);
+        symbolic.addTransition(0, CharRangeSet.range('a', 'm'), 1);
+        symbolic.addTransition(0, CharRangeSet.range('n', 'z'), 1);
+        assertEquals(CharRangeSet.range('a', 'z'), symbolic.getTransitions(0).get(1));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> symbolic.addTransition(0, CharRangeSet.of('k'), 2));
+    }
+
+    @Test
+    void testStronglyConnectedComponentsFollowCondensationOrder() {
+        // 0 -> {1, 2} cycle -> 3, with 4 looping on itself
+        int[][] successors = {{1}, {2}, {1, 3}, {}, {4}};
+
+        StronglyConnectedComponents components = new StronglyConnectedComponents(successors);
+
+        assertEquals(4, components.getComponentCount());
+        assertEquals(components.getComponent(1), components.getComponent(2));
+        assertNotEquals(components.getComponent(0), components.getComponent(1));
+        // Edges between components run from higher numbers to lower ones
+        assertTrue(components.getComponent(0) > components.getComponent(1));
+        assertTrue(components.getComponent(2) > components.getComponent(3));
+    }
+
+    @Test
+    void testCharRangeSetRendersShorthandClasses() {
+        assertEquals("\\d", CharRangeSet.DIGITS.toRegex());
+        assertEquals("\\w", CharRangeSet.range('a', 'z').union(CharRangeSet.range('A', 'Z'))
+                .union(CharRangeSet.DIGITS).union(CharRangeSet.of('_')).toRegex());
+        assertEquals("\\s", CharRangeSet.of(List.of(' ', '\t', '\n', '\u000B', '\f', '\r')).toRegex());
+
+        // Shorthands inside a larger class
+        assertEquals("[\\w\\-.]", CharRangeSet.WORD_CHARACTERS.union(CharRangeSet.of(List.of('.', '-'))).toRegex());
+        assertEquals("[\\da-f]", CharRangeSet.DIGITS.union(CharRangeSet.range('a', 'f')).toRegex());
+        for (String word : List.of("a", "Z", "_", "5", ".", "-")) {
+            assertTrue(word.matches("[\\w\\-.]"));
+        }
+    }
+
+    @Test
+    void testCharRangeSetComplementRendersShortestForm() {
+        CharRangeSet notNewline = CharRangeSet.of('\n').complement();
+        assertEquals(2, notNewline.getRangeCount());
+        assertEquals(CharRangeSet.of('\n'), notNewline.complement());
+        assertEquals(CharRangeSet.ALL, CharRangeSet.EMPTY.complement());
+        assertEquals(CharRangeSet.of("abcxa"), CharRangeSet.range('a', 'c').union(CharRangeSet.of('x')));
+
+        // Complements are rendered as negations when that is shorter
+        assertEquals("[^\\n]", notNewline.toRegex());
+        assertEquals("\\D", CharRangeSet.DIGITS.complement().toRegex());
+        assertEquals("[^\\da-f]", CharRangeSet.DIGITS.union(CharRangeSet.range('a', 'f')).complement().toRegex());
+        assertEquals("[\\s\\S]", CharRangeSet.ALL.toRegex());
+        assertEquals("[\\t\\x7F]", CharRangeSet.of("\t\u007F").toRegex());
+
+        // Every rendering matches exactly the characters of its set
+        List<CharRangeSet> sets = List.of(notNewline, CharRangeSet.WHITESPACE.complement(),
+                CharRangeSet.of("-]^\\").complement(), CharRangeSet.of("\u0000\u2028"));
+        for (CharRangeSet set : sets) {
+            for (char c : new char[]{'\0', '\n', ' ', '-', ']', '^', '\\', 'a', '\u2028', '\uFFFF'}) {
+                assertEquals(set.contains(c), String.valueOf(c).matches(set.toRegex()), set.toRegex());
+            }
+        }
+    }
+
+    @Test
+    void testEmptyCharRangeSetRendersClassThatNeverMatches() {
+        String regex = CharRangeSet.EMPTY.toRegex();
+        assertEquals("[^\\s\\S]", regex);
+
+        // The rendering must compile and match no character at all
+        Pattern pattern = Pattern.compile(regex);
+        for (char c : new char[]{'\0', '\n', ' ', 'a', '\uFFFF'}) {
+            assertFalse(pattern.matcher(String.valueOf(c)).matches());
+        }
+        assertEquals(CharRangeSet.EMPTY, CharRangeSet.ALL.complement());
+        assertEquals(regex, CharRangeSet.ALL.complement().toRegex());
+    }
+
+    @Test
+    void testCanonicalFormIgnoresStateNumbering() {
+        // Two numberings of the automaton for {ab, ac, b}
+        DFA first = new DFA(0);
+        first.addTransition(0, 'a', 1);
+        first.addTransition(0, 'b', 2);
+        first.addTransition(1, 'b', 2);
+        first.addTransition(1, 'c', 2);
+        first.addAcceptingState(2);
+
+        DFA second = new DFA(7);
+        second.addTransition(7, 'b', 3);
+        second.addTransition(5, 'c', 3);
+        second.addTransition(7, 'a', 5);
+        second.addTransition(5, 'b', 3);
+        second.addTransition(3, 'z', 9);
+        second.addAcceptingState(3);
+
+        CanonicalDFA canonicalFirst = new CanonicalDFA(first);
+        CanonicalDFA canonicalSecond = new CanonicalDFA(second);
+
+        // The dead state 9 is trimmed, and both start with 'a' to state 1
+        assertEquals(canonicalFirst.getDFA().getTransitions(), canonicalSecond.getDFA().getTransitions());
+        assertEquals(1, canonicalSecond.getDFA().getTransition(0, 'a'));
+        assertEquals(canonicalFirst.getFingerprint("tag"), canonicalSecond.getFingerprint("tag"));
+        assertNotEquals(canonicalFirst.getFingerprint("tag"), canonicalFirst.getFingerprint("other"));
+
+        first.addAcceptingState(1);
+        assertNotEquals(new CanonicalDFA(first).getFingerprint("tag"), canonicalSecond.getFingerprint("tag"));
+    }
+}
@@ -1,10 +1,17 @@
 package com.owenjg.regexsynthesiser;
 
+import com.owenjg.regexsynthesiser.dfa.CharRangeSet;
 import com.owenjg.regexsynthesiser.dfa.DFA;
+import com.owenjg.regexsynthesiser.dfa.SymbolicDFA;
 import com.owenjg.regexsynthesiser.minimisation.DFAMinimiser;
+import com.owenjg.regexsynthesiser.minimisation.IncrementalDFAMinimiser;
+import com.owenjg.regexsynthesiser.minimisation.SymbolicDFAMinimiser;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class MinimisationTest {
@@ -140,6 +147,95 @@ public class MinimisationTest {
         assertTrue(minimised.isAcceptingState(minimised.getStartState()));
     }
 
+    @Test
+    void testMinimiseAllAcceptingStates() {
+        // Every state accepts, as happens once the sink state has been trimmed
+        DFA dfa = new DFA(0);
+        dfa.addTransition(0, 'a', 1);
+        dfa.addTransition(0, 'b', 3);
+        dfa.addTransition(1, 'b', 2);
+        dfa.addAcceptingState(0);
+        dfa.addAcceptingState(1);
+        dfa.addAcceptingState(2);
+        dfa.addAcceptingState(3);
+
+        DFA minimised = minimiser.minimiseDFA(dfa);
+
+        testLanguageEquivalence(dfa, minimised, "");
+        testLanguageEquivalence(dfa, minimised, "ab");
+        testLanguageEquivalence(dfa, minimised, "b");
+        testLanguageEquivalence(dfa, minimised, "bb");
+        testLanguageEquivalence(dfa, minimised, "abb");
+    }
+
+    @Test
+    void testIncrementalMinimisationAddsAndRemovesExamples() {
+        IncrementalDFAMinimiser incremental = new IncrementalDFAMinimiser();
+        incremental.updateExamples(Arrays.asList("ab", "cb", "abc"), List.of());
+
+        // Minimal automaton for {ab, cb, abc}: start, after a, after c, after ab, after abc
+        assertEquals(5, incremental.getNumStates());
+        DFA dfa = incremental.toDFA();
+        assertTrue(simulateDFA(dfa, "ab"));
+        assertTrue(simulateDFA(dfa, "cb"));
+        assertTrue(simulateDFA(dfa, "abc"));
+        assertFalse(simulateDFA(dfa, "cbc"));
+
+        // Removing abc lets the paths through a and c merge again
+        incremental.updateExamples(Arrays.asList("ab", "cb"), List.of());
+        assertEquals(3, incremental.getNumStates());
+        assertFalse(simulateDFA(incremental.toDFA(), "abc"));
+
+        // A negative example that matches a positive one removes it from the language
+        incremental.addNegativeExample("cb");
+        assertFalse(incremental.accepts("cb"));
+        assertTrue(incremental.accepts("ab"));
+        assertEquals(3, incremental.getNumStates());
+
+        incremental.removeNegativeExample("cb");
+        assertTrue(incremental.accepts("cb"));
+    }
+
+    @Test
+    void testIncrementalMinimisationHandlesDuplicatesAndEmptyString() {
+        IncrementalDFAMinimiser incremental = new IncrementalDFAMinimiser();
+        incremental.updateExamples(Arrays.asList("", "a", "a"), List.of());
+        assertTrue(incremental.accepts(""));
+
+        // One copy of a duplicate leaves the word in the language
+        incremental.removePositiveExample("a");
+        assertTrue(incremental.accepts("a"));
+        incremental.removePositiveExample("a");
+        assertFalse(incremental.accepts("a"));
+
+        incremental.updateExamples(List.of(), List.of());
+        assertEquals(1, incremental.getNumStates());
+        assertFalse(incremental.accepts(""));
+    }
+
+    @Test
+    void testSymbolicMinimisationMergesRangeEquivalentStates() {
+        // [a-m] and [n-z] lead to separate but equivalent states, each followed by a digit
+        SymbolicDFA symbolic = new SymbolicDFA(0);
+        symbolic.addTransition(0, CharRangeSet.range('a', 'm'), 1);
+        symbolic.addTransition(0, CharRangeSet.range('n', 'z'), 2);
+        symbolic.addTransition(1, CharRangeSet.range('0', '9'), 3);
+        symbolic.addTransition(2, CharRangeSet.range('0', '4'), 4);
+        symbolic.addTransition(2, CharRangeSet.range('5', '9'), 3);
+        symbolic.addTransition(0, CharRangeSet.of('!'), 5);
+        symbolic.addAcceptingState(3);
+        symbolic.addAcceptingState(4);
+
+        SymbolicDFA minimised = new SymbolicDFAMinimiser().minimiseDFA(symbolic);
+
+        // The dead state 5 is dropped and states 1/2 and 3/4 are merged
+        assertEquals(3, minimised.getNumStates());
+        assertEquals(1, minimised.getTransitions(0).size());
+        assertEquals(CharRangeSet.range('a', 'z'), minimised.getTransitions(0).get(1));
+        assertEquals(CharRangeSet.range('0', '9'), minimised.getTransitions(1).get(2));
+        assertTrue(minimised.isAcceptingState(2));
+    }
+
     // Helper method to test if both DFAs accept or reject the same string
     private void testLanguageEquivalence(DFA dfa1, DFA dfa2, String input) {
         boolean dfa1Accepts = simulateDFA(dfa1, input);
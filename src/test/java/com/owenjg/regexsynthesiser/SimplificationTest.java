@@ -1,11 +1,31 @@
 package com.owenjg.regexsynthesiser;
 
+import com.owenjg.regexsynthesiser.dfa.CharRangeSet;
 import com.owenjg.regexsynthesiser.dfa.DFA;
+import com.owenjg.regexsynthesiser.dfa.SymbolicDFA;
+import com.owenjg.regexsynthesiser.minimisation.IncrementalDFAMinimiser;
+import com.owenjg.regexsynthesiser.regex.RegexNode;
+import com.owenjg.regexsynthesiser.regex.RegexNodeFactory;
+import com.owenjg.regexsynthesiser.regex.RegexParser;
+import com.owenjg.regexsynthesiser.simplification.AlgebraicConverter;
+import com.owenjg.regexsynthesiser.simplification.EliminationOrder;
+import com.owenjg.regexsynthesiser.simplification.EliminationResult;
+import com.owenjg.regexsynthesiser.simplification.EquivalenceTester;
+import com.owenjg.regexsynthesiser.simplification.MatchCostModel;
+import com.owenjg.regexsynthesiser.simplification.OptimisationTarget;
+import com.owenjg.regexsynthesiser.simplification.PossessiveMode;
+import com.owenjg.regexsynthesiser.simplification.RegexRewriter;
 import com.owenjg.regexsynthesiser.simplification.RegexSimplifier;
+import com.owenjg.regexsynthesiser.simplification.SizeBudget;
 import com.owenjg.regexsynthesiser.simplification.StateEliminationAlgorithm;
+import com.owenjg.regexsynthesiser.simplification.SubexpressionMemo;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class SimplificationTest {
@@ -26,10 +46,10 @@ public class SimplificationTest {
         String simplified = RegexSimplifier.simplify(regex);
         assertEquals("(abc|def|ghi)", simplified);
 
-        // Test with escaped characters and bracket matching
+        // Test with escaped characters and bracket matching; the shared brackets are factored out
         regex = "(\\(a\\)|\\(b\\)|\\(a\\))";
         simplified = RegexSimplifier.simplify(regex);
-        assertEquals("(\\(a\\)|\\(b\\))", simplified);
+        assertEquals("\\([ab]\\)", simplified);
     }
 
     @Test
@@ -60,15 +80,107 @@ public class SimplificationTest {
 
     @Test
     void testRegexSimplifierWithNestedParentheses() {
-        // Test with nested parentheses
+        // Nested alternations are flattened, and their single characters merged into a class
         String regex = "((a|b)|(a|c))";
         String simplified = RegexSimplifier.simplify(regex);
-        assertEquals("((a|b)|(a|c))", simplified);
+        assertEquals("[a-c]", simplified);
 
-        // More complex nested example
+        // The shared prefix is factored out of the branches
         regex = "(a(b|c)|a(b|d))";
         simplified = RegexSimplifier.simplify(regex);
-        assertEquals("(a(b|c)|a(b|d))", simplified);
+        assertEquals("a[b-d]", simplified);
+    }
+
+    @Test
+    void testRegexSimplifierRewritesToFixedPoint() {
+        // A factor followed by its own repetition becomes a single +
+        assertEquals("a+", RegexSimplifier.simplify("aa*"));
+        assertEquals("c(ab)+", RegexSimplifier.simplify("cab(ab)*"));
+        assertEquals("b*", RegexSimplifier.simplify("b*b*"));
+
+        // Empty alternatives and optional alternatives become a single ?
+        assertEquals("(ab)?", RegexSimplifier.simplify("(ab|)"));
+        assertEquals("[ab]?", RegexSimplifier.simplify("(a?|b)"));
+        assertEquals("(a|b*)", RegexSimplifier.simplify("(a?|b*)"));
+        assertEquals("a*", RegexSimplifier.simplify("((a*)?)+"));
+
+        // Anchors are kept, and syntax the parser does not model is left alone
+        assertEquals("^abc$", RegexSimplifier.simplify("^(abc|abc)$"));
+        assertEquals("(a.b|a.b)", RegexSimplifier.simplify("(a.b|a.b)"));
+    }
+
+    @Test
+    void testRegexSimplifierFoldsCountedRepetitions() {
+        assertEquals("\\d{5}", RegexSimplifier.simplify("\\d\\d\\d\\d\\d"));
+        assertEquals("[a-z]{4}", RegexSimplifier.simplify("[a-z][a-z][a-z][a-z]"));
+        assertEquals("x[a-z]{2,4}y", RegexSimplifier.simplify("x[a-z][a-z][a-z]?[a-z]?y"));
+        assertEquals("(abc){3}", RegexSimplifier.simplify("abcabcabc"));
+        assertEquals("[a-z]{3,}", RegexSimplifier.simplify("[a-z]{2}[a-z]+"));
+
+        // Runs are only folded when that makes them shorter
+        assertEquals("aaaa", RegexSimplifier.simplify("aaaa"));
+        assertEquals("\\d\\d", RegexSimplifier.simplify("\\d\\d"));
+
+        // Counted alternatives merge only when their counts leave no gap
+        assertEquals("\\d{2,5}", RegexSimplifier.simplify("(\\d{2}|\\d{3,5})"));
+        assertEquals("(\\d{2}|\\d{4,5})", RegexSimplifier.simplify("(\\d{2}|\\d{4,5})"));
+    }
+
+    @Test
+    void testPossessiveQuantifiersOnlyWhereNothingFollowingOverlaps() {
+        assertEquals("[a-z]++@[a-z]++\\.com", RegexSimplifier.simplify("[a-z]+@[a-z]+\\.com", PossessiveMode.ON));
+        assertEquals("a*+b?+", RegexSimplifier.simplify("a*b?", PossessiveMode.ON));
+
+        // \d can follow \w+, a can follow a?, and multi-character bodies are left alone
+        assertEquals("\\w+\\d", RegexSimplifier.simplify("\\w+\\d", PossessiveMode.ON));
+        assertEquals("a?a", RegexSimplifier.simplify("a?a", PossessiveMode.ON));
+        assertEquals("(ab)+", RegexSimplifier.simplify("(ab)+", PossessiveMode.ON));
+
+        // What follows an inner loop includes the start of the next iteration of the outer one
+        assertEquals("(ba++)+", RegexSimplifier.simplify("(ba+)+", PossessiveMode.TESTED));
+        assertEquals("(ba+)*a", RegexSimplifier.simplify("(ba+)*a", PossessiveMode.TESTED));
+
+        // The tester accepts the rewrite and catches a possessive quantifier that steals from its continuation
+        assertTrue(new EquivalenceTester("[a-z]+@\\d*", "[a-z]++@\\d*+").test());
+        EquivalenceTester stealing = new EquivalenceTester("a*a", "a*+a");
+        assertFalse(stealing.test());
+        assertEquals("a", stealing.getCounterexample());
+    }
+
+    @Test
+    void testMatchCostTargetPrefersCheaperExpressions() {
+        // Unrolled runs, factored prefixes and unnested loops are cheaper per character
+        assertTrue(MatchCostModel.estimate("\\d\\d\\d\\d\\d") < MatchCostModel.estimate("\\d{5}"));
+        assertTrue(MatchCostModel.estimate("ab[cd]") < MatchCostModel.estimate("(abc|abd)"));
+        assertTrue(MatchCostModel.estimate("a+b") < MatchCostModel.estimate("(a+)+b"));
+        assertTrue(Double.isNaN(MatchCostModel.estimate("a.b")));
+
+        // The size target folds the run, the cost target keeps it unrolled
+        assertEquals("\\d{5}", RegexSimplifier.simplify("\\d\\d\\d\\d\\d"));
+        assertEquals("^\\d\\d\\d\\d\\d$", RegexSimplifier.simplify("^\\d\\d\\d\\d\\d$", PossessiveMode.OFF,
+                OptimisationTarget.MATCH_COST, List.of()));
+
+        // Candidates too close to call are timed on the samples, and any of them is equivalent
+        String regex = "(cat|car|cow)(cat|car|cow)";
+        String timed = RegexSimplifier.simplify(regex, PossessiveMode.OFF, OptimisationTarget.MATCH_COST,
+                List.of("catcow", "carcar", "cowcat"));
+        assertTrue(new EquivalenceTester(regex, timed).test());
+        assertTrue(MatchCostModel.estimate(timed) <= MatchCostModel.estimate(regex) * 1.1);
+    }
+
+    @Test
+    void testRegexSimplifierFactorsAlternations() {
+        assertEquals("ab[cd]", RegexSimplifier.simplify("(abc|abd)"));
+        assertEquals("[ab]cd", RegexSimplifier.simplify("(acd|bcd)"));
+        assertEquals("ab?", RegexSimplifier.simplify("(ab|a)"));
+
+        // Only the branches sharing a prefix are grouped, and the remainder is factored again
+        assertEquals("(x[ab]y|z)", RegexSimplifier.simplify("(xay|z|xby)"));
+
+        // Character classes are merged by set algebra, including negated ones
+        assertEquals("[^bc]", RegexSimplifier.simplify("([^abc]|a)"));
+        assertEquals("\\S+", RegexSimplifier.simplify("(\\S|b)+"));
+        assertEquals("[a-z]{4,5}@x\\.com", RegexSimplifier.simplify("([a-z]{4}@x\\.com|[a-z]{5}@x\\.com)"));
     }
 
     @Test
@@ -76,12 +188,12 @@ public class SimplificationTest {
         // Test with character classes
         String regex = "([a-z]|[0-9]|[a-z])";
         String simplified = RegexSimplifier.simplify(regex);
-        assertEquals("([a-z]|[0-9])", simplified);
+        assertEquals("[\\da-z]", simplified);
 
         // Test with escaped character in character class
         regex = "([\\]\\-]|[a-z]|[\\]\\-])";
         simplified = RegexSimplifier.simplify(regex);
-        assertEquals("([\\]\\-]|[a-z])", simplified);
+        assertEquals("[\\-\\]a-z]", simplified);
     }
 
     @Test
@@ -107,4 +219,295 @@ public class SimplificationTest {
         assertTrue(regex.equals("(a|b)") || regex.equals("[ab]"));
     }
 
-}
\ No newline at end of file
+    @Test
+    void testSymbolicEliminationEmitsRangeClasses() {
+        // Identifier-like language: [a-z] followed by any number of [a-z0-9]
+        SymbolicDFA symbolic = new SymbolicDFA(0);
+        symbolic.addTransition(0, CharRangeSet.range('a', 'z'), 1);
+        symbolic.addTransition(1, CharRangeSet.range('a', 'z').union(CharRangeSet.range('0', '9')), 1);
+        symbolic.addAcceptingState(1);
+
+        String regex = eliminationAlgorithm.eliminateStates(symbolic);
+
+        assertEquals("[a-z][\\da-z]*", regex);
+        assertTrue("x9y".matches(regex));
+        assertFalse("9xy".matches(regex));
+    }
+
+    @Test
+    void testStateEliminationKeepsStartStateLoops() {
+        // (ab)*: the only accepting state is the start state, reached again through state 1
+        DFA dfa = new DFA(0);
+        dfa.addTransition(0, 'a', 1);
+        dfa.addTransition(1, 'b', 0);
+        dfa.addAcceptingState(0);
+
+        String regex = eliminationAlgorithm.eliminateStates(dfa);
+
+        assertEquals("(ab)*", regex);
+    }
+
+    @Test
+    void testRegexNodesAreHashConsed() {
+        RegexNodeFactory factory = new RegexNodeFactory();
+        RegexNode ab = factory.concat(factory.literal('a'), factory.literal('b'));
+
+        // Structurally equal expressions are the same instance
+        assertSame(ab, factory.concat(factory.literal('a'), factory.literal('b')));
+        assertSame(ab, factory.alt(ab, ab));
+
+        // X X* becomes X+ and an empty alternative becomes ?
+        assertEquals("(ab)+", factory.concat(ab, factory.star(ab)).render());
+        assertEquals("(ab)?", factory.alt(ab, factory.epsilon()).render());
+        assertEquals("(ab|c)", factory.alt(ab, factory.literal('c')).render());
+        assertEquals("\\.{2,3}", factory.repeat(factory.literal('.'), 2, 3).render());
+    }
+
+    @Test
+    void testSubexpressionMemoReusesResultsAcrossFactories() {
+        SubexpressionMemo memo = new SubexpressionMemo(16);
+        String domain = "(mail|mail)\\.(com|com|org)";
+
+        RegexNodeFactory first = new RegexNodeFactory();
+        RegexNode simplified = new RegexRewriter(first, memo)
+                .rewrite(new RegexParser(first).parse("user@" + domain));
+        assertEquals("user@mail\\.(com|org)", simplified.render());
+        assertEquals(0, memo.getHitCount());
+
+        // The shared domain is looked up rather than rewritten, and adopted into the new factory
+        RegexNodeFactory second = new RegexNodeFactory();
+        RegexNode reused = new RegexRewriter(second, memo)
+                .rewrite(new RegexParser(second).parse("admin@" + domain));
+        assertEquals("admin@mail\\.(com|org)", reused.render());
+        assertTrue(memo.getHitCount() > 0);
+        assertSame(reused, second.adopt(reused));
+        assertTrue(reused.isSameExpression(new RegexRewriter(second)
+                .rewrite(new RegexParser(second).parse("admin@" + domain))));
+        assertFalse(reused.isSameExpression(simplified));
+    }
+
+    @Test
+    void testStateEliminationHandlesLongChains() {
+        // A single 50,000 character word; each elimination should only touch two neighbours
+        int length = 50_000;
+        DFA dfa = new DFA(0);
+        StringBuilder word = new StringBuilder(length);
+        for (int state = 0; state < length; state++) {
+            char symbol = (char) ('a' + state % 26);
+            dfa.addTransition(state, symbol, state + 1);
+            word.append(symbol);
+        }
+        dfa.addAcceptingState(length);
+
+        String regex = eliminationAlgorithm.eliminateStates(dfa);
+
+        assertEquals(word.toString(), regex);
+    }
+
+    @Test
+    void testDynamicEliminationOrderFactorsSharedPrefix() {
+        IncrementalDFAMinimiser minimiser = new IncrementalDFAMinimiser();
+        minimiser.updateExamples(List.of("private", "protected", "public"), List.of());
+        DFA dfa = minimiser.toDFA();
+
+        String staticRegex = new StateEliminationAlgorithm(EliminationOrder.STATIC).eliminateStates(dfa);
+        String dynamicRegex = new StateEliminationAlgorithm(EliminationOrder.DYNAMIC).eliminateStates(dfa);
+
+        // Re-scoring after each step keeps the state after 'p' until its branches are merged
+        assertEquals("p(ublic|r(ivate|otected))", dynamicRegex);
+        assertTrue(dynamicRegex.length() < staticRegex.length());
+        for (String word : List.of("private", "protected", "public")) {
+            assertTrue(word.matches(dynamicRegex));
+        }
+        assertFalse("pub".matches(dynamicRegex));
+    }
+
+    @Test
+    void testStateEliminationJoinsSeparateLoops() {
+        // Two independent loops, 1-2 and 3-4, both leading to the accepting state 5
+        DFA dfa = new DFA(0);
+        dfa.addTransition(0, 'a', 1);
+        dfa.addTransition(1, 'b', 2);
+        dfa.addTransition(2, 'c', 1);
+        dfa.addTransition(0, 'x', 3);
+        dfa.addTransition(3, 'y', 4);
+        dfa.addTransition(4, 'z', 3);
+        dfa.addTransition(1, 'e', 5);
+        dfa.addTransition(3, 'e', 5);
+        dfa.addAcceptingState(5);
+
+        for (EliminationOrder order : EliminationOrder.values()) {
+            String regex = new StateEliminationAlgorithm(order).eliminateStates(dfa);
+            for (String word : List.of("ae", "abce", "abcbce", "xe", "xyze", "xyzyze")) {
+                assertTrue(word.matches(regex), word + " should match " + regex);
+            }
+            for (String word : List.of("abe", "xye", "axe", "e", "")) {
+                assertFalse(word.matches(regex), word + " should not match " + regex);
+            }
+        }
+    }
+
+    @Test
+    void testEliminationFallsBackWhenSizeBudgetIsExceeded() {
+        // Full elimination gives (a(ba*b)*a)*a(ba*b)*ba*, 24 characters
+        DFA dfa = new DFA(0);
+        dfa.addTransition(0, 'a', 1);
+        dfa.addTransition(1, 'a', 0);
+        dfa.addTransition(1, 'b', 2);
+        dfa.addTransition(2, 'a', 2);
+        dfa.addTransition(2, 'b', 1);
+        dfa.addAcceptingState(2);
+
+        StateEliminationAlgorithm algorithm = new StateEliminationAlgorithm(EliminationOrder.DYNAMIC);
+        algorithm.setSizeBudget(SizeBudget.characters(17));
+        EliminationResult result = algorithm.eliminate(dfa);
+
+        assertEquals(EliminationResult.Status.BUDGET_EXCEEDED, result.getStatus());
+        assertEquals(EliminationOrder.DYNAMIC, result.getOrder());
+        assertTrue(result.isFallback());
+        assertEquals("a(aa|ba*b)*ba*", result.getRegex());
+
+        // Nothing fits in three nodes, so there is no expression at all
+        algorithm.setSizeBudget(SizeBudget.nodes(3));
+        result = algorithm.eliminate(dfa);
+        assertTrue(result.isAborted());
+        assertFalse(result.isFallback());
+        assertNull(result.getRegex());
+        assertTrue(result.getSize() > 3);
+        assertTrue(result.getSummary().contains("3 nodes"));
+    }
+
+    @Test
+    void testEliminationStopsWhenCancelled() {
+        DFA dfa = new DFA(0);
+        dfa.addTransition(0, 'a', 1);
+        dfa.addTransition(1, 'b', 2);
+        dfa.addAcceptingState(2);
+
+        StateEliminationAlgorithm algorithm = new StateEliminationAlgorithm();
+        algorithm.setCancellationCheck(() -> true);
+        EliminationResult result = algorithm.eliminate(dfa);
+
+        assertEquals(EliminationResult.Status.CANCELLED, result.getStatus());
+        assertEquals(0, result.getEliminatedStates());
+        assertEquals(2, result.getTotalStates());
+        assertNull(result.getRegex());
+
+        algorithm.setCancellationCheck(() -> false);
+        assertEquals("ab", algorithm.eliminateStates(dfa));
+    }
+
+    @Test
+    void testAlgebraicConverterSolvesLanguageEquations() {
+        AlgebraicConverter converter = new AlgebraicConverter();
+
+        // X0 = a X1, X1 = b X2 | ε, X2 = ε, so X0 = a(b|ε)
+        DFA words = new DFA(0);
+        words.addTransition(0, 'a', 1);
+        words.addTransition(1, 'b', 2);
+        words.addAcceptingState(1);
+        words.addAcceptingState(2);
+        assertEquals("ab?", converter.convert(words));
+
+        // The same cyclic automaton as the size budget test
+        DFA cyclic = new DFA(0);
+        cyclic.addTransition(0, 'a', 1);
+        cyclic.addTransition(1, 'a', 0);
+        cyclic.addTransition(1, 'b', 2);
+        cyclic.addTransition(2, 'a', 2);
+        cyclic.addTransition(2, 'b', 1);
+        cyclic.addAcceptingState(2);
+
+        String regex = converter.convert(cyclic);
+        for (String word : List.of("ab", "aaab", "aba", "abbb", "abaa")) {
+            assertTrue(word.matches(regex), word + " should match " + regex);
+        }
+        for (String word : List.of("", "a", "aab", "abb", "abaab")) {
+            assertFalse(word.matches(regex), word + " should not match " + regex);
+        }
+        assertTrue(regex.length() < eliminationAlgorithm.eliminateStates(cyclic).length());
+
+        assertEquals("", converter.convert(new DFA(0)));
+    }
+
+    @Test
+    void testStateEliminationGroupsParallelEdgesIntoOneClass() {
+        DFA dfa = new DFA(0);
+        for (char c = 'a'; c <= 'f'; c++) {
+            dfa.addTransition(0, c, 1);
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            dfa.addTransition(0, c, 1);
+            dfa.addTransition(1, c, 2);
+        }
+        dfa.addTransition(0, '_', 1);
+        dfa.addTransition(1, '.', 2);
+        dfa.addAcceptingState(2);
+
+        // Mixed symbols are one class too, not an alternation of single characters
+        assertEquals("[\\d_a-f][\\d.]", eliminationAlgorithm.eliminateStates(dfa));
+    }
+
+    @Test
+    void testStreamedRegexMatchesRenderedRegex() throws IOException {
+        DFA dfa = new DFA(0);
+        dfa.addTransition(0, 'a', 1);
+        dfa.addTransition(1, 'b', 1);
+        dfa.addTransition(1, 'c', 2);
+        dfa.addTransition(0, 'd', 2);
+        dfa.addAcceptingState(2);
+
+        StringWriter streamed = new StringWriter();
+        EliminationResult result = eliminationAlgorithm.eliminateStates(dfa, streamed);
+        assertEquals(eliminationAlgorithm.eliminateStates(dfa), streamed.toString());
+        assertEquals(streamed.toString(), result.getRegex());
+
+        StringWriter simplified = new StringWriter();
+        RegexSimplifier.simplify("abc|abc|def", simplified);
+        assertEquals(RegexSimplifier.simplify("abc|abc|def"), simplified.toString());
+    }
+
+    @Test
+    void testPortfolioKeepsShortestOrder() {
+        DFA dfa = new DFA(0);
+        for (int state = 0; state < 8; state++) {
+            dfa.addTransition(state, 'a', (state * 3 + 1) % 8);
+            dfa.addTransition(state, 'b', (state * 5 + 2) % 8);
+            if (state % 3 == 0) {
+                dfa.addAcceptingState(state);
+            }
+        }
+
+        int shortest = Integer.MAX_VALUE;
+        for (EliminationOrder order : List.of(EliminationOrder.STATIC, EliminationOrder.DYNAMIC,
+                EliminationOrder.REVERSE_TOPOLOGICAL)) {
+            shortest = Math.min(shortest, new StateEliminationAlgorithm(order).eliminateStates(dfa).length());
+        }
+
+        StateEliminationAlgorithm portfolio = new StateEliminationAlgorithm(EliminationOrder.PORTFOLIO);
+        EliminationResult result = portfolio.eliminate(dfa);
+        assertEquals(EliminationResult.Status.COMPLETE, result.getStatus());
+        assertEquals(shortest, result.getRegex().length());
+        assertNotEquals(EliminationOrder.PORTFOLIO, result.getOrder());
+
+        // Ties go to the earlier order, so repeated runs agree
+        assertEquals(result.getRegex(), portfolio.eliminateStates(dfa));
+        for (String word : List.of("", "ab", "bb", "aab", "babba")) {
+            assertEquals(simulateDFA(dfa, word), word.matches(result.getRegex()), word);
+        }
+    }
+
+    // Helper method to simulate a DFA on an input string
+    private boolean simulateDFA(DFA dfa, String input) {
+        int state = dfa.getStartState();
+
+        for (char c : input.toCharArray()) {
+            state = dfa.getTransition(state, c);
+            if (state == DFA.INVALID_STATE) {
+                return false;
+            }
+        }
+
+        return dfa.isAcceptingState(state);
+    }
+}
@@ -1,12 +1,18 @@
 package com.owenjg.regexsynthesiser;
 
+import com.owenjg.regexsynthesiser.cache.ConcurrentLruCache;
+import com.owenjg.regexsynthesiser.cache.LruCache;
+import com.owenjg.regexsynthesiser.simplification.SizeBudget;
 import com.owenjg.regexsynthesiser.synthesis.PatternAnalyser;
 import com.owenjg.regexsynthesiser.synthesis.RegexSynthesiser;
+import com.owenjg.regexsynthesiser.synthesis.SamplingBudget;
 import com.owenjg.regexsynthesiser.validation.ExampleValidator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
 
+import java.util.AbstractList;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -148,6 +154,110 @@ public class SynthesisTest {
                 "Error should mention positive examples");
     }
 
+    @Test
+    void testSynthesiserReportsAbortedElimination() {
+        RegexSynthesiser synthesiser = new RegexSynthesiser(null);
+        synthesiser.setSizeBudget(SizeBudget.characters(5));
+
+        final AtomicReference<String> resultRegex = new AtomicReference<>();
+
+        synthesiser.setProgressCallback(new RegexSynthesiser.ProgressCallback() {
+            @Override
+            public void onProgress(long elapsedTime, String status) {}
+
+            @Override
+            public void onComplete(String generatedRegex) {
+                resultRegex.set(generatedRegex);
+            }
+
+            @Override
+            public void onCancel() {}
+
+            @Override
+            public void onError(String message) {}
+        });
+
+        synthesiser.synthesise(Arrays.asList("alpha", "beta", "gamma"), Collections.emptyList());
+
+        // The DFA-based expression is far longer than five characters
+        assertNotNull(resultRegex.get());
+        assertTrue(resultRegex.get().contains("DFA-based: ABORTED: Size budget of 5 characters exceeded"));
+        assertTrue(synthesiser.getLastEliminationResult().isAborted());
+    }
+
+    @Test
+    void testSynthesiserReusesRegexForEquivalentExamples() {
+        RegexSynthesiser synthesiser = new RegexSynthesiser(null);
+        final List<String> results = new ArrayList<>();
+
+        synthesiser.setProgressCallback(new RegexSynthesiser.ProgressCallback() {
+            @Override
+            public void onProgress(long elapsedTime, String status) {}
+
+            @Override
+            public void onComplete(String generatedRegex) {
+                results.add(generatedRegex);
+            }
+
+            @Override
+            public void onCancel() {}
+
+            @Override
+            public void onError(String message) {}
+        });
+
+        synthesiser.synthesise(Arrays.asList("cat", "car", "dog"), Collections.emptyList());
+        assertEquals(0, synthesiser.getCacheHitCount());
+
+        // Reordered and repeated examples minimise to the same DFA
+        synthesiser.synthesise(Arrays.asList("dog", "car", "cat", "dog"), Collections.emptyList());
+        assertEquals(1, synthesiser.getCacheHitCount());
+        assertEquals(2, results.size());
+        assertEquals(results.get(0).substring(results.get(0).indexOf("DFA-based:")),
+                results.get(1).substring(results.get(1).indexOf("DFA-based:")));
+    }
+
+    @Test
+    void testLruCacheEvictsLeastRecentlyUsedEntry() {
+        LruCache<String, Integer> cache = new LruCache<>(2);
+        cache.put("a", 1);
+        cache.put("b", 2);
+
+        // Reading "a" makes "b" the least recently used entry
+        assertEquals(1, cache.get("a"));
+        cache.put("c", 3);
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get("b"));
+        assertEquals(3, cache.get("c"));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    void testConcurrentLruCacheStaysWithinCapacity() throws InterruptedException {
+        ConcurrentLruCache<Integer, Integer> cache = new ConcurrentLruCache<>(64);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            int offset = t * 1000;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    cache.put(offset + i, i);
+                    cache.get(offset + i);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Other threads may evict an entry before it is read, so only the total is certain
+        assertTrue(cache.size() <= cache.getCapacity());
+        assertEquals(4000, cache.getHitCount() + cache.getMissCount());
+        assertTrue(cache.getHitCount() > 0);
+    }
+
     @Test
     void testPatternAnalyserWithCommonPrefixSuffix() {
         List<String> positiveExamples = Arrays.asList("test123end", "test456end", "test789end");
@@ -171,4 +281,124 @@ public class SynthesisTest {
         assertTrue(validator.validateExamples(regex, positiveExamples, negativeExamples));
         }
 
-}
\ No newline at end of file
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testPatternAnalyserWithLargeExampleSets() {
+        List<String> fixedLength = new ArrayList<>();
+        List<String> variableLength = new ArrayList<>();
+        for (int i = 0; i < 100000; i++) {
+            fixedLength.add(String.format("ID-%06d-x", (i * 7919) % 1000000));
+            variableLength.add("k" + "abcdefgh".repeat(4).substring(i % 8, i % 8 + 1 + i % 20));
+        }
+
+        // Every position of the middle differs, so each becomes a class
+        assertEquals("ID-\\d\\d\\d\\d\\d\\d-x", patternAnalyser.generalisePattern(fixedLength, Collections.emptyList()));
+
+        String regex = patternAnalyser.generalisePattern(variableLength, Collections.emptyList());
+        assertTrue(regex.startsWith("k"));
+        assertTrue(validator.validateExamples(regex, variableLength, Collections.emptyList()));
+    }
+
+    @Test
+    void testPatternAnalyserPicksBestCandidate() {
+        List<String> positiveExamples = Arrays.asList("hello", "hi", "hey");
+
+        // With nothing to exclude, one class is cheaper than listing the endings
+        assertEquals("h[a-z]+", patternAnalyser.generalisePattern(positiveExamples, Collections.emptyList()));
+
+        // A negative example the class would match makes the listed endings win instead
+        List<String> negativeExamples = Arrays.asList("hat");
+        String regex = patternAnalyser.generalisePattern(positiveExamples, negativeExamples);
+        assertEquals("h(i|ey|ello)", regex);
+        assertTrue(validator.validateExamples(regex, positiveExamples, negativeExamples));
+    }
+
+    @Test
+    @Timeout(value = 60, unit = TimeUnit.SECONDS)
+    void testSynthesiserSamplesLargeExampleSets() {
+        List<String> positiveExamples = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            positiveExamples.add(String.format("ID-%06d-x", (i * 7919) % 1000000));
+        }
+        List<String> negativeExamples = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            negativeExamples.add(String.format("ID-%05d-x", i * 37));
+        }
+        negativeExamples.add("ID-123456-y");
+
+        RegexSynthesiser synthesiser = new RegexSynthesiser(null);
+        synthesiser.setSamplingBudget(new SamplingBudget(200, 3, 100));
+        final AtomicReference<String> resultRegex = new AtomicReference<>();
+
+        synthesiser.setProgressCallback(new RegexSynthesiser.ProgressCallback() {
+            @Override
+            public void onProgress(long elapsedTime, String status) {}
+
+            @Override
+            public void onComplete(String generatedRegex) {
+                resultRegex.set(generatedRegex);
+            }
+
+            @Override
+            public void onCancel() {}
+
+            @Override
+            public void onError(String message) {}
+        });
+
+        synthesiser.synthesise(positiveExamples, negativeExamples);
+
+        // The analyser generalises from the sample, and is checked against every example
+        assertNotNull(resultRegex.get());
+        assertTrue(resultRegex.get().contains("Pattern Analyser: ID-\\d{6}-x"));
+        assertTrue(synthesiser.getLastSampledExampleCount() < 1000);
+
+        // The DFA-based approach only accepts examples it has seen, so it is skipped rather than sampled
+        assertTrue(resultRegex.get().contains("DFA-based: SKIPPED: "));
+    }
+
+    @Test
+    void testSynthesiserSplitsSampleForVeryLargeExampleSets() {
+        // Large enough that the sample size times the number of positives overflows an int;
+        // the examples are made as they are read rather than held in memory
+        final int size = 2_200_000;
+        List<String> positiveExamples = new AbstractList<>() {
+            @Override
+            public String get(int index) {
+                return "a" + index;
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+
+        RegexSynthesiser synthesiser = new RegexSynthesiser(null);
+        synthesiser.setSamplingBudget(new SamplingBudget(1000, 1, 1));
+        final AtomicReference<String> resultRegex = new AtomicReference<>();
+
+        synthesiser.setProgressCallback(new RegexSynthesiser.ProgressCallback() {
+            @Override
+            public void onProgress(long elapsedTime, String status) {}
+
+            @Override
+            public void onComplete(String generatedRegex) {
+                resultRegex.set(generatedRegex);
+            }
+
+            @Override
+            public void onCancel() {}
+
+            @Override
+            public void onError(String message) {}
+        });
+
+        synthesiser.synthesise(positiveExamples, Collections.emptyList());
+
+        // With no negatives, the positives get the whole sample
+        assertEquals(1000, synthesiser.getLastSampledExampleCount());
+        assertNotNull(resultRegex.get());
+        assertTrue(resultRegex.get().contains("Pattern Analyser: a\\d+"), resultRegex.get());
+    }
+}
@@ -1,18 +1,26 @@
 package com.owenjg.regexsynthesiser;
 
+import com.owenjg.regexsynthesiser.simplification.EquivalenceTester;
+import com.owenjg.regexsynthesiser.validation.BacktrackingAnalyser;
+import com.owenjg.regexsynthesiser.validation.BacktrackingComplexity;
+import com.owenjg.regexsynthesiser.validation.BacktrackingReport;
+import com.owenjg.regexsynthesiser.validation.Counterexamples;
 import com.owenjg.regexsynthesiser.validation.Examples;
 import com.owenjg.regexsynthesiser.validation.ExampleValidator;
 import com.owenjg.regexsynthesiser.validation.RegexComparator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
 import org.junit.jupiter.api.io.TempDir;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -45,6 +53,26 @@ public class ValidationTest {
         assertFalse(validator.validateExamples("[invalid", positiveExamples, negativeExamples));
     }
 
+    @Test
+    void testFindCounterexamples() {
+        // Enough examples to be split into several chunks, with wrong ones in each
+        List<String> positiveExamples = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            positiveExamples.add(i % 1000 == 999 ? "x" + i : String.valueOf(i));
+        }
+        List<String> negativeExamples = Arrays.asList("abc", "42", "", "7");
+
+        Counterexamples counterexamples = validator.findCounterexamples("\\d+", positiveExamples, negativeExamples, 5);
+        assertEquals(Arrays.asList("x999", "x1999", "x2999", "x3999", "x4999"), counterexamples.getMissedPositives());
+        assertEquals(Arrays.asList("42", "7"), counterexamples.getMatchedNegatives());
+        assertFalse(counterexamples.isEmpty());
+
+        assertTrue(validator.findCounterexamples("x?\\d+", positiveExamples, Collections.emptyList(), 5).isEmpty());
+
+        // An invalid regex matches nothing
+        assertEquals(1, validator.findCounterexamples("[invalid", positiveExamples, negativeExamples, 1).size());
+    }
+
     @Test
     void testRegexComparator() {
         String regex1 = "a[bc]d";
@@ -63,6 +91,71 @@ public class ValidationTest {
         comparison = RegexComparator.compareRegexes(regex1, null);
         assertTrue(comparison.contains("Pattern Analyser: " + regex1));
         assertTrue(comparison.contains("DFA-based: N/A"));
+
+        // Test the backtracking verdicts
+        comparison = RegexComparator.compareRegexes(regex1, "(a|a)*x");
+        assertTrue(comparison.contains("Backtracking (PA): linear"));
+        assertTrue(comparison.contains("Backtracking (DFA): exponential"));
+    }
+
+    @Test
+    void testBacktrackingAnalyser() {
+        BacktrackingAnalyser analyser = new BacktrackingAnalyser();
+
+        // Every string has a single path through these
+        assertEquals(BacktrackingComplexity.LINEAR, analyser.analyse("[a-z]+@[a-z]+\\.com").getComplexity());
+        assertEquals(BacktrackingComplexity.LINEAR, analyser.analyse("^(a|ab)*c$").getComplexity());
+        assertEquals(BacktrackingComplexity.LINEAR, analyser.analyse("\\d{1,3}(,\\d{3})*").getComplexity());
+        assertNull(analyser.analyse("[a-z]+@").getAttackString(10));
+
+        // Two loops reading the same string, including loops added by nested quantifiers
+        for (String regex : Arrays.asList("(a|a)*x", "(a*)*b", "^(\\w+\\s?)+$", "(a|b|ab)*c")) {
+            BacktrackingReport report = analyser.analyse(regex);
+            assertEquals(BacktrackingComplexity.EXPONENTIAL, report.getComplexity(), regex);
+
+            // The attack pumps the ambiguous loop and then fails to match
+            String attack = report.getAttackString(5);
+            assertTrue(report.hasAttack(), regex);
+            assertFalse(attack.matches(regex), regex);
+
+            // The repair matches the same strings without the ambiguity
+            assertTrue(report.getRepairedComplexity().isBetterThan(report.getComplexity()), regex);
+            assertTrue(new EquivalenceTester(regex.replace("^", "").replace("$", ""),
+                    report.getRepairedRegex().replace("^", "").replace("$", "")).test(), regex);
+        }
+
+        // One loop leading into another that reads the same string
+        BacktrackingReport report = analyser.analyse("\\d*\\d*x");
+        assertEquals(BacktrackingComplexity.POLYNOMIAL, report.getComplexity());
+        assertEquals("\\d*x", report.getRepairedRegex());
+        assertTrue(report.getSummary().startsWith("polynomial (attack"));
+
+        // Possessive quantifiers are analysed as greedy, and unsupported syntax is not analysed
+        assertEquals(BacktrackingComplexity.LINEAR, analyser.analyse("[a-z]++@").getComplexity());
+        assertEquals(BacktrackingComplexity.UNKNOWN, analyser.analyse("(.*,)*x").getComplexity());
+        assertFalse(BacktrackingComplexity.UNKNOWN.isSafe());
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void testBacktrackingRepairStaysWithinBudget() {
+        BacktrackingAnalyser analyser = new BacktrackingAnalyser();
+
+        // The eliminated forms of these blow up far beyond the original, so no repair is offered
+        for (String regex : Arrays.asList(
+                "(([a-c]*b|[bc]{1,3}[bc]{2,}[bc]{0,2}){0,2}(bb{2}|[a-c]|[a-c][bc]{1,3})?|c)"
+                        + "([ab]a{1,3}(b[ab]?|c{2}a[a-c]{1,3}|[a-c]))",
+                "([bc]{2,}(b[ab][a-c]?|c{0,2}b?c){2}){2}a")) {
+            BacktrackingReport report = analyser.analyse(regex);
+            assertFalse(report.getComplexity().isSafe(), regex);
+            assertNull(report.getRepairedRegex(), regex);
+        }
+
+        // A cancelled repair is abandoned, leaving the verdict
+        analyser.setCancellationCheck(() -> true);
+        BacktrackingReport report = analyser.analyse("(a|a)*x");
+        assertEquals(BacktrackingComplexity.EXPONENTIAL, report.getComplexity());
+        assertNull(report.getRepairedRegex());
     }
 
     @Test
@@ -94,6 +187,18 @@ public class ValidationTest {
         assertEquals(1.0, RegexComparator.getComplexityRatio("abc", "def"));
     }
 
+    @Test
+    void testMatchCostRatio() {
+        // An unrolled run costs fewer steps per character than a counted one
+        assertTrue(RegexComparator.getMatchCostRatio("\\d\\d\\d", "\\d{3}") < 1.0);
+        assertEquals(1.0, RegexComparator.getMatchCostRatio("abc", "abc"), 0.001);
+
+        // Test with null or unsupported values
+        assertTrue(Double.isNaN(RegexComparator.getMatchCost(null)));
+        assertEquals(0.0, RegexComparator.getMatchCostRatio("abc", null));
+        assertEquals(0.0, RegexComparator.getMatchCostRatio("a.c", "abc"));
+    }
+
     @Test
     void testSplitExamples() {
         // Test splitting input strings